@@ -0,0 +1,163 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Benchmark a single application of the function and reverse function, on small and
+ * large values that fit in a long, for the default and non-default parameterisations.
+ * The values beyond a long are benchmarked by {@code WideFunctionBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FunctionBenchmark {
+
+  /** The amount of values in a batch, each consecutive from the seed. */
+  private static final int BATCH = 4096;
+
+  /** The (P,a,b), as "P:a:b". */
+  @Param({"2:3:1", "5:2:3", "-3:-2:-1"})
+  public String pab;
+
+  /** The value to apply the function to; the last is as near to overflowing a long as a
+   *  batch from it can be, for an |a| of at most 3, such that every path is measured. */
+  @Param({"27", "9780657631", "3074457345618254001"})
+  public String seed;
+
+  private BigInteger p;
+  private BigInteger a;
+  private BigInteger b;
+  private Parameterisation params;
+  private BigInteger n;
+  private long longN;
+  private long longP;
+  private long longA;
+  private long longB;
+  private long[] batch;
+  private long[] out;
+  private long[] out1;
+  private byte[] count;
+
+  /** Parse the parameters. */
+  @Setup
+  public void setup() {
+    String[] split = pab.split(":");
+    p = new BigInteger(split[0]);
+    a = new BigInteger(split[1]);
+    b = new BigInteger(split[2]);
+    params = new Parameterisation(p, a, b);
+    n = new BigInteger(seed);
+    longN = n.longValueExact();
+    longP = p.longValue();
+    longA = a.longValue();
+    longB = b.longValue();
+    batch = new long[BATCH];
+    for (int k = 0; k < BATCH; k++) {
+      batch[k] = longN + k;
+    }
+    out = new long[BATCH];
+    out1 = new long[BATCH];
+    count = new byte[BATCH];
+  }
+
+  /**
+   * The generic BigInteger function.
+   *
+   * @return The result of the function.
+   */
+  @Benchmark
+  public BigInteger function() {
+    return Collatz.function(n, p, a, b);
+  }
+
+  /**
+   * The compiled parameterisation's function.
+   *
+   * @return The result of the function.
+   */
+  @Benchmark
+  public BigInteger parameterisationFunction() {
+    return params.function(n);
+  }
+
+  /**
+   * The primitive long function.
+   *
+   * @return The result of the function.
+   */
+  @Benchmark
+  public long longFunction() {
+    return Collatz.function(longN, longP, longA, longB);
+  }
+
+  /**
+   * The generic BigInteger reverse function.
+   *
+   * @return The result of the reverse function.
+   */
+  @Benchmark
+  public BigInteger[] reverseFunction() {
+    return Collatz.reverseFunction(n, p, a, b);
+  }
+
+  /**
+   * The compiled parameterisation's reverse function.
+   *
+   * @return The result of the reverse function.
+   */
+  @Benchmark
+  public BigInteger[] parameterisationReverseFunction() {
+    return params.reverseFunction(n);
+  }
+
+  /**
+   * The compiled parameterisation's primitive function, once per value of a batch.
+   *
+   * @return The results of the function.
+   */
+  @Benchmark
+  public long[] scalarFunctionBatch() {
+    for (int k = 0; k < BATCH; k++) {
+      out[k] = params.function(batch[k]);
+    }
+    return out;
+  }
+
+  /**
+   * The batch function.
+   *
+   * @return The overflow mask of the batch.
+   */
+  @Benchmark
+  public long[] batchFunction() {
+    return Collatz.function(batch, out, params);
+  }
+
+  /**
+   * The batch reverse function.
+   *
+   * @return The overflow mask of the batch.
+   */
+  @Benchmark
+  public long[] batchReverseFunction() {
+    return Collatz.reverseFunction(batch, out, out1, count, params);
+  }
+}
@@ -0,0 +1,84 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Benchmark the parallel computations over ranges of seeds; sweeps, with and without a
+ * cache, and sieved verification, from small and large lower bounds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeBenchmark {
+
+  /** The (P,a,b), as "P:a:b", of the sweeps; verification is only of the default. */
+  @Param({"2:3:1", "5:2:3"})
+  public String pab;
+
+  /** The lower bound of the range; the last is close to Long.MAX_VALUE. */
+  @Param({"1", "1000000000000", "9223372036854000000"})
+  public long lo;
+
+  /** The amount of seeds in the range. */
+  @Param({"65536"})
+  public int seeds;
+
+  private Parameterisation params;
+
+  /** Parse the parameters. */
+  @Setup
+  public void setup() {
+    String[] split = pab.split(":");
+    params = new Parameterisation(new BigInteger(split[0]), new BigInteger(split[1]), new BigInteger(split[2]));
+  }
+
+  /**
+   * The stopping times of every seed in the range.
+   *
+   * @return The stopping times.
+   */
+  @Benchmark
+  public double[] sweep() {
+    return Collatz.sweep(lo, lo + seeds, params, 1000);
+  }
+
+  /**
+   * The total stopping times of every seed in the range, with a fresh cache.
+   *
+   * @return The total stopping times.
+   */
+  @Benchmark
+  public double[] cachedSweep() {
+    return Collatz.sweep(lo, lo + seeds, new StoppingTimeCache(params), 1000);
+  }
+
+  /**
+   * Verify every seed in the range, of the default parameterisation, for which the
+   * range is offset to begin at VERIFIED_MAXIMUM.
+   *
+   * @return The verification.
+   */
+  @Benchmark
+  public RangeVerification verifyRange() {
+    BigInteger from = Collatz.VERIFIED_MAXIMUM.add(BigInteger.valueOf(lo));
+    return Collatz.verifyRange(from, from.add(BigInteger.valueOf(seeds)));
+  }
+}
@@ -0,0 +1,161 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.HailstoneSequence;
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.TrajectoryStatistics;
+
+/**
+ * Benchmark the hailstone sequences and stopping times of single seeds, on small and
+ * large seeds, for the default and non-default parameterisations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequenceBenchmark {
+
+  /** The (P,a,b), as "P:a:b". */
+  @Param({"2:3:1", "5:2:3", "-3:-2:-1"})
+  public String pab;
+
+  /** The seed; 27 and 837799 have long trajectories, and the last is beyond a long. */
+  @Param({"27", "837799", "295147905179352825857"})
+  public String seed;
+
+  /** The maximum stopping time. */
+  @Param({"1000"})
+  public int maxStoppingTime;
+
+  private BigInteger p;
+  private BigInteger a;
+  private BigInteger b;
+  private Parameterisation params;
+  private BigInteger n;
+  private JumpTable jumps;
+
+  /** Parse the parameters. */
+  @Setup
+  public void setup() {
+    String[] split = pab.split(":");
+    p = new BigInteger(split[0]);
+    a = new BigInteger(split[1]);
+    b = new BigInteger(split[2]);
+    params = new Parameterisation(p, a, b);
+    n = new BigInteger(seed);
+    jumps = new JumpTable(16);
+  }
+
+  /**
+   * The hailstone sequence, with the generic parameters.
+   *
+   * @return The hailstone sequence.
+   */
+  @Benchmark
+  public HailstoneSequence hailstoneSequence() {
+    return Collatz.hailstoneSequence(n, p, a, b, maxStoppingTime, true);
+  }
+
+  /**
+   * The hailstone sequence, with the compiled parameterisation.
+   *
+   * @return The hailstone sequence.
+   */
+  @Benchmark
+  public HailstoneSequence parameterisationHailstoneSequence() {
+    return Collatz.hailstoneSequence(n, params, maxStoppingTime, true);
+  }
+
+  /**
+   * Exhaust a hailstone iterator, without retaining its values.
+   *
+   * @return The terminal condition.
+   */
+  @Benchmark
+  public SequenceState hailstoneIterator() {
+    return Collatz.hailstoneIterator(n, params, maxStoppingTime, true, CycleDetection.BRENT).exhaust();
+  }
+
+  /**
+   * The trajectory statistics, computed in a single pass.
+   *
+   * @return The statistics.
+   */
+  @Benchmark
+  public TrajectoryStatistics trajectoryStatistics() {
+    return Collatz.trajectoryStatistics(n, params, maxStoppingTime);
+  }
+
+  /**
+   * The peak, scanned from the values of a materialised hailstone sequence.
+   *
+   * @return The peak.
+   */
+  @Benchmark
+  public BigInteger hailstoneSequencePeak() {
+    BigInteger peak = n;
+    for (BigInteger value : Collatz.hailstoneSequence(n, params, maxStoppingTime, true).values) {
+      peak = peak.max(value);
+    }
+    return peak;
+  }
+
+  /**
+   * The stopping time, with the generic parameters.
+   *
+   * @return The stopping time.
+   */
+  @Benchmark
+  public Double stoppingTime() {
+    return Collatz.stoppingTime(n, p, a, b, maxStoppingTime, false);
+  }
+
+  /**
+   * The total stopping time, with the generic parameters.
+   *
+   * @return The total stopping time.
+   */
+  @Benchmark
+  public Double totalStoppingTime() {
+    return Collatz.stoppingTime(n, p, a, b, maxStoppingTime, true);
+  }
+
+  /**
+   * The total stopping time, with hashed rather than Brent cycle detection.
+   *
+   * @return The total stopping time.
+   */
+  @Benchmark
+  public Double hashedTotalStoppingTime() {
+    return Collatz.stoppingTime(n, params, maxStoppingTime, true, CycleDetection.HASHED);
+  }
+
+  /**
+   * The total stopping time, with 16 bit jump tables, which only apply to the default
+   * parameterisation, so for the others this is the default's.
+   *
+   * @return The total stopping time.
+   */
+  @Benchmark
+  public Double jumpTableTotalStoppingTime() {
+    return Collatz.stoppingTime(n, jumps, maxStoppingTime, true);
+  }
+}
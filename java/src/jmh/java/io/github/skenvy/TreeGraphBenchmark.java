@@ -0,0 +1,118 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.TreeGraph;
+
+/**
+ * Benchmark the construction of reverse tree graphs, and compact tree graphs, and the
+ * streaming of their levels, on small and large roots, for the default and non-default
+ * parameterisations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeGraphBenchmark {
+
+  /** The (P,a,b), as "P:a:b". */
+  @Param({"2:3:1", "5:2:3", "-3:-2:-1"})
+  public String pab;
+
+  /** The root of the tree; the last is beyond a long. */
+  @Param({"1", "27", "295147905179352825857"})
+  public String root;
+
+  /** The depth of the tree. */
+  @Param({"10", "20", "30"})
+  public int maxOrbitDistance;
+
+  private BigInteger p;
+  private BigInteger a;
+  private BigInteger b;
+  private Parameterisation params;
+  private BigInteger n;
+
+  /** Parse the parameters. */
+  @Setup
+  public void setup() {
+    String[] split = pab.split(":");
+    p = new BigInteger(split[0]);
+    a = new BigInteger(split[1]);
+    b = new BigInteger(split[2]);
+    params = new Parameterisation(p, a, b);
+    n = new BigInteger(root);
+  }
+
+  /**
+   * The tree graph, with the generic parameters.
+   *
+   * @return The tree graph.
+   */
+  @Benchmark
+  public TreeGraph treeGraph() {
+    return Collatz.treeGraph(n, maxOrbitDistance, p, a, b);
+  }
+
+  /**
+   * The tree graph, with the compiled parameterisation.
+   *
+   * @return The tree graph.
+   */
+  @Benchmark
+  public TreeGraph parameterisationTreeGraph() {
+    return Collatz.treeGraph(n, maxOrbitDistance, params);
+  }
+
+  /**
+   * The compact tree graph, with the compiled parameterisation.
+   *
+   * @return The compact tree graph.
+   */
+  @Benchmark
+  public CompactTreeGraph compactTreeGraph() {
+    return Collatz.compactTreeGraph(n, maxOrbitDistance, params);
+  }
+
+  /**
+   * The compact tree graph, expanded in parallel on the common pool.
+   *
+   * @return The compact tree graph.
+   */
+  @Benchmark
+  public CompactTreeGraph parallelCompactTreeGraph() {
+    return Collatz.compactTreeGraph(n, maxOrbitDistance, params, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Stream every level of the reverse tree, holding only a frontier at a time.
+   *
+   * @return The amount of values in the deepest level.
+   */
+  @Benchmark
+  public int reverseLevels() {
+    ReverseLevels levels = Collatz.reverseLevels(n, maxOrbitDistance, params);
+    int size = 0;
+    while (levels.hasNext()) {
+      size = levels.next().size();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,97 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Benchmark a single application of the function and reverse function, on values beyond
+ * a long, which only the BigInteger paths accept, for the default and non-default
+ * parameterisations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WideFunctionBenchmark {
+
+  /** The (P,a,b), as "P:a:b". */
+  @Param({"2:3:1", "5:2:3", "-3:-2:-1"})
+  public String pab;
+
+  /** The value to apply the function to; 2^68+1, and 2^200+1. */
+  @Param({"295147905179352825857", "1606938044258990275541962092341162602522202993782792835301377"})
+  public String seed;
+
+  private BigInteger p;
+  private BigInteger a;
+  private BigInteger b;
+  private Parameterisation params;
+  private BigInteger n;
+
+  /** Parse the parameters. */
+  @Setup
+  public void setup() {
+    String[] split = pab.split(":");
+    p = new BigInteger(split[0]);
+    a = new BigInteger(split[1]);
+    b = new BigInteger(split[2]);
+    params = new Parameterisation(p, a, b);
+    n = new BigInteger(seed);
+  }
+
+  /**
+   * The generic BigInteger function.
+   *
+   * @return The result of the function.
+   */
+  @Benchmark
+  public BigInteger function() {
+    return Collatz.function(n, p, a, b);
+  }
+
+  /**
+   * The compiled parameterisation's function.
+   *
+   * @return The result of the function.
+   */
+  @Benchmark
+  public BigInteger parameterisationFunction() {
+    return params.function(n);
+  }
+
+  /**
+   * The generic BigInteger reverse function.
+   *
+   * @return The result of the reverse function.
+   */
+  @Benchmark
+  public BigInteger[] reverseFunction() {
+    return Collatz.reverseFunction(n, p, a, b);
+  }
+
+  /**
+   * The compiled parameterisation's reverse function.
+   *
+   * @return The result of the reverse function.
+   */
+  @Benchmark
+  public BigInteger[] parameterisationReverseFunction() {
+    return params.reverseFunction(n);
+  }
+}
@@ -1,11 +1,24 @@
 package io.github.skenvy;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides the basic functionality to interact with the Collatz conjecture.
@@ -25,6 +38,9 @@ public final class Collatz {
   /** Default value for {@code b}, the value added to the multiplied value. */
   public static final BigInteger DEFAULT_B = BigInteger.valueOf(1);
 
+  /** The default parameterisation, (P,a,b) = (2,3,1), compiled once. */
+  public static final Parameterisation DEFAULT_PARAMETERISATION = new Parameterisation(DEFAULT_P, DEFAULT_A, DEFAULT_B);
+
   /** The four known cycles for the standard parameterisation. */
   public static final BigInteger[][] KNOWN_CYCLES = new BigInteger[][]{
     Arrays.stream(new long[]{1, 4, 2}).mapToObj(x -> BigInteger.valueOf(x)).toArray(BigInteger[]::new),
@@ -109,7 +125,12 @@ public final class Collatz {
 
     /** A Hailstone sequence state that indicates the sequence terminated
      *  by reaching "0", a special type of "stopping time". */
-    ZERO_STOP("ZERO_STOP");
+    ZERO_STOP("ZERO_STOP"),
+
+    /** A Hailstone sequence state that indicates the sequence was paused, before any
+     *  other terminal state, having exhausted a {@code Budget} of time, steps or bits,
+     *  and may be resumed from its {@code Continuation}. */
+    BUDGET_EXHAUSTED("BUDGET_EXHAUSTED");
 
     /** The internal string contents; the sequence state. */
     private final String label;
@@ -155,13 +176,512 @@ public final class Collatz {
      * either a 1 or 2 length cycle, it's not strictly an illegal operation.
      * "b" being zero would cause behaviour not consistant with the collatz
      * function, but would not violate the reversability, so no check either. */
-    if (p == BigInteger.ZERO) {
+    if (p.signum() == 0) {
       throw new FailedSaneParameterCheck(SaneParameterErrMsg.SANE_PARAMS_P);
-    } else if (a == BigInteger.ZERO) {
+    } else if (a.signum() == 0) {
       throw new FailedSaneParameterCheck(SaneParameterErrMsg.SANE_PARAMS_A);
     }
   }
 
+  /**
+   * A parameterisation (P,a,b) that has been sanity checked once, and compiled into a
+   * function specialised for it, such that iterating it millions of times does not pay
+   * for the sanity check, or the generic arithmetic, on every step. A P that is a power
+   * of two (or the negative of one) tests divisibility on the low bits and divides with
+   * a shift, an a of 3 multiplies with a shift and add, and any P, a and b that fit in
+   * longs allow values that fit in longs to be stepped without any BigInteger's.
+   */
+  public static final class Parameterisation {
+
+    /** Sentinel returned by {@code longFunction} when a step can't be computed in a long.
+     *  It is also a genuine possible result, which is confirmed by the BigInteger step. */
+    static final long LONG_OVERFLOW = Long.MIN_VALUE;
+
+    /** {@code P}, the modulus condition. */
+    final BigInteger modulus;
+
+    /** {@code a}, the input's multiplicand. */
+    final BigInteger multiplicand;
+
+    /** {@code b}, the value added to the multiplied value. */
+    final BigInteger increment;
+
+    /** The product {@code P*a}, used by the reverse function. */
+    private final BigInteger modulusTimesMultiplicand;
+
+    /** Whether P, a and b all fit in a long, which permits the primitive steps. */
+    final boolean longParameters;
+
+    /** The parameterisation as longs, when {@code longParameters} is true. */
+    private final long longP;
+    private final long longA;
+    private final long longB;
+
+    /** If |P| is a power of two, its exponent, otherwise -1. */
+    private final int modulusShift;
+
+    /** The low bits that must all be zero for a value to be divisible by a power of two |P|. */
+    private final long modulusMask;
+
+    /** Whether a is 3, to use {@code (n<<1)+n} rather than a multiplication. */
+    private final boolean multiplicandIsThree;
+
+    /** Whether P, a and b all fit in a long, and |P| is either a power of two, or at most
+     *  2^32, which permits the in place steps of a {@code MutableInteger}. */
+    private final boolean wideParameters;
+
+    /** The inclusive range of longs, n, for which {@code a*n+b} does not overflow a long. */
+    private final long lowestSafeMultiplication;
+    private final long highestSafeMultiplication;
+
+    /**
+     * Sanity check, and compile, a parameterisation.
+     *
+     * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+     * @param a Factor by which to multiply n.
+     * @param b Value to add to the scaled value of n.
+     * @throws FailedSaneParameterCheck if P or a are 0.
+     */
+    public Parameterisation(BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
+      assertSaneParameterisation(p, a, b);
+      this.modulus = p;
+      this.multiplicand = a;
+      this.increment = b;
+      this.modulusTimesMultiplicand = p.multiply(a);
+      this.longParameters = fitsInLong(p) && fitsInLong(a) && fitsInLong(b);
+      this.longP = p.longValue();
+      this.longA = a.longValue();
+      this.longB = b.longValue();
+      BigInteger absP = p.abs();
+      if (absP.bitCount() == 1 && absP.bitLength() < 64) {
+        this.modulusShift = absP.getLowestSetBit();
+        this.modulusMask = absP.longValue() - 1;
+      } else {
+        this.modulusShift = -1;
+        this.modulusMask = 0;
+      }
+      this.multiplicandIsThree = a.equals(BigInteger.valueOf(3));
+      this.wideParameters = this.longParameters && (this.modulusShift >= 0 || absP.bitLength() <= 32);
+      if (this.longParameters) {
+        // Bound n such that a*n+b lies within [Long.MIN_VALUE, Long.MAX_VALUE].
+        BigInteger toMin = BigInteger.valueOf(Long.MIN_VALUE).subtract(b);
+        BigInteger toMax = BigInteger.valueOf(Long.MAX_VALUE).subtract(b);
+        BigInteger lower = (a.signum() > 0) ? ceilDivide(toMin, a) : ceilDivide(toMax, a);
+        BigInteger upper = (a.signum() > 0) ? floorDivide(toMax, a) : floorDivide(toMin, a);
+        this.lowestSafeMultiplication = clampToLong(lower);
+        this.highestSafeMultiplication = clampToLong(upper);
+      } else {
+        this.lowestSafeMultiplication = 0;
+        this.highestSafeMultiplication = -1;
+      }
+    }
+
+    /**
+     * Returns the output of a single application of this Collatz-esque function.
+     *
+     * @param n The value on which to perform the Collatz-esque function.
+     * @return The result of the function
+     */
+    public BigInteger function(BigInteger n) {
+      if (longParameters && fitsInLong(n)) {
+        long next = longFunction(n.longValue());
+        if (next != LONG_OVERFLOW) {
+          if (Metrics.ENABLED) {
+            Metrics.function(false);
+          }
+          return BigInteger.valueOf(next);
+        }
+      }
+      if (Metrics.ENABLED) {
+        Metrics.function(true);
+      }
+      return bigFunction(n);
+    }
+
+    /**
+     * Returns the output of a single application of this Collatz-esque function, on
+     * primitive longs. This avoids allocating any BigInteger's, but will throw if the
+     * result can not be represented in a long.
+     *
+     * @param n The value on which to perform the Collatz-esque function.
+     * @return The result of the function
+     * @throws ArithmeticException if the result overflows a long.
+     */
+    public long function(long n) throws ArithmeticException {
+      if (longParameters) {
+        long next = longFunction(n);
+        if (next != LONG_OVERFLOW) {
+          if (Metrics.ENABLED) {
+            Metrics.function(false);
+          }
+          return next;
+        }
+      }
+      if (Metrics.ENABLED) {
+        Metrics.function(true);
+      }
+      BigInteger next = bigFunction(BigInteger.valueOf(n));
+      if (!fitsInLong(next)) {
+        throw new ArithmeticException("long overflow");
+      }
+      return next.longValue();
+    }
+
+    /**
+     * Applies this Collatz-esque function to a batch of primitive longs, without
+     * allocating any BigInteger's for the results that fit in a long. The bit
+     * {@code 1L << k} of the word {@code k >>> 6} of the returned mask is set if the
+     * result for {@code in[k]} overflows a long, in which case {@code out[k]} is 0.
+     *
+     * @param in The values on which to perform the Collatz-esque function.
+     * @param out The array, at least as long as {@code in}, into which to write the results.
+     * @return The overflow mask, of one bit per value.
+     * @throws IllegalArgumentException if {@code out} is shorter than {@code in}.
+     */
+    public long[] function(long[] in, long[] out) throws IllegalArgumentException {
+      if (out.length < in.length) {
+        throw new IllegalArgumentException("The output of a batch can't be shorter than its input.");
+      }
+      final int length = in.length;
+      long[] overflowed = new long[(length + 63) >>> 6];
+      if (!longParameters) {
+        for (int k = 0; k < length; k++) {
+          BigInteger next = bigFunction(BigInteger.valueOf(in[k]));
+          out[k] = fitsInLong(next) ? next.longValue() : 0;
+          overflowed[k >>> 6] |= fitsInLong(next) ? 0 : 1L << k;
+        }
+      } else if (modulusShift >= 0) {
+        long sign = (longP > 0) ? 0 : -1;
+        selectFunction(in, out, length, modulusMask, modulusShift, sign, longA, longB);
+        // Overflows are rare, and only possible beyond the safe multiplications, or for
+        // Long.MIN_VALUE, so are only looked for if the batch's extremes go beyond them.
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (int k = 0; k < length; k++) {
+          lowest = Math.min(lowest, in[k]);
+          highest = Math.max(highest, in[k]);
+        }
+        if (lowest < lowestSafeMultiplication || highest > highestSafeMultiplication || lowest == Long.MIN_VALUE) {
+          for (int k = 0; k < length; k++) {
+            long n = in[k];
+            if (((n & modulusMask) == 0) ? (sign != 0 && n == Long.MIN_VALUE && modulusShift == 0)
+                : (n < lowestSafeMultiplication || n > highestSafeMultiplication)) {
+              out[k] = 0;
+              overflowed[k >>> 6] |= 1L << k;
+            }
+          }
+        }
+      } else {
+        // |P| isn't a power of two, so isn't 1, and the division can't overflow.
+        for (int k = 0; k < length; k++) {
+          long n = in[k];
+          if (n % longP == 0) {
+            out[k] = n / longP;
+          } else if (n < lowestSafeMultiplication || n > highestSafeMultiplication) {
+            out[k] = 0;
+            overflowed[k >>> 6] |= 1L << k;
+          } else {
+            out[k] = n * longA + longB;
+          }
+        }
+      }
+      return overflowed;
+    }
+
+    /**
+     * The primitive function of a batch, for a power of two |P|, ignoring overflows. It is
+     * branch free, selecting between both results, and static, with the parameterisation
+     * passed as locals, such that the JIT can vectorise it; which it only does for a
+     * constant shift, so |P| of 2 has its own loop.
+     *
+     * @param in The values on which to perform the Collatz-esque function.
+     * @param out The array into which to write the results.
+     * @param length The amount of values.
+     * @param mask The low bits that must all be zero for a value to be divisible by |P|.
+     * @param shift The exponent of |P|.
+     * @param sign -1 if P is negative, otherwise 0.
+     * @param a Factor by which to multiply n.
+     * @param b Value to add to the scaled value of n.
+     */
+    private static void selectFunction(long[] in, long[] out, int length, long mask, int shift, long sign, long a, long b) {
+      if (shift == 1) {
+        for (int k = 0; k < length; k++) {
+          long n = in[k];
+          long divisible = ((n & 1) - 1) >> 63;
+          out[k] = ((((n >> 1) ^ sign) - sign) & divisible) | ((n * a + b) & ~divisible);
+        }
+      } else {
+        for (int k = 0; k < length; k++) {
+          long n = in[k];
+          long divisible = ((n & mask) - 1) >> 63;
+          out[k] = ((((n >> shift) ^ sign) - sign) & divisible) | ((n * a + b) & ~divisible);
+        }
+      }
+    }
+
+    /**
+     * Returns the output of a single application of this Collatz-esque reverse function.
+     * The values are ordered the same as {@code Collatz.reverseFunction(~)}.
+     *
+     * @param n The value on which to perform the reverse Collatz-esque function.
+     * @return The result of the function's reverse
+     */
+    public BigInteger[] reverseFunction(BigInteger n) {
+      BigInteger offset = n.subtract(increment);
+      /*(n-b)%a == 0 && (n-b)%(P*a) != 0*/
+      if (offset.remainder(multiplicand).signum() == 0 && offset.remainder(modulusTimesMultiplicand).signum() != 0) {
+        // [P*n] + [(n-b)//a]
+        return new BigInteger[]{modulus.multiply(n), offset.divide(multiplicand)};
+      } else { // [P*n]
+        return new BigInteger[]{modulus.multiply(n)};
+      }
+    }
+
+    /**
+     * Applies this Collatz-esque reverse function to a batch of primitive longs, without
+     * allocating any BigInteger's for the reverses that fit in a long. {@code count[k]}
+     * is the amount of reverses of {@code in[k]}, which are written to {@code out0[k]}
+     * and {@code out1[k]}, ordered the same as {@code reverseFunction(BigInteger)}, with
+     * {@code out1[k]} being 0 if there is only one. The bit {@code 1L << k} of the word
+     * {@code k >>> 6} of the returned mask is set if any reverse of {@code in[k]}
+     * overflows a long, in which case {@code count[k]}, {@code out0[k]} and
+     * {@code out1[k]} are 0.
+     *
+     * @param in The values on which to perform the reverse Collatz-esque function.
+     * @param out0 The array, at least as long as {@code in}, of the "Pre N/P" reverses.
+     * @param out1 The array, at least as long as {@code in}, of the "Pre aN+b" reverses.
+     * @param count The array, at least as long as {@code in}, of the amounts of reverses.
+     * @return The overflow mask, of one bit per value.
+     * @throws IllegalArgumentException if any output is shorter than {@code in}.
+     */
+    public long[] reverseFunction(long[] in, long[] out0, long[] out1, byte[] count) throws IllegalArgumentException {
+      if (out0.length < in.length || out1.length < in.length || count.length < in.length) {
+        throw new IllegalArgumentException("The output of a batch can't be shorter than its input.");
+      }
+      final int length = in.length;
+      long[] overflowed = new long[(length + 63) >>> 6];
+      long[] reverses = new long[2];
+      for (int k = 0; k < length; k++) {
+        int amount = longParameters ? longReverseFunction(in[k], reverses) : -1;
+        if (amount == -1) {
+          // Declined by the primitive reverse, which is conservative, so check exactly.
+          BigInteger[] bigReverses = reverseFunction(BigInteger.valueOf(in[k]));
+          amount = bigReverses.length;
+          for (int r = 0; r < amount; r++) {
+            if (!fitsInLong(bigReverses[r])) {
+              amount = 0;
+              break;
+            }
+            reverses[r] = bigReverses[r].longValue();
+          }
+        }
+        out0[k] = (amount > 0) ? reverses[0] : 0;
+        out1[k] = (amount > 1) ? reverses[1] : 0;
+        count[k] = (byte) amount;
+        overflowed[k >>> 6] |= (amount > 0) ? 0 : 1L << k;
+      }
+      return overflowed;
+    }
+
+    /**
+     * Two parameterisations are equal if they have the same (P,a,b), such that they can
+     * key the results, such as cached stopping times, that are particular to them.
+     *
+     * @param other The object to compare to.
+     * @return {@code true} if the other is a parameterisation with the same (P,a,b).
+     */
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      } else if (!(other instanceof Parameterisation)) {
+        return false;
+      }
+      Parameterisation that = (Parameterisation) other;
+      return modulus.equals(that.modulus) && multiplicand.equals(that.multiplicand) && increment.equals(that.increment);
+    }
+
+    /**
+     * A hash code consistent with {@code equals}.
+     *
+     * @return The hash code of the (P,a,b).
+     */
+    @Override
+    public int hashCode() {
+      return (modulus.hashCode() * 31 + multiplicand.hashCode()) * 31 + increment.hashCode();
+    }
+
+    /**
+     * The specialised primitive step, only valid when {@code longParameters} is true.
+     *
+     * @param n The value on which to perform the Collatz-esque function.
+     * @return The result of the function, or {@code LONG_OVERFLOW} if it (might) overflow.
+     */
+    long longFunction(long n) {
+      if (modulusShift >= 0) {
+        if ((n & modulusMask) == 0) {
+          // For P = -1, negating Long.MIN_VALUE wraps back to the sentinel.
+          return (longP > 0) ? (n >> modulusShift) : -(n >> modulusShift);
+        }
+      } else if (n % longP == 0) {
+        return n / longP;
+      }
+      if (n < lowestSafeMultiplication || n > highestSafeMultiplication) {
+        return LONG_OVERFLOW;
+      }
+      return multiplicandIsThree ? (n << 1) + n + longB : n * longA + longB;
+    }
+
+    /**
+     * The specialised primitive reverse step, only valid when {@code longParameters} is true.
+     * The values are ordered the same as {@code reverseFunction(BigInteger)}.
+     *
+     * @param n The value on which to perform the reverse Collatz-esque function.
+     * @param reverses The array, of at least two, into which to write the reverses.
+     * @return The amount of reverses, or -1 if any of them might not fit in a long.
+     */
+    int longReverseFunction(long n, long[] reverses) {
+      long product = longP * n;
+      if (Math.multiplyHigh(longP, n) != (product >> 63)) {
+        return -1;
+      }
+      long offset = n - longB;
+      if (((n ^ longB) & (n ^ offset)) < 0 || (offset == Long.MIN_VALUE && longA == -1)) {
+        return -1;
+      }
+      reverses[0] = product;
+      /*(n-b)%a == 0 && (n-b)%(P*a) != 0, the latter being ((n-b)/a)%P != 0*/
+      if (offset % longA == 0 && (offset / longA) % longP != 0) {
+        reverses[1] = offset / longA;
+        return 2;
+      }
+      return 1;
+    }
+
+    /**
+     * The specialised BigInteger step.
+     *
+     * @param n The value on which to perform the Collatz-esque function.
+     * @return The result of the function
+     */
+    BigInteger bigFunction(BigInteger n) {
+      if (modulusShift >= 0) {
+        if (n.signum() == 0 || n.getLowestSetBit() >= modulusShift) {
+          return (longP > 0) ? n.shiftRight(modulusShift) : n.shiftRight(modulusShift).negate();
+        }
+      } else if (n.remainder(modulus).signum() == 0) {
+        return n.divide(modulus);
+      }
+      return n.multiply(multiplicand).add(increment);
+    }
+
+    /**
+     * The in place form of the function, on a value beyond the range of the primitive step,
+     * which falls back to the BigInteger step if P, a or b are too large for it.
+     *
+     * @param n The value on which to perform the Collatz-esque function, in place.
+     */
+    void wideFunction(MutableInteger n) {
+      if (!wideParameters) {
+        n.set(bigFunction(n.toBigInteger()));
+        return;
+      }
+      if (modulusShift >= 0) {
+        if (n.signum() == 0 || n.lowestSetBit() >= modulusShift) {
+          n.shiftRight(modulusShift);
+          if (longP < 0) {
+            n.negate();
+          }
+          return;
+        }
+      } else if (n.remainder(Math.abs(longP)) == 0) {
+        n.divide(Math.abs(longP));
+        if (longP < 0) {
+          n.negate();
+        }
+        return;
+      }
+      n.multiplyAdd(longA, longB);
+    }
+
+    /**
+     * Whether a value is divisible by P, the specialised primitive form, only valid when
+     * {@code longParameters} is true.
+     *
+     * @param n The value to check.
+     * @return {@code true} if the function would divide n by P.
+     */
+    boolean divides(long n) {
+      return (modulusShift >= 0) ? (n & modulusMask) == 0 : n % longP == 0;
+    }
+
+    /**
+     * Whether a value is divisible by P, such that the function would divide it by P,
+     * rather than take the a*n+b branch.
+     *
+     * @param n The value to check.
+     * @return {@code true} if the function would divide n by P.
+     */
+    boolean divides(BigInteger n) {
+      if (modulusShift >= 0) {
+        return n.signum() == 0 || n.getLowestSetBit() >= modulusShift;
+      }
+      return n.remainder(modulus).signum() == 0;
+    }
+
+    /**
+     * Whether a value is divisible by P, as per {@code divides(BigInteger)}, for a value
+     * held in a mutable integer.
+     *
+     * @param n The value to check.
+     * @return {@code true} if the function would divide n by P.
+     */
+    boolean divides(MutableInteger n) {
+      if (!wideParameters) {
+        return divides(n.toBigInteger());
+      } else if (modulusShift >= 0) {
+        return n.signum() == 0 || n.lowestSetBit() >= modulusShift;
+      }
+      return n.remainder(Math.abs(longP)) == 0;
+    }
+
+    /**
+     * Rounds the quotient of two BigInteger's towards negative infinity.
+     *
+     * @param n The dividend.
+     * @param d The non-zero divisor.
+     * @return The floored quotient.
+     */
+    private static BigInteger floorDivide(BigInteger n, BigInteger d) {
+      BigInteger[] quotientAndRemainder = n.divideAndRemainder(d);
+      if (quotientAndRemainder[1].signum() != 0 && quotientAndRemainder[1].signum() != d.signum()) {
+        return quotientAndRemainder[0].subtract(BigInteger.ONE);
+      }
+      return quotientAndRemainder[0];
+    }
+
+    /**
+     * Rounds the quotient of two BigInteger's towards positive infinity.
+     *
+     * @param n The dividend.
+     * @param d The non-zero divisor.
+     * @return The ceilinged quotient.
+     */
+    private static BigInteger ceilDivide(BigInteger n, BigInteger d) {
+      return floorDivide(n.negate(), d).negate();
+    }
+
+    /**
+     * Clamp a BigInteger to the range of a long.
+     *
+     * @param n The value to clamp.
+     * @return The nearest long to the value.
+     */
+    private static long clampToLong(BigInteger n) {
+      return n.max(BigInteger.valueOf(Long.MIN_VALUE)).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+    }
+  }
+
   /**
    * Returns the output of a single application of a Collatz-esque function.
    *
@@ -174,11 +694,54 @@ public final class Collatz {
    */
   public static BigInteger function(BigInteger n, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
     assertSaneParameterisation(p, a, b);
-    if (n.remainder(p) == BigInteger.ZERO) {
-      return n.divide(p);
-    } else {
-      return n.multiply(a).add(b);
+    if (fitsInLong(n) && fitsInLong(p) && fitsInLong(a) && fitsInLong(b)) {
+      try {
+        BigInteger next = BigInteger.valueOf(longFunction(n.longValue(), p.longValue(), a.longValue(), b.longValue()));
+        if (Metrics.ENABLED) {
+          Metrics.function(false);
+        }
+        return next;
+      } catch (ArithmeticException overflow) {
+        // Only the step that overflows falls back to the BigInteger arithmetic.
+      }
+    }
+    if (Metrics.ENABLED) {
+      Metrics.function(true);
+    }
+    return bigFunction(n, p, a, b);
+  }
+
+  /**
+   * Returns the output of a single application of a Collatz-esque function, on
+   * primitive longs. This avoids allocating any BigInteger's, but will throw if
+   * the result can not be represented in a long.
+   *
+   * @param n The value on which to perform the Collatz-esque function.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @return The result of the function
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   * @throws ArithmeticException if the result overflows a long.
+   */
+  public static long function(long n, long p, long a, long b) throws FailedSaneParameterCheck, ArithmeticException {
+    if (p == 0) {
+      throw new FailedSaneParameterCheck(SaneParameterErrMsg.SANE_PARAMS_P);
+    } else if (a == 0) {
+      throw new FailedSaneParameterCheck(SaneParameterErrMsg.SANE_PARAMS_A);
     }
+    return longFunction(n, p, a, b);
+  }
+
+  /**
+   * Returns the output of a single application of the Collatz function, on primitive longs.
+   *
+   * @param n The value on which to perform the Collatz function.
+   * @return The result of the function
+   * @throws ArithmeticException if the result overflows a long.
+   */
+  public static long function(long n) throws ArithmeticException {
+    return DEFAULT_PARAMETERISATION.function(n);
   }
 
   /**
@@ -189,7 +752,68 @@ public final class Collatz {
    * @throws FailedSaneParameterCheck if P or a are 0.
    */
   public static BigInteger function(BigInteger n) throws FailedSaneParameterCheck {
-    return function(n, DEFAULT_P, DEFAULT_A, DEFAULT_B);
+    return DEFAULT_PARAMETERISATION.function(n);
+  }
+
+  /**
+   * Applies a Collatz-esque function to a batch of primitive longs. The bit
+   * {@code 1L << k} of the word {@code k >>> 6} of the returned mask is set if the
+   * result for {@code in[k]} overflows a long, in which case {@code out[k]} is 0.
+   *
+   * @param in The values on which to perform the Collatz-esque function.
+   * @param out The array, at least as long as {@code in}, into which to write the results.
+   * @param params The parameterisation (P,a,b) of the function.
+   * @return The overflow mask, of one bit per value.
+   * @throws IllegalArgumentException if {@code out} is shorter than {@code in}.
+   */
+  public static long[] function(long[] in, long[] out, Parameterisation params) throws IllegalArgumentException {
+    return params.function(in, out);
+  }
+
+  /**
+   * The unchecked primitive form of the function, for an already sane parameterisation.
+   *
+   * @param n The value on which to perform the Collatz-esque function.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @return The result of the function
+   * @throws ArithmeticException if the result overflows a long.
+   */
+  private static long longFunction(long n, long p, long a, long b) throws ArithmeticException {
+    if (n % p == 0) {
+      // The division can only overflow for Long.MIN_VALUE divided by -1.
+      return (p == -1) ? Math.negateExact(n) : n / p;
+    } else {
+      return Math.addExact(Math.multiplyExact(n, a), b);
+    }
+  }
+
+  /**
+   * The unchecked BigInteger form of the function, for an already sane parameterisation.
+   *
+   * @param n The value on which to perform the Collatz-esque function.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @return The result of the function
+   */
+  private static BigInteger bigFunction(BigInteger n, BigInteger p, BigInteger a, BigInteger b) {
+    if (n.remainder(p).signum() == 0) {
+      return n.divide(p);
+    } else {
+      return n.multiply(a).add(b);
+    }
+  }
+
+  /**
+   * Whether a BigInteger can be represented exactly by a long.
+   *
+   * @param n The value to check.
+   * @return {@code true} if the value fits in a long.
+   */
+  private static boolean fitsInLong(BigInteger n) {
+    return n.bitLength() < 64;
   }
 
   /**
@@ -208,7 +832,7 @@ public final class Collatz {
   public static BigInteger[] reverseFunction(BigInteger n, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
     assertSaneParameterisation(p, a, b);
     /*(n-b)%a == 0 && (n-b)%(P*a) != 0*/
-    if (n.subtract(b).remainder(a) == BigInteger.ZERO && n.subtract(b).remainder(p.multiply(a)) != BigInteger.ZERO) {
+    if (n.subtract(b).remainder(a).signum() == 0 && n.subtract(b).remainder(p.multiply(a)).signum() != 0) {
       // [P*n] + [(n-b)//a]
       BigInteger[] preVals = new BigInteger[]{p.multiply(n), n.subtract(b).divide(a)};
       return preVals;
@@ -228,175 +852,1786 @@ public final class Collatz {
    * @throws FailedSaneParameterCheck if P or a are 0.
    */
   public static BigInteger[] reverseFunction(BigInteger n) throws FailedSaneParameterCheck {
-    return reverseFunction(n, DEFAULT_P, DEFAULT_A, DEFAULT_B);
+    return DEFAULT_PARAMETERISATION.reverseFunction(n);
   }
 
   /**
-   * Provides the appropriate lambda to use to check if iterations on an initial
-   * value have reached either the stopping time, or total stopping time.
+   * Applies a Collatz-esque reverse function to a batch of primitive longs.
+   * {@code count[k]} is the amount of reverses of {@code in[k]}, which are written to
+   * {@code out0[k]} and {@code out1[k]}, ordered the same as {@code reverseFunction(~)}.
+   * The bit {@code 1L << k} of the word {@code k >>> 6} of the returned mask is set if
+   * any reverse of {@code in[k]} overflows a long, in which case {@code count[k]} is 0.
    *
-   * @param n The initial value to confirm against a stopping time check.
-   * @param totalStop If false, the lambda will confirm that iterations of n
-   *     have reached the oriented stopping time to reach a value closer to 0.
-   *     If true, the lambda will simply check equality to 1.
-   * @return The lambda to check for the stopping time.
+   * @param in The values on which to perform the reverse Collatz-esque function.
+   * @param out0 The array, at least as long as {@code in}, of the "Pre N/P" reverses.
+   * @param out1 The array, at least as long as {@code in}, of the "Pre aN+b" reverses.
+   * @param count The array, at least as long as {@code in}, of the amounts of reverses.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return The overflow mask, of one bit per value.
+   * @throws IllegalArgumentException if any output is shorter than {@code in}.
    */
-  private static Function<BigInteger, Boolean> stoppingTimeTerminus(BigInteger n, boolean totalStop) {
-    if (totalStop) {
-      return (x) -> {
-        return x.equals(BigInteger.ONE);
-      };
-    } else if (n.compareTo(BigInteger.ZERO) >= 0) {
-      return (x) -> {
-        return ((x.compareTo(n) == -1) && (x.compareTo(BigInteger.ZERO) == 1));
-      };
-    } else {
-      return (x) -> {
-        return ((x.compareTo(n) == 1) && (x.compareTo(BigInteger.ZERO) == -1));
-      };
-    }
+  public static long[] reverseFunction(long[] in, long[] out0, long[] out1, byte[] count, Parameterisation params) throws IllegalArgumentException {
+    return params.reverseFunction(in, out0, out1, count);
   }
 
-  /** Contains the results of computing a hailstone sequence via {@code Collatz.hailstoneSequence(~)}. */
-  public static final class HailstoneSequence {
+  /** The means by which a trajectory detects that it has entered a cycle. */
+  public enum CycleDetection {
 
-    /** The set of values that comprise the hailstone sequence. */
-    final BigInteger[] values;
+    /** Index every visited value in a hash table; a constant time check per step, with
+     *  memory proportional to the amount of steps. Used when values are retained, unless resumed. */
+    HASHED,
 
-    private final Function<BigInteger, Boolean> terminate;
+    /** Brent's cycle finding algorithm; constant memory, with the same terminal states
+     *  and statuses as hashing. A sequence that reaches the maximum stopping time may be
+     *  iterated up to three times as far, to confirm whether it had already formed a cycle,
+     *  but only until it reaches a value that no such cycle could contain. */
+    BRENT
+  }
 
-    /** A terminal condition that reflects the final state of the hailstone sequencing,
-     *  whether than be that it succeeded at determining the stopping time, the total
-     *  stopping time, found a cycle, or got stuck on zero (or surpassed the max total). */
-    final SequenceState terminalCondition;
+  /**
+   * The engine that iterates a Collatz-esque function from an initial value until some
+   * terminal {@code SequenceState} is reached. Values are stepped on a primitive long for
+   * as long as they fit in one, falling back to the in place arithmetic of a mutable integer
+   * only for the steps whose values overflow, and returning to the long once the values are
+   * small enough again. The visited values are only recorded if they are to be retained, and
+   * are only materialised as BigInteger's at the API boundary.
+   */
+  private static final class Trajectory {
 
-    /** A status value that has different meanings depending on what the terminal condition
-     *  was. If the sequence completed either via reaching the stopping or total stopping time,
-     *  or getting stuck on zero, then this value is the stopping/terminal time. If the sequence
-     *  got stuck on a cycle, then this value is the cycle length. If the sequencing passes the
-     *  maximum stopping time then this is the value that was provided as that maximum. */
+    /** The compiled parameterisation to iterate. */
+    private final Parameterisation params;
+
+    /** The initial value, and whether the terminus is the total stopping time. The
+     *  {@code initialWide} is only held if the initial value does not fit in a long. */
+    private final BigInteger initialValue;
+    private final long initialLong;
+    private final boolean initialIsLong;
+    private final MutableInteger initialWide;
+    private final boolean totalStop;
+
+    /** How cycles are detected; HASHED if the values are retained, unless resumed. */
+    private final CycleDetection cycleDetection;
+
+    /** The step of the first value, which is 0, unless resumed from a continuation. */
+    private int firstStep;
+
+    /** The current value; held in {@code value} unless it does not fit in a long, in which
+     *  case {@code isWide} is set and it is held in {@code wide}, which is stepped in place,
+     *  and reused each time the values overflow a long. The {@code bigValue} is the wide
+     *  value materialised as a BigInteger, only when it is needed, otherwise null. */
+    private long value;
+    private boolean isWide;
+    private MutableInteger wide;
+    private BigInteger bigValue;
+
+    /** The history of visited values, in the same long/BigInteger split as the current value,
+     *  or null if the values are not retained. The {@code bigHistory} is only allocated once
+     *  a value overflows a long. */
+    private long[] longHistory;
+    private BigInteger[] bigHistory;
+    private int size;
+
+    /** The HASHED index of the step at which each value was visited, split the same way. */
+    private LongIndex longIndex;
+    private Map<BigInteger, Integer> bigIndex;
+
+    /** The BRENT tortoise; the value at the last power of two checkpoint, the current
+     *  power of two, and the amount of steps the hare has taken since the checkpoint. */
+    private long tortoise;
+    private boolean tortoiseIsWide;
+    private MutableInteger wideTortoise;
+    private long power;
+    private long lambda;
+
+    /** The greatest bit length of the magnitude of any value visited, of at least 64, as
+     *  every long fits within it, so it is only tracked on the steps that overflow. */
+    private int widest = 64;
+
+    /** What is known of the first repetition beyond the steps taken, from before the
+     *  trajectory was resumed, or from a look ahead beyond the maximum; the step up to which
+     *  no value repeated, the step at which a value first repeated, and the length of its
+     *  cycle, if a look ahead found one, otherwise 0, and the state a look ahead stopped at,
+     *  if it reached its limit, from which a look ahead beyond a greater maximum continues. */
+    private int repeatFree;
+    private long knownRepeat;
+    private int knownCycleLength;
+    private Continuation lookAhead;
+
+    /** The continuation the trajectory was resumed from, or null. */
+    private Continuation resumedFrom;
+
+    /** The amount of steps taken, and the most that are permitted. */
+    private int steps;
+    private int maxSteps;
+
+    /** The amount of steps taken on the mutable integer, and of cycle checks, only
+     *  tallied if the {@code Metrics} are enabled, and added to them when finished. */
+    private int overflows;
+    private int cycleChecks;
+
+    /** Whether a terminal state has been reached; the current value is the last. */
+    boolean finished;
+
+    /** The terminal condition and status, as per {@code HailstoneSequence}. */
+    SequenceState terminalCondition;
+    int terminalStatus;
+
+    /** Whether the statistics are tracked as the trajectory runs; the amount of steps that
+     *  took the a*n+b branch, the greatest value visited, held in the same long/wide
+     *  split as the current value, and the first step below the initial value, or -1. */
+    boolean statistics;
+    int oddSteps;
+    private long peak;
+    private boolean peakIsWide;
+    private MutableInteger widePeak;
+    int glide = -1;
+
+    /**
+     * Prepare a trajectory from the initial value.
+     *
+     * @param initialValue The value to begin the trajectory from.
+     * @param params The parameterisation to iterate.
+     * @param totalStoppingTime Whether the terminus is the "total" stopping time.
+     * @param cycleDetection How to detect cycles; HASHED, if the values are retained.
+     * @param retainValues Whether to record the values visited.
+     * @param capacity The anticipated amount of values to visit.
+     */
+    Trajectory(BigInteger initialValue, Parameterisation params, boolean totalStoppingTime, CycleDetection cycleDetection, boolean retainValues, int capacity) {
+      this.params = params;
+      this.initialValue = initialValue;
+      this.initialIsLong = fitsInLong(initialValue);
+      this.initialLong = initialValue.longValue();
+      this.totalStop = totalStoppingTime;
+      this.cycleDetection = cycleDetection;
+      if (initialIsLong) {
+        this.value = initialLong;
+        this.initialWide = null;
+      } else {
+        this.initialWide = new MutableInteger(initialValue);
+        this.widest = Math.max(initialWide.bitLength(), 64);
+        this.wide = initialWide.copy();
+        this.isWide = true;
+        this.bigValue = initialValue;
+      }
+      if (retainValues) {
+        this.longHistory = new long[Math.max(capacity, 1)];
+      }
+      if (this.cycleDetection == CycleDetection.HASHED) {
+        this.longIndex = new LongIndex(capacity);
+      }
+    }
+
+    /**
+     * Prepare a trajectory that resumes from a continuation, with its BRENT cycle detection
+     * state, such that it reaches the same terminal state as if it had never been paused.
+     *
+     * @param continuation The continuation of a trajectory that was paused.
+     * @param retainValues Whether to record the values visited.
+     * @param capacity The anticipated amount of values to visit.
+     */
+    Trajectory(Continuation continuation, boolean retainValues, int capacity) {
+      this(continuation.initialValue, continuation.params, continuation.totalStoppingTime, CycleDetection.BRENT, retainValues, capacity);
+      load(continuation.value, continuation.tortoise, continuation.power, continuation.lambda);
+      steps = continuation.steps;
+      firstStep = continuation.steps;
+      widest = Math.max(widest, continuation.widest);
+      repeatFree = continuation.repeatFree;
+      knownRepeat = continuation.firstRepeat;
+      knownCycleLength = continuation.cycleLength;
+      lookAhead = continuation.lookAhead;
+      resumedFrom = continuation;
+    }
+
+    /**
+     * Set the current value, and the state of the BRENT cycle detection.
+     *
+     * @param current The current value.
+     * @param checkpoint The value of the last checkpoint.
+     * @param checkpointPower The power of two of the steps at which the next checkpoint is taken.
+     * @param checkpointLambda The amount of steps taken since the last checkpoint.
+     */
+    private void load(BigInteger current, BigInteger checkpoint, long checkpointPower, long checkpointLambda) {
+      if (fitsInLong(current)) {
+        value = current.longValue();
+        isWide = false;
+      } else {
+        wide = (wide == null) ? new MutableInteger(current) : wide.set(current);
+        isWide = true;
+        bigValue = current;
+      }
+      tortoiseIsWide = !fitsInLong(checkpoint);
+      if (tortoiseIsWide) {
+        wideTortoise = (wideTortoise == null) ? new MutableInteger(checkpoint) : wideTortoise.set(checkpoint);
+      } else {
+        tortoise = checkpoint.longValue();
+      }
+      power = checkpointPower;
+      lambda = checkpointLambda;
+    }
+
+    /**
+     * Iterate the function until a terminal state is reached, or until the maximum total
+     * stopping time is exceeded, populating the terminal condition and status.
+     *
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function.
+     */
+    void run(int maxTotalStoppingTime) {
+      start(maxTotalStoppingTime);
+      while (!finished) {
+        step();
+      }
+    }
+
+    /**
+     * Iterate the function, as per {@code run(maxTotalStoppingTime)}, having already been
+     * started or resumed, but pause with the BUDGET_EXHAUSTED state, whose status is the
+     * amount of steps taken, once the budget is exhausted. The deadline, and whether the
+     * budget has expired, are only checked every so many steps, so may be overrun by the
+     * time they take.
+     *
+     * @param budget The budget of time, steps and bits.
+     */
+    void run(Budget budget) {
+      final long stepLimit = (long) steps + budget.maxSteps;
+      final boolean timed = budget.timeoutNanos != Long.MAX_VALUE;
+      final long deadline = timed ? System.nanoTime() + budget.timeoutNanos : 0;
+      final BooleanSupplier expired = budget.expired;
+      while (!finished) {
+        if (steps >= stepLimit || bitLength() > budget.maxBitLength || ((steps & 0xFF) == 0 && ((timed && System.nanoTime() - deadline >= 0) || (expired != null && expired.getAsBoolean())))) {
+          finish(SequenceState.BUDGET_EXHAUSTED, steps);
+          return;
+        }
+        step();
+      }
+    }
+
+    /**
+     * Prepare to continue iterating from a continuation's value, which was not terminal.
+     *
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function, in total.
+     */
+    void resume(int maxTotalStoppingTime) {
+      maxSteps = Math.max(maxTotalStoppingTime, 1);
+      record();
+      if (steps >= maxSteps) {
+        finish(SequenceState.MAX_STOP_OUT_OF_BOUNDS, maxSteps);
+      }
+    }
+
+    /**
+     * A continuation from the current value, from which the trajectory may be resumed, if it
+     * was paused, by exhausting a budget or exceeding the maximum stopping time. With
+     * HASHED detection, the BRENT state is that which it would have reached by now, as its
+     * checkpoints are always at the steps {@code 2^j - 1}, and the value of the checkpoint
+     * is recorded in the history; or, if there is none, it is restarted at the current value.
+     * The continuation also carries what is known of the first repetition beyond the current
+     * value, so a resumed trajectory only looks ahead as far as its maximum was extended.
+     *
+     * @return The continuation, or null if the trajectory reached any other terminal state.
+     */
+    Continuation continuation() {
+      if (terminalCondition != SequenceState.BUDGET_EXHAUSTED && terminalCondition != SequenceState.MAX_STOP_OUT_OF_BOUNDS) {
+        return null;
+      }
+      BigInteger checkpoint = current();
+      long checkpointPower = 1;
+      long checkpointLambda = 0;
+      if (cycleDetection == CycleDetection.BRENT) {
+        checkpoint = checkpointValue();
+        checkpointPower = power;
+        checkpointLambda = lambda;
+      } else if (longHistory != null) {
+        checkpointPower = Long.highestOneBit(steps + 1L);
+        int checkpointStep = (int) (checkpointPower - 1);
+        checkpoint = valueAt(checkpointStep - firstStep);
+        checkpointLambda = steps - checkpointStep;
+      }
+      // HASHED detection checks every value, and BRENT detection finds a value that first
+      // repeats at step r by step 3r - 2, so no value repeated within a third of the steps.
+      int free = (cycleDetection == CycleDetection.HASHED) ? steps : (int) Math.max(repeatFree, (steps + 2L) / 3);
+      boolean known = knownRepeat > steps;
+      Continuation ahead = (lookAhead != null && lookAhead.steps > steps) ? lookAhead : null;
+      return new Continuation(params, initialValue, totalStop, current(), steps, checkpoint, checkpointPower, checkpointLambda, free, widest, known ? knownRepeat : 0, known ? knownCycleLength : 0, ahead);
+    }
+
+    /**
+     * The bit length of the magnitude of the current value.
+     *
+     * @return The bit length.
+     */
+    private int bitLength() {
+      return isWide ? wide.bitLength() : 64 - Long.numberOfLeadingZeros((value < 0) ? -value : value);
+    }
+
+    /**
+     * Check the initial value, which may already be terminal, and prepare to iterate.
+     *
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function.
+     */
+    void start(int maxTotalStoppingTime) {
+      maxSteps = Math.max(maxTotalStoppingTime, 1);
+      record();
+      if (statistics) {
+        peak = value;
+        peakIsWide = isWide;
+        widePeak = isWide ? wide.copy() : null;
+        glide = isOne() ? 0 : -1;
+      }
+      if (isZero()) {
+        // 0 is always an immediate stop.
+        finish(SequenceState.ZERO_STOP, 0);
+      } else if (isOne()) {
+        // 1 is always an immediate stop, with 0 stopping time.
+        finish(SequenceState.TOTAL_STOPPING_TIME, 0);
+      } else if (cycleDetection == CycleDetection.HASHED) {
+        // Otherwise, hail!
+        index(0);
+      } else {
+        checkpoint();
+        power = 1;
+        lambda = 0;
+      }
+    }
+
+    /** Take the next step, which may reach a terminal state; only valid until finished. */
+    void step() {
+      final int k = ++steps;
+      if (statistics && !isDivisible()) {
+        oddSteps++;
+      }
+      advance();
+      // Check if the next hailstone is either the stopping time, total
+      // stopping time, the same as a previous value, or stuck at zero.
+      record();
+      if (statistics) {
+        track(k);
+      }
+      if (isTerminus()) {
+        finish(isOne() ? SequenceState.TOTAL_STOPPING_TIME : SequenceState.STOPPING_TIME, k);
+        return;
+      }
+      // A repetition found by a look ahead before the trajectory was resumed is taken as is.
+      int cycleLength = (k == knownRepeat) ? knownCycleLength : detectCycle(k);
+      if (cycleLength != -1) {
+        finishCycle(cycleLength, (k != knownRepeat && longHistory != null && cycleDetection == CycleDetection.BRENT) ? firstRepetition(cycleLength) : k);
+      } else if (isZero()) {
+        finish(SequenceState.ZERO_STOP, -k);
+      } else if (k == maxSteps && !(cycleDetection == CycleDetection.BRENT && formedCycleWithin(maxSteps))) {
+        finish(SequenceState.MAX_STOP_OUT_OF_BOUNDS, maxSteps);
+      }
+    }
+
+    /**
+     * Set the terminal state.
+     *
+     * @param condition The terminal condition.
+     * @param status The terminal status.
+     */
+    private void finish(SequenceState condition, int status) {
+      terminalCondition = condition;
+      terminalStatus = status;
+      finished = true;
+      if (Metrics.ENABLED) {
+        Metrics.trajectory(steps(), overflows, cycleChecks, condition == SequenceState.BUDGET_EXHAUSTED);
+      }
+    }
+
+    /**
+     * Set the terminal state of a cycle. Having detected it with BRENT detection, any values
+     * recorded beyond the first repetition, as HASHED detection would have stopped at, are
+     * laps of the cycle, so are dropped, as a resumed sequence must match one that wasn't.
+     *
+     * @param cycleLength The length of the cycle.
+     * @param firstRepeat The step at which a value first repeated.
+     */
+    private void finishCycle(int cycleLength, long firstRepeat) {
+      if (longHistory != null && cycleDetection == CycleDetection.BRENT) {
+        size = (int) Math.max(Math.min(size, firstRepeat - firstStep + 1), 1);
+      }
+      finish(SequenceState.CYCLE_LENGTH, cycleLength);
+    }
+
+    /**
+     * Check whether the current value, at step k, has been visited before. With HASHED
+     * detection this occurs on the first repetition. With BRENT detection it may occur
+     * a few cycles later, but as every value in the cycle has already been visited, and
+     * was not a terminal value, that has no bearing on the terminal state or status.
+     *
+     * @param k The amount of steps taken to reach the current value.
+     * @return The length of the cycle if one is detected, otherwise -1.
+     */
+    private int detectCycle(int k) {
+      if (Metrics.ENABLED) {
+        cycleChecks++;
+      }
+      if (cycleDetection == CycleDetection.HASHED) {
+        int previous = indexOfCurrent();
+        if (previous != -1) {
+          return k - previous;
+        }
+        index(k);
+        return -1;
+      }
+      lambda++;
+      if (isTortoise()) {
+        return (int) lambda;
+      }
+      if (lambda == power) {
+        checkpoint();
+        power <<= 1;
+        lambda = 0;
+      }
+      return -1;
+    }
+
+    /**
+     * Having exceeded the maximum stopping time with BRENT detection, confirm whether a
+     * value had repeated by then, which HASHED detection would have reported as a cycle.
+     * If it had, every value since is in the cycle, so within another two lots of the
+     * maximum steps the tortoise will have a checkpoint in the cycle, and a power of two
+     * at least as long as it, so will be caught by the hare. Every value of such a cycle
+     * was already visited, without being terminal, so the look ahead is abandoned as soon
+     * as it reaches a terminus, or zero, or a value wider than any visited, which is how
+     * the trajectories that converge, or diverge, beyond the maximum are told apart from
+     * one that cycles, without iterating them as far. What the look ahead finds is kept,
+     * and carried by the continuation, such that a resumed trajectory doesn't look ahead
+     * at all within the steps known to be free of a repetition, and otherwise continues
+     * from where the last look ahead stopped, so each extension of the maximum only costs
+     * a look ahead in proportion to itself.
+     *
+     * @param maxTotalStoppingTime The maximum amount of steps that were permitted.
+     * @return {@code true} if the terminal state was set to a cycle.
+     */
+    private boolean formedCycleWithin(int maxTotalStoppingTime) {
+      if (maxTotalStoppingTime <= repeatFree) {
+        return false;
+      }
+      // Look ahead without disturbing the state of the trajectory at the maximum.
+      final long lastValue = value;
+      final boolean lastIsWide = isWide;
+      final MutableInteger lastWide = isWide ? wide.copy() : null;
+      final BigInteger lastBigValue = bigValue;
+      final long lastTortoise = tortoise;
+      final boolean lastTortoiseIsWide = tortoiseIsWide;
+      final MutableInteger lastWideTortoise = tortoiseIsWide ? wideTortoise.copy() : null;
+      final long lastPower = power;
+      final long lastLambda = lambda;
+      final int lastWidest = widest;
+      long from = maxTotalStoppingTime;
+      if (lookAhead != null && lookAhead.steps > maxTotalStoppingTime) {
+        // The last look ahead got this far without finding a repetition, or a value wider
+        // than those visited by the maximum, so this one continues from where it stopped.
+        load(lookAhead.value, lookAhead.tortoise, lookAhead.power, lookAhead.lambda);
+        from = lookAhead.steps;
+      }
+      boolean formedCycle = false;
+      long limit = Math.min(3L * maxTotalStoppingTime, Integer.MAX_VALUE);
+      long k;
+      for (k = from + 1; k <= limit; k++) {
+        advance();
+        if (isTerminus() || isZero() || (isWide && wide.bitLength() > lastWidest)) {
+          repeatFree = (int) k;
+          break;
+        }
+        lambda++;
+        if (isTortoise()) {
+          long firstRepeat = firstRepetition(lambda);
+          if (firstRepeat <= maxTotalStoppingTime) {
+            finishCycle((int) lambda, firstRepeat);
+            formedCycle = true;
+          } else {
+            knownRepeat = firstRepeat;
+            knownCycleLength = (int) lambda;
+            repeatFree = (int) (firstRepeat - 1);
+          }
+          break;
+        }
+        if (lambda == power) {
+          checkpoint();
+          power <<= 1;
+          lambda = 0;
+        }
+      }
+      if (k > limit) {
+        repeatFree = (int) Math.max(repeatFree, (limit + 2) / 3);
+        lookAhead = new Continuation(params, initialValue, totalStop, current(), (int) limit, checkpointValue(), power, lambda);
+      } else {
+        lookAhead = null;
+      }
+      value = lastValue;
+      isWide = lastIsWide;
+      if (lastIsWide) {
+        wide.set(lastWide);
+      }
+      bigValue = lastBigValue;
+      tortoise = lastTortoise;
+      tortoiseIsWide = lastTortoiseIsWide;
+      if (lastTortoiseIsWide) {
+        wideTortoise.set(lastWideTortoise);
+      }
+      power = lastPower;
+      lambda = lastLambda;
+      widest = lastWidest;
+      return formedCycle;
+    }
+
+    /**
+     * Find the step at which a value first repeats, given the length of the cycle, by
+     * iterating two trajectories, one a cycle's length ahead, from the latest value known
+     * to precede the cycle; the value, or the checkpoint, the trajectory was resumed from,
+     * if either does, otherwise the initial value.
+     *
+     * @param cycleLength The length of the cycle the trajectory enters.
+     * @return The step at which a value first repeats.
+     */
+    private long firstRepetition(long cycleLength) {
+      if (resumedFrom != null) {
+        long firstRepeat = repetitionFrom(resumedFrom.value, resumedFrom.steps, cycleLength);
+        if (firstRepeat == -1) {
+          firstRepeat = repetitionFrom(resumedFrom.tortoise, resumedFrom.steps - resumedFrom.lambda, cycleLength);
+        }
+        if (firstRepeat != -1) {
+          return firstRepeat;
+        }
+      }
+      return repetitionFrom(initialValue, 0, cycleLength);
+    }
+
+    /**
+     * Find the step at which a value first repeats, given the length of the cycle, by
+     * iterating two trajectories from a value visited at a step, one a cycle's length ahead.
+     *
+     * @param start The value visited at the step.
+     * @param startStep The step, which must precede the cycle for its repetition to be found.
+     * @param cycleLength The length of the cycle the trajectory enters.
+     * @return The step at which a value first repeats, or -1 if the value at the step,
+     *     unless it is the initial value, is already in the cycle.
+     */
+    private long repetitionFrom(BigInteger start, long startStep, long cycleLength) {
+      Trajectory behind = new Trajectory(start, params, totalStop, CycleDetection.BRENT, false, 0);
+      Trajectory ahead = new Trajectory(start, params, totalStop, CycleDetection.BRENT, false, 0);
+      for (long k = 0; k < cycleLength; k++) {
+        ahead.advance();
+      }
+      if (startStep > 0 && ahead.sameValueAs(behind)) {
+        return -1;
+      }
+      long mu = startStep;
+      while (!ahead.sameValueAs(behind)) {
+        ahead.advance();
+        behind.advance();
+        mu++;
+      }
+      return mu + cycleLength;
+    }
+
+    /** Apply a single step of the function to the current value. */
+    private void advance() {
+      if (!isWide) {
+        if (params.longParameters) {
+          long next = params.longFunction(value);
+          if (next != Parameterisation.LONG_OVERFLOW) {
+            value = next;
+            return;
+          }
+          // Fall through to the wide arithmetic for only this step.
+        }
+        if (wide == null) {
+          wide = new MutableInteger();
+        }
+        wide.set(value);
+        isWide = true;
+      }
+      if (Metrics.ENABLED) {
+        overflows++;
+      }
+      params.wideFunction(wide);
+      bigValue = null;
+      if (wide.fitsInLong()) {
+        value = wide.longValue();
+        isWide = false;
+      } else if (wide.bitLength() > widest) {
+        widest = wide.bitLength();
+      }
+    }
+
+    /**
+     * Whether the current value has reached the stopping time, or total stopping time.
+     *
+     * @return {@code true} if the current value is the terminus.
+     */
+    private boolean isTerminus() {
+      return totalStop ? isOne() : isBelowInitial();
+    }
+
+    /**
+     * Whether the current value is closer to 0 than the initial value, with the same sign;
+     * the regular stopping time's terminus.
+     *
+     * @return {@code true} if the current value is below the initial value.
+     */
+    private boolean isBelowInitial() {
+      if (initialIsLong) {
+        // A value that has overflowed a long can not be closer to 0 than the initial value.
+        if (isWide) {
+          return false;
+        } else if (initialLong >= 0) {
+          return value < initialLong && value > 0;
+        } else {
+          return value > initialLong && value < 0;
+        }
+      } else if (!isWide) {
+        // A value that fits in a long is always closer to 0 than an initial value that doesn't.
+        return initialValue.signum() >= 0 ? value > 0 : value < 0;
+      } else if (initialValue.signum() >= 0) {
+        return wide.compareTo(initialWide) < 0 && wide.signum() > 0;
+      } else {
+        return wide.compareTo(initialWide) > 0 && wide.signum() < 0;
+      }
+    }
+
+    /**
+     * Update the statistics with the current value, reached at step k.
+     *
+     * @param k The amount of steps taken to reach the current value.
+     */
+    private void track(int k) {
+      if (!isWide) {
+        // A long is greater than a wide peak only if the peak is negative.
+        if (peakIsWide ? widePeak.signum() < 0 : value > peak) {
+          peak = value;
+          peakIsWide = false;
+        }
+      } else if (peakIsWide ? wide.compareTo(widePeak) > 0 : wide.signum() > 0) {
+        widePeak = (widePeak == null) ? wide.copy() : widePeak.set(wide);
+        peakIsWide = true;
+      }
+      if (glide == -1 && isBelowInitial()) {
+        glide = k;
+      }
+    }
+
+    /**
+     * Whether the current value is divisible by P, such that the next step is n/P.
+     *
+     * @return {@code true} if the next step divides the current value.
+     */
+    private boolean isDivisible() {
+      if (isWide) {
+        return params.divides(wide);
+      }
+      return params.longParameters ? params.divides(value) : params.divides(BigInteger.valueOf(value));
+    }
+
+    /**
+     * The greatest value visited, if the statistics are tracked.
+     *
+     * @return The peak of the trajectory.
+     */
+    BigInteger peak() {
+      return peakIsWide ? widePeak.toBigInteger() : BigInteger.valueOf(peak);
+    }
+
+    /**
+     * The amount of steps taken since the trajectory began, or was resumed.
+     *
+     * @return The amount of steps.
+     */
+    int steps() {
+      return steps - firstStep;
+    }
+
+    private boolean isZero() {
+      return !isWide && value == 0;
+    }
+
+    private boolean isOne() {
+      return !isWide && value == 1;
+    }
+
+    /**
+     * The current value, as a BigInteger.
+     *
+     * @return The current value.
+     */
+    BigInteger current() {
+      return isWide ? big() : BigInteger.valueOf(value);
+    }
+
+    /**
+     * The current wide value, materialised as a BigInteger, at most once per value.
+     *
+     * @return The current value.
+     */
+    private BigInteger big() {
+      if (bigValue == null) {
+        bigValue = wide.toBigInteger();
+      }
+      return bigValue;
+    }
+
+    /**
+     * The current value, as a long.
+     *
+     * @return The current value.
+     * @throws ArithmeticException if the current value does not fit in a long.
+     */
+    long currentLong() throws ArithmeticException {
+      if (isWide) {
+        throw new ArithmeticException("long overflow");
+      }
+      return value;
+    }
+
+    /**
+     * Whether this trajectory's current value is the same as another's.
+     *
+     * @param other The other trajectory.
+     * @return {@code true} if the current values are equal.
+     */
+    private boolean sameValueAs(Trajectory other) {
+      return isWide ? (other.isWide && wide.equals(other.wide)) : (!other.isWide && value == other.value);
+    }
+
+    /**
+     * The value of the BRENT tortoise, as a BigInteger.
+     *
+     * @return The value of the last checkpoint.
+     */
+    private BigInteger checkpointValue() {
+      return tortoiseIsWide ? wideTortoise.toBigInteger() : BigInteger.valueOf(tortoise);
+    }
+
+    /** Move the BRENT tortoise to the current value. */
+    private void checkpoint() {
+      tortoise = value;
+      tortoiseIsWide = isWide;
+      if (isWide) {
+        wideTortoise = (wideTortoise == null) ? wide.copy() : wideTortoise.set(wide);
+      }
+    }
+
+    private boolean isTortoise() {
+      return isWide ? (tortoiseIsWide && wide.equals(wideTortoise)) : (!tortoiseIsWide && value == tortoise);
+    }
+
+    /**
+     * Find the step at which the current value was previously visited, via the HASHED index.
+     *
+     * @return The step of the previous occurrence of the current value, or -1.
+     */
+    private int indexOfCurrent() {
+      if (!isWide) {
+        return longIndex.get(value);
+      } else if (bigIndex != null) {
+        Integer previous = bigIndex.get(big());
+        return (previous == null) ? -1 : previous;
+      }
+      return -1;
+    }
+
+    /**
+     * Add the current value to the HASHED index.
+     *
+     * @param k The step at which the current value was visited.
+     */
+    private void index(int k) {
+      if (!isWide) {
+        longIndex.put(value, k);
+      } else {
+        if (bigIndex == null) {
+          bigIndex = new HashMap<BigInteger, Integer>();
+        }
+        bigIndex.put(big(), k);
+      }
+    }
+
+    /** Record the current value in the history, if values are being retained. */
+    private void record() {
+      if (longHistory == null) {
+        return;
+      }
+      if (size == longHistory.length) {
+        longHistory = Arrays.copyOf(longHistory, size * 2);
+        if (bigHistory != null) {
+          bigHistory = Arrays.copyOf(bigHistory, size * 2);
+        }
+      }
+      longHistory[size] = value;
+      if (isWide) {
+        if (bigHistory == null) {
+          bigHistory = new BigInteger[longHistory.length];
+        }
+        bigHistory[size] = big();
+      }
+      size++;
+    }
+
+    /**
+     * A recorded value, as a BigInteger.
+     *
+     * @param k The index of the value in the history.
+     * @return The value.
+     */
+    private BigInteger valueAt(int k) {
+      return (bigHistory != null && bigHistory[k] != null) ? bigHistory[k] : BigInteger.valueOf(longHistory[k]);
+    }
+
+    /**
+     * Materialise the recorded values as BigInteger's.
+     *
+     * @return The values visited by the trajectory.
+     */
+    BigInteger[] values() {
+      BigInteger[] values = new BigInteger[size];
+      for (int k = 0; k < size; k++) {
+        values[k] = valueAt(k);
+      }
+      return values;
+    }
+  }
+
+  /**
+   * An open addressing hash table from long keys to non-negative int values,
+   * to index visited values without boxing either the keys or the values.
+   */
+  static final class LongIndex {
+
+    /** The keys, at the slots whose value is present. */
+    private long[] keys;
+
+    /** The values plus one, such that zero marks an empty slot. */
+    private int[] values;
+
+    /** The amount of keys present. */
+    private int size;
+
+    /**
+     * Create an index sized for an anticipated amount of keys.
+     *
+     * @param capacity The anticipated amount of keys.
+     */
+    LongIndex(int capacity) {
+      int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+      this.keys = new long[slots];
+      this.values = new int[slots];
+    }
+
+    /**
+     * The slot at which to start probing for a key.
+     *
+     * @param key The key to locate.
+     * @param mask One less than the amount of slots.
+     * @return The first slot to probe.
+     */
+    private static int slot(long key, int mask) {
+      long mixed = key * 0x9E3779B97F4A7C15L;
+      return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    /**
+     * Retrieve the value for a key.
+     *
+     * @param key The key to locate.
+     * @return The value, or -1 if the key is not present.
+     */
+    int get(long key) {
+      int mask = keys.length - 1;
+      for (int k = slot(key, mask); values[k] != 0; k = (k + 1) & mask) {
+        if (keys[k] == key) {
+          return values[k] - 1;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Set the value for a key.
+     *
+     * @param key The key to set.
+     * @param value The non-negative value.
+     */
+    void put(long key, int value) {
+      int mask = keys.length - 1;
+      int k = slot(key, mask);
+      while (values[k] != 0 && keys[k] != key) {
+        k = (k + 1) & mask;
+      }
+      if (values[k] == 0) {
+        size++;
+      }
+      keys[k] = key;
+      values[k] = value + 1;
+      if (size * 2 > keys.length) {
+        grow();
+      }
+    }
+
+    /** Double the amount of slots, and re-insert every key. */
+    private void grow() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldValues.length * 2];
+      size = 0;
+      for (int k = 0; k < oldKeys.length; k++) {
+        if (oldValues[k] != 0) {
+          put(oldKeys[k], oldValues[k] - 1);
+        }
+      }
+    }
+  }
+
+  /** Contains the results of computing a hailstone sequence via {@code Collatz.hailstoneSequence(~)}. */
+  public static final class HailstoneSequence {
+
+    /** The set of values that comprise the hailstone sequence. */
+    final BigInteger[] values;
+
+    /** A terminal condition that reflects the final state of the hailstone sequencing,
+     *  whether than be that it succeeded at determining the stopping time, the total
+     *  stopping time, found a cycle, or got stuck on zero (or surpassed the max total). */
+    final SequenceState terminalCondition;
+
+    /** A status value that has different meanings depending on what the terminal condition
+     *  was. If the sequence completed either via reaching the stopping or total stopping time,
+     *  or getting stuck on zero, then this value is the stopping/terminal time. If the sequence
+     *  got stuck on a cycle, then this value is the cycle length. If the sequencing passes the
+     *  maximum stopping time then this is the value that was provided as that maximum. If
+     *  the sequence exhausted a budget, this is the amount of steps taken, in total. */
+    final int terminalStatus;
+
+    /** The continuation from the last value, if the sequence exhausted a budget, or exceeded
+     *  the maximum stopping time, otherwise null. */
+    final Continuation continuation;
+
+    /**
+     * Initialise and compute a new Hailstone Sequence.
+   *
+     * @param initialValue The value to begin the hailstone sequence from.
+     * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+     * @param a Factor by which to multiply n.
+     * @param b Value to add to the scaled value of n.
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+     * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+     *     (number of iterations to obtain 1) rather than the regular stopping time (number
+     *     of iterations to reach a value less than the initial value).
+     * @throws FailedSaneParameterCheck if P or a are 0.
+     */
+    public HailstoneSequence(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxTotalStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
+      this(initialValue, new Parameterisation(p, a, b), maxTotalStoppingTime, totalStoppingTime);
+    }
+
+    /**
+     * Initialise and compute a new Hailstone Sequence, for an already sane parameterisation.
+     *
+     * @param initialValue The value to begin the hailstone sequence from.
+     * @param params The parameterisation (P,a,b) of the function to iterate.
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+     * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+     *     (number of iterations to obtain 1) rather than the regular stopping time (number
+     *     of iterations to reach a value less than the initial value).
+     */
+    public HailstoneSequence(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime, boolean totalStoppingTime) {
+      Metrics.HailstoneSequenceEvent event = null;
+      if (Metrics.ENABLED) {
+        event = new Metrics.HailstoneSequenceEvent();
+        event.begin();
+      }
+      Trajectory hail = new Trajectory(initialValue, params, totalStoppingTime, CycleDetection.HASHED, true, Math.min(Math.max(maxTotalStoppingTime, 1), 1024) + 1);
+      hail.run(maxTotalStoppingTime);
+      values = hail.values();
+      terminalCondition = hail.terminalCondition;
+      terminalStatus = hail.terminalStatus;
+      continuation = hail.continuation();
+      if (Metrics.ENABLED) {
+        record(event, hail);
+      }
+    }
+
+    /**
+     * Run a trajectory within a budget, and collect its hailstone sequence.
+     *
+     * @param hail The trajectory, retaining its values, having been started or resumed.
+     * @param budget The budget of time, steps and bits.
+     */
+    private HailstoneSequence(Trajectory hail, Budget budget) {
+      Metrics.HailstoneSequenceEvent event = null;
+      if (Metrics.ENABLED) {
+        event = new Metrics.HailstoneSequenceEvent();
+        event.begin();
+      }
+      hail.run(budget);
+      values = hail.values();
+      terminalCondition = hail.terminalCondition;
+      terminalStatus = hail.terminalStatus;
+      continuation = hail.continuation();
+      if (Metrics.ENABLED) {
+        record(event, hail);
+      }
+    }
+
+    /**
+     * Count a hailstone sequence, and commit its event, if it's recorded.
+     *
+     * @param event The event, begun before the trajectory was run.
+     * @param hail The trajectory that has been run.
+     */
+    private static void record(Metrics.HailstoneSequenceEvent event, Trajectory hail) {
+      Metrics.hailstoneSequence();
+      if (event.shouldCommit()) {
+        event.bitLength = hail.initialValue.bitLength();
+        event.steps = hail.steps();
+        event.overflows = hail.overflows;
+        event.terminalCondition = hail.terminalCondition.name();
+        event.terminalStatus = hail.terminalStatus;
+        event.commit();
+      }
+    }
+
+    /**
+     * The continuation from the last value, if the sequence exhausted a budget, or exceeded
+     * the maximum stopping time, from which it can be resumed with a greater maximum.
+     *
+     * @return The continuation, or null if the sequence reached any other terminal state.
+     */
+    public Continuation continuation() {
+      return continuation;
+    }
+  }
+
+  /**
+   * Returns a list of successive values obtained by iterating a Collatz-esque
+   * function, until either 1 is reached, or the total amount of iterations
+   * exceeds maxTotalStoppingTime, unless totalStoppingTime is False,
+   * which will terminate the hailstone at the "stopping time" value, i.e. the
+   * first value less than the initial value. While the sequence has the
+   * capability to determine that it has encountered a cycle, the cycle from "1"
+   * wont be attempted or reported as part of a cycle, regardless of default or
+   * custom parameterisation, as "1" is considered a "total stop".
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @return A set of values that form the hailstone sequence.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxTotalStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
+    // Compiling the parameterisation traps bad values before any magic returns.
+    return hailstoneSequence(initialValue, new Parameterisation(p, a, b), maxTotalStoppingTime, totalStoppingTime);
+  }
+
+  /**
+   * Returns a list of successive values obtained by iterating a Collatz-esque
+   * function, as per {@code hailstoneSequence(initialValue, p, a, b, ~)}, for
+   * a parameterisation that has already been sanity checked.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @return A set of values that form the hailstone sequence.
+   */
+  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime, boolean totalStoppingTime) {
+    return new HailstoneSequence(initialValue, params, maxTotalStoppingTime, totalStoppingTime);
+  }
+
+  /**
+   * Returns a list of successive values obtained by iterating the Collatz function,
+   * until either 1 is reached, or the total amount of iterations exceeds maxTotalStoppingTime.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @return A set of values that form the hailstone sequence.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, int maxTotalStoppingTime) throws FailedSaneParameterCheck {
+    return hailstoneSequence(initialValue, DEFAULT_PARAMETERISATION, maxTotalStoppingTime, true);
+  }
+
+  /**
+   * Returns a list of successive values obtained by iterating a Collatz-esque function, as
+   * per {@code hailstoneSequence(initialValue, params, ~)}, unless the budget is exhausted
+   * first, in which case the terminal condition is BUDGET_EXHAUSTED, and the sequence has a
+   * continuation from its last value, which can be passed back to resume it.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @param budget The budget of time, steps and bits.
+   * @return A set of values that form the hailstone sequence, so far.
+   */
+  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime, boolean totalStoppingTime, Budget budget) {
+    Trajectory hail = new Trajectory(initialValue, params, totalStoppingTime, CycleDetection.HASHED, true, Math.min(Math.max(maxTotalStoppingTime, 1), 1024) + 1);
+    hail.start(maxTotalStoppingTime);
+    return new HailstoneSequence(hail, budget);
+  }
+
+  /**
+   * Resumes a hailstone sequence from the continuation of one that exhausted its budget,
+   * or exceeded its maximum total stopping time, as per
+   * {@code hailstoneSequence(initialValue, params, ~, budget)}. The values begin with the
+   * continuation's value, which was the last value of the sequence it continues, and the
+   * maximum total stopping time, and the terminal status, count every step since the
+   * initial value. The continuation carries the state of the cycle detection, so the
+   * values that follow, and the terminal state, are those that a single sequence, with
+   * the greater maximum, would have reached, and a maximum can be extended incrementally.
+   *
+   * @param continuation The continuation of the sequence to resume.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, in total.
+   * @param budget The budget of time, steps and bits, for this resumption.
+   * @return A set of values that continue the hailstone sequence.
+   */
+  public static HailstoneSequence hailstoneSequence(Continuation continuation, int maxTotalStoppingTime, Budget budget) {
+    Trajectory hail = new Trajectory(continuation, true, Math.min(Math.max(maxTotalStoppingTime - continuation.steps, 1), 1024) + 1);
+    hail.resume(maxTotalStoppingTime);
+    return new HailstoneSequence(hail, budget);
+  }
+
+  /**
+   * A budget of the resources a trajectory may consume before pausing; the time, measured
+   * from when it begins, the amount of steps, and the bit length of the values, which
+   * bounds the memory of each. A resumed trajectory is given a fresh budget.
+   */
+  public static final class Budget {
+
+    /** A budget that is never exhausted. */
+    public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, TimeUnit.NANOSECONDS, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    /** The time a trajectory may take, in nanoseconds, or Long.MAX_VALUE if unlimited. */
+    final long timeoutNanos;
+
+    /** The amount of steps a trajectory may take. */
+    final int maxSteps;
+
+    /** The greatest bit length, of the magnitude, of a value the trajectory may step from. */
+    final int maxBitLength;
+
+    /** Whether the budget has expired, for a budget of time that may be extended while the
+     *  trajectory runs, or null if it only has a timeout. */
+    final BooleanSupplier expired;
+
+    /**
+     * Create a budget. Any of the limits can be made unlimited by passing its maximum,
+     * Long.MAX_VALUE, or Integer.MAX_VALUE.
+     *
+     * @param timeout The time a trajectory may take.
+     * @param unit The unit of the timeout.
+     * @param maxSteps The amount of steps a trajectory may take.
+     * @param maxBitLength The greatest bit length, of the magnitude, of a value the
+     *     trajectory may step from.
+     * @throws IllegalArgumentException if any of the limits are negative.
+     */
+    public Budget(long timeout, TimeUnit unit, int maxSteps, int maxBitLength) throws IllegalArgumentException {
+      if (timeout < 0 || maxSteps < 0 || maxBitLength < 0) {
+        throw new IllegalArgumentException("The limits of a budget can't be negative.");
+      }
+      this.timeoutNanos = (timeout == Long.MAX_VALUE) ? Long.MAX_VALUE : unit.toNanos(timeout);
+      this.maxSteps = maxSteps;
+      this.maxBitLength = maxBitLength;
+      this.expired = null;
+    }
+
+    /**
+     * Create a budget of unlimited steps and bits, that is exhausted once it has expired,
+     * which is checked as often as a timeout would be, such as once every deadline of the
+     * queries that share a computation has passed.
+     *
+     * @param expired Whether the budget has expired.
+     */
+    Budget(BooleanSupplier expired) {
+      this.timeoutNanos = Long.MAX_VALUE;
+      this.maxSteps = Integer.MAX_VALUE;
+      this.maxBitLength = Integer.MAX_VALUE;
+      this.expired = expired;
+    }
+  }
+
+  /**
+   * A continuation of a trajectory that was paused before reaching a terminal state, by
+   * exhausting a budget, or exceeding the maximum stopping time; the value it reached, and
+   * the amount of steps taken to reach it, along with the initial value, against which the
+   * stopping time is determined, what it was iterating, and the state of Brent's cycle
+   * detection, such that a resumed trajectory detects the same cycles as if never paused.
+   */
+  public static final class Continuation {
+
+    /** The parameterisation being iterated. */
+    final Parameterisation params;
+
+    /** The value the trajectory began from. */
+    final BigInteger initialValue;
+
+    /** Whether the terminus is the "total" stopping time. */
+    final boolean totalStoppingTime;
+
+    /** The value the trajectory had reached. */
+    final BigInteger value;
+
+    /** The amount of steps taken to reach the value. */
+    final int steps;
+
+    /** The value of the last checkpoint of Brent's cycle detection. */
+    final BigInteger tortoise;
+
+    /** The power of two of the steps from the last checkpoint, at which the next is taken. */
+    final long power;
+
+    /** The amount of steps taken since the last checkpoint. */
+    final long lambda;
+
+    /** The step up to which no value repeated. */
+    final int repeatFree;
+
+    /** The greatest bit length of the magnitude of any value visited, of at least 64. */
+    final int widest;
+
+    /** The step at which a value first repeated, and the length of its cycle, if a look
+     *  ahead beyond the maximum found one, otherwise 0. */
+    final long firstRepeat;
+    final int cycleLength;
+
+    /** The state a look ahead beyond the maximum stopped at, beyond the value, or null. */
+    final Continuation lookAhead;
+
+    /**
+     * Create a continuation, of only the state of the trajectory.
+     *
+     * @param params The parameterisation being iterated.
+     * @param initialValue The value the trajectory began from.
+     * @param totalStoppingTime Whether the terminus is the "total" stopping time.
+     * @param value The value the trajectory had reached.
+     * @param steps The amount of steps taken to reach the value.
+     * @param tortoise The value of the last checkpoint of Brent's cycle detection.
+     * @param power The power of two of the steps at which the next checkpoint is taken.
+     * @param lambda The amount of steps taken since the last checkpoint.
+     */
+    Continuation(Parameterisation params, BigInteger initialValue, boolean totalStoppingTime, BigInteger value, int steps, BigInteger tortoise, long power, long lambda) {
+      this(params, initialValue, totalStoppingTime, value, steps, tortoise, power, lambda, 0, 64, 0, 0, null);
+    }
+
+    /**
+     * Create a continuation, with what is known of the first repetition beyond its value.
+     *
+     * @param params The parameterisation being iterated.
+     * @param initialValue The value the trajectory began from.
+     * @param totalStoppingTime Whether the terminus is the "total" stopping time.
+     * @param value The value the trajectory had reached.
+     * @param steps The amount of steps taken to reach the value.
+     * @param tortoise The value of the last checkpoint of Brent's cycle detection.
+     * @param power The power of two of the steps at which the next checkpoint is taken.
+     * @param lambda The amount of steps taken since the last checkpoint.
+     * @param repeatFree The step up to which no value repeated.
+     * @param widest The greatest bit length of the magnitude of any value visited.
+     * @param firstRepeat The step at which a value first repeated, if known, otherwise 0.
+     * @param cycleLength The length of the cycle, if the first repetition is known, otherwise 0.
+     * @param lookAhead The state a look ahead beyond the maximum stopped at, or null.
+     */
+    Continuation(Parameterisation params, BigInteger initialValue, boolean totalStoppingTime, BigInteger value, int steps, BigInteger tortoise, long power, long lambda, int repeatFree, int widest, long firstRepeat, int cycleLength, Continuation lookAhead) {
+      this.params = params;
+      this.initialValue = initialValue;
+      this.totalStoppingTime = totalStoppingTime;
+      this.value = value;
+      this.steps = steps;
+      this.tortoise = tortoise;
+      this.power = power;
+      this.lambda = lambda;
+      this.repeatFree = repeatFree;
+      this.widest = widest;
+      this.firstRepeat = firstRepeat;
+      this.cycleLength = cycleLength;
+      this.lookAhead = lookAhead;
+    }
+
+    /**
+     * The value the trajectory had reached.
+     *
+     * @return The current value.
+     */
+    public BigInteger value() {
+      return value;
+    }
+
+    /**
+     * The amount of steps taken to reach the value.
+     *
+     * @return The step count.
+     */
+    public int steps() {
+      return steps;
+    }
+  }
+
+  /**
+   * Contains the result of a stopping time computed within a budget, via
+   * {@code Collatz.boundedStoppingTime(~)}, which may have been paused.
+   */
+  public static final class StoppingTimeResult {
+
+    /** The terminal condition, as per {@code HailstoneSequence.terminalCondition}. */
+    final SequenceState terminalCondition;
+
+    /** The terminal status, as per {@code HailstoneSequence.terminalStatus}. */
     final int terminalStatus;
 
+    /** The continuation, if the budget was exhausted, or the maximum stopping time was
+     *  exceeded, otherwise null. */
+    final Continuation continuation;
+
     /**
-     * Initialise and compute a new Hailstone Sequence.
+     * Collect the result of a trajectory that has been run.
+     *
+     * @param hail The trajectory.
+     */
+    private StoppingTimeResult(Trajectory hail) {
+      this.terminalCondition = hail.terminalCondition;
+      this.terminalStatus = hail.terminalStatus;
+      this.continuation = hail.continuation();
+    }
+
+    /**
+     * The stopping time, as per {@code Collatz.stoppingTime(~)}, which is null if the
+     * maximum stopping time was exceeded, or the budget was exhausted.
+     *
+     * @return The stopping time, or, in a special case, infinity, null or a negative.
+     */
+    public Double stoppingTime() {
+      double stoppingTime = toStoppingTime(terminalCondition, terminalStatus);
+      return Double.isNaN(stoppingTime) ? null : stoppingTime;
+    }
+
+    /**
+     * The continuation from which to resume, if the budget was exhausted, or the maximum
+     * stopping time was exceeded, from which it can be resumed with a greater maximum.
+     *
+     * @return The continuation, or null if the stopping time was otherwise determined.
+     */
+    public Continuation continuation() {
+      return continuation;
+    }
+  }
+
+  /**
+   * Returns the stopping time, as per {@code stoppingTime(initialValue, params, ~)}, unless
+   * the budget is exhausted, or the maximum stopping time is exceeded, first, in which case
+   * the result has a continuation, which can be passed back to resume the computation.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param budget The budget of time, steps and bits.
+   * @return The result, which has either the stopping time, or a continuation.
+   */
+  public static StoppingTimeResult boundedStoppingTime(BigInteger initialValue, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, Budget budget) {
+    Trajectory hail = new Trajectory(initialValue, params, totalStoppingTime, CycleDetection.BRENT, false, 0);
+    hail.start(maxStoppingTime);
+    hail.run(budget);
+    return new StoppingTimeResult(hail);
+  }
+
+  /**
+   * Resumes the computation of a stopping time from the continuation of one that exhausted
+   * its budget, or exceeded its maximum stopping time, as per
+   * {@code boundedStoppingTime(initialValue, params, ~, budget)}. The maximum stopping time
+   * counts every step since the initial value, and the result is that which a single
+   * computation, with the greater maximum, would have reached.
+   *
+   * @param continuation The continuation of the computation to resume.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, in total.
+   * @param budget The budget of time, steps and bits, for this resumption.
+   * @return The result, which has either the stopping time, or a continuation.
+   */
+  public static StoppingTimeResult boundedStoppingTime(Continuation continuation, int maxStoppingTime, Budget budget) {
+    Trajectory hail = new Trajectory(continuation, false, 0);
+    hail.resume(maxStoppingTime);
+    hail.run(budget);
+    return new StoppingTimeResult(hail);
+  }
+
+  /**
+   * Contains the statistics of a trajectory, computed in a single pass via
+   * {@code Collatz.trajectoryStatistics(~)}, without retaining the values visited.
+   */
+  public static final class TrajectoryStatistics {
+
+    /** The value the trajectory began from. */
+    final BigInteger initialValue;
+
+    /** The amount of steps taken. If the trajectory reached 1, this is the total stopping
+     *  time. With BRENT cycle detection, a trajectory that enters a cycle may have taken a
+     *  few more laps of the cycle than the first repeated value. */
+    final int steps;
+
+    /** The amount of steps that took the a*n+b branch, rather than dividing by P. */
+    final int oddSteps;
+
+    /** The greatest value visited, including the initial value. */
+    final BigInteger peak;
+
+    /** The glide, the amount of steps to first reach a value closer to 0 than the
+     *  initial value, with the same sign, which is the regular stopping time; or
+     *  -1 if no such value was reached. The glide of 1 is 0. */
+    final int glide;
+
+    /** The terminal condition, as per {@code HailstoneSequence.terminalCondition},
+     *  of the sequence run until the total stopping time. */
+    final SequenceState terminalCondition;
+
+    /** The terminal status, as per {@code HailstoneSequence.terminalStatus}. */
+    final int terminalStatus;
+
+    /**
+     * Compute the statistics of a trajectory, for an already sane parameterisation.
+     *
+     * @param initialValue The value to begin the trajectory from.
+     * @param params The parameterisation (P,a,b) of the function to iterate.
+     * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+     */
+    public TrajectoryStatistics(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime) {
+      Trajectory trajectory = new Trajectory(initialValue, params, true, CycleDetection.BRENT, false, 0);
+      trajectory.statistics = true;
+      trajectory.run(maxTotalStoppingTime);
+      this.initialValue = initialValue;
+      this.steps = trajectory.steps();
+      this.oddSteps = trajectory.oddSteps;
+      this.peak = trajectory.peak();
+      this.glide = trajectory.glide;
+      this.terminalCondition = trajectory.terminalCondition;
+      this.terminalStatus = trajectory.terminalStatus;
+    }
+
+    /**
+     * Whether the trajectory reached 1, such that its steps are the total stopping time.
+     *
+     * @return {@code true} if the total stopping time was reached.
+     */
+    boolean reachedOne() {
+      return terminalCondition == SequenceState.TOTAL_STOPPING_TIME;
+    }
+  }
+
+  /**
+   * Returns the statistics of the trajectory from the initial value, run until the total
+   * stopping time; the amount of steps, the amount of a*n+b steps, the peak, and the glide,
+   * computed together in a single pass that doesn't retain the values visited, such that
+   * "delay records" (of the total stopping time), "path records" (of the peak), and glides,
+   * don't require materialising the values of a {@code HailstoneSequence}.
+   *
+   * @param initialValue The value to begin the trajectory from.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @return The statistics of the trajectory.
+   */
+  public static TrajectoryStatistics trajectoryStatistics(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime) {
+    return new TrajectoryStatistics(initialValue, params, maxTotalStoppingTime);
+  }
+
+  /**
+   * Returns the statistics of the trajectory from the initial value, for the default
+   * parameterisation, as per {@code trajectoryStatistics(initialValue, params, ~)}.
    *
+   * @param initialValue The value to begin the trajectory from.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @return The statistics of the trajectory.
+   */
+  public static TrajectoryStatistics trajectoryStatistics(BigInteger initialValue, int maxTotalStoppingTime) {
+    return trajectoryStatistics(initialValue, DEFAULT_PARAMETERISATION, maxTotalStoppingTime);
+  }
+
+  /**
+   * Lazily iterates the values of a hailstone sequence, without materialising them, such
+   * that only the state of the current value (and the cycle detection) is held in memory.
+   * The values are the same as those of {@code HailstoneSequence.values}, and once the
+   * iterator is exhausted, the terminal condition and status are those the equivalent
+   * {@code HailstoneSequence} would have. With BRENT cycle detection, which uses constant
+   * memory, a sequence that enters a cycle may yield a few more laps of the cycle after the
+   * first repeated value, before the cycle is detected. The values can be consumed through
+   * the iterator itself, or one of {@code stream()} or {@code longStream()}, which share it.
+   */
+  public static final class HailstoneIterator implements Iterator<BigInteger> {
+
+    /** The trajectory, whose current value is the next to yield, unless already yielded. */
+    private final Trajectory trajectory;
+
+    /** Whether the trajectory's current value has already been yielded. */
+    private boolean yielded;
+
+    /**
+     * Prepare to lazily iterate a new Hailstone Sequence.
+     *
      * @param initialValue The value to begin the hailstone sequence from.
-     * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
-     * @param a Factor by which to multiply n.
-     * @param b Value to add to the scaled value of n.
+     * @param params The parameterisation (P,a,b) of the function to iterate.
      * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
      * @param totalStoppingTime Whether or not to execute until the "total" stopping time
      *     (number of iterations to obtain 1) rather than the regular stopping time (number
      *     of iterations to reach a value less than the initial value).
-     * @throws FailedSaneParameterCheck if P or a are 0.
+     * @param cycleDetection The approach with which to detect cycles.
      */
-    public HailstoneSequence(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxTotalStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
-      terminate = stoppingTimeTerminus(initialValue, totalStoppingTime);
-      if (initialValue.equals(BigInteger.ZERO)) {
-        // 0 is always an immediate stop.
-        values = new BigInteger[]{BigInteger.ZERO};
-        terminalCondition = SequenceState.ZERO_STOP;
-        terminalStatus = 0;
-      } else if (initialValue.equals(BigInteger.ONE)) {
-        // 1 is always an immediate stop, with 0 stopping time.
-        values = new BigInteger[]{BigInteger.ONE};
-        terminalCondition = SequenceState.TOTAL_STOPPING_TIME;
-        terminalStatus = 0;
-      } else {
-        // Otherwise, hail!
-        int minMaxTotalStoppingTime = Math.max(maxTotalStoppingTime, 1);
-        ArrayList<BigInteger> preValues = new ArrayList<BigInteger>(minMaxTotalStoppingTime + 1);
-        preValues.add(initialValue);
-        BigInteger next;
-        for (int k = 1; k <= minMaxTotalStoppingTime; k++) {
-          next = function(preValues.get(k - 1), p, a, b);
-          // Check if the next hailstone is either the stopping time, total
-          // stopping time, the same as the initial value, or stuck at zero.
-          if (terminate.apply(next)) {
-            preValues.add(next);
-            if (next.equals(BigInteger.ONE)) {
-              terminalCondition = SequenceState.TOTAL_STOPPING_TIME;
-            } else {
-              terminalCondition = SequenceState.STOPPING_TIME;
-            }
-            terminalStatus = k;
-            values = new BigInteger[preValues.size()];
-            preValues.toArray(values);
-            return;
-          }
-          if (preValues.contains(next)) {
-            preValues.add(next);
-            int cycleInit = 1;
-            for (int j = 1; j <= k; j++) {
-              if (preValues.get(k - j).equals(next)) {
-                cycleInit = j;
-                break;
-              }
-            }
-            terminalCondition = SequenceState.CYCLE_LENGTH;
-            terminalStatus = cycleInit;
-            values = new BigInteger[preValues.size()];
-            preValues.toArray(values);
-            return;
-          }
-          if (next.equals(BigInteger.ZERO)) {
-            preValues.add(BigInteger.ZERO);
-            terminalCondition = SequenceState.ZERO_STOP;
-            terminalStatus = -k;
-            values = new BigInteger[preValues.size()];
-            preValues.toArray(values);
-            return;
-          }
-          preValues.add(next);
+    public HailstoneIterator(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime, boolean totalStoppingTime, CycleDetection cycleDetection) {
+      this.trajectory = new Trajectory(initialValue, params, totalStoppingTime, cycleDetection, false, Math.min(Math.max(maxTotalStoppingTime, 1), 1024) + 1);
+      this.trajectory.start(maxTotalStoppingTime);
+      this.yielded = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !yielded || !trajectory.finished;
+    }
+
+    @Override
+    public BigInteger next() {
+      moveToNext();
+      return trajectory.current();
+    }
+
+    /**
+     * Returns the next value in the sequence as a primitive long.
+     *
+     * @return The next value in the sequence.
+     * @throws NoSuchElementException if the sequence has terminated.
+     * @throws ArithmeticException if the next value does not fit in a long.
+     */
+    public long nextLong() throws ArithmeticException {
+      moveToNext();
+      return trajectory.currentLong();
+    }
+
+    /** Step the trajectory to the next value, unless the current value is yet to be yielded. */
+    private void moveToNext() {
+      if (yielded) {
+        if (trajectory.finished) {
+          throw new NoSuchElementException();
         }
-        terminalCondition = SequenceState.MAX_STOP_OUT_OF_BOUNDS;
-        terminalStatus = minMaxTotalStoppingTime;
-        values = new BigInteger[preValues.size()];
-        preValues.toArray(values);
+        trajectory.step();
+      }
+      yielded = true;
+    }
+
+    /**
+     * Iterate through any remaining values without yielding, or materialising, them.
+     *
+     * @return The terminal condition.
+     */
+    public SequenceState exhaust() {
+      while (!trajectory.finished) {
+        trajectory.step();
       }
+      yielded = true;
+      return trajectory.terminalCondition;
+    }
+
+    /**
+     * A terminal condition that reflects the final state of the hailstone sequencing,
+     * as per {@code HailstoneSequence.terminalCondition}.
+     *
+     * @return The terminal condition, or null if the sequence has not yet terminated.
+     */
+    public SequenceState terminalCondition() {
+      return trajectory.finished ? trajectory.terminalCondition : null;
+    }
+
+    /**
+     * A status value that has different meanings depending on what the terminal condition
+     * was, as per {@code HailstoneSequence.terminalStatus}.
+     *
+     * @return The terminal status, or 0 if the sequence has not yet terminated.
+     */
+    public int terminalStatus() {
+      return trajectory.finished ? trajectory.terminalStatus : 0;
+    }
+
+    /**
+     * A sequential stream of the values remaining in this iterator.
+     *
+     * @return The stream of remaining values.
+     */
+    public Stream<BigInteger> stream() {
+      return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * A sequential stream of the values remaining in this iterator, as primitive longs.
+     * Consuming a value that does not fit in a long will throw an ArithmeticException.
+     *
+     * @return The stream of remaining values.
+     */
+    public LongStream longStream() {
+      PrimitiveIterator.OfLong longs = new PrimitiveIterator.OfLong() {
+        @Override
+        public boolean hasNext() {
+          return HailstoneIterator.this.hasNext();
+        }
+
+        @Override
+        public long nextLong() {
+          return HailstoneIterator.this.nextLong();
+        }
+      };
+      return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(longs, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
     }
   }
 
   /**
-   * Returns a list of successive values obtained by iterating a Collatz-esque
-   * function, until either 1 is reached, or the total amount of iterations
-   * exceeds maxTotalStoppingTime, unless totalStoppingTime is False,
-   * which will terminate the hailstone at the "stopping time" value, i.e. the
-   * first value less than the initial value. While the sequence has the
-   * capability to determine that it has encountered a cycle, the cycle from "1"
-   * wont be attempted or reported as part of a cycle, regardless of default or
-   * custom parameterisation, as "1" is considered a "total stop".
+   * Returns an iterator that lazily yields the successive values obtained by iterating a
+   * Collatz-esque function, as per {@code hailstoneSequence(initialValue, params, ~)}, which
+   * holds only the current value in memory, and reports the terminal state once exhausted.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @param cycleDetection The approach with which to detect cycles.
+   * @return An iterator over the values that form the hailstone sequence.
+   */
+  public static HailstoneIterator hailstoneIterator(BigInteger initialValue, Parameterisation params, int maxTotalStoppingTime, boolean totalStoppingTime, CycleDetection cycleDetection) {
+    return new HailstoneIterator(initialValue, params, maxTotalStoppingTime, totalStoppingTime, cycleDetection);
+  }
+
+  /**
+   * Returns an iterator that lazily yields the successive values obtained by iterating the
+   * Collatz function, until either 1 is reached, or the total amount of iterations exceeds
+   * maxTotalStoppingTime, detecting cycles in constant memory.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @return An iterator over the values that form the hailstone sequence.
+   */
+  public static HailstoneIterator hailstoneIterator(BigInteger initialValue, int maxTotalStoppingTime) {
+    return hailstoneIterator(initialValue, DEFAULT_PARAMETERISATION, maxTotalStoppingTime, true, CycleDetection.BRENT);
+  }
+
+  /**
+   * Returns the stopping time, the amount of iterations required to reach a
+   * value less than the initial value, or null if maxStoppingTime is exceeded.
+   * Alternatively, if totalStoppingTime is True, then it will instead count
+   * the amount of iterations to reach 1. If the sequence does not stop, but
+   * instead ends in a cycle, the result will be (Double.POSITIVE_INFINITY).
+   * If (P,a,b) are such that it is possible to get stuck on zero, the result
+   * will be the negative of what would otherwise be the "total stopping time"
+   * to reach 1, where 0 is considered a "total stop" that should not occur as
+   * it does form a cycle of length 1.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, if
+   *     the stopping time is not reached. IF the maxStoppingTime is reached,
+   *     the function will return null.
+   * @param totalStoppingTime (bool): Whether or not to execute until the "total" stopping
+   *     time (number of iterations to obtain 1) rather than the regular stopping
+   *     time (number of iterations to reach a value less than the initial value).
+   * @return The stopping time, or, in a special case, infinity, null or a negative.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public static Double stoppingTime(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
+    return stoppingTime(initialValue, new Parameterisation(p, a, b), maxStoppingTime, totalStoppingTime);
+  }
+
+  /**
+   * Returns the stopping time, as per {@code stoppingTime(initialValue, p, a, b, ~)},
+   * for a parameterisation that has already been sanity checked.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, if
+   *     the stopping time is not reached. IF the maxStoppingTime is reached,
+   *     the function will return null.
+   * @param totalStoppingTime (bool): Whether or not to execute until the "total" stopping
+   *     time (number of iterations to obtain 1) rather than the regular stopping
+   *     time (number of iterations to reach a value less than the initial value).
+   * @return The stopping time, or, in a special case, infinity, null or a negative.
+   */
+  public static Double stoppingTime(BigInteger initialValue, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime) {
+    return stoppingTime(initialValue, params, maxStoppingTime, totalStoppingTime, CycleDetection.BRENT);
+  }
+
+  /**
+   * Returns the stopping time, as per {@code stoppingTime(initialValue, params, ~)},
+   * detecting cycles with the chosen approach. HASHED detection uses memory in
+   * proportion to the amount of steps, while BRENT detection uses constant memory,
+   * and is the approach used by the other stopping time overloads.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, if
+   *     the stopping time is not reached. IF the maxStoppingTime is reached,
+   *     the function will return null.
+   * @param totalStoppingTime (bool): Whether or not to execute until the "total" stopping
+   *     time (number of iterations to obtain 1) rather than the regular stopping
+   *     time (number of iterations to reach a value less than the initial value).
+   * @param cycleDetection The approach with which to detect cycles.
+   * @return The stopping time, or, in a special case, infinity, null or a negative.
+   */
+  public static Double stoppingTime(BigInteger initialValue, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, CycleDetection cycleDetection) {
+    double stoppingTime = primitiveStoppingTime(initialValue, params, maxStoppingTime, totalStoppingTime, cycleDetection);
+    return Double.isNaN(stoppingTime) ? null : stoppingTime;
+  }
+
+  /**
+   * Returns the total stopping time, the amount of iterations required to reach 1, as
+   * per {@code stoppingTime(initialValue, cache.parameterisation(), maxStoppingTime, true)},
+   * but terminating early on any value whose total stopping time is memoised in the cache,
+   * and memoising the total stopping times of the values visited. As the regular stopping
+   * time is relative to the initial value, it can't be memoised, so only the total is.
    *
-   * @param initialValue The value to begin the hailstone sequence from.
-   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
-   * @param a Factor by which to multiply n.
-   * @param b Value to add to the scaled value of n.
-   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
-   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
-   *     (number of iterations to obtain 1) rather than the regular stopping time (number
-   *     of iterations to reach a value less than the initial value).
-   * @return A set of values that form the hailstone sequence.
-   * @throws FailedSaneParameterCheck if P or a are 0.
+   * @param initialValue The value for which to find the total stopping time.
+   * @param cache The memo of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, null or a negative.
    */
-  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxTotalStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
-    // Call out the function before any magic returns to trap bad values.
-    @SuppressWarnings("unused")
-    final BigInteger _throwaway = function(initialValue, p, a, b);
-    // Return the hailstone sequence.
-    return new HailstoneSequence(initialValue, p, a, b, maxTotalStoppingTime, totalStoppingTime);
+  public static Double stoppingTime(BigInteger initialValue, StoppingTimeCache cache, int maxStoppingTime) {
+    double stoppingTime = cache.totalStoppingTime(initialValue, maxStoppingTime);
+    return Double.isNaN(stoppingTime) ? null : stoppingTime;
   }
 
   /**
-   * Returns a list of successive values obtained by iterating the Collatz function,
-   * until either 1 is reached, or the total amount of iterations exceeds maxTotalStoppingTime.
+   * Returns the total stopping time, the amount of iterations required to reach 1, as
+   * per {@code stoppingTime(initialValue, database.parameterisation(), maxStoppingTime, true)},
+   * but read from the database if the initial value is recorded in it, and otherwise
+   * terminating early on any recorded value, and recording the initial value.
    *
-   * @param initialValue The value to begin the hailstone sequence from.
-   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
-   * @return A set of values that form the hailstone sequence.
-   * @throws FailedSaneParameterCheck if P or a are 0.
+   * @param initialValue The value for which to find the total stopping time.
+   * @param database The database of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, null or a negative.
+   * @throws java.io.UncheckedIOException if a segment of the database can't be created, or mapped.
    */
-  public static HailstoneSequence hailstoneSequence(BigInteger initialValue, int maxTotalStoppingTime) throws FailedSaneParameterCheck {
-    return hailstoneSequence(initialValue, DEFAULT_P, DEFAULT_A, DEFAULT_B, maxTotalStoppingTime, true);
+  public static Double stoppingTime(BigInteger initialValue, StoppingTimeDatabase database, int maxStoppingTime) {
+    double stoppingTime = database.totalStoppingTime(initialValue, maxStoppingTime);
+    return Double.isNaN(stoppingTime) ? null : stoppingTime;
+  }
+
+  /**
+   * Returns the stopping time, as per {@code stoppingTime(initialValue, DEFAULT_PARAMETERISATION,
+   * maxStoppingTime, totalStoppingTime)}, but taking k steps at once with the jump table,
+   * wherever it's provable that the jump can't step over the terminus. The jump tables
+   * are only valid for the default parameterisation.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param jumps The jump table of the default parameterisation.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @return The stopping time, or, in a special case, infinity, null or a negative.
+   */
+  public static Double stoppingTime(BigInteger initialValue, JumpTable jumps, int maxStoppingTime, boolean totalStoppingTime) {
+    double stoppingTime = jumps.stoppingTime(initialValue, maxStoppingTime, totalStoppingTime);
+    return Double.isNaN(stoppingTime) ? null : stoppingTime;
   }
 
   /**
@@ -405,63 +2640,268 @@ public final class Collatz {
    * Alternatively, if totalStoppingTime is True, then it will instead count
    * the amount of iterations to reach 1. If the sequence does not stop, but
    * instead ends in a cycle, the result will be (Double.POSITIVE_INFINITY).
-   * If (P,a,b) are such that it is possible to get stuck on zero, the result
-   * will be the negative of what would otherwise be the "total stopping time"
-   * to reach 1, where 0 is considered a "total stop" that should not occur as
-   * it does form a cycle of length 1.
    *
    * @param initialValue The value for which to find the stopping time.
-   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
-   * @param a Factor by which to multiply n.
-   * @param b Value to add to the scaled value of n.
-   * @param maxStoppingTime Maximum amount of times to iterate the function, if
-   *     the stopping time is not reached. IF the maxStoppingTime is reached,
-   *     the function will return null.
-   * @param totalStoppingTime (bool): Whether or not to execute until the "total" stopping
-   *     time (number of iterations to obtain 1) rather than the regular stopping
-   *     time (number of iterations to reach a value less than the initial value).
-   * @return The stopping time, or, in a special case, infinity, null or a negative.
+   * @return The stopping time, or, in a cycle case, infinity.
    * @throws FailedSaneParameterCheck if P or a are 0.
    */
-  public static Double stoppingTime(BigInteger initialValue, BigInteger p, BigInteger a, BigInteger b, int maxStoppingTime, boolean totalStoppingTime) throws FailedSaneParameterCheck {
+  public static Double stoppingTime(BigInteger initialValue) throws FailedSaneParameterCheck {
+    return stoppingTime(initialValue, DEFAULT_PARAMETERISATION, 1000, false);
+  }
+
+  /**
+   * Returns the stopping time as a primitive, as per {@code stoppingTime(initialValue, params, ~)},
+   * except that exceeding the maxStoppingTime results in NaN rather than null, such that
+   * bulk computations can store the results in primitive arrays.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param cycleDetection The approach with which to detect cycles.
+   * @return The stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  static double primitiveStoppingTime(BigInteger initialValue, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, CycleDetection cycleDetection) {
     /* The information is contained in the hailstone sequence. Although the "max~time"
      * for hailstones is named for "total stopping" time and the "max~time" for this
      * "stopping time" function is _not_ "total", they are handled the same way, as
      * the default for "totalStoppingTime" for hailstones is true, but for this, is
      * false. Thus the naming difference. */
-    HailstoneSequence hail = hailstoneSequence(initialValue, p, a, b, maxStoppingTime, totalStoppingTime);
+    // Only the terminal state is required, so the values are never materialised.
+    Metrics.StoppingTimeEvent event = null;
+    if (Metrics.ENABLED) {
+      event = new Metrics.StoppingTimeEvent();
+      event.begin();
+    }
+    HailstoneIterator hail = new HailstoneIterator(initialValue, params, maxStoppingTime, totalStoppingTime, cycleDetection);
+    hail.exhaust();
+    if (Metrics.ENABLED) {
+      Metrics.stoppingTime();
+      if (event.shouldCommit()) {
+        event.bitLength = initialValue.bitLength();
+        event.totalStoppingTime = totalStoppingTime;
+        event.terminalCondition = hail.terminalCondition().name();
+        event.terminalStatus = hail.terminalStatus();
+        event.commit();
+      }
+    }
+    return toStoppingTime(hail.terminalCondition(), hail.terminalStatus());
+  }
+
+  /**
+   * The stopping time as a primitive, from the terminal state of a hailstone sequence.
+   *
+   * @param terminalCondition The terminal condition.
+   * @param terminalStatus The terminal status.
+   * @return The stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  private static double toStoppingTime(SequenceState terminalCondition, int terminalStatus) {
     // For total/regular/zero stopping time, the value is already the same as
     // that present, for cycles we report infinity instead of the cycle length,
-    // and for max stop out of bounds, we report null instead of the max stop cap
-    switch (hail.terminalCondition) {
+    // and for max stop out of bounds, or an exhausted budget, we report NaN (null).
+    switch (terminalCondition) {
       case TOTAL_STOPPING_TIME:
-        return (double) hail.terminalStatus;
+        return terminalStatus;
       case STOPPING_TIME:
-        return (double) hail.terminalStatus;
+        return terminalStatus;
       case CYCLE_LENGTH:
         return Double.POSITIVE_INFINITY;
       case ZERO_STOP:
-        return (double) hail.terminalStatus;
+        return terminalStatus;
       case MAX_STOP_OUT_OF_BOUNDS:
-        return null;
+        return Double.NaN;
+      case BUDGET_EXHAUSTED:
+        return Double.NaN;
       default:
-        return null;
+        return Double.NaN;
     }
   }
 
   /**
-   * Returns the stopping time, the amount of iterations required to reach a
-   * value less than the initial value, or null if maxStoppingTime is exceeded.
-   * Alternatively, if totalStoppingTime is True, then it will instead count
-   * the amount of iterations to reach 1. If the sequence does not stop, but
-   * instead ends in a cycle, the result will be (Double.POSITIVE_INFINITY).
+   * Returns the stopping times of every seed in {@code [lo, hi)}, computed in parallel on
+   * the common ForkJoinPool, where the stopping time of the seed {@code lo + k} is at index
+   * {@code k}. As the results are primitive, a stopping time that exceeds maxStoppingTime is
+   * NaN rather than null. To stream the results to a sink instead, or to be able to cancel
+   * the sweep or receive progress updates, use a {@code Sweep} directly.
    *
-   * @param initialValue The value for which to find the stopping time.
-   * @return The stopping time, or, in a cycle case, infinity.
-   * @throws FailedSaneParameterCheck if P or a are 0.
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @return The stopping times, or, in special cases, infinity, NaN or a negative.
+   * @throws IllegalArgumentException if hi is less than lo, or the range won't fit in an array.
    */
-  public static Double stoppingTime(BigInteger initialValue) throws FailedSaneParameterCheck {
-    return stoppingTime(initialValue, DEFAULT_P, DEFAULT_A, DEFAULT_B, 1000, false);
+  public static double[] sweep(long lo, long hi, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime) throws IllegalArgumentException {
+    double[] stoppingTimes = new double[sweepSize(lo, hi)];
+    new Sweep(lo, hi, params, maxStoppingTime, totalStoppingTime, (seed, stoppingTime) -> {
+      stoppingTimes[(int) (seed - lo)] = stoppingTime;
+    }).run();
+    return stoppingTimes;
+  }
+
+  /**
+   * Returns the (regular) stopping times of every seed in {@code [lo, hi)}, computed in
+   * parallel, as per {@code sweep(lo, hi, params, maxStoppingTime, false)}.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @return The stopping times, or, in special cases, infinity, NaN or a negative.
+   * @throws IllegalArgumentException if hi is less than lo, or the range won't fit in an array.
+   */
+  public static double[] sweep(long lo, long hi, Parameterisation params, int maxStoppingTime) throws IllegalArgumentException {
+    return sweep(lo, hi, params, maxStoppingTime, false);
+  }
+
+  /**
+   * Returns the total stopping times of every seed in {@code [lo, hi)}, computed in
+   * parallel, as per {@code sweep(lo, hi, cache.parameterisation(), maxStoppingTime, true)},
+   * but sharing the cache of total stopping times between every seed.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param cache The memo of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @return The total stopping times, or, in special cases, infinity, NaN or a negative.
+   * @throws IllegalArgumentException if hi is less than lo, or the range won't fit in an array.
+   */
+  public static double[] sweep(long lo, long hi, StoppingTimeCache cache, int maxStoppingTime) throws IllegalArgumentException {
+    double[] stoppingTimes = new double[sweepSize(lo, hi)];
+    new Sweep(lo, hi, cache, maxStoppingTime, Sweep.DEFAULT_CHUNK_SIZE, (seed, stoppingTime) -> {
+      stoppingTimes[(int) (seed - lo)] = stoppingTime;
+    }, null).run();
+    return stoppingTimes;
+  }
+
+  /**
+   * Returns the total stopping times of every seed in {@code [lo, hi)}, computed in
+   * parallel, as per {@code sweep(lo, hi, database.parameterisation(), maxStoppingTime, true)},
+   * but reading every seed that's recorded in the database, and recording the rest.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param database The database of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @return The total stopping times, or, in special cases, infinity, NaN or a negative.
+   * @throws IllegalArgumentException if hi is less than lo, or the range won't fit in an array.
+   * @throws java.io.UncheckedIOException if a segment of the database can't be created, or mapped.
+   */
+  public static double[] sweep(long lo, long hi, StoppingTimeDatabase database, int maxStoppingTime) throws IllegalArgumentException {
+    double[] stoppingTimes = new double[sweepSize(lo, hi)];
+    new Sweep(lo, hi, database, maxStoppingTime, Sweep.DEFAULT_CHUNK_SIZE, (seed, stoppingTime) -> {
+      stoppingTimes[(int) (seed - lo)] = stoppingTime;
+    }, null).run();
+    return stoppingTimes;
+  }
+
+  /**
+   * Returns the statistics of every seed in {@code [lo, hi)} that sets a new "delay record",
+   * a total stopping time greater than that of every lower seed in the range, or a new "path
+   * record", a peak greater than that of every lower seed, in order of their seeds. The seeds
+   * are computed in parallel, on the common ForkJoinPool, but only the records are retained.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @return The statistics of the seeds that set a record.
+   * @throws IllegalArgumentException if hi is less than lo.
+   */
+  public static List<TrajectoryStatistics> records(long lo, long hi, Parameterisation params, int maxTotalStoppingTime) throws IllegalArgumentException {
+    List<TrajectoryStatistics> records = new ArrayList<TrajectoryStatistics>();
+    // The sink is only ever called by one thread at a time, and the pool's join publishes it.
+    new Sweep(lo, hi, params, maxTotalStoppingTime, Sweep.DEFAULT_CHUNK_SIZE, (statistics, delayRecord, pathRecord) -> {
+      records.add(statistics);
+    }, null).run();
+    return records;
+  }
+
+  /**
+   * Returns the catalogue of cycles entered by the seeds in {@code [lo, hi)}, for any
+   * parameterisation, each rotated to begin at its least value by magnitude, with the
+   * amount of seeds in the range that enter it, searched in parallel on the common
+   * ForkJoinPool. To also learn how many seeds didn't repeat a value within maxSteps,
+   * or to cancel the search, use a {@code CycleSearch} directly.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxSteps Maximum amount of times to iterate the function, per seed.
+   * @return The cycles, ordered by the magnitude of their least value.
+   * @throws IllegalArgumentException if hi is less than lo.
+   */
+  public static List<CycleSearch.Cycle> cycles(long lo, long hi, Parameterisation params, int maxSteps) throws IllegalArgumentException {
+    CycleSearch search = new CycleSearch(lo, hi, params, maxSteps);
+    search.run();
+    return search.cycles();
+  }
+
+  /**
+   * The size of an array to hold the results of a sweep of the seeds in {@code [lo, hi)}.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @return The amount of seeds.
+   * @throws IllegalArgumentException if hi is less than lo, or the range won't fit in an array.
+   */
+  private static int sweepSize(long lo, long hi) throws IllegalArgumentException {
+    long seeds = hi - lo;
+    if (hi < lo || seeds < 0 || seeds > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("The range of a sweep must be non-negative, and fit in an array.");
+    }
+    return (int) seeds;
+  }
+
+  /**
+   * Verify that every seed in {@code [lo, hi)} of the default parameterisation has a
+   * stopping time, and so converges, given every seed closer to 0 does, except for those
+   * that are the least, by magnitude, values of one of the KNOWN_CYCLES. Provably stopping
+   * residue classes are eliminated with a 2^k sieve, and the rest are walked in parallel.
+   * The sieve holds an int per surviving residue, which is ~8KB at the default k of 16,
+   * and ~1.1MB at MAX_SIEVE_BITS, as per {@code RangeVerification}.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param sieveBits The amount of bits, k, of the residue sieve.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per tested seed,
+   *     beyond which a seed is reported as unverified.
+   * @return The verification, including any seeds that were unverified.
+   * @throws IllegalArgumentException if hi is less than lo, the range has more than
+   *     Long.MAX_VALUE seeds, or the sieve bits are not within [1, MAX_SIEVE_BITS].
+   */
+  public static RangeVerification verifyRange(BigInteger lo, BigInteger hi, int sieveBits, int maxStoppingTime) throws IllegalArgumentException {
+    return new RangeVerification(lo, hi, sieveBits, maxStoppingTime);
+  }
+
+  /**
+   * Verify that every seed in {@code [lo, hi)} of the default parameterisation has a
+   * stopping time, with the default sieve bits and maximum stopping time.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @return The verification, including any seeds that were unverified.
+   * @throws IllegalArgumentException if hi is less than lo, or the range has more than
+   *     Long.MAX_VALUE seeds.
+   */
+  public static RangeVerification verifyRange(BigInteger lo, BigInteger hi) throws IllegalArgumentException {
+    return verifyRange(lo, hi, RangeVerification.DEFAULT_SIEVE_BITS, RangeVerification.DEFAULT_MAX_STOPPING_TIME);
+  }
+
+  /**
+   * Verify that every seed in {@code [lo, hi)} of the default parameterisation has a
+   * stopping time, with the default sieve bits and maximum stopping time.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @return The verification, including any seeds that were unverified.
+   * @throws IllegalArgumentException if hi is less than lo.
+   */
+  public static RangeVerification verifyRange(long lo, long hi) throws IllegalArgumentException {
+    return verifyRange(BigInteger.valueOf(lo), BigInteger.valueOf(hi));
   }
 
   /**
@@ -479,9 +2919,8 @@ public final class Collatz {
 
     /** The terminal state; null if not a terminal node, MAX_STOP_OUT_OF_BOUNDS if the maxOrbitDistance
      *  has been reached, CYCLE_LENGTH if the node's value is found to have occured previously, or
-     *  CYCLE_INIT, retroactively applied when a CYCLE_LENGTH state node is found. */
-    // The only variable of TreeGraphNode to not be "final" as it must be possible to update retroactively.
-    SequenceState terminalSequenceState = null;
+     *  CYCLE_INIT, when a CYCLE_LENGTH state node is found; which is known before the node is created. */
+    final SequenceState terminalSequenceState;
 
     /** The "Pre N/P" child of this node that is always
      *  present if this is not a terminal node. */
@@ -491,9 +2930,8 @@ public final class Collatz {
      *  if it exists and this is not a terminal node. */
     final TreeGraphNode preANplusBNode;
 
-    /** A map of previous graph nodes which maps instances of
-     *  TreeGraphNode to themselves, to enable cycle detection. */
-    private final Map<BigInteger, TreeGraphNode> cycleCheck;
+    /** The hash of the whole subtree, computed once the children, and so their hashes, exist. */
+    private final int subTreeHash;
 
     /**
      * Create an instance of TreeGraphNode which will yield its entire sub-tree of all child nodes.
@@ -506,63 +2944,49 @@ public final class Collatz {
      * @throws FailedSaneParameterCheck if P or a are 0.
      */
     public TreeGraphNode(BigInteger nodeValue, int maxOrbitDistance, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
-      this.nodeValue = nodeValue;
-      if (Math.max(0, maxOrbitDistance) == 0) {
-        this.terminalSequenceState = SequenceState.MAX_STOP_OUT_OF_BOUNDS;
-        this.preNDivPNode = null;
-        this.preANplusBNode = null;
-        this.cycleCheck = null;
-      } else {
-        BigInteger[] reverses = reverseFunction(nodeValue, p, a, b);
-        cycleCheck = new HashMap<BigInteger, TreeGraphNode>();
-        this.cycleCheck.put(this.nodeValue, this);
-        this.preNDivPNode = new TreeGraphNode(reverses[0], maxOrbitDistance - 1, p, a, b, this.cycleCheck);
-        if (reverses.length == 2) {
-          this.preANplusBNode = new TreeGraphNode(reverses[1], maxOrbitDistance - 1, p, a, b, this.cycleCheck);
-        } else {
-          this.preANplusBNode = null;
-        }
-      }
-
+      this(nodeValue, maxOrbitDistance, new Parameterisation(p, a, b));
     }
 
     /**
-     * Create an instance of TreeGraphNode which will yield its entire sub-tree of all child nodes.
-     * This is used internally by itself and the public constructor to pass the cycle checking map,
-     * recursively determining subsequent child nodes.
+     * Create an instance of TreeGraphNode which will yield its entire sub-tree of all child nodes,
+     * for a parameterisation that has already been sanity checked.
      *
      * @param nodeValue The value for which to find the tree graph node reversal.
      * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
-     * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
-     * @param a Factor by which to multiply n.
-     * @param b Value to add to the scaled value of n.
-     * @param cycleCheck Checks if this node's value already occurred.
-     * @return the tree graph node and its subsequent tree, for the given parameters.
-     * @throws FailedSaneParameterCheck if P or a are 0.
+     * @param params The parameterisation (P,a,b) of the function to reverse.
      */
-    private TreeGraphNode(BigInteger nodeValue, int maxOrbitDistance, BigInteger p, BigInteger a, BigInteger b, Map<BigInteger, TreeGraphNode> cycleCheck) throws FailedSaneParameterCheck {
-      this.nodeValue = nodeValue;
-      this.cycleCheck = cycleCheck;
-      if (this.cycleCheck.keySet().contains(this.nodeValue)) {
-        this.cycleCheck.get(this.nodeValue).terminalSequenceState = SequenceState.CYCLE_INIT;
-        this.terminalSequenceState = SequenceState.CYCLE_LENGTH;
-        this.preNDivPNode = null;
-        this.preANplusBNode = null;
-      } else if (Math.max(0, maxOrbitDistance) == 0) {
-        this.terminalSequenceState = SequenceState.MAX_STOP_OUT_OF_BOUNDS;
-        this.preNDivPNode = null;
-        this.preANplusBNode = null;
-      } else {
-        this.cycleCheck.put(this.nodeValue, this);
-        this.terminalSequenceState = null;
-        BigInteger[] reverses = reverseFunction(nodeValue, p, a, b);
-        this.preNDivPNode = new TreeGraphNode(reverses[0], maxOrbitDistance - 1, p, a, b, this.cycleCheck);
-        if (reverses.length == 2) {
-          this.preANplusBNode = new TreeGraphNode(reverses[1], maxOrbitDistance - 1, p, a, b, this.cycleCheck);
-        } else {
-          this.preANplusBNode = null;
-        }
+    public TreeGraphNode(BigInteger nodeValue, int maxOrbitDistance, Parameterisation params) {
+      this(new CompactTreeGraph(nodeValue, maxOrbitDistance, params));
+    }
+
+    /**
+     * Create the root TreeGraphNode of a compact tree graph that has already been expanded, by creating
+     * every other node from the last expanded to the first, as every child is expanded, and
+     * so indexed, after its parent.
+     *
+     * @param tree The expanded tree, of which this is the root.
+     */
+    TreeGraphNode(CompactTreeGraph tree) {
+      TreeGraphNode[] nodes = new TreeGraphNode[tree.size()];
+      for (int k = tree.size() - 1; k > CompactTreeGraph.ROOT; k--) {
+        nodes[k] = new TreeGraphNode(tree.value(k), tree.terminalSequenceState(k), child(nodes, tree.preNDivP(k)), child(nodes, tree.preANplusB(k)));
       }
+      this.nodeValue = tree.value(CompactTreeGraph.ROOT);
+      this.terminalSequenceState = tree.terminalSequenceState(CompactTreeGraph.ROOT);
+      this.preNDivPNode = child(nodes, tree.preNDivP(CompactTreeGraph.ROOT));
+      this.preANplusBNode = child(nodes, tree.preANplusB(CompactTreeGraph.ROOT));
+      this.subTreeHash = subTreeHash(nodeValue, terminalSequenceState, preNDivPNode, preANplusBNode);
+    }
+
+    /**
+     * The created node at an index, if there is one.
+     *
+     * @param nodes The created nodes.
+     * @param index The index of the node, or {@code CompactTreeGraph.NO_NODE}.
+     * @return The node, or null if there is none.
+     */
+    private static TreeGraphNode child(TreeGraphNode[] nodes, int index) {
+      return (index == CompactTreeGraph.NO_NODE) ? null : nodes[index];
     }
 
     /**
@@ -581,7 +3005,24 @@ public final class Collatz {
       this.terminalSequenceState = terminalSequenceState;
       this.preNDivPNode = preNDivPNode;
       this.preANplusBNode = preANplusBNode;
-      this.cycleCheck = null;
+      this.subTreeHash = subTreeHash(nodeValue, terminalSequenceState, preNDivPNode, preANplusBNode);
+    }
+
+    /**
+     * The hash of a subtree, from the hashes of the subtrees of its children.
+     *
+     * @param nodeValue The value of the node.
+     * @param terminalSequenceState The sequence state of the node.
+     * @param preNDivPNode The "Pre N/P" child node, or null.
+     * @param preANplusBNode The "Pre aN+b" child node, or null.
+     * @return The hash of the subtree.
+     */
+    private static int subTreeHash(BigInteger nodeValue, SequenceState terminalSequenceState, TreeGraphNode preNDivPNode, TreeGraphNode preANplusBNode) {
+      int hash = nodeValue.hashCode();
+      hash = 17 * hash + (terminalSequenceState != null ? terminalSequenceState.hashCode() : 0);
+      hash = 17 * hash + (preNDivPNode != null ? preNDivPNode.subTreeHash : 0);
+      hash = 17 * hash + (preANplusBNode != null ? preANplusBNode.subTreeHash : 0);
+      return hash;
     }
 
     /** The equality between TreeGraphNodes is determined exclusively by the
@@ -599,40 +3040,50 @@ public final class Collatz {
       return this.nodeValue.equals(tgn.nodeValue);
     }
 
-    /** The hashCode of a TreeGraphNode is determined by the
-     *  node's value, the child nodes and sequence state. */
+    /** The hashCode of a TreeGraphNode is determined by the node's value, the
+     *  child nodes and sequence state, and is computed once, when it's created. */
     @Override
     public int hashCode() {
-      int hash = this.nodeValue.hashCode();
-      hash = 17 * hash + (this.terminalSequenceState != null ? this.terminalSequenceState.hashCode() : 0);
-      hash = 17 * hash + (this.preNDivPNode != null ? this.preNDivPNode.hashCode() : 0);
-      hash = 17 * hash + (this.preANplusBNode != null ? this.preANplusBNode.hashCode() : 0);
-      return hash;
+      return subTreeHash;
     }
 
     /**
      * A much stricter equality check than the {@code equals(Object obj)} override.
      * This will only confirm an equality if the whole subtree of both nodes, including
      * node values, sequence states, and child nodes, checked recursively, are equal.
+     * Subtrees that are the same instance, such as those shared by a
+     * {@code TreeGraphInterner}, are equal without being walked, and subtrees with
+     * different hashes are unequal without being walked.
      *
      * @param tgn The TreeGraphNode with which to compare equality.
      * @return {@code true}, if the entire sub-trees are equal.
      */
     public boolean subTreeEquals(TreeGraphNode tgn) {
-      if (!this.nodeValue.equals(tgn.nodeValue) || this.terminalSequenceState != tgn.terminalSequenceState) {
-        return false;
-      }
-      if (this.preNDivPNode == null && tgn.preNDivPNode != null) {
-        return false;
-      }
-      if (this.preNDivPNode != null && !this.preNDivPNode.subTreeEquals(tgn.preNDivPNode)) {
-        return false;
-      }
-      if (this.preANplusBNode == null && tgn.preANplusBNode != null) {
-        return false;
-      }
-      if (this.preANplusBNode != null && !this.preANplusBNode.subTreeEquals(tgn.preANplusBNode)) {
-        return false;
+      // Compared pairwise with an explicit stack, so arbitrarily deep trees can be compared.
+      Deque<TreeGraphNode[]> stack = new ArrayDeque<TreeGraphNode[]>();
+      stack.push(new TreeGraphNode[] {this, tgn});
+      while (!stack.isEmpty()) {
+        TreeGraphNode[] pair = stack.pop();
+        TreeGraphNode left = pair[0];
+        TreeGraphNode right = pair[1];
+        if (left == right) {
+          continue;
+        }
+        if (left.subTreeHash != right.subTreeHash || !left.nodeValue.equals(right.nodeValue) || left.terminalSequenceState != right.terminalSequenceState) {
+          return false;
+        }
+        if ((left.preNDivPNode == null) != (right.preNDivPNode == null)) {
+          return false;
+        }
+        if ((left.preANplusBNode == null) != (right.preANplusBNode == null)) {
+          return false;
+        }
+        if (left.preANplusBNode != null) {
+          stack.push(new TreeGraphNode[] {left.preANplusBNode, right.preANplusBNode});
+        }
+        if (left.preNDivPNode != null) {
+          stack.push(new TreeGraphNode[] {left.preNDivPNode, right.preNDivPNode});
+        }
       }
       return true;
     }
@@ -656,7 +3107,34 @@ public final class Collatz {
      * @throws FailedSaneParameterCheck if P or a are 0.
      */
     public TreeGraph(BigInteger nodeValue, int maxOrbitDistance, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
-      this.root = new TreeGraphNode(nodeValue, maxOrbitDistance, p, a, b);
+      this(nodeValue, maxOrbitDistance, new Parameterisation(p, a, b));
+    }
+
+    /**
+     * Create a new TreeGraph with the root node defined by the inputs, for
+     * a parameterisation that has already been sanity checked.
+     *
+     * @param nodeValue The value for which to find the tree graph node reversal.
+     * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
+     * @param params The parameterisation (P,a,b) of the function to reverse.
+     */
+    public TreeGraph(BigInteger nodeValue, int maxOrbitDistance, Parameterisation params) {
+      Metrics.TreeGraphEvent event = null;
+      if (Metrics.ENABLED) {
+        event = new Metrics.TreeGraphEvent();
+        event.begin();
+      }
+      CompactTreeGraph tree = new CompactTreeGraph(nodeValue, maxOrbitDistance, params);
+      this.root = new TreeGraphNode(tree);
+      if (Metrics.ENABLED) {
+        Metrics.treeGraph(tree.size());
+        if (event.shouldCommit()) {
+          event.bitLength = nodeValue.bitLength();
+          event.maxOrbitDistance = maxOrbitDistance;
+          event.nodes = tree.size();
+          event.commit();
+        }
+      }
     }
 
     /**
@@ -714,6 +3192,35 @@ public final class Collatz {
     return new TreeGraph(initialValue, maxOrbitDistance, p, a, b);
   }
 
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, for a
+   * parameterisation that has already been sanity checked.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return the entire tree graph up to some orbit distance, for the given parameters.
+   */
+  public static TreeGraph treeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params) {
+    return new TreeGraph(initialValue, maxOrbitDistance, params);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, whose subtrees
+   * are shared with every other tree graph of the same interner.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param interner The interner of the subtrees.
+   * @return the entire tree graph up to some orbit distance, for the given parameters.
+   */
+  public static TreeGraph treeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params, TreeGraphInterner interner) {
+    return interner.treeGraph(initialValue, maxOrbitDistance, params);
+  }
+
   /**
    * Returns a directed tree graph of the reverse function values up to a maximum
    * nesting of maxOrbitDistance, with the initialValue as the root.
@@ -729,6 +3236,124 @@ public final class Collatz {
    * @throws FailedSaneParameterCheck if P or a are 0.
    */
   public static TreeGraph treeGraph(BigInteger initialValue, int maxOrbitDistance) throws FailedSaneParameterCheck {
-    return treeGraph(initialValue, maxOrbitDistance, DEFAULT_P, DEFAULT_A, DEFAULT_B);
+    return treeGraph(initialValue, maxOrbitDistance, DEFAULT_PARAMETERISATION);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, held in parallel
+   * primitive arrays rather than as an object per node.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @return the entire compact tree graph up to some orbit distance, for the given parameters.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public static CompactTreeGraph compactTreeGraph(BigInteger initialValue, int maxOrbitDistance, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
+    return new CompactTreeGraph(initialValue, maxOrbitDistance, p, a, b);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, held in parallel
+   * primitive arrays, for a parameterisation that has already been sanity checked.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return the entire compact tree graph up to some orbit distance, for the given parameters.
+   */
+  public static CompactTreeGraph compactTreeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params) {
+    return new CompactTreeGraph(initialValue, maxOrbitDistance, params);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, held in parallel
+   * primitive arrays, expanding the subtrees close to the root in parallel. The result
+   * is equal to the serially expanded compact tree graph.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param pool The pool in which to expand the subtrees.
+   * @return the entire compact tree graph up to some orbit distance, for the given parameters.
+   */
+  public static CompactTreeGraph compactTreeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params, ForkJoinPool pool) {
+    return new CompactTreeGraph(initialValue, maxOrbitDistance, params, pool);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, held in parallel
+   * primitive arrays rather than as an object per node.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @return the entire compact tree graph up to some orbit distance, for the given parameters.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public static CompactTreeGraph compactTreeGraph(BigInteger initialValue, int maxOrbitDistance) throws FailedSaneParameterCheck {
+    return compactTreeGraph(initialValue, maxOrbitDistance, DEFAULT_PARAMETERISATION);
+  }
+
+  /**
+   * Returns a directed tree graph of the reverse function values up to a maximum
+   * nesting of maxOrbitDistance, with the initialValue as the root, expanding the
+   * subtrees close to the root in parallel, on the common ForkJoinPool. The result
+   * is equal to {@code Collatz.treeGraph(~)}, including which nodes are marked
+   * CYCLE_INIT and CYCLE_LENGTH.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return the entire tree graph up to some orbit distance, for the given parameters.
+   */
+  public static TreeGraph parallelTreeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params) {
+    return compactTreeGraph(initialValue, maxOrbitDistance, params, ForkJoinPool.commonPool()).toTreeGraph();
+  }
+
+  /**
+   * Returns an iterator that lazily yields the levels of the reverse tree graph of a root
+   * value, breadth first, as batches of the values at each orbit distance from the root,
+   * holding only the level before the next to be yielded, rather than the whole tree.
+   *
+   * @param root The root value of the reverse tree graph.
+   * @param maxDepth The greatest orbit distance of a level to yield.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param filter Decides which values of each level are kept, and reversed further.
+   * @return An iterator over the levels of the reverse tree graph.
+   */
+  public static ReverseLevels reverseLevels(BigInteger root, int maxDepth, Parameterisation params, ReverseLevels.Filter filter) {
+    return new ReverseLevels(root, maxDepth, params, filter);
+  }
+
+  /**
+   * Returns an iterator that lazily yields the levels of the reverse tree graph of a root
+   * value, breadth first, as batches of the values at each orbit distance from the root.
+   *
+   * @param root The root value of the reverse tree graph.
+   * @param maxDepth The greatest orbit distance of a level to yield.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return An iterator over the levels of the reverse tree graph.
+   */
+  public static ReverseLevels reverseLevels(BigInteger root, int maxDepth, Parameterisation params) {
+    return reverseLevels(root, maxDepth, params, null);
+  }
+
+  /**
+   * Returns an iterator that lazily yields the levels of the reverse tree graph of a root
+   * value of the Collatz function, breadth first, as batches of the values at each orbit
+   * distance from the root.
+   *
+   * @param root The root value of the reverse tree graph.
+   * @param maxDepth The greatest orbit distance of a level to yield.
+   * @return An iterator over the levels of the reverse tree graph.
+   */
+  public static ReverseLevels reverseLevels(BigInteger root, int maxDepth) {
+    return reverseLevels(root, maxDepth, DEFAULT_PARAMETERISATION);
   }
 }
@@ -0,0 +1,786 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import io.github.skenvy.Collatz.FailedSaneParameterCheck;
+import io.github.skenvy.Collatz.LongIndex;
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.TreeGraph;
+import io.github.skenvy.Collatz.TreeGraphNode;
+
+/**
+ * A directed tree graph of the reverse function values, the same as a {@code TreeGraph},
+ * but held in parallel primitive arrays rather than as an object per node. Each node is
+ * an index; the root is 0, and the nodes are indexed in pre-order, so every child is
+ * indexed after its parent, and the subtree of each node is contiguous. The value of a
+ * node is held as a long, unless it doesn't fit in one, in which case it is held in a
+ * side table of BigInteger's. The children are held as indices, or {@code NO_NODE}, and
+ * the terminal state as a byte, such that a node costs 17 bytes rather than the hundred
+ * or so of a {@code TreeGraphNode} and its BigInteger.
+ *
+ * <p>Nodes are expanded depth first, each "Pre N/P" subtree before its sibling "Pre aN+b"
+ * subtree, the same order in which a {@code TreeGraph} is expanded, so the same nodes are
+ * marked CYCLE_INIT and CYCLE_LENGTH, and {@code toTreeGraph()} is equal to the tree graph
+ * of the same root, orbit distance and parameterisation.
+ */
+public final class CompactTreeGraph {
+
+  /** The index of a child that isn't present. */
+  public static final int NO_NODE = -1;
+
+  /** The index of the root node. */
+  public static final int ROOT = 0;
+
+  /** The value held in place of a value that is in the side table. Long.MIN_VALUE is
+   *  itself held in the side table, such that this is unambiguous. */
+  private static final long OVERFLOW = Long.MIN_VALUE;
+
+  /** The node that expanded a value in another tree, when expanded in parallel. */
+  private static final int ELSEWHERE = -2;
+
+  /** The least remaining orbit distance of a subtree that is expanded by its own task. */
+  private static final int MIN_FORK_DISTANCE = 16;
+
+  /** The greatest depth of a subtree that is expanded by its own task. */
+  private static final int MAX_FORK_DEPTH = 20;
+
+  /** The terminal states, by one less than their byte. */
+  private static final SequenceState[] STATES = SequenceState.values();
+
+  /** The values of the nodes, or {@code OVERFLOW} if the value is in the side table. */
+  long[] values;
+
+  /** The values of the nodes that aren't held in {@code values}, by index. */
+  final Map<Integer, BigInteger> overflowValues;
+
+  /** The index of the "Pre N/P" and "Pre aN+b" child of each node, or {@code NO_NODE}. */
+  int[] preNDivP;
+  int[] preANplusB;
+
+  /** The terminal state of each node; 0 if it is not a terminal node, otherwise one more
+   *  than the ordinal of the state. */
+  byte[] states;
+
+  /** The amount of nodes. */
+  int size;
+
+  /**
+   * Create, and expand, the compact tree graph of a root value.
+   *
+   * @param nodeValue The value for which to find the tree graph node reversal.
+   * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
+   * @param p Modulus used to devide n, iff n is equivalent to (0 mod P).
+   * @param a Factor by which to multiply n.
+   * @param b Value to add to the scaled value of n.
+   * @throws FailedSaneParameterCheck if P or a are 0.
+   */
+  public CompactTreeGraph(BigInteger nodeValue, int maxOrbitDistance, BigInteger p, BigInteger a, BigInteger b) throws FailedSaneParameterCheck {
+    this(nodeValue, maxOrbitDistance, new Parameterisation(p, a, b));
+  }
+
+  /**
+   * Create, and expand, the compact tree graph of a root value, for a parameterisation
+   * that has already been sanity checked.
+   *
+   * @param nodeValue The value for which to find the tree graph node reversal.
+   * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   */
+  public CompactTreeGraph(BigInteger nodeValue, int maxOrbitDistance, Parameterisation params) {
+    this(nodeValue, maxOrbitDistance, params, new LocalExpandedValues());
+  }
+
+  /**
+   * Create, and expand in parallel, the compact tree graph of a root value, for a
+   * parameterisation that has already been sanity checked. The subtrees of the nodes
+   * close to the root, that have at least {@code MIN_FORK_DISTANCE} orbits left, are
+   * expanded by their own tasks, with a shared, striped, record of the expanded values,
+   * and then concatenated in the same order as the serial expansion, such that the
+   * result is equal, node for node and index for index, to the serial expansion.
+   *
+   * <p>As every child of a value is a value that the function maps to it, a value can
+   * only be repeated by the root's own cycle, so no two subtrees race to expand the same
+   * value. The CYCLE_INIT states are marked once every subtree is expanded.
+   *
+   * @param nodeValue The value for which to find the tree graph node reversal.
+   * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param pool The pool in which to expand the subtrees.
+   */
+  public CompactTreeGraph(BigInteger nodeValue, int maxOrbitDistance, Parameterisation params, ForkJoinPool pool) {
+    SharedExpandedValues expanded = new SharedExpandedValues();
+    Segment root = pool.invoke(new ExpansionTask(nodeValue, Math.max(0, maxOrbitDistance), params, expanded, 0));
+    this.size = root.size;
+    this.values = new long[size];
+    this.overflowValues = new HashMap<Integer, BigInteger>();
+    this.preNDivP = new int[size];
+    this.preANplusB = new int[size];
+    this.states = new byte[size];
+    copy(root, ROOT);
+    for (BigInteger repeated : new HashSet<BigInteger>(expanded.repeated)) {
+      for (int node = ROOT; node < size; node++) {
+        if (states[node] == 0 && value(node).equals(repeated)) {
+          states[node] = state(SequenceState.CYCLE_INIT);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Create, and expand serially, the compact tree graph of a value.
+   *
+   * @param nodeValue The value for which to find the tree graph node reversal.
+   * @param maxOrbitDistance The maximum distance/orbit/branch length to travel.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param expanded The record of the values that have been expanded.
+   */
+  private CompactTreeGraph(BigInteger nodeValue, int maxOrbitDistance, Parameterisation params, ExpandedValues expanded) {
+    int capacity = 16;
+    this.values = new long[capacity];
+    this.overflowValues = new HashMap<Integer, BigInteger>();
+    this.preNDivP = new int[capacity];
+    this.preANplusB = new int[capacity];
+    this.states = new byte[capacity];
+    final long[] longReverses = new long[2];
+    PendingNodes pending = new PendingNodes();
+    pending.push(nodeValue, Math.max(0, maxOrbitDistance), -1);
+    while (pending.top > 0) {
+      pending.top--;
+      long value = pending.values[pending.top];
+      BigInteger bigValue = pending.bigValues[pending.top];
+      int distance = pending.distances[pending.top];
+      int parent = pending.parents[pending.top];
+      pending.bigValues[pending.top] = null;
+      // Allocated once popped, such that the nodes are indexed in pre-order.
+      int node = (bigValue == null) ? allocate(value) : allocate(bigValue);
+      if (parent != -1) {
+        if ((parent & 1) == 0) {
+          preNDivP[parent >> 1] = node;
+        } else {
+          preANplusB[parent >> 1] = node;
+        }
+      }
+      // A node is only recorded as having expanded its value if it will be expanded.
+      int previous;
+      if (distance == 0) {
+        previous = (bigValue == null) ? expanded.get(value) : expanded.get(bigValue);
+      } else {
+        previous = (bigValue == null) ? expanded.putIfAbsent(value, node) : expanded.putIfAbsent(bigValue, node);
+      }
+      if (previous != NO_NODE) {
+        if (previous != ELSEWHERE) {
+          states[previous] = state(SequenceState.CYCLE_INIT);
+        }
+        states[node] = state(SequenceState.CYCLE_LENGTH);
+        continue;
+      } else if (distance == 0) {
+        states[node] = state(SequenceState.MAX_STOP_OUT_OF_BOUNDS);
+        continue;
+      }
+      // Pushed "Pre aN+b" first, so that the "Pre N/P" subtree is expanded first.
+      int reverses = (bigValue == null && params.longParameters) ? params.longReverseFunction(value, longReverses) : -1;
+      if (reverses == -1) {
+        BigInteger[] bigReverses = params.reverseFunction((bigValue == null) ? BigInteger.valueOf(value) : bigValue);
+        for (int k = bigReverses.length - 1; k >= 0; k--) {
+          pending.push(bigReverses[k], distance - 1, 2 * node + k);
+        }
+      } else {
+        for (int k = reverses - 1; k >= 0; k--) {
+          pending.push(longReverses[k], distance - 1, 2 * node + k);
+        }
+      }
+    }
+    this.values = Arrays.copyOf(values, size);
+    this.preNDivP = Arrays.copyOf(preNDivP, size);
+    this.preANplusB = Arrays.copyOf(preANplusB, size);
+    this.states = Arrays.copyOf(states, size);
+  }
+
+  /**
+   * Allocate a node, growing the arrays if they're full.
+   *
+   * @param value The value of the node, which isn't {@code OVERFLOW}.
+   * @return The index of the node.
+   */
+  private int allocate(long value) {
+    if (size == values.length) {
+      int capacity = size * 2;
+      values = Arrays.copyOf(values, capacity);
+      preNDivP = Arrays.copyOf(preNDivP, capacity);
+      preANplusB = Arrays.copyOf(preANplusB, capacity);
+      states = Arrays.copyOf(states, capacity);
+    }
+    values[size] = value;
+    preNDivP[size] = NO_NODE;
+    preANplusB[size] = NO_NODE;
+    return size++;
+  }
+
+  /**
+   * Allocate a node whose value is held in the side table, growing the arrays if they're full.
+   *
+   * @param value The value of the node.
+   * @return The index of the node.
+   */
+  private int allocate(BigInteger value) {
+    int node = allocate(OVERFLOW);
+    overflowValues.put(node, value);
+    return node;
+  }
+
+  /**
+   * Whether a value is held in the values array, rather than the side table.
+   *
+   * @param value The value.
+   * @return {@code true} if the value fits in a long, and isn't {@code OVERFLOW}.
+   */
+  private static boolean isHeldInline(BigInteger value) {
+    return value.bitLength() < 64 && value.longValue() != OVERFLOW;
+  }
+
+  /**
+   * The byte that represents a terminal state.
+   *
+   * @param state The terminal state.
+   * @return One more than the ordinal of the state.
+   */
+  private static byte state(SequenceState state) {
+    return (byte) (state.ordinal() + 1);
+  }
+
+  /**
+   * The amount of nodes in the tree.
+   *
+   * @return The amount of nodes.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The value of a node.
+   *
+   * @param node The index of the node.
+   * @return The value of the node.
+   */
+  public BigInteger value(int node) {
+    return (values[node] == OVERFLOW) ? overflowValues.get(node) : BigInteger.valueOf(values[node]);
+  }
+
+  /**
+   * Whether the value of a node can be retrieved as a long, without a BigInteger.
+   *
+   * @param node The index of the node.
+   * @return {@code true} if the value of the node fits in a long.
+   */
+  public boolean isLongValue(int node) {
+    return values[node] != OVERFLOW;
+  }
+
+  /**
+   * The value of a node, as a long.
+   *
+   * @param node The index of the node.
+   * @return The value of the node.
+   * @throws ArithmeticException if the value of the node doesn't fit in a long.
+   */
+  public long longValue(int node) throws ArithmeticException {
+    if (values[node] == OVERFLOW) {
+      return overflowValues.get(node).longValueExact();
+    }
+    return values[node];
+  }
+
+  /**
+   * The "Pre N/P" child of a node, which is always present if it is not a terminal node.
+   *
+   * @param node The index of the node.
+   * @return The index of the child, or {@code NO_NODE}.
+   */
+  public int preNDivP(int node) {
+    return preNDivP[node];
+  }
+
+  /**
+   * The "Pre aN+b" child of a node, which is present if it exists and it is not a terminal node.
+   *
+   * @param node The index of the node.
+   * @return The index of the child, or {@code NO_NODE}.
+   */
+  public int preANplusB(int node) {
+    return preANplusB[node];
+  }
+
+  /**
+   * The terminal state of a node.
+   *
+   * @param node The index of the node.
+   * @return null if it is not a terminal node, otherwise MAX_STOP_OUT_OF_BOUNDS,
+   *     CYCLE_INIT or CYCLE_LENGTH.
+   */
+  public SequenceState terminalSequenceState(int node) {
+    return (states[node] == 0) ? null : STATES[states[node] - 1];
+  }
+
+  /**
+   * Create the {@code TreeGraph} of the same tree, with an object per node.
+   *
+   * @return The equivalent tree graph.
+   */
+  public TreeGraph toTreeGraph() {
+    return new TreeGraph(new TreeGraphNode(this));
+  }
+
+  /**
+   * Whether the subtree of a node is equal to the subtree of a node of another compact tree
+   * graph, including the node values, sequence states, and child nodes, the same as the
+   * {@code subTreeEquals} of a {@code TreeGraphNode}.
+   *
+   * @param node The index of the node in this tree.
+   * @param other The other compact tree graph.
+   * @param otherNode The index of the node in the other tree.
+   * @return {@code true}, if the entire sub-trees are equal.
+   */
+  public boolean subTreeEquals(int node, CompactTreeGraph other, int otherNode) {
+    Deque<int[]> stack = new ArrayDeque<int[]>();
+    stack.push(new int[] {node, otherNode});
+    while (!stack.isEmpty()) {
+      int[] pair = stack.pop();
+      int left = pair[0];
+      int right = pair[1];
+      if (states[left] != other.states[right] || !sameValue(left, other, right)) {
+        return false;
+      }
+      if ((preNDivP[left] == NO_NODE) != (other.preNDivP[right] == NO_NODE)) {
+        return false;
+      }
+      if ((preANplusB[left] == NO_NODE) != (other.preANplusB[right] == NO_NODE)) {
+        return false;
+      }
+      if (preANplusB[left] != NO_NODE) {
+        stack.push(new int[] {preANplusB[left], other.preANplusB[right]});
+      }
+      if (preNDivP[left] != NO_NODE) {
+        stack.push(new int[] {preNDivP[left], other.preNDivP[right]});
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether a node has the same value as a node of another compact tree graph.
+   *
+   * @param node The index of the node in this tree.
+   * @param other The other compact tree graph.
+   * @param otherNode The index of the node in the other tree.
+   * @return {@code true} if the values are equal.
+   */
+  private boolean sameValue(int node, CompactTreeGraph other, int otherNode) {
+    if (values[node] != other.values[otherNode]) {
+      return false;
+    }
+    return values[node] != OVERFLOW || overflowValues.get(node).equals(other.overflowValues.get(otherNode));
+  }
+
+  /** The hashCode of a CompactTreeGraph is the same as that of the equivalent
+   *  {@code TreeGraph}, computed from the last node to the first. */
+  @Override
+  public int hashCode() {
+    int[] hashes = new int[size];
+    for (int k = size - 1; k >= 0; k--) {
+      SequenceState state = terminalSequenceState(k);
+      int hash = value(k).hashCode();
+      hash = 17 * hash + (state != null ? state.hashCode() : 0);
+      hash = 17 * hash + (preNDivP[k] != NO_NODE ? hashes[preNDivP[k]] : 0);
+      hash = 17 * hash + (preANplusB[k] != NO_NODE ? hashes[preANplusB[k]] : 0);
+      hashes[k] = hash;
+    }
+    return 29 * hashes[ROOT];
+  }
+
+  /** The equality between {@code CompactTreeGraph}'s is determined by the equality check on
+   *  subtrees, of both the root nodes. */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == null) {
+      return false;
+    }
+    if (obj.getClass() != this.getClass()) {
+      return false;
+    }
+    return subTreeEquals(ROOT, (CompactTreeGraph) obj, ROOT);
+  }
+
+  /**
+   * Copy the nodes of an expanded segment into this tree, in pre-order, from an index.
+   *
+   * @param segment The segment to copy.
+   * @param offset The index at which to place the segment's first node.
+   * @return The index after the segment's last node.
+   */
+  private int copy(Segment segment, int offset) {
+    if (segment.serial != null) {
+      CompactTreeGraph serial = segment.serial;
+      System.arraycopy(serial.values, 0, values, offset, serial.size);
+      System.arraycopy(serial.states, 0, states, offset, serial.size);
+      for (int k = 0; k < serial.size; k++) {
+        preNDivP[offset + k] = (serial.preNDivP[k] == NO_NODE) ? NO_NODE : serial.preNDivP[k] + offset;
+        preANplusB[offset + k] = (serial.preANplusB[k] == NO_NODE) ? NO_NODE : serial.preANplusB[k] + offset;
+      }
+      for (Map.Entry<Integer, BigInteger> overflow : serial.overflowValues.entrySet()) {
+        overflowValues.put(overflow.getKey() + offset, overflow.getValue());
+      }
+      return offset + serial.size;
+    }
+    if (isHeldInline(segment.value)) {
+      values[offset] = segment.value.longValue();
+    } else {
+      values[offset] = OVERFLOW;
+      overflowValues.put(offset, segment.value);
+    }
+    preNDivP[offset] = offset + 1;
+    int next = copy(segment.preNDivP, offset + 1);
+    preANplusB[offset] = (segment.preANplusB == null) ? NO_NODE : next;
+    return (segment.preANplusB == null) ? next : copy(segment.preANplusB, next);
+  }
+
+  /** The stack of the nodes that are yet to be allocated, in the serial expansion. */
+  private static final class PendingNodes {
+
+    /** The value of each node, or {@code OVERFLOW}, in which case the value is in
+     *  {@code bigValues}, and their remaining orbit distances. */
+    long[] values = new long[16];
+    BigInteger[] bigValues = new BigInteger[16];
+    int[] distances = new int[16];
+
+    /** The parent of each node, doubled, plus one if the node is the parent's "Pre aN+b"
+     *  child, or -1 for the root. */
+    int[] parents = new int[16];
+
+    /** The amount of nodes on the stack. */
+    int top;
+
+    /**
+     * Push a node.
+     *
+     * @param value The value of the node.
+     * @param distance The remaining orbit distance of the node.
+     * @param parent The parent of the node, doubled, plus one if it's the "Pre aN+b" child.
+     */
+    void push(long value, int distance, int parent) {
+      if (value == OVERFLOW) {
+        push(BigInteger.valueOf(value), distance, parent);
+        return;
+      }
+      growIfFull();
+      values[top] = value;
+      distances[top] = distance;
+      parents[top++] = parent;
+    }
+
+    /**
+     * Push a node.
+     *
+     * @param value The value of the node.
+     * @param distance The remaining orbit distance of the node.
+     * @param parent The parent of the node, doubled, plus one if it's the "Pre aN+b" child.
+     */
+    void push(BigInteger value, int distance, int parent) {
+      if (isHeldInline(value)) {
+        push(value.longValue(), distance, parent);
+        return;
+      }
+      growIfFull();
+      values[top] = OVERFLOW;
+      bigValues[top] = value;
+      distances[top] = distance;
+      parents[top++] = parent;
+    }
+
+    /** Double the capacity of the stack, if it's full. */
+    private void growIfFull() {
+      if (top == values.length) {
+        int capacity = top * 2;
+        values = Arrays.copyOf(values, capacity);
+        bigValues = Arrays.copyOf(bigValues, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+      }
+    }
+  }
+
+  /** The record of the values that have been expanded, and the node that expanded them. */
+  private interface ExpandedValues {
+
+    /**
+     * The node that expanded a value.
+     *
+     * @param value The value.
+     * @return The node that expanded it, {@code ELSEWHERE} if it was expanded by a node
+     *     of another tree, or {@code NO_NODE} if it hasn't been expanded.
+     */
+    int get(long value);
+
+    /**
+     * The node that expanded a value.
+     *
+     * @param value The value, which doesn't fit in a long.
+     * @return The node that expanded it, {@code ELSEWHERE} if it was expanded by a node
+     *     of another tree, or {@code NO_NODE} if it hasn't been expanded.
+     */
+    int get(BigInteger value);
+
+    /**
+     * Record a node as expanding a value, unless the value has already been expanded.
+     *
+     * @param value The value.
+     * @param node The node that will expand it.
+     * @return The node that already expanded it, {@code ELSEWHERE} if it was expanded by a
+     *     node of another tree, or {@code NO_NODE} if it hadn't been expanded.
+     */
+    int putIfAbsent(long value, int node);
+
+    /**
+     * Record a node as expanding a value, unless the value has already been expanded.
+     *
+     * @param value The value, which doesn't fit in a long.
+     * @param node The node that will expand it.
+     * @return The node that already expanded it, {@code ELSEWHERE} if it was expanded by a
+     *     node of another tree, or {@code NO_NODE} if it hadn't been expanded.
+     */
+    int putIfAbsent(BigInteger value, int node);
+  }
+
+  /** The expanded values of a tree that is expanded serially, by a single thread. */
+  private static final class LocalExpandedValues implements ExpandedValues {
+
+    /** The node that expanded each value. */
+    private final LongIndex longValues = new LongIndex(16);
+    private final Map<BigInteger, Integer> bigValues = new HashMap<BigInteger, Integer>();
+
+    @Override
+    public int get(long value) {
+      return longValues.get(value);
+    }
+
+    @Override
+    public int get(BigInteger value) {
+      return bigValues.getOrDefault(value, NO_NODE);
+    }
+
+    @Override
+    public int putIfAbsent(long value, int node) {
+      int previous = longValues.get(value);
+      if (previous == NO_NODE) {
+        longValues.put(value, node);
+      }
+      return previous;
+    }
+
+    @Override
+    public int putIfAbsent(BigInteger value, int node) {
+      Integer previous = bigValues.putIfAbsent(value, node);
+      return (previous == null) ? NO_NODE : previous;
+    }
+  }
+
+  /**
+   * The expanded values shared by the segments of a tree that is expanded in parallel,
+   * in which the nodes that expanded them aren't recorded, only the values that repeated.
+   * The values that fit in a long are held in index tables, each guarded by one of
+   * {@code STRIPES} locks, and those that don't in a concurrent set.
+   */
+  private static final class SharedExpandedValues implements ExpandedValues {
+
+    /** The amount of locks, and index tables, over the values that fit in a long. */
+    private static final int STRIPES = 64;
+
+    /** The values that fit in a long, by stripe, guarded by the stripe's lock. */
+    private final LongIndex[] longValues = new LongIndex[STRIPES];
+    private final Object[] locks = new Object[STRIPES];
+
+    /** The values that don't fit in a long. */
+    private final Set<BigInteger> bigValues = ConcurrentHashMap.newKeySet();
+
+    /** The values that were found to have already been expanded. */
+    private final Queue<BigInteger> repeated = new ConcurrentLinkedQueue<BigInteger>();
+
+    /** Create an empty record of the expanded values. */
+    SharedExpandedValues() {
+      for (int k = 0; k < STRIPES; k++) {
+        longValues[k] = new LongIndex(16);
+        locks[k] = new Object();
+      }
+    }
+
+    /**
+     * The stripe of a value.
+     *
+     * @param value The value.
+     * @return The index of the stripe.
+     */
+    private static int stripe(long value) {
+      return (int) ((value * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+
+    @Override
+    public int get(long value) {
+      int stripe = stripe(value);
+      synchronized (locks[stripe]) {
+        if (longValues[stripe].get(value) == NO_NODE) {
+          return NO_NODE;
+        }
+      }
+      repeated.add(BigInteger.valueOf(value));
+      return ELSEWHERE;
+    }
+
+    @Override
+    public int get(BigInteger value) {
+      if (!bigValues.contains(value)) {
+        return NO_NODE;
+      }
+      repeated.add(value);
+      return ELSEWHERE;
+    }
+
+    @Override
+    public int putIfAbsent(long value, int node) {
+      int stripe = stripe(value);
+      synchronized (locks[stripe]) {
+        if (longValues[stripe].get(value) == NO_NODE) {
+          longValues[stripe].put(value, 0);
+          return NO_NODE;
+        }
+      }
+      repeated.add(BigInteger.valueOf(value));
+      return ELSEWHERE;
+    }
+
+    @Override
+    public int putIfAbsent(BigInteger value, int node) {
+      if (bigValues.add(value)) {
+        return NO_NODE;
+      }
+      repeated.add(value);
+      return ELSEWHERE;
+    }
+  }
+
+  /** A subtree expanded by an {@code ExpansionTask}; either a tree that was expanded
+   *  serially, or a node whose subtrees were expanded by their own tasks. */
+  private static final class Segment {
+
+    /** The tree that was expanded serially, or null. */
+    final CompactTreeGraph serial;
+
+    /** The value of the node whose subtrees were expanded by their own tasks. */
+    final BigInteger value;
+
+    /** The segments of the "Pre N/P" and "Pre aN+b" subtrees, the latter possibly null. */
+    final Segment preNDivP;
+    final Segment preANplusB;
+
+    /** The amount of nodes. */
+    final int size;
+
+    /**
+     * A segment of a tree that was expanded serially.
+     *
+     * @param serial The tree.
+     */
+    Segment(CompactTreeGraph serial) {
+      this.serial = serial;
+      this.value = null;
+      this.preNDivP = null;
+      this.preANplusB = null;
+      this.size = serial.size;
+    }
+
+    /**
+     * A segment of a node whose subtrees were expanded by their own tasks.
+     *
+     * @param value The value of the node.
+     * @param preNDivP The segment of the "Pre N/P" subtree.
+     * @param preANplusB The segment of the "Pre aN+b" subtree, or null.
+     */
+    Segment(BigInteger value, Segment preNDivP, Segment preANplusB) {
+      this.serial = null;
+      this.value = value;
+      this.preNDivP = preNDivP;
+      this.preANplusB = preANplusB;
+      this.size = 1 + preNDivP.size + ((preANplusB == null) ? 0 : preANplusB.size);
+    }
+  }
+
+  /** Expands the subtree of a value, forking the subtrees of its children while they are
+   *  close enough to the root, and far enough from the maximum orbit distance. */
+  private static final class ExpansionTask extends RecursiveTask<Segment> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The value of the root of the subtree, and its remaining orbit distance. */
+    private final BigInteger value;
+    private final int distance;
+
+    /** The parameterisation (P,a,b) of the function to reverse. */
+    private final transient Parameterisation params;
+
+    /** The values that have been expanded, shared by every task. */
+    private final transient SharedExpandedValues expanded;
+
+    /** The distance of the root of the subtree from the root of the tree. */
+    private final int depth;
+
+    /**
+     * Create a task to expand the subtree of a value.
+     *
+     * @param value The value of the root of the subtree.
+     * @param distance The remaining orbit distance of the root of the subtree.
+     * @param params The parameterisation (P,a,b) of the function to reverse.
+     * @param expanded The values that have been expanded, shared by every task.
+     * @param depth The distance of the root of the subtree from the root of the tree.
+     */
+    ExpansionTask(BigInteger value, int distance, Parameterisation params, SharedExpandedValues expanded, int depth) {
+      this.value = value;
+      this.distance = distance;
+      this.params = params;
+      this.expanded = expanded;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Segment compute() {
+      if (distance < MIN_FORK_DISTANCE || depth >= MAX_FORK_DEPTH) {
+        return new Segment(new CompactTreeGraph(value, distance, params, expanded));
+      }
+      int previous = isHeldInline(value) ? expanded.putIfAbsent(value.longValue(), ROOT) : expanded.putIfAbsent(value, ROOT);
+      if (previous != NO_NODE) {
+        // With no orbits left to it, the serial expansion only looks for the repeat.
+        return new Segment(new CompactTreeGraph(value, 0, params, expanded));
+      }
+      BigInteger[] reverses = params.reverseFunction(value);
+      ExpansionTask preANplusB = null;
+      if (reverses.length == 2) {
+        preANplusB = new ExpansionTask(reverses[1], distance - 1, params, expanded, depth + 1);
+        preANplusB.fork();
+      }
+      Segment preNDivP = new ExpansionTask(reverses[0], distance - 1, params, expanded, depth + 1).compute();
+      return new Segment(value, preNDivP, (preANplusB == null) ? null : preANplusB.join());
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Discovers the cycles of a parameterisation (P,a,b), by iterating the function from every
+ * seed in a contiguous range {@code [lo, hi)} in parallel, on a ForkJoinPool, until the
+ * trajectory repeats a value, as detected by Brent's algorithm. Unlike the hailstone
+ * sequences, reaching 1 is not a terminus, so the cycle through 1, if there is one, is
+ * found like any other. Each cycle is canonicalised by rotating it to begin at its least
+ * value by magnitude, preferring the negative of a tie, which is the order of the
+ * {@code KNOWN_CYCLES}, such that the workers that find the same cycle agree on it, and
+ * it is catalogued once, with its basin; the amount of seeds in the range that enter it.
+ */
+public final class CycleSearch {
+
+  /** The default amount of seeds that a single task searches without splitting further. */
+  public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  /** A cycle of the parameterisation, and the amount of seeds in the range that enter it. */
+  public static final class Cycle {
+
+    /** The values of the cycle, in order, beginning at the least by magnitude. */
+    private final BigInteger[] values;
+
+    /** The amount of seeds in the range whose trajectories enter the cycle. */
+    private final LongAdder basinSize = new LongAdder();
+
+    /**
+     * Create a cycle from its canonical values.
+     *
+     * @param values The values of the cycle, beginning at the least by magnitude.
+     */
+    Cycle(BigInteger[] values) {
+      this.values = values;
+    }
+
+    /**
+     * The values of the cycle, in order, beginning at the least by magnitude.
+     *
+     * @return The values of the cycle.
+     */
+    public BigInteger[] values() {
+      return values.clone();
+    }
+
+    /**
+     * The amount of values in the cycle.
+     *
+     * @return The length of the cycle.
+     */
+    public int length() {
+      return values.length;
+    }
+
+    /**
+     * The amount of seeds in the range whose trajectories enter the cycle.
+     *
+     * @return The size of the cycle's basin, within the range.
+     */
+    public long basinSize() {
+      return basinSize.sum();
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(values) + " (basin " + basinSize() + ")";
+    }
+  }
+
+  /** The inclusive lower bound of the seeds. */
+  final long lo;
+
+  /** The exclusive upper bound of the seeds. */
+  final long hi;
+
+  /** The parameterisation (P,a,b) of the function to iterate. */
+  final Parameterisation params;
+
+  /** Maximum amount of times to iterate the function, per seed, before giving up on it. */
+  final int maxSteps;
+
+  /** The amount of seeds that a single task searches without splitting further. */
+  private final int chunkSize;
+
+  /** The cycles found, keyed by their canonical values. */
+  private final ConcurrentMap<List<BigInteger>, Cycle> cycles = new ConcurrentHashMap<List<BigInteger>, Cycle>();
+
+  /** The cycle of every value in a cycle found, such that each repeat is only canonicalised once. */
+  private final ConcurrentMap<BigInteger, Cycle> members = new ConcurrentHashMap<BigInteger, Cycle>();
+
+  /** The amount of seeds that didn't repeat a value within the maximum steps. */
+  private final LongAdder unresolvedSeeds = new LongAdder();
+
+  /** Whether the search has been cancelled. */
+  private volatile boolean cancelled;
+
+  /**
+   * Prepare a search for the cycles entered by the seeds in {@code [lo, hi)}.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxSteps Maximum amount of times to iterate the function, per seed.
+   * @param chunkSize The amount of seeds that a single task searches without splitting further.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  public CycleSearch(long lo, long hi, Parameterisation params, int maxSteps, int chunkSize) throws IllegalArgumentException {
+    if (hi < lo) {
+      throw new IllegalArgumentException("The upper bound of a cycle search can't be less than the lower bound.");
+    } else if (hi - lo < 0) {
+      throw new IllegalArgumentException("The amount of seeds in a cycle search can't exceed Long.MAX_VALUE.");
+    } else if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size of a cycle search must be positive.");
+    }
+    this.lo = lo;
+    this.hi = hi;
+    this.params = params;
+    this.maxSteps = Math.max(maxSteps, 1);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Prepare a search for the cycles entered by the seeds in {@code [lo, hi)}, with the
+   * default chunk size.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxSteps Maximum amount of times to iterate the function, per seed.
+   * @throws IllegalArgumentException if hi is less than lo, or the range is too large.
+   */
+  public CycleSearch(long lo, long hi, Parameterisation params, int maxSteps) throws IllegalArgumentException {
+    this(lo, hi, params, maxSteps, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Run the search on the common ForkJoinPool, blocking until it completes or is cancelled.
+   *
+   * @return {@code true} if every seed was searched, {@code false} if it was cancelled.
+   */
+  public boolean run() {
+    return run(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Run the search on the given ForkJoinPool, blocking until it completes or is cancelled.
+   *
+   * @param pool The pool on which to run the search's tasks.
+   * @return {@code true} if every seed was searched, {@code false} if it was cancelled.
+   */
+  public boolean run(ForkJoinPool pool) {
+    pool.invoke(new SearchTask(lo, hi));
+    return !cancelled;
+  }
+
+  /** Cancel the search; chunks already started finish their current seed, and no more are started. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * The cycles found so far, ordered by the magnitude of their least value, and the
+   * positive before the negative of a tie, as the {@code KNOWN_CYCLES} are.
+   *
+   * @return The catalogue of cycles.
+   */
+  public List<Cycle> cycles() {
+    List<Cycle> catalogue = new ArrayList<Cycle>(cycles.values());
+    Collections.sort(catalogue, Comparator.comparing((Cycle cycle) -> cycle.values[0].abs()).thenComparing(cycle -> cycle.values[0].negate()));
+    return catalogue;
+  }
+
+  /**
+   * The amount of seeds that didn't repeat a value within the maximum steps, so whose
+   * trajectories may diverge, or enter a cycle that wasn't reached in time.
+   *
+   * @return The amount of unresolved seeds.
+   */
+  public long unresolvedSeeds() {
+    return unresolvedSeeds.sum();
+  }
+
+  /**
+   * Find the cycle a seed enters, and add the seed to its basin.
+   *
+   * @param seed The seed to iterate from.
+   */
+  void search(long seed) {
+    BigInteger repeated;
+    if (params.longParameters) {
+      repeated = repeatedLong(seed);
+    } else {
+      BigInteger bigSeed = BigInteger.valueOf(seed);
+      repeated = repeatedBig(bigSeed, params.bigFunction(bigSeed), 1, 1, 1);
+    }
+    if (repeated == null) {
+      unresolvedSeeds.increment();
+      return;
+    }
+    Cycle cycle = members.get(repeated);
+    if (cycle == null) {
+      cycle = catalogue(repeated);
+    }
+    cycle.basinSize.increment();
+  }
+
+  /**
+   * Iterate from a seed with Brent's algorithm, on longs, until a value repeats. Once a
+   * step might not have fit in a long, the search continues, from that step, on
+   * BigInteger's.
+   *
+   * @param seed The seed to iterate from.
+   * @return A value of the cycle entered, or null if the maximum steps were exceeded.
+   */
+  private BigInteger repeatedLong(long seed) {
+    long tortoise = seed;
+    long previous = seed;
+    long hare = params.longFunction(seed);
+    long power = 1;
+    long lambda = 1;
+    for (int steps = 1; ; steps++) {
+      if (hare == Parameterisation.LONG_OVERFLOW) {
+        // The sentinel may be genuine, so only the BigInteger step can tell.
+        return repeatedBig(BigInteger.valueOf(tortoise), params.bigFunction(BigInteger.valueOf(previous)), power, lambda, steps);
+      }
+      if (hare == tortoise) {
+        return BigInteger.valueOf(hare);
+      }
+      if (steps >= maxSteps) {
+        return null;
+      }
+      if (power == lambda) {
+        tortoise = hare;
+        power <<= 1;
+        lambda = 0;
+      }
+      previous = hare;
+      hare = params.longFunction(hare);
+      lambda++;
+    }
+  }
+
+  /**
+   * Continue Brent's algorithm, on BigInteger's, until a value repeats.
+   *
+   * @param tortoise The value of the last checkpoint.
+   * @param hare The value reached.
+   * @param power The power of two that bounds the current search for a repeat.
+   * @param lambda The steps taken since the last checkpoint.
+   * @param steps The steps taken since the seed.
+   * @return A value of the cycle entered, or null if the maximum steps were exceeded.
+   */
+  private BigInteger repeatedBig(BigInteger tortoise, BigInteger hare, long power, long lambda, int steps) {
+    for (int step = steps; !hare.equals(tortoise); step++) {
+      if (step >= maxSteps) {
+        return null;
+      }
+      if (power == lambda) {
+        tortoise = hare;
+        power <<= 1;
+        lambda = 0;
+      }
+      hare = params.bigFunction(hare);
+      lambda++;
+    }
+    return hare;
+  }
+
+  /**
+   * Canonicalise the cycle through a value, and catalogue it, unless another worker
+   * already has, in which case its cycle is the one catalogued.
+   *
+   * @param repeated A value of the cycle.
+   * @return The catalogued cycle.
+   */
+  private Cycle catalogue(BigInteger repeated) {
+    List<BigInteger> values = new ArrayList<BigInteger>();
+    int least = 0;
+    BigInteger value = repeated;
+    do {
+      values.add(value);
+      BigInteger leastValue = values.get(least);
+      int byMagnitude = value.abs().compareTo(leastValue.abs());
+      if (byMagnitude < 0 || (byMagnitude == 0 && value.compareTo(leastValue) < 0)) {
+        least = values.size() - 1;
+      }
+      value = params.bigFunction(value);
+    } while (!value.equals(repeated));
+    Collections.rotate(values, -least);
+    Cycle cycle = cycles.computeIfAbsent(values, key -> new Cycle(key.toArray(new BigInteger[0])));
+    for (BigInteger member : values) {
+      members.putIfAbsent(member, cycle);
+    }
+    return cycle;
+  }
+
+  /** Recursively splits a range of seeds in half, until it is small enough to search. */
+  private final class SearchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The inclusive lower bound of the seeds of this task. */
+    private final long from;
+
+    /** The exclusive upper bound of the seeds of this task. */
+    private final long to;
+
+    /**
+     * Create a task for the seeds in {@code [from, to)}.
+     *
+     * @param from The inclusive lower bound of the seeds.
+     * @param to The exclusive upper bound of the seeds.
+     */
+    SearchTask(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (cancelled) {
+        return;
+      }
+      if (to - from > chunkSize) {
+        long middle = from + (to - from) / 2;
+        invokeAll(new SearchTask(from, middle), new SearchTask(middle, to));
+        return;
+      }
+      for (long seed = from; seed < to && !cancelled; seed++) {
+        search(seed);
+      }
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Precomputed tables that apply k steps of the "shortcut" of the default parameterisation,
+ * {@code T(n) = n/2} if n is even, otherwise {@code (3n+1)/2}, at once. The parity of each
+ * of the first k steps is determined by the low k bits of n, so writing n as
+ * {@code 2^k*h + l}, then {@code T^k(n) = 3^c[l]*h + d[l]}, where c[l] is the amount of odd
+ * steps, and d[l] is {@code T^k(l)}. Each shortcut step of an odd value is two steps of the
+ * Collatz function, so a jump is {@code k + c[l]} steps of {@code Collatz.function(~)}.
+ *
+ * <p>Stopping times computed with the tables are exact; a jump is only taken when it is
+ * provable that no value within it reaches the terminus, and otherwise the function is
+ * stepped once at a time. Cycles, zero, and negative values are deferred to the regular
+ * computation, as a jump would step over the first repetition of a value.
+ */
+public final class JumpTable {
+
+  /** The largest k, for which the tables of 2^20 residues occupy ~11MB. */
+  public static final int MAX_BITS = 20;
+
+  /** The amount of shortcut steps that each jump applies. */
+  private final int bits;
+
+  /** One less than 2^k, to select the residue of n. */
+  private final long mask;
+
+  /** The amount of odd steps in the first k steps of each residue. */
+  private final byte[] oddSteps;
+
+  /** T^k of each residue. */
+  private final long[] offsets;
+
+  /** The step i, and the amount of odd steps by then, at which {@code 3^c_i/2^i} is least,
+   *  which bounds every value within a jump from below by {@code 3^c_i*n/2^i}. */
+  private final byte[] leastStep;
+  private final byte[] leastOddSteps;
+
+  /** 3^c, for each c up to k. */
+  private final long[] powersOfThree;
+
+  /** The largest h, for each c, for which {@code 3^c*h + d} can't overflow a long. */
+  private final long[] safeQuotients;
+
+  /**
+   * Precompute the tables for jumps of k steps.
+   *
+   * @param bits The amount of shortcut steps, k, that each jump applies.
+   * @throws IllegalArgumentException if k is not within [1, MAX_BITS].
+   */
+  public JumpTable(int bits) throws IllegalArgumentException {
+    if (bits < 1 || bits > MAX_BITS) {
+      throw new IllegalArgumentException("The bits of a jump table must be within [1, " + MAX_BITS + "].");
+    }
+    this.bits = bits;
+    this.mask = (1L << bits) - 1;
+    int residues = 1 << bits;
+    this.oddSteps = new byte[residues];
+    this.offsets = new long[residues];
+    this.leastStep = new byte[residues];
+    this.leastOddSteps = new byte[residues];
+    this.powersOfThree = new long[bits + 1];
+    powersOfThree[0] = 1;
+    for (int c = 1; c <= bits; c++) {
+      powersOfThree[c] = powersOfThree[c - 1] * 3;
+    }
+    long largestOffset = 0;
+    for (int l = 0; l < residues; l++) {
+      long t = l;
+      int c = 0;
+      int least = 0;
+      int leastC = 0;
+      for (int i = 1; i <= bits; i++) {
+        if ((t & 1) == 0) {
+          t >>= 1;
+        } else {
+          t = (3 * t + 1) >> 1;
+          c++;
+        }
+        // 3^c/2^i < 3^leastC/2^least, compared exactly as 3^c*2^least < 3^leastC*2^i.
+        if (least == 0 || (powersOfThree[c] << least) < (powersOfThree[leastC] << i)) {
+          least = i;
+          leastC = c;
+        }
+      }
+      oddSteps[l] = (byte) c;
+      offsets[l] = t;
+      leastStep[l] = (byte) least;
+      leastOddSteps[l] = (byte) leastC;
+      largestOffset = Math.max(largestOffset, t);
+    }
+    this.safeQuotients = new long[bits + 1];
+    for (int c = 0; c <= bits; c++) {
+      safeQuotients[c] = (Long.MAX_VALUE - largestOffset) / powersOfThree[c];
+    }
+  }
+
+  /**
+   * The amount of shortcut steps that each jump applies.
+   *
+   * @return k.
+   */
+  public int bits() {
+    return bits;
+  }
+
+  /**
+   * Returns the value after applying k steps of the shortcut function at once.
+   *
+   * @param n The value to jump from.
+   * @return {@code T^k(n)}.
+   * @throws ArithmeticException if the result overflows a long.
+   */
+  public long function(long n) throws ArithmeticException {
+    int l = (int) (n & mask);
+    long h = n >> bits;
+    return Math.addExact(Math.multiplyExact(powersOfThree[oddSteps[l]], h), offsets[l]);
+  }
+
+  /**
+   * Returns the value after applying k steps of the shortcut function at once.
+   *
+   * @param n The value to jump from.
+   * @return {@code T^k(n)}.
+   */
+  public BigInteger function(BigInteger n) {
+    int l = (int) (n.longValue() & mask);
+    return n.shiftRight(bits).multiply(BigInteger.valueOf(powersOfThree[oddSteps[l]])).add(BigInteger.valueOf(offsets[l]));
+  }
+
+  /**
+   * The amount of steps of {@code Collatz.function(~)} that a jump from n applies.
+   *
+   * @param n The value to jump from.
+   * @return {@code k + c}, where c is the amount of odd values among the shortcut steps.
+   */
+  public int steps(long n) {
+    return bits + oddSteps[(int) (n & mask)];
+  }
+
+  /**
+   * Returns the stopping time as per {@code Collatz.stoppingTime(initialValue,
+   * DEFAULT_PARAMETERISATION, maxStoppingTime, totalStoppingTime)}, but with NaN rather
+   * than null if the maximum is exceeded, jumping k steps at a time where it is safe to.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @return The stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  double stoppingTime(BigInteger initialValue, int maxStoppingTime, boolean totalStoppingTime) {
+    if (initialValue.compareTo(BigInteger.ONE) <= 0) {
+      return steppedStoppingTime(initialValue, maxStoppingTime, totalStoppingTime);
+    }
+    Parameterisation params = Collatz.DEFAULT_PARAMETERISATION;
+    int maxSteps = Math.max(maxStoppingTime, 1);
+    // Every value within a jump must be at least the threshold to not be the terminus.
+    BigInteger threshold = totalStoppingTime ? BigInteger.TWO : initialValue;
+    boolean longThreshold = threshold.bitLength() < 64;
+    long initialLong = initialValue.longValue();
+    long value = initialLong;
+    BigInteger bigValue = (initialValue.bitLength() < 64) ? null : initialValue;
+    int steps = 0;
+    while (steps < maxSteps) {
+      int l = (int) (((bigValue == null) ? value : bigValue.longValue()) & mask);
+      int jump = bits + oddSteps[l];
+      if (steps + jump <= maxSteps && isSafe(l, value, bigValue, threshold, longThreshold)) {
+        if (bigValue == null && (value >> bits) <= safeQuotients[oddSteps[l]]) {
+          value = powersOfThree[oddSteps[l]] * (value >> bits) + offsets[l];
+        } else {
+          bigValue = function((bigValue == null) ? BigInteger.valueOf(value) : bigValue);
+          if (bigValue.bitLength() < 64) {
+            value = bigValue.longValue();
+            bigValue = null;
+          }
+        }
+        steps += jump;
+        continue;
+      }
+      if (bigValue == null) {
+        long next = params.longFunction(value);
+        if (next != Parameterisation.LONG_OVERFLOW) {
+          value = next;
+        } else {
+          bigValue = params.bigFunction(BigInteger.valueOf(value));
+        }
+      } else {
+        bigValue = params.bigFunction(bigValue);
+        if (bigValue.bitLength() < 64) {
+          value = bigValue.longValue();
+          bigValue = null;
+        }
+      }
+      steps++;
+      if (totalStoppingTime) {
+        if (bigValue == null && value == 1) {
+          return steps;
+        }
+      } else if (bigValue == null) {
+        // Positive values stay positive, and a long is less than an initial value that isn't.
+        if (!longThreshold || value < initialLong) {
+          return steps;
+        }
+      } else if (!longThreshold && bigValue.compareTo(initialValue) < 0) {
+        return steps;
+      }
+    }
+    // Exceeding the maximum might have been a cycle, which the jumps can't detect exactly.
+    if (returnsWithin(initialValue, value, bigValue, maxSteps, totalStoppingTime)) {
+      return steppedStoppingTime(initialValue, maxStoppingTime, totalStoppingTime);
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * Whether the value reached at the maximum returns to itself, within another maximum
+   * steps, without reaching the terminus first. If a value had repeated by the maximum,
+   * every value since is in the cycle, so it must, otherwise the maximum was exceeded
+   * without a cycle, and the trajectory doesn't have to be walked again from the seed.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param value The value reached at the maximum, if it fits in a long.
+   * @param bigValue The value reached at the maximum, if it doesn't fit in a long, otherwise null.
+   * @param maxSteps The maximum amount of steps.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @return {@code true} if the value is in a cycle, which may have been formed by the maximum.
+   */
+  private static boolean returnsWithin(BigInteger initialValue, long value, BigInteger bigValue, int maxSteps, boolean totalStoppingTime) {
+    Parameterisation params = Collatz.DEFAULT_PARAMETERISATION;
+    boolean longThreshold = initialValue.bitLength() < 64;
+    long initialLong = initialValue.longValue();
+    long current = value;
+    BigInteger bigCurrent = bigValue;
+    for (int k = 0; k < maxSteps; k++) {
+      if (bigCurrent == null) {
+        long next = params.longFunction(current);
+        if (next != Parameterisation.LONG_OVERFLOW) {
+          current = next;
+        } else {
+          bigCurrent = params.bigFunction(BigInteger.valueOf(current));
+        }
+      } else {
+        bigCurrent = params.bigFunction(bigCurrent);
+        if (bigCurrent.bitLength() < 64) {
+          current = bigCurrent.longValue();
+          bigCurrent = null;
+        }
+      }
+      if (bigCurrent == null) {
+        if (bigValue == null && current == value) {
+          return true;
+        } else if (totalStoppingTime ? current == 1 : (!longThreshold || current < initialLong)) {
+          return false;
+        }
+      } else if (bigCurrent.equals(bigValue)) {
+        return true;
+      } else if (!totalStoppingTime && !longThreshold && bigCurrent.compareTo(initialValue) < 0) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether every value within a jump from n is at least the threshold, by the lower
+   * bound {@code 3^c_i*n/2^i} at the step i that minimises it, for the residue l of n.
+   *
+   * @param l The residue of n.
+   * @param value n, if it fits in a long.
+   * @param bigValue n, if it doesn't fit in a long, otherwise null.
+   * @param threshold The least value that is not the terminus.
+   * @param longThreshold Whether the threshold fits in a long.
+   * @return {@code true} if the jump can't reach the terminus.
+   */
+  private boolean isSafe(int l, long value, BigInteger bigValue, BigInteger threshold, boolean longThreshold) {
+    long power = powersOfThree[leastOddSteps[l]];
+    int shift = leastStep[l];
+    if (bigValue == null && longThreshold) {
+      // Compare 3^c*n >= threshold*2^i, exactly, as unsigned 128 bit products.
+      long t = threshold.longValue();
+      long lowerHigh = Math.multiplyHigh(value, power);
+      long lowerLow = value * power;
+      long upperHigh = t >>> (64 - shift);
+      long upperLow = t << shift;
+      return lowerHigh > upperHigh || (lowerHigh == upperHigh && Long.compareUnsigned(lowerLow, upperLow) >= 0);
+    }
+    BigInteger n = (bigValue == null) ? BigInteger.valueOf(value) : bigValue;
+    return n.multiply(BigInteger.valueOf(power)).compareTo(threshold.shiftLeft(shift)) >= 0;
+  }
+
+  /**
+   * The stopping time, stepped one at a time without the tables.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @return The stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  private static double steppedStoppingTime(BigInteger initialValue, int maxStoppingTime, boolean totalStoppingTime) {
+    return Collatz.primitiveStoppingTime(initialValue, Collatz.DEFAULT_PARAMETERISATION, maxStoppingTime, totalStoppingTime, CycleDetection.BRENT);
+  }
+}
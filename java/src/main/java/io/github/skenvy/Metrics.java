@@ -0,0 +1,347 @@
+package io.github.skenvy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Opt-in instrumentation of the function, hailstone sequences, stopping times and tree
+ * graphs; counters of the work each costs, such as the steps taken, the steps whose values
+ * overflowed a long, and the cycle checks, and Flight Recorder events around each hailstone
+ * sequence, stopping time and tree graph. The instrumentation is enabled by starting the JVM
+ * with {@code -Dio.github.skenvy.collatz.metrics=true}. Otherwise the {@code ENABLED} flag
+ * is a constant false, so the JIT removes every instrumented site, and it costs nothing.
+ *
+ * <p>The counters are {@code LongAdder}'s, which are cheap to increment from many threads
+ * at once. The steps of a trajectory are tallied on the trajectory itself, and added to the
+ * counters once, when it reaches its terminal state, so a trajectory that is abandoned
+ * before then, such as an iterator that isn't exhausted, is not counted.
+ */
+public final class Metrics {
+
+  /** The system property that enables the instrumentation. */
+  public static final String PROPERTY = "io.github.skenvy.collatz.metrics";
+
+  /** Whether the instrumentation is enabled; read once, when the class is initialised. */
+  public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+  /** The counters of the work done since the last reset. */
+  private static final LongAdder FUNCTION_CALLS = new LongAdder();
+  private static final LongAdder FUNCTION_FALLBACKS = new LongAdder();
+  private static final LongAdder TRAJECTORIES = new LongAdder();
+  private static final LongAdder STEPS = new LongAdder();
+  private static final LongAdder OVERFLOWS = new LongAdder();
+  private static final LongAdder CYCLE_CHECKS = new LongAdder();
+  private static final LongAdder HAILSTONE_SEQUENCES = new LongAdder();
+  private static final LongAdder STOPPING_TIMES = new LongAdder();
+  private static final LongAdder TREE_GRAPHS = new LongAdder();
+  private static final LongAdder TREE_GRAPH_NODES = new LongAdder();
+  private static final LongAdder CACHE_HITS = new LongAdder();
+  private static final LongAdder CACHE_MISSES = new LongAdder();
+
+  /** Only the static methods are used; there are no instances. */
+  private Metrics() {
+  }
+
+  /** An immutable snapshot of the counters. */
+  public static final class Snapshot {
+
+    private final long functionCalls;
+    private final long functionFallbacks;
+    private final long trajectories;
+    private final long steps;
+    private final long overflows;
+    private final long cycleChecks;
+    private final long hailstoneSequences;
+    private final long stoppingTimes;
+    private final long treeGraphs;
+    private final long treeGraphNodes;
+    private final long cacheHits;
+    private final long cacheMisses;
+
+    /** Sum the counters as they are now; the sums of concurrent updates may be partial. */
+    private Snapshot() {
+      this.functionCalls = FUNCTION_CALLS.sum();
+      this.functionFallbacks = FUNCTION_FALLBACKS.sum();
+      this.trajectories = TRAJECTORIES.sum();
+      this.steps = STEPS.sum();
+      this.overflows = OVERFLOWS.sum();
+      this.cycleChecks = CYCLE_CHECKS.sum();
+      this.hailstoneSequences = HAILSTONE_SEQUENCES.sum();
+      this.stoppingTimes = STOPPING_TIMES.sum();
+      this.treeGraphs = TREE_GRAPHS.sum();
+      this.treeGraphNodes = TREE_GRAPH_NODES.sum();
+      this.cacheHits = CACHE_HITS.sum();
+      this.cacheMisses = CACHE_MISSES.sum();
+    }
+
+    /**
+     * The amount of single applications of the function, via the public {@code function(~)}'s.
+     *
+     * @return The amount of function calls.
+     */
+    public long functionCalls() {
+      return functionCalls;
+    }
+
+    /**
+     * The amount of function calls that had to fall back to the BigInteger arithmetic.
+     *
+     * @return The amount of BigInteger fallbacks.
+     */
+    public long functionFallbacks() {
+      return functionFallbacks;
+    }
+
+    /**
+     * The amount of trajectories that reached a terminal state, other than being paused by
+     * exhausting a budget, which counts once, however often it was paused and resumed.
+     *
+     * @return The amount of trajectories.
+     */
+    public long trajectories() {
+      return trajectories;
+    }
+
+    /**
+     * The amount of steps taken by the trajectories, each step counted once, however
+     * often its trajectory was paused and resumed.
+     *
+     * @return The amount of steps.
+     */
+    public long steps() {
+      return steps;
+    }
+
+    /**
+     * The amount of steps whose value overflowed a long, and so were taken in place on a
+     * mutable integer, including the steps taken to confirm a cycle.
+     *
+     * @return The amount of overflowing steps.
+     */
+    public long overflows() {
+      return overflows;
+    }
+
+    /**
+     * The amount of times a trajectory checked whether its current value had been visited.
+     *
+     * @return The amount of cycle checks.
+     */
+    public long cycleChecks() {
+      return cycleChecks;
+    }
+
+    /**
+     * The amount of hailstone sequences computed.
+     *
+     * @return The amount of hailstone sequences.
+     */
+    public long hailstoneSequences() {
+      return hailstoneSequences;
+    }
+
+    /**
+     * The amount of stopping times computed, including those of caches that missed.
+     *
+     * @return The amount of stopping times.
+     */
+    public long stoppingTimes() {
+      return stoppingTimes;
+    }
+
+    /**
+     * The amount of tree graphs constructed.
+     *
+     * @return The amount of tree graphs.
+     */
+    public long treeGraphs() {
+      return treeGraphs;
+    }
+
+    /**
+     * The amount of nodes of the tree graphs constructed.
+     *
+     * @return The amount of tree graph nodes.
+     */
+    public long treeGraphNodes() {
+      return treeGraphNodes;
+    }
+
+    /**
+     * The amount of queries of any {@code StoppingTimeCache} answered with a memoised value.
+     *
+     * @return The amount of cache hits.
+     */
+    public long cacheHits() {
+      return cacheHits;
+    }
+
+    /**
+     * The amount of queries of any {@code StoppingTimeCache} that computed every step.
+     *
+     * @return The amount of cache misses.
+     */
+    public long cacheMisses() {
+      return cacheMisses;
+    }
+  }
+
+  /**
+   * Take a snapshot of the counters; all zero if the instrumentation is disabled.
+   *
+   * @return The snapshot.
+   */
+  public static Snapshot snapshot() {
+    return new Snapshot();
+  }
+
+  /** Reset the counters to zero. */
+  public static void reset() {
+    FUNCTION_CALLS.reset();
+    FUNCTION_FALLBACKS.reset();
+    TRAJECTORIES.reset();
+    STEPS.reset();
+    OVERFLOWS.reset();
+    CYCLE_CHECKS.reset();
+    HAILSTONE_SEQUENCES.reset();
+    STOPPING_TIMES.reset();
+    TREE_GRAPHS.reset();
+    TREE_GRAPH_NODES.reset();
+    CACHE_HITS.reset();
+    CACHE_MISSES.reset();
+  }
+
+  /*
+   * The recording methods don't check the flag themselves; every call site is guarded by
+   * {@code if (Metrics.ENABLED)}, so that, when disabled, nothing at all remains of it.
+   */
+
+  /**
+   * Count a single application of the function.
+   *
+   * @param fellBack Whether it fell back to the BigInteger arithmetic.
+   */
+  static void function(boolean fellBack) {
+    FUNCTION_CALLS.increment();
+    if (fellBack) {
+      FUNCTION_FALLBACKS.increment();
+    }
+  }
+
+  /**
+   * Count the work of a trajectory that reached its terminal state, or was paused. Each
+   * resumption only counts the steps taken since, and a trajectory is only counted once
+   * it is no longer paused.
+   *
+   * @param steps The amount of steps it took, since it began, or was resumed.
+   * @param overflows The amount of those steps whose value overflowed a long.
+   * @param cycleChecks The amount of times it checked for a cycle.
+   * @param paused Whether it was paused by exhausting its budget.
+   */
+  static void trajectory(int steps, int overflows, int cycleChecks, boolean paused) {
+    if (!paused) {
+      TRAJECTORIES.increment();
+    }
+    STEPS.add(steps);
+    OVERFLOWS.add(overflows);
+    CYCLE_CHECKS.add(cycleChecks);
+  }
+
+  /** Count a hailstone sequence. */
+  static void hailstoneSequence() {
+    HAILSTONE_SEQUENCES.increment();
+  }
+
+  /** Count a stopping time. */
+  static void stoppingTime() {
+    STOPPING_TIMES.increment();
+  }
+
+  /**
+   * Count a tree graph.
+   *
+   * @param nodes The amount of nodes in it.
+   */
+  static void treeGraph(int nodes) {
+    TREE_GRAPHS.increment();
+    TREE_GRAPH_NODES.add(nodes);
+  }
+
+  /**
+   * Count a query of a stopping time cache.
+   *
+   * @param hit Whether it was answered with a memoised value.
+   */
+  static void cacheQuery(boolean hit) {
+    if (hit) {
+      CACHE_HITS.increment();
+    } else {
+      CACHE_MISSES.increment();
+    }
+  }
+
+  /** A Flight Recorder event around the computation of a hailstone sequence. */
+  @Name("io.github.skenvy.HailstoneSequence")
+  @Label("Hailstone Sequence")
+  @Category("Collatz")
+  @Description("The computation of a hailstone sequence")
+  static final class HailstoneSequenceEvent extends Event {
+
+    @Label("Initial Value Bit Length")
+    int bitLength;
+
+    @Label("Steps")
+    int steps;
+
+    @Label("Overflowing Steps")
+    int overflows;
+
+    @Label("Terminal Condition")
+    String terminalCondition;
+
+    @Label("Terminal Status")
+    int terminalStatus;
+  }
+
+  /** A Flight Recorder event around the computation of a stopping time. */
+  @Name("io.github.skenvy.StoppingTime")
+  @Label("Stopping Time")
+  @Category("Collatz")
+  @Description("The computation of a stopping time, or total stopping time")
+  static final class StoppingTimeEvent extends Event {
+
+    @Label("Initial Value Bit Length")
+    int bitLength;
+
+    @Label("Total Stopping Time")
+    boolean totalStoppingTime;
+
+    @Label("Terminal Condition")
+    String terminalCondition;
+
+    @Label("Terminal Status")
+    int terminalStatus;
+  }
+
+  /** A Flight Recorder event around the construction of a tree graph. */
+  @Name("io.github.skenvy.TreeGraph")
+  @Label("Tree Graph")
+  @Category("Collatz")
+  @Description("The construction of a tree graph")
+  static final class TreeGraphEvent extends Event {
+
+    @Label("Root Value Bit Length")
+    int bitLength;
+
+    @Label("Max Orbit Distance")
+    int maxOrbitDistance;
+
+    @Label("Nodes")
+    int nodes;
+  }
+}
@@ -0,0 +1,367 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A mutable, arbitrarily large, integer, held as a sign and a magnitude of little endian,
+ * unsigned, 64 bit limbs, on which the steps of a trajectory beyond the range of a long can
+ * be performed in place. Each step of an immutable BigInteger allocates two or three new
+ * values, whereas this only reallocates its limbs when the magnitude outgrows them, so a
+ * trajectory through large values allocates in proportion to its peak, not its length.
+ * The operations are those of the Collatz-esque function; a shift, or division by a small
+ * divisor, that is known to be exact, and a multiply and add.
+ */
+final class MutableInteger {
+
+  /** The limbs of the magnitude, least significant first; only {@code length} are in use. */
+  private long[] mag;
+
+  /** The amount of limbs in use, such that the most significant is non-zero, if any. */
+  private int length;
+
+  /** The sign; -1, 0 or 1, and 0 if and only if the length is 0. */
+  private int signum;
+
+  /** Create a mutable integer of zero. */
+  MutableInteger() {
+    this.mag = new long[4];
+  }
+
+  /**
+   * Create a mutable integer of a value.
+   *
+   * @param value The initial value.
+   */
+  MutableInteger(BigInteger value) {
+    this();
+    set(value);
+  }
+
+  /**
+   * Set the value.
+   *
+   * @param value The value.
+   * @return This integer.
+   */
+  MutableInteger set(long value) {
+    signum = Long.signum(value);
+    // The magnitude of Long.MIN_VALUE, negated, is itself, as an unsigned limb.
+    mag[0] = (value < 0) ? -value : value;
+    length = (signum == 0) ? 0 : 1;
+    return this;
+  }
+
+  /**
+   * Set the value.
+   *
+   * @param value The value.
+   * @return This integer.
+   */
+  MutableInteger set(BigInteger value) {
+    byte[] bytes = value.abs().toByteArray();
+    ensureCapacity((bytes.length + 7) / 8);
+    Arrays.fill(mag, 0, (bytes.length + 7) / 8, 0L);
+    for (int k = 0; k < bytes.length; k++) {
+      int fromLeast = bytes.length - 1 - k;
+      mag[fromLeast >>> 3] |= (bytes[k] & 0xFFL) << ((fromLeast & 7) << 3);
+    }
+    length = (bytes.length + 7) / 8;
+    normalise();
+    signum = (length == 0) ? 0 : value.signum();
+    return this;
+  }
+
+  /**
+   * Set the value.
+   *
+   * @param value The value.
+   * @return This integer.
+   */
+  MutableInteger set(MutableInteger value) {
+    ensureCapacity(value.length);
+    System.arraycopy(value.mag, 0, mag, 0, value.length);
+    length = value.length;
+    signum = value.signum;
+    return this;
+  }
+
+  /**
+   * A copy of this integer.
+   *
+   * @return The copy.
+   */
+  MutableInteger copy() {
+    return new MutableInteger().set(this);
+  }
+
+  /**
+   * The value as a BigInteger.
+   *
+   * @return The value.
+   */
+  BigInteger toBigInteger() {
+    if (signum == 0) {
+      return BigInteger.ZERO;
+    }
+    byte[] bytes = new byte[length * 8];
+    for (int k = 0; k < bytes.length; k++) {
+      int fromLeast = bytes.length - 1 - k;
+      bytes[k] = (byte) (mag[fromLeast >>> 3] >>> ((fromLeast & 7) << 3));
+    }
+    return new BigInteger(signum, bytes);
+  }
+
+  /**
+   * Whether the value is within {@code [Long.MIN_VALUE, Long.MAX_VALUE]}.
+   *
+   * @return {@code true} if the value fits in a long.
+   */
+  boolean fitsInLong() {
+    return length == 0 || (length == 1 && (mag[0] >= 0 || (signum < 0 && mag[0] == Long.MIN_VALUE)));
+  }
+
+  /**
+   * The value as a long, only valid if it fits in a long.
+   *
+   * @return The value.
+   */
+  long longValue() {
+    return (length == 0) ? 0 : (signum < 0) ? -mag[0] : mag[0];
+  }
+
+  /**
+   * The sign of the value.
+   *
+   * @return -1, 0 or 1 as the value is negative, zero or positive.
+   */
+  int signum() {
+    return signum;
+  }
+
+  /**
+   * Compare the value to another.
+   *
+   * @param other The other integer.
+   * @return A negative, zero or a positive, as this is less than, equal to, or greater than the other.
+   */
+  int compareTo(MutableInteger other) {
+    if (signum != other.signum) {
+      return (signum < other.signum) ? -1 : 1;
+    }
+    return signum * compareMagnitude(other);
+  }
+
+  /**
+   * Compare the magnitude of the value to that of another.
+   *
+   * @param other The other integer.
+   * @return A negative, zero or a positive, as this magnitude is less than, equal to, or greater than the other.
+   */
+  private int compareMagnitude(MutableInteger other) {
+    if (length != other.length) {
+      return (length < other.length) ? -1 : 1;
+    }
+    for (int k = length - 1; k >= 0; k--) {
+      if (mag[k] != other.mag[k]) {
+        return Long.compareUnsigned(mag[k], other.mag[k]);
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof MutableInteger)) {
+      return false;
+    }
+    MutableInteger other = (MutableInteger) obj;
+    return signum == other.signum && compareMagnitude(other) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = signum;
+    for (int k = 0; k < length; k++) {
+      hash = 31 * hash + Long.hashCode(mag[k]);
+    }
+    return hash;
+  }
+
+  /**
+   * The bit length of the magnitude.
+   *
+   * @return The amount of bits required to hold the magnitude.
+   */
+  int bitLength() {
+    return (length == 0) ? 0 : (length << 6) - Long.numberOfLeadingZeros(mag[length - 1]);
+  }
+
+  /**
+   * The index of the lowest set bit of the magnitude, or -1 if zero.
+   *
+   * @return The index of the lowest set bit.
+   */
+  int lowestSetBit() {
+    for (int k = 0; k < length; k++) {
+      if (mag[k] != 0) {
+        return (k << 6) + Long.numberOfTrailingZeros(mag[k]);
+      }
+    }
+    return -1;
+  }
+
+  /** Negate the value. */
+  void negate() {
+    signum = -signum;
+  }
+
+  /**
+   * Shift the magnitude right; an exact division by a power of two if at least as many low
+   * bits are clear, which keeps the sign, unlike a shift of the two's complement.
+   *
+   * @param shift The amount of bits to shift by, within [0, 63].
+   */
+  void shiftRight(int shift) {
+    if (shift == 0 || length == 0) {
+      return;
+    }
+    for (int k = 0; k < length - 1; k++) {
+      mag[k] = (mag[k] >>> shift) | (mag[k + 1] << (64 - shift));
+    }
+    mag[length - 1] >>>= shift;
+    normalise();
+  }
+
+  /**
+   * The remainder of the magnitude divided by a divisor.
+   *
+   * @param divisor The unsigned divisor, within [1, 2^32].
+   * @return The remainder.
+   */
+  long remainder(long divisor) {
+    long remainder = 0;
+    for (int k = length - 1; k >= 0; k--) {
+      // The remainder is less than 2^32, so each half limb extends it to fit 64 unsigned bits.
+      remainder = Long.remainderUnsigned((remainder << 32) | (mag[k] >>> 32), divisor);
+      remainder = Long.remainderUnsigned((remainder << 32) | (mag[k] & 0xFFFFFFFFL), divisor);
+    }
+    return remainder;
+  }
+
+  /**
+   * Divide the magnitude by a divisor, in place.
+   *
+   * @param divisor The unsigned divisor, within [1, 2^32].
+   * @return The remainder.
+   */
+  long divide(long divisor) {
+    long remainder = 0;
+    for (int k = length - 1; k >= 0; k--) {
+      long high = (remainder << 32) | (mag[k] >>> 32);
+      remainder = Long.remainderUnsigned(high, divisor);
+      long low = (remainder << 32) | (mag[k] & 0xFFFFFFFFL);
+      remainder = Long.remainderUnsigned(low, divisor);
+      mag[k] = (Long.divideUnsigned(high, divisor) << 32) | Long.divideUnsigned(low, divisor);
+    }
+    normalise();
+    return remainder;
+  }
+
+  /**
+   * Set the value to {@code value * a + b}, in place.
+   *
+   * @param a The factor by which to multiply.
+   * @param b The value to add to the product.
+   */
+  void multiplyAdd(long a, long b) {
+    long factor = (a < 0) ? -a : a;
+    long carry = 0;
+    for (int k = 0; k < length; k++) {
+      long product = mag[k] * factor;
+      long high = Math.multiplyHigh(mag[k], factor) + ((mag[k] >> 63) & factor) + ((factor >> 63) & mag[k]);
+      long sum = product + carry;
+      carry = high + ((Long.compareUnsigned(sum, product) < 0) ? 1 : 0);
+      mag[k] = sum;
+    }
+    if (carry != 0) {
+      ensureCapacity(length + 1);
+      mag[length++] = carry;
+    }
+    // Only a factor of zero can zero the product.
+    normalise();
+    if (a < 0) {
+      signum = -signum;
+    }
+    if (b == 0) {
+      return;
+    }
+    long addend = (b < 0) ? -b : b;
+    if (signum == 0) {
+      set(b);
+    } else if ((b < 0) == (signum < 0)) {
+      addMagnitude(addend);
+    } else if (length > 1 || Long.compareUnsigned(mag[0], addend) >= 0) {
+      subtractMagnitude(addend);
+    } else {
+      // The addend outweighs the magnitude, which is a single limb, so the sign flips.
+      mag[0] = addend - mag[0];
+      signum = -signum;
+      normalise();
+    }
+  }
+
+  /**
+   * Add to the magnitude.
+   *
+   * @param addend The unsigned value to add.
+   */
+  private void addMagnitude(long addend) {
+    long carry = addend;
+    for (int k = 0; k < length && carry != 0; k++) {
+      long sum = mag[k] + carry;
+      carry = (Long.compareUnsigned(sum, mag[k]) < 0) ? 1 : 0;
+      mag[k] = sum;
+    }
+    if (carry != 0) {
+      ensureCapacity(length + 1);
+      mag[length++] = carry;
+    }
+  }
+
+  /**
+   * Subtract from the magnitude, which must be at least as large.
+   *
+   * @param subtrahend The unsigned value to subtract.
+   */
+  private void subtractMagnitude(long subtrahend) {
+    long borrow = subtrahend;
+    for (int k = 0; k < length && borrow != 0; k++) {
+      long difference = mag[k] - borrow;
+      borrow = (Long.compareUnsigned(mag[k], borrow) < 0) ? 1 : 0;
+      mag[k] = difference;
+    }
+    normalise();
+  }
+
+  /**
+   * Ensure the limbs can hold a magnitude of a length, keeping those in use.
+   *
+   * @param capacity The amount of limbs required.
+   */
+  private void ensureCapacity(int capacity) {
+    if (mag.length < capacity) {
+      mag = Arrays.copyOf(mag, Math.max(capacity, mag.length * 2));
+    }
+  }
+
+  /** Drop the most significant limbs that are zero, and zero the sign if no limbs remain. */
+  private void normalise() {
+    while (length > 0 && mag[length - 1] == 0) {
+      length--;
+    }
+    if (length == 0) {
+      signum = 0;
+    }
+  }
+}
@@ -0,0 +1,404 @@
+package io.github.skenvy;
+
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.skenvy.Collatz.Budget;
+import io.github.skenvy.Collatz.HailstoneSequence;
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.StoppingTimeResult;
+
+/**
+ * Serves stopping time and hailstone sequence queries, of a single parameterisation, to
+ * many concurrent clients. Each query is answered with a future that completes with the
+ * result, or with a {@code TimeoutException} once its deadline passes. At most a bounded
+ * amount of queries are computed at once, and concurrent queries for the same seed, and
+ * the same bounds, share a single computation (single-flight), each still with its own
+ * deadline. A computation whose queries have all passed their deadlines before it begins
+ * is skipped, and one whose queries all pass their deadlines while it runs is stopped,
+ * within a few hundred steps, freeing its permit for the next. The number of steps of
+ * each computation is bounded by the query's {@code maxStoppingTime}, as it is for
+ * {@code Collatz.stoppingTime(~)}.
+ *
+ * <p>Queries run on virtual threads where the JDK provides them, so waiting for a permit
+ * to compute costs almost nothing, and otherwise, as on Java 11, on a fixed pool of as
+ * many daemon threads as the concurrency bound.
+ */
+public final class QueryExecutor implements AutoCloseable {
+
+  /** The parameterisation whose queries are served. */
+  private final Parameterisation params;
+
+  /** The threads on which the queries are computed. */
+  private final ExecutorService executor;
+
+  /** Whether the executor runs each query on its own virtual thread. */
+  private final boolean virtualThreads;
+
+  /** The permits to compute, one for each query that may be computed at once, granted in
+   *  the order the computations were requested. */
+  final Semaphore permits;
+
+  /** The computations that have been requested, but are yet to complete. */
+  private final ConcurrentMap<Key, Flight<?>> inFlight = new ConcurrentHashMap<Key, Flight<?>>();
+
+  /** The amount of queries received, and of computations they required. */
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder computations = new LongAdder();
+
+  /**
+   * Create an executor of the queries of a parameterisation.
+   *
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxConcurrency The most queries to compute at once.
+   * @throws IllegalArgumentException if the concurrency is not positive.
+   */
+  public QueryExecutor(Parameterisation params, int maxConcurrency) throws IllegalArgumentException {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("The concurrency of a query executor must be positive.");
+    }
+    this.params = params;
+    this.permits = new Semaphore(maxConcurrency, true);
+    ExecutorService virtual = virtualThreadExecutor();
+    this.virtualThreads = virtual != null;
+    this.executor = virtualThreads ? virtual : Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+      Thread thread = new Thread(runnable, "collatz-query");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Create an executor of the queries of a parameterisation, that computes at most as many
+   * queries at once as there are available processors.
+   *
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   */
+  public QueryExecutor(Parameterisation params) {
+    this(params, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * An executor of a virtual thread per task, if the JDK provides one. The library targets
+   * Java 11, so the factory is looked up, rather than linked against.
+   *
+   * @return The executor, or null if virtual threads aren't available.
+   */
+  private static ExecutorService virtualThreadExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      // Absent before Java 19, and only a preview, that throws unless enabled, before 21.
+      return null;
+    }
+  }
+
+  /**
+   * The parameterisation whose queries are served.
+   *
+   * @return The parameterisation.
+   */
+  public Parameterisation parameterisation() {
+    return params;
+  }
+
+  /**
+   * Whether the queries are computed on virtual threads, rather than a fixed pool.
+   *
+   * @return {@code true} if virtual threads are used.
+   */
+  public boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * The amount of queries received.
+   *
+   * @return The amount of queries.
+   */
+  public long queries() {
+    return queries.sum();
+  }
+
+  /**
+   * The amount of computations the queries required; fewer than the queries by the amount
+   * that shared another's computation, or whose deadlines passed before it began.
+   *
+   * @return The amount of computations.
+   */
+  public long computations() {
+    return computations.sum();
+  }
+
+  /**
+   * Query the stopping time of a seed, as per {@code Collatz.stoppingTime(initialValue,
+   * params, maxStoppingTime, totalStoppingTime)}.
+   *
+   * @param initialValue The value for which to find the stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param timeout How long to wait for the result.
+   * @param unit The unit of the timeout.
+   * @return The future stopping time, or, in a special case, infinity, null or a negative,
+   *     which completes with a {@code TimeoutException} if the timeout elapses first.
+   * @throws java.util.concurrent.RejectedExecutionException if the executor has been closed.
+   */
+  public CompletableFuture<Double> stoppingTime(BigInteger initialValue, int maxStoppingTime, boolean totalStoppingTime, long timeout, TimeUnit unit) {
+    Key key = new Key(false, initialValue, maxStoppingTime, totalStoppingTime);
+    return query(key, timeout, unit, budget -> {
+      StoppingTimeResult result = Collatz.boundedStoppingTime(initialValue, params, maxStoppingTime, totalStoppingTime, budget);
+      if (result.terminalCondition == SequenceState.BUDGET_EXHAUSTED) {
+        throw new TimeoutException();
+      }
+      return result.stoppingTime();
+    });
+  }
+
+  /**
+   * Query the hailstone sequence of a seed, as per {@code Collatz.hailstoneSequence(initialValue,
+   * params, maxTotalStoppingTime, totalStoppingTime)}. Concurrent queries of the same sequence
+   * share the same instance.
+   *
+   * @param initialValue The value to begin the hailstone sequence from.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, if 1 is not reached.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param timeout How long to wait for the result.
+   * @param unit The unit of the timeout.
+   * @return The future hailstone sequence, which completes with a {@code TimeoutException}
+   *     if the timeout elapses first.
+   * @throws java.util.concurrent.RejectedExecutionException if the executor has been closed.
+   */
+  public CompletableFuture<HailstoneSequence> hailstoneSequence(BigInteger initialValue, int maxTotalStoppingTime, boolean totalStoppingTime, long timeout, TimeUnit unit) {
+    Key key = new Key(true, initialValue, maxTotalStoppingTime, totalStoppingTime);
+    return query(key, timeout, unit, budget -> {
+      HailstoneSequence hail = Collatz.hailstoneSequence(initialValue, params, maxTotalStoppingTime, totalStoppingTime, budget);
+      if (hail.terminalCondition == SequenceState.BUDGET_EXHAUSTED) {
+        throw new TimeoutException();
+      }
+      return hail;
+    });
+  }
+
+  /**
+   * Join the computation of a key, or start one, and wait for it until the deadline.
+   *
+   * @param <T> The type of the result.
+   * @param key The key of the computation.
+   * @param timeout How long to wait for the result.
+   * @param unit The unit of the timeout.
+   * @param computation The computation, if there isn't one in flight already.
+   * @return The future result of this query.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> query(Key key, long timeout, TimeUnit unit, Computation<T> computation) {
+    queries.increment();
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      Flight<T> flight = (Flight<T>) inFlight.computeIfAbsent(key, k -> new Flight<T>(deadline));
+      if (flight.join(deadline)) {
+        if (flight.start()) {
+          launch(key, flight, computation);
+        }
+        // A copy, so a query that times out doesn't complete the computation of the others.
+        return flight.result.copy().orTimeout(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+      }
+      // The flight had already been given up on, so is leaving the map; start another.
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /**
+   * Run a computation once a permit is available, unless every query of it has passed its
+   * deadline by then, within a budget that expires once every query of it has.
+   *
+   * @param <T> The type of the result.
+   * @param key The key of the computation.
+   * @param flight The computation's flight.
+   * @param computation The computation.
+   */
+  private <T> void launch(Key key, Flight<T> flight, Computation<T> computation) {
+    try {
+      executor.execute(() -> {
+        try {
+          permits.acquire();
+          try {
+            if (flight.abandon()) {
+              flight.result.completeExceptionally(new TimeoutException());
+            } else {
+              computations.increment();
+              flight.result.complete(computation.compute(new Budget(flight::abandon)));
+            }
+          } finally {
+            permits.release();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          flight.result.completeExceptionally(e);
+        } catch (TimeoutException | RuntimeException | Error e) {
+          flight.result.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, flight);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.remove(key, flight);
+      flight.result.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /** Stop accepting queries; those already accepted are still computed. */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * A computation of a query's result.
+   *
+   * @param <T> The type of the result.
+   */
+  @FunctionalInterface
+  private interface Computation<T> {
+
+    /**
+     * Compute the result, within a budget.
+     *
+     * @param budget The budget, which expires once every query of the computation has
+     *     passed its deadline.
+     * @return The result.
+     * @throws TimeoutException if the budget expired before the result was computed.
+     */
+    T compute(Budget budget) throws TimeoutException;
+  }
+
+  /** The identity of a computation; what is computed, from which seed, and to what bounds. */
+  private static final class Key {
+
+    private final boolean sequence;
+    private final BigInteger initialValue;
+    private final int maxStoppingTime;
+    private final boolean totalStoppingTime;
+
+    /**
+     * Create the key of a computation.
+     *
+     * @param sequence Whether the hailstone sequence, rather than the stopping time, is computed.
+     * @param initialValue The seed.
+     * @param maxStoppingTime Maximum amount of times to iterate the function.
+     * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+     */
+    Key(boolean sequence, BigInteger initialValue, int maxStoppingTime, boolean totalStoppingTime) {
+      this.sequence = sequence;
+      this.initialValue = initialValue;
+      this.maxStoppingTime = maxStoppingTime;
+      this.totalStoppingTime = totalStoppingTime;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return sequence == other.sequence && initialValue.equals(other.initialValue) && maxStoppingTime == other.maxStoppingTime && totalStoppingTime == other.totalStoppingTime;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sequence, initialValue, maxStoppingTime, totalStoppingTime);
+    }
+  }
+
+  /**
+   * A computation in flight, and the latest deadline of the queries that share it.
+   *
+   * @param <T> The type of the result.
+   */
+  static final class Flight<T> {
+
+    /** The state of a flight that has been given up on, as all its deadlines had passed. */
+    private static final long ABANDONED = Long.MIN_VALUE;
+
+    /** The result, shared by every query of the flight. */
+    final CompletableFuture<T> result = new CompletableFuture<T>();
+
+    /** The latest deadline of the queries, or {@code ABANDONED}. */
+    private final AtomicLong latestDeadline;
+
+    /** Whether the computation has been handed to the executor. */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Create a flight for the first query to request it.
+     *
+     * @param deadline The first query's deadline, in terms of {@code System.nanoTime()}.
+     */
+    Flight(long deadline) {
+      this.latestDeadline = new AtomicLong(deadline);
+    }
+
+    /**
+     * Join the flight, extending its deadline to this query's, unless it has been abandoned.
+     *
+     * @param deadline The query's deadline, in terms of {@code System.nanoTime()}.
+     * @return {@code true} if the query joined the flight.
+     */
+    boolean join(long deadline) {
+      while (true) {
+        long latest = latestDeadline.get();
+        if (latest == ABANDONED) {
+          return false;
+        }
+        // The deadlines are compared by their difference, as nanoTime may wrap.
+        long extended = (deadline - latest > 0) ? deadline : latest;
+        if (latestDeadline.compareAndSet(latest, extended)) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Claim the right to hand the computation to the executor, once.
+     *
+     * @return {@code true} for only the first caller.
+     */
+    boolean start() {
+      return started.compareAndSet(false, true);
+    }
+
+    /**
+     * Abandon the flight if every deadline has passed, so no query can join it. Once
+     * abandoned, it stays abandoned.
+     *
+     * @return {@code true} if the flight was, or already had been, abandoned.
+     */
+    boolean abandon() {
+      while (true) {
+        long latest = latestDeadline.get();
+        if (latest == ABANDONED) {
+          return true;
+        } else if (System.nanoTime() - latest < 0) {
+          return false;
+        }
+        if (latestDeadline.compareAndSet(latest, ABANDONED)) {
+          return true;
+        }
+      }
+    }
+  }
+}
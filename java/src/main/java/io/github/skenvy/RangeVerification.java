@@ -0,0 +1,326 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.skenvy.Collatz.CycleDetection;
+
+/**
+ * Contains the results of verifying that every seed in a range {@code [lo, hi)} of the
+ * default parameterisation has a stopping time, via {@code Collatz.verifyRange(~)}. A seed
+ * with a stopping time reaches a value closer to 0 than itself, so, by induction from the
+ * values already verified, such as those within [VERIFIED_MINIMUM, VERIFIED_MAXIMUM], it
+ * converges. The seeds without a stopping time are only those of the known cycles that
+ * are closest to 0 (and 0 and 1 themselves).
+ *
+ * <p>Most seeds never need to be walked. Writing the k shortcut steps {@code T(n) = n/2}
+ * or {@code (3n+1)/2} from n as {@code T^j(n) = (3^c*n + e)/2^j}, where c and e depend
+ * only on n mod 2^k, any residue class for which {@code 3^c < 2^j} at some j not beyond k
+ * stops within j steps for every seed far enough from 0. A 2^k residue sieve marks those
+ * classes, such that only the seeds of the surviving classes, about 3.2% of them at k = 16
+ * and 1.7% at k = 24, and the seeds close to 0, are tested, in parallel, on the common
+ * ForkJoinPool.
+ */
+public final class RangeVerification {
+
+  /** The default amount of bits of the residue sieve. */
+  public static final int DEFAULT_SIEVE_BITS = 16;
+
+  /** The largest amount of bits of the residue sieve, at which the sieve occupies ~1.1MB. */
+  public static final int MAX_SIEVE_BITS = 24;
+
+  /** The default maximum stopping time of a tested seed before it is reported. */
+  public static final int DEFAULT_MAX_STOPPING_TIME = 100000;
+
+  /** The amount of seeds that a single task verifies without splitting further. */
+  private static final long CHUNK_SIZE = 1 << 18;
+
+  /** The inclusive lower bound of the seeds. */
+  final BigInteger lo;
+
+  /** The exclusive upper bound of the seeds. */
+  final BigInteger hi;
+
+  /** The seeds that did not have a stopping time within the maximum, in ascending order. */
+  final BigInteger[] unverifiedSeeds;
+
+  /** The amount of seeds whose trajectories were walked. */
+  final long testedSeeds;
+
+  /** The amount of seeds eliminated by the sieve without being walked. */
+  final long sievedSeeds;
+
+  /**
+   * Initialise and compute a new verification of the seeds in {@code [lo, hi)}. The
+   * sieve holds an int per surviving residue, of which fewer survive, relatively, as k
+   * grows; ~8KB at the default k of 16, and ~1.1MB at MAX_SIEVE_BITS, besides the jump
+   * table of up to ~11MB.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param sieveBits The amount of bits, k, of the residue sieve.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per tested seed.
+   * @throws IllegalArgumentException if hi is less than lo, the range has more than
+   *     Long.MAX_VALUE seeds, or the sieve bits are not within [1, MAX_SIEVE_BITS].
+   */
+  public RangeVerification(BigInteger lo, BigInteger hi, int sieveBits, int maxStoppingTime) throws IllegalArgumentException {
+    BigInteger seeds = hi.subtract(lo);
+    if (seeds.signum() < 0 || seeds.bitLength() >= 64) {
+      throw new IllegalArgumentException("The range of a verification must be non-negative, and have at most Long.MAX_VALUE seeds.");
+    } else if (sieveBits < 1 || sieveBits > MAX_SIEVE_BITS) {
+      throw new IllegalArgumentException("The bits of a residue sieve must be within [1, " + MAX_SIEVE_BITS + "].");
+    }
+    this.lo = lo;
+    this.hi = hi;
+    Sieve sieve = new Sieve(sieveBits);
+    JumpTable jumps = new JumpTable(Math.min(sieveBits, JumpTable.MAX_BITS));
+    LongAdder tested = new LongAdder();
+    ConcurrentLinkedQueue<BigInteger> unverified = new ConcurrentLinkedQueue<>();
+    ForkJoinPool.commonPool().invoke(new VerificationTask(sieve, jumps, maxStoppingTime, tested, unverified, 0, seeds.longValue()));
+    this.unverifiedSeeds = unverified.toArray(new BigInteger[0]);
+    Arrays.sort(this.unverifiedSeeds);
+    this.testedSeeds = tested.sum();
+    this.sievedSeeds = seeds.longValue() - testedSeeds;
+  }
+
+  /**
+   * Whether every seed in the range was verified.
+   *
+   * @return {@code true} if there are no unverified seeds.
+   */
+  public boolean isVerified() {
+    return unverifiedSeeds.length == 0;
+  }
+
+  /**
+   * The seeds that did not have a stopping time within the maximum, and were not
+   * the least, by magnitude, values of a known cycle.
+   *
+   * @return The unverified seeds, in ascending order.
+   */
+  public BigInteger[] unverifiedSeeds() {
+    return unverifiedSeeds.clone();
+  }
+
+  /**
+   * The amount of seeds whose trajectories were walked.
+   *
+   * @return The amount of tested seeds.
+   */
+  public long testedSeeds() {
+    return testedSeeds;
+  }
+
+  /**
+   * The amount of seeds eliminated by the sieve without being walked.
+   *
+   * @return The amount of sieved seeds.
+   */
+  public long sievedSeeds() {
+    return sievedSeeds;
+  }
+
+  /**
+   * Whether a value is in one of the known cycles of the default parameterisation.
+   *
+   * @param n The value to look for.
+   * @return {@code true} if the value is in a known cycle.
+   */
+  private static boolean isInKnownCycle(BigInteger n) {
+    for (BigInteger[] cycle : Collatz.KNOWN_CYCLES) {
+      for (BigInteger value : cycle) {
+        if (value.equals(n)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** The 2^k residue classes, and the bounds beyond which each class provably stops. */
+  private static final class Sieve {
+
+    /** The amount of bits, k, of the sieve. */
+    private final int bits;
+
+    /** One less than 2^k. */
+    private final long mask;
+
+    /** The residues of the surviving classes, in ascending order. */
+    private final int[] survivors;
+
+    /** The largest magnitude of any bound of a sieved class. */
+    private final long largestBound;
+
+    /**
+     * Precompute the sieve for k bits. Only the surviving residues are kept; the bounds of
+     * the sieved classes are only needed near 0, so are recomputed there, by isSieved.
+     *
+     * @param bits The amount of bits, k, of the sieve.
+     */
+    Sieve(int bits) {
+      int residues = 1 << bits;
+      this.bits = bits;
+      this.mask = residues - 1;
+      int[] survived = new int[Math.max(16, residues >> 5)];
+      int survivorCount = 0;
+      long largest = 0;
+      for (int r = 0; r < residues; r++) {
+        long positiveBound = bound(r, true);
+        if (positiveBound == Long.MAX_VALUE) {
+          if (survivorCount == survived.length) {
+            survived = Arrays.copyOf(survived, 2 * survivorCount);
+          }
+          survived[survivorCount++] = r;
+        } else {
+          largest = Math.max(largest, Math.max(positiveBound, bound(r, false)));
+        }
+      }
+      this.survivors = Arrays.copyOf(survived, survivorCount);
+      this.largestBound = largest;
+    }
+
+    /**
+     * The largest positive, or least negative, magnitude of a residue class that might not
+     * stop within k steps.
+     *
+     * @param r The residue of the class.
+     * @param positive Whether to bound the positive, rather than the negative, seeds.
+     * @return The magnitude of the bound, or Long.MAX_VALUE if the class survives.
+     */
+    private long bound(long r, boolean positive) {
+      // T^j(n) = (3^c*n + e)/2^j, for every n that is r mod 2^k.
+      long t = r;
+      long powerOfThree = 1;
+      long e = 0;
+      for (int j = 1; j <= bits; j++) {
+        if ((t & 1) == 0) {
+          t >>= 1;
+        } else {
+          t = (3 * t + 1) >> 1;
+          e = 3 * e + (1L << (j - 1));
+          powerOfThree *= 3;
+        }
+        if (powerOfThree < (1L << j)) {
+          // n > T^j(n) > 0 for every n > e/(2^j-3^c), and n < T^j(n) < 0 for every n < -e/3^c.
+          return positive ? e / ((1L << j) - powerOfThree) : e / powerOfThree;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+
+    /**
+     * Whether a seed is provably stopping, by its residue class.
+     *
+     * @param n The seed, which is close enough to 0 to fit in a long.
+     * @return {@code true} if the seed has a stopping time.
+     */
+    boolean isSieved(long n) {
+      long r = n & mask;
+      if (n > 0) {
+        return n > bound(r, true);
+      }
+      if (n == 0) {
+        return false;
+      }
+      long negativeBound = bound(r, false);
+      return negativeBound != Long.MAX_VALUE && n < -negativeBound;
+    }
+  }
+
+  /** Recursively splits a range of seeds in half, until it is small enough to verify. */
+  private final class VerificationTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The sieve of the residue classes. */
+    private final Sieve sieve;
+
+    /** The jump table used to walk the positive seeds. */
+    private final JumpTable jumps;
+
+    /** Maximum amount of times to iterate the function, per tested seed. */
+    private final int maxStoppingTime;
+
+    /** The amount of seeds tested, and those that were unverified, shared by every task. */
+    private final LongAdder tested;
+    private final ConcurrentLinkedQueue<BigInteger> unverified;
+
+    /** The inclusive lower, and exclusive upper, offsets from lo of the seeds of this task. */
+    private final long from;
+    private final long to;
+
+    /**
+     * Create a task for the seeds {@code [lo+from, lo+to)}.
+     *
+     * @param sieve The sieve of the residue classes.
+     * @param jumps The jump table used to walk the positive seeds.
+     * @param maxStoppingTime Maximum amount of times to iterate the function, per tested seed.
+     * @param tested The amount of seeds tested.
+     * @param unverified The seeds that were unverified.
+     * @param from The inclusive lower offset of the seeds.
+     * @param to The exclusive upper offset of the seeds.
+     */
+    VerificationTask(Sieve sieve, JumpTable jumps, int maxStoppingTime, LongAdder tested, ConcurrentLinkedQueue<BigInteger> unverified, long from, long to) {
+      this.sieve = sieve;
+      this.jumps = jumps;
+      this.maxStoppingTime = maxStoppingTime;
+      this.tested = tested;
+      this.unverified = unverified;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > CHUNK_SIZE) {
+        long middle = from + (to - from) / 2;
+        invokeAll(new VerificationTask(sieve, jumps, maxStoppingTime, tested, unverified, from, middle),
+            new VerificationTask(sieve, jumps, maxStoppingTime, tested, unverified, middle, to));
+        return;
+      }
+      long blockSize = sieve.mask + 1;
+      long offset = from;
+      while (offset < to) {
+        // The seeds up to the end of the block of 2^k that contains the seed lo+offset.
+        int firstResidue = (int) ((lo.longValue() + offset) & sieve.mask);
+        long length = Math.min(to - offset, blockSize - firstResidue);
+        BigInteger first = lo.add(BigInteger.valueOf(offset));
+        if (first.abs().compareTo(BigInteger.valueOf(sieve.largestBound).add(BigInteger.valueOf(blockSize))) <= 0) {
+          // Close to 0, the bounds of each sieved class have to be checked.
+          long n = first.longValue();
+          for (long k = 0; k < length; k++) {
+            if (!sieve.isSieved(n + k)) {
+              verify(first.add(BigInteger.valueOf(k)));
+            }
+          }
+        } else {
+          int start = Arrays.binarySearch(sieve.survivors, firstResidue);
+          for (int k = (start < 0) ? -start - 1 : start; k < sieve.survivors.length && sieve.survivors[k] < firstResidue + length; k++) {
+            verify(first.add(BigInteger.valueOf(sieve.survivors[k] - firstResidue)));
+          }
+        }
+        offset += length;
+      }
+    }
+
+    /**
+     * Walk a seed that the sieve couldn't eliminate, and record it if it's unverified.
+     *
+     * @param seed The seed to test.
+     */
+    private void verify(BigInteger seed) {
+      tested.increment();
+      double stoppingTime = (seed.signum() > 0)
+          ? jumps.stoppingTime(seed, maxStoppingTime, false)
+          : Collatz.primitiveStoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, maxStoppingTime, false, CycleDetection.BRENT);
+      if (Double.isNaN(stoppingTime) || (stoppingTime == Double.POSITIVE_INFINITY && !isInKnownCycle(seed))) {
+        unverified.add(seed);
+      }
+    }
+  }
+}
@@ -0,0 +1,342 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Lazily iterates the levels of the reverse tree graph of a root value, breadth first,
+ * without holding the tree; each level is the batch of the values at exactly that orbit
+ * distance from the root, and is computed from only the level before it. The values of
+ * each level are those of the nodes at that depth of the equivalent {@code TreeGraph},
+ * in the same order, from the "Pre N/P" child to the "Pre aN+b" child of each node of the
+ * level before, such that a repeat of the root, by the root's own cycle, is yielded as a
+ * value of its level, but isn't reversed any further.
+ *
+ * <p>A filter can prune the values of each level, which are then neither yielded nor
+ * reversed, and iterating can be stopped after any level, such that only as much of the
+ * tree as is needed is ever computed. The levels end at the maximum depth, or before the
+ * first level without any values. The levels can be consumed through the iterator
+ * itself, or {@code stream()}, which shares it.
+ */
+public final class ReverseLevels implements Iterator<ReverseLevels.Level> {
+
+  /** The value held in place of a value that is held as a BigInteger. Long.MIN_VALUE is
+   *  itself held as a BigInteger, such that this is unambiguous. */
+  private static final long OVERFLOW = Long.MIN_VALUE;
+
+  /** Decides which values of each level are kept, and reversed into the next level. */
+  @FunctionalInterface
+  public interface Filter {
+
+    /**
+     * Whether to keep a value that fits in a long.
+     *
+     * @param value The value.
+     * @return {@code true} if the value is kept.
+     */
+    boolean keep(long value);
+
+    /**
+     * Whether to keep a value that doesn't fit in a long. By default, the value is tested
+     * as the long closest to it, which suits any filter that bounds the values.
+     *
+     * @param value The value, which doesn't fit in a long.
+     * @return {@code true} if the value is kept.
+     */
+    default boolean keep(BigInteger value) {
+      return keep((value.signum() > 0) ? Long.MAX_VALUE : Long.MIN_VALUE);
+    }
+  }
+
+  /** The values at a single orbit distance from the root. */
+  public static final class Level {
+
+    /** The orbit distance of the values from the root. */
+    final int depth;
+
+    /** The values, or {@code OVERFLOW} for those held in {@code bigValues}. */
+    final long[] values;
+
+    /** The values that are held as BigInteger's, at their index, or null if there are none. */
+    final BigInteger[] bigValues;
+
+    /**
+     * Create a level of values.
+     *
+     * @param depth The orbit distance of the values from the root.
+     * @param values The values, or {@code OVERFLOW} for those held in {@code bigValues}.
+     * @param bigValues The values held as BigInteger's, or null if there are none.
+     */
+    Level(int depth, long[] values, BigInteger[] bigValues) {
+      this.depth = depth;
+      this.values = values;
+      this.bigValues = bigValues;
+    }
+
+    /**
+     * The orbit distance of the values from the root.
+     *
+     * @return The depth of the level.
+     */
+    public int depth() {
+      return depth;
+    }
+
+    /**
+     * The amount of values in the level.
+     *
+     * @return The amount of values.
+     */
+    public int size() {
+      return values.length;
+    }
+
+    /**
+     * A value of the level.
+     *
+     * @param k The index of the value.
+     * @return The value.
+     */
+    public BigInteger value(int k) {
+      return (values[k] == OVERFLOW) ? bigValues[k] : BigInteger.valueOf(values[k]);
+    }
+
+    /**
+     * Whether a value of the level can be retrieved as a long, without a BigInteger.
+     *
+     * @param k The index of the value.
+     * @return {@code true} if the value fits in a long.
+     */
+    public boolean isLongValue(int k) {
+      return values[k] != OVERFLOW;
+    }
+
+    /**
+     * A value of the level, as a long.
+     *
+     * @param k The index of the value.
+     * @return The value.
+     * @throws ArithmeticException if the value doesn't fit in a long.
+     */
+    public long longValue(int k) throws ArithmeticException {
+      return (values[k] == OVERFLOW) ? bigValues[k].longValueExact() : values[k];
+    }
+
+    /**
+     * The values of the level, as longs.
+     *
+     * @return The values.
+     * @throws ArithmeticException if any value doesn't fit in a long.
+     */
+    public long[] longValues() throws ArithmeticException {
+      long[] longs = values.clone();
+      for (int k = 0; k < longs.length; k++) {
+        if (longs[k] == OVERFLOW) {
+          longs[k] = bigValues[k].longValueExact();
+        }
+      }
+      return longs;
+    }
+
+    /**
+     * The values of the level.
+     *
+     * @return The values.
+     */
+    public BigInteger[] values() {
+      BigInteger[] all = new BigInteger[values.length];
+      for (int k = 0; k < all.length; k++) {
+        all[k] = value(k);
+      }
+      return all;
+    }
+  }
+
+  /** The root value of the tree. */
+  private final BigInteger root;
+
+  /** The parameterisation (P,a,b) of the function to reverse. */
+  private final Parameterisation params;
+
+  /** The greatest orbit distance of a level to yield. */
+  private final int maxDepth;
+
+  /** The filter of the values of each level, or null to keep every value. */
+  private final Filter filter;
+
+  /** The last level computed, or null if none has been. */
+  private Level last;
+
+  /** Whether the last level computed is yet to be yielded. */
+  private boolean pending;
+
+  /**
+   * Prepare to lazily iterate the levels of a new reverse tree graph.
+   *
+   * @param root The root value of the tree.
+   * @param maxDepth The greatest orbit distance of a level to yield.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @param filter The filter of the values of each level, or null to keep every value.
+   */
+  public ReverseLevels(BigInteger root, int maxDepth, Parameterisation params, Filter filter) {
+    this.root = root;
+    this.params = params;
+    this.maxDepth = Math.max(0, maxDepth);
+    this.filter = filter;
+    this.last = null;
+    this.pending = false;
+  }
+
+  /** The levels end at the maximum depth, or before the first level with no values. */
+  @Override
+  public boolean hasNext() {
+    if (!pending && (last == null || (last.depth < maxDepth && last.size() > 0))) {
+      last = (last == null) ? rootLevel() : reverse(last);
+      pending = true;
+    }
+    return pending && last.size() > 0;
+  }
+
+  @Override
+  public Level next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    pending = false;
+    return last;
+  }
+
+  /**
+   * The level of the root alone, or empty if the filter doesn't keep the root.
+   *
+   * @return The level at orbit distance 0.
+   */
+  private Level rootLevel() {
+    LevelBuilder level = new LevelBuilder(1);
+    level.add(root);
+    return level.build(0);
+  }
+
+  /**
+   * The level after a level, of the kept reverses of each of its values.
+   *
+   * @param level The level to reverse.
+   * @return The next level.
+   */
+  private Level reverse(Level level) {
+    // Each value has at most two reverses; most levels grow by far less than twice.
+    LevelBuilder next = new LevelBuilder(level.size() + (level.size() >> 1) + 1);
+    long[] longReverses = new long[2];
+    long longRoot = (root.bitLength() < 64 && root.longValue() != OVERFLOW) ? root.longValue() : OVERFLOW;
+    for (int k = 0; k < level.size(); k++) {
+      long value = level.values[k];
+      BigInteger bigValue = (value == OVERFLOW) ? level.bigValues[k] : null;
+      // A repeat of the root, by its cycle, is a terminal node of the tree.
+      if (level.depth > 0 && ((bigValue == null) ? value == longRoot : bigValue.equals(root))) {
+        continue;
+      }
+      int reverses = (bigValue == null && params.longParameters) ? params.longReverseFunction(value, longReverses) : -1;
+      if (reverses == -1) {
+        for (BigInteger reverse : params.reverseFunction((bigValue == null) ? BigInteger.valueOf(value) : bigValue)) {
+          next.add(reverse);
+        }
+      } else {
+        for (int r = 0; r < reverses; r++) {
+          next.add(longReverses[r]);
+        }
+      }
+    }
+    return next.build(level.depth + 1);
+  }
+
+  /**
+   * A sequential stream of the levels remaining in this iterator.
+   *
+   * @return The stream of remaining levels.
+   */
+  public Stream<Level> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+  }
+
+  /** Accumulates the kept values of a level. */
+  private final class LevelBuilder {
+
+    /** The values, or {@code OVERFLOW} for those held in {@code bigValues}. */
+    private long[] values;
+
+    /** The values held as BigInteger's, or null while there are none. */
+    private BigInteger[] bigValues;
+
+    /** The amount of values. */
+    private int size;
+
+    /**
+     * Create an empty level.
+     *
+     * @param capacity The anticipated amount of values.
+     */
+    LevelBuilder(int capacity) {
+      this.values = new long[capacity];
+    }
+
+    /**
+     * Add a value, if it is kept by the filter.
+     *
+     * @param value The value.
+     */
+    void add(long value) {
+      if (value == OVERFLOW) {
+        add(BigInteger.valueOf(value));
+      } else if (filter == null || filter.keep(value)) {
+        growIfFull();
+        values[size++] = value;
+      }
+    }
+
+    /**
+     * Add a value, if it is kept by the filter.
+     *
+     * @param value The value.
+     */
+    void add(BigInteger value) {
+      if (value.bitLength() < 64 && value.longValue() != OVERFLOW) {
+        add(value.longValue());
+      } else if (filter == null || ((value.bitLength() < 64) ? filter.keep(value.longValue()) : filter.keep(value))) {
+        growIfFull();
+        if (bigValues == null) {
+          bigValues = new BigInteger[values.length];
+        }
+        bigValues[size] = value;
+        values[size++] = OVERFLOW;
+      }
+    }
+
+    /** Double the capacity, if it's full. */
+    private void growIfFull() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.max(size * 2, 1));
+        if (bigValues != null) {
+          bigValues = Arrays.copyOf(bigValues, values.length);
+        }
+      }
+    }
+
+    /**
+     * The level of the values added.
+     *
+     * @param depth The orbit distance of the values from the root.
+     * @return The level.
+     */
+    Level build(int depth) {
+      return new Level(depth, Arrays.copyOf(values, size), (bigValues == null) ? null : Arrays.copyOf(bigValues, size));
+    }
+  }
+}
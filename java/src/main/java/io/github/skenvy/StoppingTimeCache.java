@@ -0,0 +1,332 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * A memo of the total stopping times of the values visited while computing the total
+ * stopping times of seeds, for a single parameterisation, such that a trajectory can
+ * terminate as soon as it reaches a value whose total stopping time is already known,
+ * as trajectories from neighbouring seeds tend to merge quickly. Only the total stopping
+ * time is memoised, as it is the only one that composes; the regular stopping time of a
+ * value depends on the seed it was reached from.
+ *
+ * <p>Positive values less than a dense bound are held in a lock-free
+ * {@code StoppingTimeTable}, which may be shared between caches, or mapped into a file,
+ * and any other value that fits in a long is held in a bounded table of a fixed capacity,
+ * which evicts with the CLOCK (second chance) policy among the few slots in which each
+ * value may be held. The cache is safe to share between threads, such as the workers of
+ * a {@code Sweep}.
+ */
+public final class StoppingTimeCache {
+
+  /** The default dense bound; values in [1, 2^20) are held in a primitive array. */
+  public static final int DEFAULT_DENSE_BOUND = 1 << 20;
+
+  /** The default capacity of the table of values beyond the dense bound. */
+  public static final int DEFAULT_SPARSE_CAPACITY = 1 << 16;
+
+  /** The amount of slots in which any one value may be held in the sparse table. */
+  private static final int WAYS = 8;
+
+  /** The amount of locks over the sets of slots of the sparse table. */
+  private static final int STRIPES = 64;
+
+  /** The parameterisation whose total stopping times are memoised. */
+  private final Parameterisation params;
+
+  /** The total stopping times of the values below the dense bound. */
+  private final StoppingTimeTable dense;
+
+  /** The keys, total stopping times plus one (zero for an empty slot) and CLOCK reference bits
+   *  of the sparse table, in sets of {@code WAYS} slots, each guarded by a striped lock. */
+  private final long[] sparseKeys;
+  private final int[] sparseValues;
+  private final boolean[] referenced;
+
+  /** The CLOCK hand of each set of the sparse table. */
+  private final byte[] hands;
+
+  /** One less than the amount of sets in the sparse table. */
+  private final int setMask;
+
+  /** The locks over the sets of the sparse table. */
+  private final Object[] locks;
+
+  /** The amount of queries answered with, and without, the help of a memoised value. */
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Create an empty cache of total stopping times for a parameterisation.
+   *
+   * @param params The parameterisation whose total stopping times to memoise.
+   * @param denseBound The exclusive upper bound of the values held in the primitive array.
+   * @param sparseCapacity The least amount of values beyond the dense bound to hold.
+   * @throws IllegalArgumentException if the dense bound or sparse capacity are negative.
+   */
+  public StoppingTimeCache(Parameterisation params, int denseBound, int sparseCapacity) throws IllegalArgumentException {
+    this(params, new StoppingTimeTable(checkCapacity(denseBound)), sparseCapacity);
+  }
+
+  /**
+   * Create a cache of total stopping times for a parameterisation, whose values below the
+   * table's bound are read from, and published into, a table that may be shared with other
+   * caches, of the same parameterisation, or mapped into a file.
+   *
+   * @param params The parameterisation whose total stopping times to memoise.
+   * @param table The table of the values below its bound, of the parameterisation's
+   *     total stopping times.
+   * @param sparseCapacity The least amount of values beyond the table's bound to hold.
+   * @throws IllegalArgumentException if the sparse capacity is negative.
+   */
+  public StoppingTimeCache(Parameterisation params, StoppingTimeTable table, int sparseCapacity) throws IllegalArgumentException {
+    checkCapacity(sparseCapacity);
+    this.params = params;
+    this.dense = table;
+    int sets = Integer.highestOneBit(Math.max((sparseCapacity + WAYS - 1) / WAYS, 1) * 2 - 1);
+    this.setMask = sets - 1;
+    this.sparseKeys = new long[sets * WAYS];
+    this.sparseValues = new int[sets * WAYS];
+    this.referenced = new boolean[sets * WAYS];
+    this.hands = new byte[sets];
+    this.locks = new Object[Math.min(sets, STRIPES)];
+    for (int k = 0; k < locks.length; k++) {
+      locks[k] = new Object();
+    }
+  }
+
+  /**
+   * Create an empty cache of total stopping times for a parameterisation, with the default
+   * dense bound and sparse capacity.
+   *
+   * @param params The parameterisation whose total stopping times to memoise.
+   */
+  public StoppingTimeCache(Parameterisation params) {
+    this(params, DEFAULT_DENSE_BOUND, DEFAULT_SPARSE_CAPACITY);
+  }
+
+  /**
+   * Check the dense bound or sparse capacity of a cache.
+   *
+   * @param capacity The dense bound or sparse capacity.
+   * @return The capacity.
+   * @throws IllegalArgumentException if the capacity is negative.
+   */
+  private static int checkCapacity(int capacity) throws IllegalArgumentException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("The dense bound and sparse capacity of a cache can't be negative.");
+    }
+    return capacity;
+  }
+
+  /**
+   * The parameterisation whose total stopping times are memoised.
+   *
+   * @return The parameterisation.
+   */
+  public Parameterisation parameterisation() {
+    return params;
+  }
+
+  /**
+   * The amount of queries that were answered with the help of a memoised value.
+   *
+   * @return The amount of cache hits.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * The amount of queries that had to compute every step to the terminus.
+   *
+   * @return The amount of cache misses.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * The table of the values below the dense bound.
+   *
+   * @return The table.
+   */
+  public StoppingTimeTable table() {
+    return dense;
+  }
+
+  /** Forget every memoised value, including those of the table, which any other cache
+   *  that shares it also forgets, and reset the counters. */
+  public void clear() {
+    dense.clear();
+    for (int k = 0; k < locks.length; k++) {
+      synchronized (locks[k]) {
+        for (int set = k; set <= setMask; set += locks.length) {
+          Arrays.fill(sparseValues, set * WAYS, (set + 1) * WAYS, 0);
+          Arrays.fill(referenced, set * WAYS, (set + 1) * WAYS, false);
+        }
+      }
+    }
+    hits.reset();
+    misses.reset();
+  }
+
+  /**
+   * Returns the total stopping time as per {@code Collatz.stoppingTime(initialValue, params,
+   * maxStoppingTime, true)}, but with NaN rather than null if the maximum is exceeded.
+   *
+   * @param initialValue The value for which to find the total stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  double totalStoppingTime(BigInteger initialValue, int maxStoppingTime) {
+    if (initialValue.bitLength() < 64) {
+      return totalStoppingTime(initialValue.longValue(), maxStoppingTime);
+    }
+    misses.increment();
+    if (Metrics.ENABLED) {
+      Metrics.cacheQuery(false);
+    }
+    return Collatz.primitiveStoppingTime(initialValue, params, maxStoppingTime, true, CycleDetection.BRENT);
+  }
+
+  /**
+   * Returns the total stopping time of a seed that fits in a long. The trajectory is walked
+   * on primitives until it reaches 1 or a memoised value, and the total stopping time of
+   * every value it visited is then memoised. Anything else, a value that overflows a long,
+   * zero, a cycle, or running out of steps, defers to the uncached computation, so that the
+   * terminal states are exactly those of {@code Collatz.stoppingTime(~)}.
+   *
+   * @param seed The value for which to find the total stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  double totalStoppingTime(long seed, int maxStoppingTime) {
+    int maxSteps = Math.max(maxStoppingTime, 1);
+    long[] path = new long[Math.min(maxSteps, 64)];
+    int steps = 0;
+    long value = seed;
+    // A Brent tortoise, to abandon a cycle as soon as it is apparent.
+    long tortoise = seed;
+    long power = 1;
+    long lambda = 0;
+    int known = -1;
+    while (params.longParameters && value != 0) {
+      known = get(value);
+      if (known >= 0 || steps == maxSteps) {
+        break;
+      }
+      if (steps == path.length) {
+        path = Arrays.copyOf(path, Math.min(steps * 2, maxSteps));
+      }
+      path[steps++] = value;
+      value = params.longFunction(value);
+      if (value == Parameterisation.LONG_OVERFLOW || value == tortoise) {
+        break;
+      }
+      if (++lambda == power) {
+        tortoise = value;
+        power <<= 1;
+        lambda = 0;
+      }
+    }
+    if (known < 0) {
+      misses.increment();
+      if (Metrics.ENABLED) {
+        Metrics.cacheQuery(false);
+      }
+      double stoppingTime = Collatz.primitiveStoppingTime(BigInteger.valueOf(seed), params, maxStoppingTime, true, CycleDetection.BRENT);
+      if (seed != 0 && stoppingTime >= 0 && stoppingTime != Double.POSITIVE_INFINITY) {
+        put(seed, (int) stoppingTime);
+      }
+      return stoppingTime;
+    }
+    // Reaching 1 itself is not a hit; only a memoised value is.
+    if (known > 0) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    if (Metrics.ENABLED) {
+      Metrics.cacheQuery(known > 0);
+    }
+    long total = (long) steps + known;
+    for (int k = 0; k < steps && total - k <= Integer.MAX_VALUE; k++) {
+      put(path[k], (int) (total - k));
+    }
+    return (total <= maxSteps) ? total : Double.NaN;
+  }
+
+  /**
+   * The memoised total stopping time of a value.
+   *
+   * @param value The value to look up.
+   * @return The total stopping time, or -1 if it is not memoised.
+   */
+  int get(long value) {
+    if (value == 1) {
+      return 0;
+    } else if (value > 0 && value < dense.bound()) {
+      return dense.get(value);
+    }
+    int set = set(value);
+    synchronized (locks[set % locks.length]) {
+      for (int k = set * WAYS; k < (set + 1) * WAYS && sparseValues[k] != 0; k++) {
+        if (sparseKeys[k] == value) {
+          referenced[k] = true;
+          return sparseValues[k] - 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Memoise the total stopping time of a value, evicting another if its set is full.
+   *
+   * @param value The value to memoise.
+   * @param totalStoppingTime The value's total stopping time.
+   */
+  void put(long value, int totalStoppingTime) {
+    if (value > 0 && value < dense.bound()) {
+      dense.publish(value, totalStoppingTime);
+      return;
+    }
+    int set = set(value);
+    int first = set * WAYS;
+    synchronized (locks[set % locks.length]) {
+      for (int k = first; k < first + WAYS; k++) {
+        if (sparseValues[k] == 0 || sparseKeys[k] == value) {
+          sparseKeys[k] = value;
+          sparseValues[k] = totalStoppingTime + 1;
+          return;
+        }
+      }
+      // The set is full; advance its hand past recently referenced slots, clearing them.
+      int hand = hands[set];
+      while (referenced[first + hand]) {
+        referenced[first + hand] = false;
+        hand = (hand + 1) % WAYS;
+      }
+      sparseKeys[first + hand] = value;
+      sparseValues[first + hand] = totalStoppingTime + 1;
+      hands[set] = (byte) ((hand + 1) % WAYS);
+    }
+  }
+
+  /**
+   * The set of slots of the sparse table in which a value may be held.
+   *
+   * @param value The value to locate.
+   * @return The index of the set.
+   */
+  private int set(long value) {
+    long mixed = value * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32)) & setMask;
+  }
+}
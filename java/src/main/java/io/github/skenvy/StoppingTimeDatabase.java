@@ -0,0 +1,388 @@
+package io.github.skenvy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * A persistent store of the total stopping times, and peak values, of seeds, for a single
+ * parameterisation, held in a directory of memory-mapped files, such that the results of
+ * a sweep survive the process that computed them, and are read back without copying. The
+ * seeds are split into segments of {@code 2^segmentBits} seeds, each a file of fixed width
+ * records, mapped the first time it's needed. A record is the peak, the greatest value of
+ * the trajectory to 1, as a little endian long, then the total stopping time plus one,
+ * or zero if the seed isn't recorded, as a little endian int, then four unused bytes.
+ *
+ * <p>A query consults the database before computing anything, and a trajectory that is
+ * computed stops at the first value that's recorded, then records the seed, and every value
+ * it visited that lies in a segment that's already mapped. Only seeds whose trajectories
+ * reach 1 on longs are recorded; any other outcome, a value that overflows a long, zero, a
+ * cycle, or running out of steps, is computed each time, as per
+ * {@code Collatz.stoppingTime(~)}. Records are published once, by a compare and set, as
+ * with a {@code StoppingTimeTable}, so the database is safe to share between threads, and
+ * re-running a sweep that was interrupted only computes the seeds it hadn't recorded.
+ */
+public final class StoppingTimeDatabase implements Closeable {
+
+  /** The default amount of bits of the seeds within a segment; 2^24 seeds, of 256MB. */
+  public static final int DEFAULT_SEGMENT_BITS = 24;
+
+  /** The least amount of bits of the seeds within a segment. */
+  public static final int MIN_SEGMENT_BITS = 10;
+
+  /** The greatest amount of bits of the seeds within a segment, such that it can be mapped. */
+  public static final int MAX_SEGMENT_BITS = 26;
+
+  /** The width of the record of each seed. */
+  public static final int RECORD_BYTES = 16;
+
+  /** The offset of the total stopping time, plus one, within a record. */
+  private static final int STOPPING_TIME_OFFSET = 8;
+
+  /** The name of the file that describes the database. */
+  private static final String DESCRIPTION = "collatz.properties";
+
+  /** Atomic access to the ints of a segment. */
+  private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** Atomic access to the longs of a segment. */
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** The directory of the database. */
+  private final Path directory;
+
+  /** The parameterisation whose stopping times are recorded. */
+  private final Parameterisation params;
+
+  /** The amount of bits of the seeds within a segment. */
+  private final int segmentBits;
+
+  /** The segments that have been mapped, keyed by the seeds shifted by the segment bits. */
+  private final Map<Long, MappedByteBuffer> segments = new ConcurrentHashMap<Long, MappedByteBuffer>();
+
+  /** Whether the database has been closed. */
+  private volatile boolean closed;
+
+  /**
+   * Create a database over a directory that has already been described.
+   *
+   * @param directory The directory of the database.
+   * @param params The parameterisation whose stopping times are recorded.
+   * @param segmentBits The amount of bits of the seeds within a segment.
+   */
+  private StoppingTimeDatabase(Path directory, Parameterisation params, int segmentBits) {
+    this.directory = directory;
+    this.params = params;
+    this.segmentBits = segmentBits;
+  }
+
+  /**
+   * Open the database in a directory, which is created if it doesn't exist, with the
+   * default segment size.
+   *
+   * @param directory The directory of the database.
+   * @param params The parameterisation whose stopping times to record.
+   * @return The database.
+   * @throws IllegalArgumentException if the directory holds the database of another
+   *     parameterisation, or segment size.
+   * @throws IOException if the directory can't be created, or its description read or written.
+   */
+  public static StoppingTimeDatabase open(Path directory, Parameterisation params) throws IllegalArgumentException, IOException {
+    return open(directory, params, DEFAULT_SEGMENT_BITS);
+  }
+
+  /**
+   * Open the database in a directory, which is created if it doesn't exist.
+   *
+   * @param directory The directory of the database.
+   * @param params The parameterisation whose stopping times to record.
+   * @param segmentBits The amount of bits of the seeds within a segment.
+   * @return The database.
+   * @throws IllegalArgumentException if the segment bits are outside of
+   *     [MIN_SEGMENT_BITS, MAX_SEGMENT_BITS], or the directory holds the database of
+   *     another parameterisation, or segment size.
+   * @throws IOException if the directory can't be created, or its description read or written.
+   */
+  public static StoppingTimeDatabase open(Path directory, Parameterisation params, int segmentBits) throws IllegalArgumentException, IOException {
+    if (segmentBits < MIN_SEGMENT_BITS || segmentBits > MAX_SEGMENT_BITS) {
+      throw new IllegalArgumentException("The bits of a segment must be within [" + MIN_SEGMENT_BITS + ", " + MAX_SEGMENT_BITS + "].");
+    }
+    Files.createDirectories(directory);
+    Properties description = new Properties();
+    description.setProperty("P", params.modulus.toString());
+    description.setProperty("a", params.multiplicand.toString());
+    description.setProperty("b", params.increment.toString());
+    description.setProperty("segmentBits", Integer.toString(segmentBits));
+    description.setProperty("recordBytes", Integer.toString(RECORD_BYTES));
+    Path file = directory.resolve(DESCRIPTION);
+    if (Files.exists(file)) {
+      Properties existing = new Properties();
+      try (InputStream in = Files.newInputStream(file)) {
+        existing.load(in);
+      }
+      if (!existing.equals(description)) {
+        throw new IllegalArgumentException("The database in " + directory + " is of another parameterisation, or segment size.");
+      }
+    } else {
+      try (OutputStream out = Files.newOutputStream(file)) {
+        description.store(out, "Collatz stopping time database");
+      }
+    }
+    return new StoppingTimeDatabase(directory, params, segmentBits);
+  }
+
+  /**
+   * The parameterisation whose stopping times are recorded.
+   *
+   * @return The parameterisation.
+   */
+  public Parameterisation parameterisation() {
+    return params;
+  }
+
+  /**
+   * The amount of bits of the seeds within a segment.
+   *
+   * @return The segment bits.
+   */
+  public int segmentBits() {
+    return segmentBits;
+  }
+
+  /**
+   * The recorded total stopping time of a seed, read from its segment without copying.
+   *
+   * @param seed The seed to look up.
+   * @return The total stopping time, or -1 if the seed isn't recorded.
+   * @throws UncheckedIOException if the seed's segment exists, but can't be mapped.
+   */
+  public int totalStoppingTime(long seed) throws UncheckedIOException {
+    MappedByteBuffer segment = segment(seed, false);
+    return (segment == null) ? -1 : (int) INTS.getAcquire(segment, offset(seed) + STOPPING_TIME_OFFSET) - 1;
+  }
+
+  /**
+   * Returns the total stopping time as per {@code Collatz.stoppingTime(initialValue, params,
+   * maxStoppingTime, true)}, but with NaN rather than null if the maximum is exceeded.
+   *
+   * @param initialValue The value for which to find the total stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, NaN or a negative.
+   * @throws UncheckedIOException if a segment can't be created, or mapped.
+   */
+  double totalStoppingTime(BigInteger initialValue, int maxStoppingTime) throws UncheckedIOException {
+    if (initialValue.bitLength() < 64) {
+      return totalStoppingTime(initialValue.longValue(), maxStoppingTime);
+    }
+    return Collatz.primitiveStoppingTime(initialValue, params, maxStoppingTime, true, CycleDetection.BRENT);
+  }
+
+  /**
+   * Returns the total stopping time of a seed that fits in a long, from its record if it
+   * has one, otherwise by walking its trajectory on primitives until it reaches 1 or a
+   * recorded value, after which the seed, and every visited value whose segment is
+   * already mapped, are recorded. Anything else defers to the uncached computation.
+   *
+   * @param seed The value for which to find the total stopping time.
+   * @param maxStoppingTime Maximum amount of times to iterate the function.
+   * @return The total stopping time, or, in a special case, infinity, NaN or a negative.
+   * @throws UncheckedIOException if a segment can't be created, or mapped.
+   */
+  double totalStoppingTime(long seed, int maxStoppingTime) throws UncheckedIOException {
+    int maxSteps = Math.max(maxStoppingTime, 1);
+    int recorded = totalStoppingTime(seed);
+    if (recorded >= 0) {
+      return (recorded <= maxSteps) ? recorded : Double.NaN;
+    }
+    long[] path = new long[Math.min(maxSteps, 64)];
+    int steps = 0;
+    long value = seed;
+    // A Brent tortoise, to abandon a cycle as soon as it is apparent.
+    long tortoise = seed;
+    long power = 1;
+    long lambda = 0;
+    int known = -1;
+    long knownPeak = 0;
+    while (params.longParameters && value != 0) {
+      if (value == 1) {
+        known = 0;
+        knownPeak = 1;
+        break;
+      }
+      if (steps > 0) {
+        MappedByteBuffer segment = segments.get(value >> segmentBits);
+        known = (segment == null) ? -1 : (int) INTS.getAcquire(segment, offset(value) + STOPPING_TIME_OFFSET) - 1;
+        if (known >= 0) {
+          knownPeak = (long) LONGS.get(segment, offset(value));
+          break;
+        }
+      }
+      if (steps == maxSteps) {
+        break;
+      }
+      if (steps == path.length) {
+        path = Arrays.copyOf(path, Math.min(steps * 2, maxSteps));
+      }
+      path[steps++] = value;
+      value = params.longFunction(value);
+      if (value == Parameterisation.LONG_OVERFLOW || value == tortoise) {
+        break;
+      }
+      if (++lambda == power) {
+        tortoise = value;
+        power <<= 1;
+        lambda = 0;
+      }
+    }
+    if (known < 0) {
+      return Collatz.primitiveStoppingTime(BigInteger.valueOf(seed), params, maxStoppingTime, true, CycleDetection.BRENT);
+    }
+    long total = (long) steps + known;
+    long peak = knownPeak;
+    if (steps == 0) {
+      // The seed is 1 itself, whose record is that of reaching 1.
+      record(segment(seed, true), seed, known, peak);
+    }
+    for (int k = steps - 1; k >= 0; k--) {
+      peak = Math.max(peak, path[k]);
+      MappedByteBuffer segment = (k == 0) ? segment(seed, true) : segments.get(path[k] >> segmentBits);
+      if (segment != null && total - k < Integer.MAX_VALUE) {
+        record(segment, path[k], (int) (total - k), peak);
+      }
+    }
+    return (total <= maxSteps) ? total : Double.NaN;
+  }
+
+  /**
+   * The recorded peak of the trajectory of a seed, the greatest value it visits on its way
+   * to 1, read from its segment without copying.
+   *
+   * @param seed The seed to look up.
+   * @return The peak, or 0 if the seed isn't recorded; every recorded peak is at least 1.
+   * @throws UncheckedIOException if the seed's segment exists, but can't be mapped.
+   */
+  public long peak(long seed) throws UncheckedIOException {
+    MappedByteBuffer segment = segment(seed, false);
+    if (segment == null || (int) INTS.getAcquire(segment, offset(seed) + STOPPING_TIME_OFFSET) == 0) {
+      return 0;
+    }
+    return (long) LONGS.get(segment, offset(seed));
+  }
+
+  /**
+   * Record the total stopping time and peak of a seed, if they haven't already been. As
+   * with a {@code StoppingTimeTable}, the first record of a seed wins.
+   *
+   * @param seed The seed to record.
+   * @param totalStoppingTime The seed's total stopping time.
+   * @param peak The greatest value of the seed's trajectory to 1.
+   * @return {@code true} if this call recorded the seed, {@code false} if it already had been.
+   * @throws IllegalArgumentException if the stopping time is negative, or the peak isn't positive.
+   * @throws UncheckedIOException if the seed's segment can't be created, or mapped.
+   */
+  public boolean record(long seed, int totalStoppingTime, long peak) throws IllegalArgumentException, UncheckedIOException {
+    if (totalStoppingTime < 0 || totalStoppingTime == Integer.MAX_VALUE || peak < 1) {
+      throw new IllegalArgumentException("A record must have a non-negative stopping time, and a positive peak.");
+    }
+    return record(segment(seed, true), seed, totalStoppingTime, peak);
+  }
+
+  /**
+   * Record the total stopping time and peak of a seed in its segment.
+   *
+   * @param segment The seed's segment.
+   * @param seed The seed to record.
+   * @param totalStoppingTime The seed's total stopping time.
+   * @param peak The greatest value of the seed's trajectory to 1.
+   * @return {@code true} if this call recorded the seed, {@code false} if it already had been.
+   */
+  private boolean record(MappedByteBuffer segment, long seed, int totalStoppingTime, long peak) {
+    int offset = offset(seed);
+    if ((int) INTS.getAcquire(segment, offset + STOPPING_TIME_OFFSET) != 0) {
+      return false;
+    }
+    // Racing writers write the same peak; the compare and set then publishes it.
+    LONGS.set(segment, offset, peak);
+    return INTS.compareAndSet(segment, offset + STOPPING_TIME_OFFSET, 0, totalStoppingTime + 1);
+  }
+
+  /**
+   * Write every record through to the files of the segments, such that they survive the
+   * machine, rather than only the process, failing; a checkpoint of a sweep.
+   */
+  public void checkpoint() {
+    for (MappedByteBuffer segment : segments.values()) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Checkpoint, and release, the segments. The mappings are only unmapped once they're
+   * garbage collected, and the database can't be used again.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    checkpoint();
+    segments.clear();
+  }
+
+  /**
+   * The offset of the record of a seed within its segment.
+   *
+   * @param seed The seed.
+   * @return The offset of its record.
+   */
+  private int offset(long seed) {
+    return (int) (seed & ((1L << segmentBits) - 1)) * RECORD_BYTES;
+  }
+
+  /**
+   * The mapped segment of a seed.
+   *
+   * @param seed The seed.
+   * @param create Whether to create the segment's file, if it doesn't exist.
+   * @return The segment, or null if its file doesn't exist, and isn't to be created.
+   * @throws IllegalStateException if the database has been closed.
+   * @throws UncheckedIOException if the segment can't be created, or mapped.
+   */
+  private MappedByteBuffer segment(long seed, boolean create) throws IllegalStateException, UncheckedIOException {
+    if (closed) {
+      throw new IllegalStateException("The database has been closed.");
+    }
+    long index = seed >> segmentBits;
+    MappedByteBuffer segment = segments.get(index);
+    if (segment != null) {
+      return segment;
+    }
+    Path file = directory.resolve(String.format("%016x.segment", index));
+    if (!create && !Files.exists(file)) {
+      return null;
+    }
+    return segments.computeIfAbsent(index, key -> {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) RECORD_BYTES << segmentBits);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+}
@@ -0,0 +1,230 @@
+package io.github.skenvy;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * A lock-free table of the total stopping times of the positive values below a bound,
+ * directly indexed by value, that any amount of threads can read and publish into. Each
+ * entry is written at most once, by a compare and set from unknown, so racing writers
+ * are well defined; the first to publish a value's stopping time wins, and as a stopping
+ * time is the same whoever computes it, every other writer would have published the same.
+ * A published stopping time is visible, in full, to every read that follows it, and a read
+ * that races a publish sees either the stopping time or unknown, which is only a miss.
+ *
+ * <p>The table is held either on the heap, or in a memory-mapped file, such that it can be
+ * shared between processes, and outlive them. The file is a header, recording the format,
+ * the parameterisation, and the bound, followed by a plain array of little endian ints,
+ * each the total stopping time plus one, or zero if unknown, indexed by value. The header
+ * is checked whenever the file is mapped again, so it can only ever be shared between
+ * tables of the same parameterisation and bound. A table should only be shared between
+ * caches of the parameterisation whose stopping times it holds.
+ */
+public final class StoppingTimeTable {
+
+  /** The greatest bound of a table, such that its entries can be indexed by a ByteBuffer. */
+  public static final int MAX_BOUND = Integer.MAX_VALUE / Integer.BYTES;
+
+  /** The first int of the file of a mapped table, "CLTZ" in ASCII. */
+  private static final int MAGIC = 0x434C545A;
+
+  /** The version of the layout of the file of a mapped table. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** Atomic access to the elements of a heap table. */
+  private static final VarHandle HEAP = MethodHandles.arrayElementVarHandle(int[].class);
+
+  /** Atomic access to the ints of a mapped table. */
+  private static final VarHandle MAPPED = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** The exclusive upper bound of the values held. */
+  private final int bound;
+
+  /** The total stopping time, plus one, of each value, or zero if unknown; or null if mapped. */
+  private final int[] heap;
+
+  /** The mapped file of the same, or null if on the heap. */
+  private final MappedByteBuffer mapped;
+
+  /**
+   * Create an empty table on the heap.
+   *
+   * @param bound The exclusive upper bound of the values to hold.
+   * @throws IllegalArgumentException if the bound is negative.
+   */
+  public StoppingTimeTable(int bound) throws IllegalArgumentException {
+    this(checkBound(bound), new int[bound], null);
+  }
+
+  /**
+   * Create a table over its storage.
+   *
+   * @param bound The exclusive upper bound of the values held.
+   * @param heap The entries, if on the heap, otherwise null.
+   * @param mapped The mapped entries, if mapped, otherwise null.
+   */
+  private StoppingTimeTable(int bound, int[] heap, MappedByteBuffer mapped) {
+    this.bound = bound;
+    this.heap = heap;
+    this.mapped = mapped;
+  }
+
+  /**
+   * Map a table into a file, which is created if it doesn't exist, and otherwise keeps the
+   * stopping times already published into it.
+   *
+   * @param file The file of the table.
+   * @param params The parameterisation whose stopping times the table holds.
+   * @param bound The exclusive upper bound of the values to hold, at most {@code MAX_BOUND}.
+   * @return The mapped table.
+   * @throws IllegalArgumentException if the bound is negative, or exceeds {@code MAX_BOUND},
+   *     or the file holds the table of another parameterisation, or bound, or isn't a table.
+   * @throws IOException if the file can't be opened, read, written, or mapped.
+   */
+  public static StoppingTimeTable map(Path file, Parameterisation params, int bound) throws IllegalArgumentException, IOException {
+    checkBound(bound);
+    ByteBuffer header = header(params, bound);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (channel.size() == 0) {
+        while (header.hasRemaining()) {
+          channel.write(header, header.position());
+        }
+      } else {
+        ByteBuffer existing = ByteBuffer.allocate(header.capacity());
+        int read = 0;
+        while (existing.hasRemaining() && read >= 0) {
+          read = channel.read(existing, existing.position());
+        }
+        if (!existing.flip().equals(header)) {
+          throw new IllegalArgumentException("The file " + file + " doesn't hold a stopping time table of this parameterisation, and bound.");
+        }
+      }
+      // The mapping remains valid after the channel is closed.
+      return new StoppingTimeTable(bound, null, channel.map(FileChannel.MapMode.READ_WRITE, header.capacity(), (long) bound * Integer.BYTES));
+    }
+  }
+
+  /**
+   * The header of the file of a mapped table; the magic number, the format version, and
+   * the bound, as little endian ints, followed by each of P, a and b, as the length of its
+   * two's complement bytes and the bytes, padded to a multiple of a long, such that the
+   * ints of the table that follow it are aligned for atomic access.
+   *
+   * @param params The parameterisation whose stopping times the table holds.
+   * @param bound The exclusive upper bound of the values held.
+   * @return The header, ready to be read.
+   */
+  private static ByteBuffer header(Parameterisation params, int bound) {
+    byte[][] parameters = {params.modulus.toByteArray(), params.multiplicand.toByteArray(), params.increment.toByteArray()};
+    int length = 3 * Integer.BYTES;
+    for (byte[] parameter : parameters) {
+      length += Integer.BYTES + parameter.length;
+    }
+    length = (length + Long.BYTES - 1) & -Long.BYTES;
+    ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(bound);
+    for (byte[] parameter : parameters) {
+      header.putInt(parameter.length).put(parameter);
+    }
+    header.position(0);
+    return header;
+  }
+
+  /**
+   * Check the bound of a table.
+   *
+   * @param bound The exclusive upper bound of the values to hold.
+   * @return The bound.
+   * @throws IllegalArgumentException if the bound is negative, or exceeds {@code MAX_BOUND}.
+   */
+  private static int checkBound(int bound) throws IllegalArgumentException {
+    if (bound < 0 || bound > MAX_BOUND) {
+      throw new IllegalArgumentException("The bound of a stopping time table must be within [0, " + MAX_BOUND + "].");
+    }
+    return bound;
+  }
+
+  /**
+   * The exclusive upper bound of the values held.
+   *
+   * @return The bound.
+   */
+  public int bound() {
+    return bound;
+  }
+
+  /**
+   * Whether the table is held in a memory-mapped file.
+   *
+   * @return {@code true} if the table is mapped.
+   */
+  public boolean isMapped() {
+    return mapped != null;
+  }
+
+  /**
+   * The published total stopping time of a value.
+   *
+   * @param value The value to look up.
+   * @return The total stopping time, or -1 if it's unknown, or the value isn't held.
+   */
+  public int get(long value) {
+    if (value <= 0 || value >= bound) {
+      return -1;
+    }
+    int index = (int) value;
+    return ((mapped == null) ? (int) HEAP.getAcquire(heap, index) : (int) MAPPED.getAcquire(mapped, index * Integer.BYTES)) - 1;
+  }
+
+  /**
+   * Publish the total stopping time of a value, if no stopping time has already been.
+   *
+   * @param value The value whose stopping time to publish.
+   * @param totalStoppingTime The value's total stopping time.
+   * @return {@code true} if this call published the stopping time, {@code false} if one
+   *     already had been, or the value isn't held.
+   */
+  public boolean publish(long value, int totalStoppingTime) {
+    if (value <= 0 || value >= bound || totalStoppingTime < 0 || totalStoppingTime == Integer.MAX_VALUE) {
+      return false;
+    }
+    int index = (int) value;
+    if (mapped == null) {
+      return HEAP.compareAndSet(heap, index, 0, totalStoppingTime + 1);
+    }
+    return MAPPED.compareAndSet(mapped, index * Integer.BYTES, 0, totalStoppingTime + 1);
+  }
+
+  /**
+   * Forget every published stopping time. Publishes that race the clear may survive it.
+   */
+  public void clear() {
+    for (int k = 0; k < bound; k++) {
+      if (mapped == null) {
+        HEAP.setRelease(heap, k, 0);
+      } else {
+        MAPPED.setRelease(mapped, k * Integer.BYTES, 0);
+      }
+    }
+  }
+
+  /**
+   * Write the published stopping times of a mapped table through to its file. This is
+   * only needed for them to survive the machine, rather than the process, failing.
+   */
+  public void force() {
+    if (mapped != null) {
+      mapped.force();
+    }
+  }
+}
@@ -0,0 +1,435 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.TrajectoryStatistics;
+
+/**
+ * Computes the stopping times of every seed in a contiguous range {@code [lo, hi)} in
+ * parallel, on a ForkJoinPool. The range is recursively split in half until it is no
+ * larger than the chunk size, so that idle workers can steal the other halves, and each
+ * seed's stopping time, as per {@code Collatz.stoppingTime(~)}, is passed to a sink. As
+ * the results are primitive, a stopping time that exceeds the maximum is NaN, rather than
+ * null. A sweep can be cancelled from any thread, and reports its progress after each chunk.
+ *
+ * <p>Alternatively, a sweep can compute the statistics of each seed's trajectory, and only
+ * pass on those that set a new record; a "delay record", a total stopping time greater than
+ * that of every lower seed in the sweep, or a "path record", a peak greater than that of
+ * every lower seed. Each chunk keeps only the seeds that set a record within itself, and the
+ * chunks are merged in order of their seeds as they complete, such that the records are
+ * passed on in order, once every seed below them has been computed.
+ */
+public final class Sweep {
+
+  /** The default amount of seeds that a single task computes without splitting further. */
+  public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+  /** Receives the stopping time of each seed in the sweep. */
+  @FunctionalInterface
+  public interface Sink {
+    /**
+     * Accept the stopping time of a seed. This is called from the worker threads,
+     * concurrently, and in no particular order of seeds.
+     *
+     * @param seed The seed whose stopping time has been computed.
+     * @param stoppingTime The stopping time, or, in a special case, infinity, NaN or a negative.
+     */
+    void accept(long seed, double stoppingTime);
+  }
+
+  /** Receives the statistics of each seed in the sweep that sets a new record. */
+  @FunctionalInterface
+  public interface RecordSink {
+    /**
+     * Accept the statistics of a seed that set a new record. This is called from the worker
+     * threads, but only one at a time, and in increasing order of seeds. Only seeds that
+     * reached 1 within the maximum total stopping time can set a record.
+     *
+     * @param statistics The statistics of the seed's trajectory.
+     * @param delayRecord Whether the seed's total stopping time is a new record.
+     * @param pathRecord Whether the seed's peak is a new record.
+     */
+    void accept(TrajectoryStatistics statistics, boolean delayRecord, boolean pathRecord);
+  }
+
+  /** Receives updates on the progress of a sweep. */
+  @FunctionalInterface
+  public interface ProgressListener {
+    /**
+     * Accept an update of the progress of the sweep. This is called from the worker
+     * threads, after each chunk, concurrently, so successive calls may not be monotonic.
+     *
+     * @param completedSeeds The amount of seeds computed so far.
+     * @param totalSeeds The amount of seeds in the sweep.
+     */
+    void progress(long completedSeeds, long totalSeeds);
+  }
+
+  /** The inclusive lower bound of the seeds. */
+  final long lo;
+
+  /** The exclusive upper bound of the seeds. */
+  final long hi;
+
+  /** The parameterisation (P,a,b) of the function to iterate. */
+  final Parameterisation params;
+
+  /** Maximum amount of times to iterate the function, per seed. */
+  final int maxStoppingTime;
+
+  /** Whether to find the "total" stopping time rather than the regular stopping time. */
+  final boolean totalStoppingTime;
+
+  /** The amount of seeds that a single task computes without splitting further. */
+  private final int chunkSize;
+
+  /** The memo of total stopping times shared by every seed, or null. */
+  private final StoppingTimeCache cache;
+
+  /** The database of total stopping times that every seed is read from or recorded into, or null. */
+  private final StoppingTimeDatabase database;
+
+  /** Receives the stopping time of each seed, or null if only records are passed on. */
+  private final Sink sink;
+
+  /** Receives the seeds that set a new record, or null if every stopping time is passed on. */
+  private final RecordSink recordSink;
+
+  /** The candidate records of the chunks that have completed beyond the record frontier,
+   *  keyed by their lower bound; only accessed while holding the lock of the map. */
+  private final TreeMap<Long, ChunkRecords> pendingRecords = new TreeMap<Long, ChunkRecords>();
+
+  /** The seed below which every chunk's candidates have been merged, and the records so far. */
+  private long recordFrontier;
+  private int delayRecord = -1;
+  private BigInteger pathRecord;
+
+  /** Receives updates on the progress, if not null. */
+  private final ProgressListener progressListener;
+
+  /** The amount of seeds computed so far. */
+  private final AtomicLong completedSeeds = new AtomicLong();
+
+  /** Whether the sweep has been cancelled. */
+  private volatile boolean cancelled;
+
+  /**
+   * Prepare a sweep of the stopping times of the seeds in {@code [lo, hi)}.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @param chunkSize The amount of seeds that a single task computes without splitting further.
+   * @param sink Receives the stopping time of each seed.
+   * @param progressListener Receives updates on the progress after each chunk, or null.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  public Sweep(long lo, long hi, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, int chunkSize, Sink sink, ProgressListener progressListener) throws IllegalArgumentException {
+    this(lo, hi, params, null, null, maxStoppingTime, totalStoppingTime, chunkSize, sink, null, progressListener);
+  }
+
+  /**
+   * Prepare a sweep of the trajectory statistics of the seeds in {@code [lo, hi)}, which
+   * only passes on the seeds that set a new delay record or path record.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxTotalStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param chunkSize The amount of seeds that a single task computes without splitting further.
+   * @param recordSink Receives the statistics of each seed that sets a new record.
+   * @param progressListener Receives updates on the progress after each chunk, or null.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  public Sweep(long lo, long hi, Parameterisation params, int maxTotalStoppingTime, int chunkSize, RecordSink recordSink, ProgressListener progressListener) throws IllegalArgumentException {
+    this(lo, hi, params, null, null, maxTotalStoppingTime, true, chunkSize, null, recordSink, progressListener);
+  }
+
+  /**
+   * Prepare a sweep of the total stopping times of the seeds in {@code [lo, hi)}, which
+   * share a cache of total stopping times, such that each trajectory only needs to be
+   * walked until it merges with one that has already been computed.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param cache The memo of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param chunkSize The amount of seeds that a single task computes without splitting further.
+   * @param sink Receives the total stopping time of each seed.
+   * @param progressListener Receives updates on the progress after each chunk, or null.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  public Sweep(long lo, long hi, StoppingTimeCache cache, int maxStoppingTime, int chunkSize, Sink sink, ProgressListener progressListener) throws IllegalArgumentException {
+    this(lo, hi, cache.parameterisation(), cache, null, maxStoppingTime, true, chunkSize, sink, null, progressListener);
+  }
+
+  /**
+   * Prepare a sweep of the total stopping times of the seeds in {@code [lo, hi)}, which
+   * are read from a database if they're recorded in it, and otherwise recorded into it,
+   * such that a sweep that is interrupted, even by the process dying, can be resumed by
+   * running it again, which only computes the seeds that weren't recorded.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param database The database of total stopping times for the parameterisation to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param chunkSize The amount of seeds that a single task computes without splitting further.
+   * @param sink Receives the total stopping time of each seed.
+   * @param progressListener Receives updates on the progress after each chunk, or null.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  public Sweep(long lo, long hi, StoppingTimeDatabase database, int maxStoppingTime, int chunkSize, Sink sink, ProgressListener progressListener) throws IllegalArgumentException {
+    this(lo, hi, database.parameterisation(), null, database, maxStoppingTime, true, chunkSize, sink, null, progressListener);
+  }
+
+  /**
+   * Prepare a sweep, with or without a cache or database.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param cache The memo of total stopping times for the parameterisation, or null.
+   * @param database The database of total stopping times for the parameterisation, or null.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param chunkSize The amount of seeds that a single task computes without splitting further.
+   * @param sink Receives the stopping time of each seed, or null.
+   * @param recordSink Receives the statistics of each seed that sets a new record, or null.
+   * @param progressListener Receives updates on the progress after each chunk, or null.
+   * @throws IllegalArgumentException if hi is less than lo, the range is too large, or the chunk size is not positive.
+   */
+  private Sweep(long lo, long hi, Parameterisation params, StoppingTimeCache cache, StoppingTimeDatabase database, int maxStoppingTime, boolean totalStoppingTime, int chunkSize, Sink sink, RecordSink recordSink, ProgressListener progressListener) throws IllegalArgumentException {
+    if (hi < lo) {
+      throw new IllegalArgumentException("The upper bound of a sweep can't be less than the lower bound.");
+    } else if (hi - lo < 0) {
+      throw new IllegalArgumentException("The amount of seeds in a sweep can't exceed Long.MAX_VALUE.");
+    } else if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size of a sweep must be positive.");
+    }
+    this.lo = lo;
+    this.hi = hi;
+    this.params = params;
+    this.cache = cache;
+    this.database = database;
+    this.maxStoppingTime = maxStoppingTime;
+    this.totalStoppingTime = totalStoppingTime;
+    this.chunkSize = chunkSize;
+    this.sink = sink;
+    this.recordSink = recordSink;
+    this.recordFrontier = lo;
+    this.progressListener = progressListener;
+  }
+
+  /**
+   * Prepare a sweep of the stopping times of the seeds in {@code [lo, hi)}, with the
+   * default chunk size, and no progress updates.
+   *
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time.
+   * @param sink Receives the stopping time of each seed.
+   * @throws IllegalArgumentException if hi is less than lo.
+   */
+  public Sweep(long lo, long hi, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, Sink sink) throws IllegalArgumentException {
+    this(lo, hi, params, maxStoppingTime, totalStoppingTime, DEFAULT_CHUNK_SIZE, sink, null);
+  }
+
+  /**
+   * Run the sweep on the common ForkJoinPool, blocking until it completes or is cancelled.
+   *
+   * @return {@code true} if every seed was computed, {@code false} if it was cancelled.
+   */
+  public boolean run() {
+    return run(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Run the sweep on the given ForkJoinPool, blocking until it completes or is cancelled.
+   *
+   * @param pool The pool on which to run the sweep's tasks.
+   * @return {@code true} if every seed was computed, {@code false} if it was cancelled.
+   */
+  public boolean run(ForkJoinPool pool) {
+    pool.invoke(new SweepTask(lo, hi));
+    return !cancelled;
+  }
+
+  /** Cancel the sweep; chunks already started finish their current seed, and no more are started. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Whether the sweep has been cancelled.
+   *
+   * @return {@code true} if the sweep has been cancelled.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * The amount of seeds that have been computed so far.
+   *
+   * @return The amount of seeds computed.
+   */
+  public long completedSeeds() {
+    return completedSeeds.get();
+  }
+
+  /**
+   * The total amount of seeds in the sweep.
+   *
+   * @return The amount of seeds in {@code [lo, hi)}.
+   */
+  public long totalSeeds() {
+    return hi - lo;
+  }
+
+  /**
+   * Compute the stopping time of a single seed; the work done for each seed in a chunk.
+   *
+   * @param seed The seed whose stopping time to compute.
+   * @return The stopping time, or, in a special case, infinity, NaN or a negative.
+   */
+  double stoppingTime(long seed) {
+    if (cache != null) {
+      return cache.totalStoppingTime(seed, maxStoppingTime);
+    } else if (database != null) {
+      return database.totalStoppingTime(seed, maxStoppingTime);
+    }
+    return Collatz.primitiveStoppingTime(BigInteger.valueOf(seed), params, maxStoppingTime, totalStoppingTime, CycleDetection.BRENT);
+  }
+
+  /**
+   * Compute the statistics of the seeds of a chunk, keeping those that set a record within
+   * the chunk, which are the only seeds of the chunk that could set a record in the sweep.
+   *
+   * @param from The inclusive lower bound of the seeds of the chunk.
+   * @param to The exclusive upper bound of the seeds of the chunk.
+   * @return The seed at which the chunk stopped, which is {@code to} unless cancelled.
+   */
+  private long computeRecords(long from, long to) {
+    List<TrajectoryStatistics> candidates = new ArrayList<TrajectoryStatistics>();
+    int delay = -1;
+    BigInteger path = null;
+    long seed = from;
+    for (; seed < to && !cancelled; seed++) {
+      TrajectoryStatistics statistics = new TrajectoryStatistics(BigInteger.valueOf(seed), params, maxStoppingTime);
+      if (statistics.reachedOne() && (statistics.steps > delay || path == null || statistics.peak.compareTo(path) > 0)) {
+        delay = Math.max(delay, statistics.steps);
+        path = (path == null) ? statistics.peak : path.max(statistics.peak);
+        candidates.add(statistics);
+      }
+    }
+    mergeRecords(from, new ChunkRecords(seed, candidates));
+    return seed;
+  }
+
+  /**
+   * Merge a chunk's candidates, and those of any chunks that were waiting on it, into the
+   * records, if every seed below the chunk has been merged; otherwise leave it waiting.
+   *
+   * @param from The inclusive lower bound of the seeds of the chunk.
+   * @param chunk The candidates of the chunk.
+   */
+  private void mergeRecords(long from, ChunkRecords chunk) {
+    synchronized (pendingRecords) {
+      pendingRecords.put(from, chunk);
+      for (ChunkRecords next = pendingRecords.remove(recordFrontier); next != null; next = pendingRecords.remove(recordFrontier)) {
+        for (TrajectoryStatistics statistics : next.candidates) {
+          boolean delay = statistics.steps > delayRecord;
+          boolean path = pathRecord == null || statistics.peak.compareTo(pathRecord) > 0;
+          if (delay || path) {
+            delayRecord = Math.max(delayRecord, statistics.steps);
+            pathRecord = (pathRecord == null) ? statistics.peak : pathRecord.max(statistics.peak);
+            recordSink.accept(statistics, delay, path);
+          }
+        }
+        recordFrontier = next.to;
+      }
+    }
+  }
+
+  /** The candidate records of a completed chunk. */
+  private static final class ChunkRecords {
+
+    /** The exclusive upper bound of the seeds computed by the chunk. */
+    final long to;
+
+    /** The statistics of the seeds that set a record within the chunk, in order. */
+    final List<TrajectoryStatistics> candidates;
+
+    /**
+     * Create the candidate records of a chunk.
+     *
+     * @param to The exclusive upper bound of the seeds computed by the chunk.
+     * @param candidates The statistics of the seeds that set a record within the chunk.
+     */
+    ChunkRecords(long to, List<TrajectoryStatistics> candidates) {
+      this.to = to;
+      this.candidates = candidates;
+    }
+  }
+
+  /** Recursively splits a range of seeds in half, until it is small enough to compute. */
+  private final class SweepTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The inclusive lower bound of the seeds of this task. */
+    private final long from;
+
+    /** The exclusive upper bound of the seeds of this task. */
+    private final long to;
+
+    /**
+     * Create a task for the seeds in {@code [from, to)}.
+     *
+     * @param from The inclusive lower bound of the seeds.
+     * @param to The exclusive upper bound of the seeds.
+     */
+    SweepTask(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (cancelled) {
+        return;
+      }
+      if (to - from > chunkSize) {
+        long middle = from + (to - from) / 2;
+        invokeAll(new SweepTask(from, middle), new SweepTask(middle, to));
+        return;
+      }
+      long seed = from;
+      if (recordSink != null) {
+        seed = computeRecords(from, to);
+      } else {
+        for (; seed < to && !cancelled; seed++) {
+          sink.accept(seed, stoppingTime(seed));
+        }
+      }
+      long completed = completedSeeds.addAndGet(seed - from);
+      if (progressListener != null) {
+        progressListener.progress(completed, hi - lo);
+      }
+    }
+  }
+}
@@ -0,0 +1,670 @@
+package io.github.skenvy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.github.skenvy.Collatz.CycleDetection;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * A long running sweep of the stopping times of every seed in {@code [lo, hi)}, that
+ * periodically checkpoints its progress to a file, such that a sweep that is restarted,
+ * after being cancelled, or the process dying, continues from its last checkpoint. The
+ * range is split into fixed chunks, which are computed in parallel, on a ForkJoinPool;
+ * the frontier is the set of chunks that have completed, alongside the aggregates of their
+ * stopping times, and the stopping time records, the seeds whose stopping time exceeds that
+ * of every seed before them, found so far.
+ *
+ * <p>Checkpointing never stalls the workers. Each completed chunk hands its results to a
+ * lock-free queue, and a single background thread periodically drains the queue into the
+ * next immutable {@code Snapshot}, built aside from the last, which it then writes to a
+ * temporary file, and atomically moves over the checkpoint. A chunk that is interrupted is
+ * computed again in full, and a record is only confirmed once every chunk before it has
+ * completed; until then, the records within each chunk are kept as candidates.
+ */
+public final class SweepJob {
+
+  /** The default amount of seeds in each chunk, the unit of a checkpoint's progress. */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+  /** Identifies, and versions, the format of a checkpoint file. */
+  private static final int MAGIC = 0x434A4F31;
+
+  /** The checkpoint file. */
+  private final Path file;
+
+  /** The inclusive lower bound of the seeds. */
+  final long lo;
+
+  /** The exclusive upper bound of the seeds. */
+  final long hi;
+
+  /** The parameterisation (P,a,b) of the function to iterate. */
+  final Parameterisation params;
+
+  /** Maximum amount of times to iterate the function, per seed. */
+  final int maxStoppingTime;
+
+  /** Whether to find the "total" stopping time rather than the regular stopping time. */
+  final boolean totalStoppingTime;
+
+  /** The amount of seeds in each chunk. */
+  final int chunkSize;
+
+  /** The amount of chunks in the range. */
+  private final int chunks;
+
+  /** The results of completed chunks, yet to be taken into a snapshot. */
+  private final Queue<ChunkResult> completedChunks = new ConcurrentLinkedQueue<ChunkResult>();
+
+  /** The last snapshot taken; only replaced by the checkpoint. */
+  private volatile Snapshot snapshot;
+
+  /** Whether the job has been cancelled. */
+  private volatile boolean cancelled;
+
+  /** The aggregates, and records, of the chunks that have completed, as of a checkpoint. */
+  public static final class Snapshot {
+
+    /** The chunks that have completed. */
+    private final BitSet completed;
+
+    /** The amount of seeds in the completed chunks. */
+    final long completedSeeds;
+
+    /** The amount of those seeds with a finite, non-negative, stopping time. */
+    final long stoppedSeeds;
+
+    /** The sum of those finite, non-negative, stopping times. */
+    final long stoppingTimeSum;
+
+    /** The amount of those seeds whose stopping times exceeded the maximum. */
+    final long exceededSeeds;
+
+    /** The amount of those seeds that entered a cycle. */
+    final long cycledSeeds;
+
+    /** The amount of those seeds that stopped on zero. */
+    final long zeroSeeds;
+
+    /** The amount of chunks, from the first, that have all completed. */
+    final int confirmedChunks;
+
+    /** The greatest stopping time within the confirmed chunks, or -1 if there is none. */
+    private final int confirmedMaximum;
+
+    /** The seeds and stopping times of the records within the confirmed chunks, in order. */
+    private final long[] recordSeeds;
+    private final int[] recordStoppingTimes;
+
+    /** The candidate records of the completed chunks beyond the confirmed chunks. */
+    private final TreeMap<Integer, ChunkResult> candidates;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param completed The chunks that have completed.
+     * @param counts The completed, stopped, sum, exceeded, cycled and zero counts.
+     * @param confirmedChunks The amount of chunks, from the first, that have all completed.
+     * @param confirmedMaximum The greatest stopping time within the confirmed chunks.
+     * @param recordSeeds The seeds of the confirmed records.
+     * @param recordStoppingTimes The stopping times of the confirmed records.
+     * @param candidates The candidate records of the chunks beyond the confirmed chunks.
+     */
+    Snapshot(BitSet completed, long[] counts, int confirmedChunks, int confirmedMaximum, long[] recordSeeds, int[] recordStoppingTimes, TreeMap<Integer, ChunkResult> candidates) {
+      this.completed = completed;
+      this.completedSeeds = counts[0];
+      this.stoppedSeeds = counts[1];
+      this.stoppingTimeSum = counts[2];
+      this.exceededSeeds = counts[3];
+      this.cycledSeeds = counts[4];
+      this.zeroSeeds = counts[5];
+      this.confirmedChunks = confirmedChunks;
+      this.confirmedMaximum = confirmedMaximum;
+      this.recordSeeds = recordSeeds;
+      this.recordStoppingTimes = recordStoppingTimes;
+      this.candidates = candidates;
+    }
+
+    /**
+     * The amount of seeds in the completed chunks.
+     *
+     * @return The amount of completed seeds.
+     */
+    public long completedSeeds() {
+      return completedSeeds;
+    }
+
+    /**
+     * The amount of completed seeds with a finite, non-negative, stopping time.
+     *
+     * @return The amount of stopped seeds.
+     */
+    public long stoppedSeeds() {
+      return stoppedSeeds;
+    }
+
+    /**
+     * The sum of the finite, non-negative, stopping times of the completed seeds.
+     *
+     * @return The sum of the stopping times.
+     */
+    public long stoppingTimeSum() {
+      return stoppingTimeSum;
+    }
+
+    /**
+     * The amount of completed seeds whose stopping times exceeded the maximum.
+     *
+     * @return The amount of exceeding seeds.
+     */
+    public long exceededSeeds() {
+      return exceededSeeds;
+    }
+
+    /**
+     * The amount of completed seeds that entered a cycle.
+     *
+     * @return The amount of cycling seeds.
+     */
+    public long cycledSeeds() {
+      return cycledSeeds;
+    }
+
+    /**
+     * The amount of completed seeds that stopped on zero.
+     *
+     * @return The amount of seeds that stopped on zero.
+     */
+    public long zeroSeeds() {
+      return zeroSeeds;
+    }
+
+    /**
+     * Whether a chunk has completed.
+     *
+     * @param chunk The index of the chunk.
+     * @return {@code true} if the chunk has completed.
+     */
+    public boolean isChunkCompleted(int chunk) {
+      return completed.get(chunk);
+    }
+
+    /**
+     * The amount of chunks that have completed.
+     *
+     * @return The amount of completed chunks.
+     */
+    public int completedChunks() {
+      return completed.cardinality();
+    }
+
+    /**
+     * The seeds of the confirmed stopping time records, in order.
+     *
+     * @return The seeds of the records.
+     */
+    public long[] recordSeeds() {
+      return recordSeeds.clone();
+    }
+
+    /**
+     * The stopping times of the confirmed stopping time records, in the order of their seeds.
+     *
+     * @return The stopping times of the records.
+     */
+    public int[] recordStoppingTimes() {
+      return recordStoppingTimes.clone();
+    }
+  }
+
+  /** The results of a single completed chunk. */
+  private static final class ChunkResult {
+
+    /** The index of the chunk. */
+    final int chunk;
+
+    /** The completed, stopped, sum, exceeded, cycled and zero counts of the chunk. */
+    final long[] counts;
+
+    /** The seeds and stopping times of the records within the chunk, in order. */
+    final long[] candidateSeeds;
+    final int[] candidateStoppingTimes;
+
+    /**
+     * Create the results of a chunk.
+     *
+     * @param chunk The index of the chunk.
+     * @param counts The completed, stopped, sum, exceeded, cycled and zero counts.
+     * @param candidateSeeds The seeds of the records within the chunk.
+     * @param candidateStoppingTimes The stopping times of the records within the chunk.
+     */
+    ChunkResult(int chunk, long[] counts, long[] candidateSeeds, int[] candidateStoppingTimes) {
+      this.chunk = chunk;
+      this.counts = counts;
+      this.candidateSeeds = candidateSeeds;
+      this.candidateStoppingTimes = candidateStoppingTimes;
+    }
+  }
+
+  /**
+   * Create a job with an empty snapshot.
+   *
+   * @param file The checkpoint file.
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether to find the "total" stopping time.
+   * @param chunkSize The amount of seeds in each chunk.
+   * @throws IllegalArgumentException if hi is less than lo, the chunk size is not
+   *     positive, or there are too many chunks.
+   */
+  private SweepJob(Path file, long lo, long hi, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, int chunkSize) throws IllegalArgumentException {
+    if (hi < lo || hi - lo < 0) {
+      throw new IllegalArgumentException("The range of a sweep must be non-negative, and have at most Long.MAX_VALUE seeds.");
+    } else if (chunkSize < 1 || (hi - lo + chunkSize - 1) / chunkSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The chunk size of a sweep job must be positive, and split it into at most Integer.MAX_VALUE chunks.");
+    }
+    this.file = file;
+    this.lo = lo;
+    this.hi = hi;
+    this.params = params;
+    this.maxStoppingTime = maxStoppingTime;
+    this.totalStoppingTime = totalStoppingTime;
+    this.chunkSize = chunkSize;
+    this.chunks = (int) ((hi - lo + chunkSize - 1) / chunkSize);
+    this.snapshot = new Snapshot(new BitSet(), new long[6], 0, -1, new long[0], new int[0], new TreeMap<Integer, ChunkResult>());
+  }
+
+  /**
+   * Open a sweep job, which continues from its checkpoint file if it exists, or otherwise
+   * starts afresh, and creates it at its first checkpoint.
+   *
+   * @param file The checkpoint file.
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @param totalStoppingTime Whether or not to execute until the "total" stopping time
+   *     (number of iterations to obtain 1) rather than the regular stopping time (number
+   *     of iterations to reach a value less than the initial value).
+   * @param chunkSize The amount of seeds in each chunk.
+   * @return The job.
+   * @throws IllegalArgumentException if hi is less than lo, the chunk size is not positive,
+   *     there are too many chunks, or the checkpoint file is of a different sweep.
+   * @throws IOException if the checkpoint file exists, but can't be read.
+   */
+  public static SweepJob open(Path file, long lo, long hi, Parameterisation params, int maxStoppingTime, boolean totalStoppingTime, int chunkSize) throws IllegalArgumentException, IOException {
+    SweepJob job = new SweepJob(file, lo, hi, params, maxStoppingTime, totalStoppingTime, chunkSize);
+    if (Files.exists(file)) {
+      job.snapshot = job.read();
+    }
+    return job;
+  }
+
+  /**
+   * Open a sweep job of the total stopping times, with the default chunk size.
+   *
+   * @param file The checkpoint file.
+   * @param lo The inclusive lower bound of the seeds.
+   * @param hi The exclusive upper bound of the seeds.
+   * @param params The parameterisation (P,a,b) of the function to iterate.
+   * @param maxStoppingTime Maximum amount of times to iterate the function, per seed.
+   * @return The job.
+   * @throws IllegalArgumentException if hi is less than lo, there are too many chunks,
+   *     or the checkpoint file is of a different sweep.
+   * @throws IOException if the checkpoint file exists, but can't be read.
+   */
+  public static SweepJob open(Path file, long lo, long hi, Parameterisation params, int maxStoppingTime) throws IllegalArgumentException, IOException {
+    return open(file, lo, hi, params, maxStoppingTime, true, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * The snapshot of the last checkpoint.
+   *
+   * @return The snapshot.
+   */
+  public Snapshot snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * The amount of chunks in the range.
+   *
+   * @return The amount of chunks.
+   */
+  public int chunks() {
+    return chunks;
+  }
+
+  /**
+   * Whether every chunk had completed, as of the last checkpoint.
+   *
+   * @return {@code true} if the sweep is complete.
+   */
+  public boolean isComplete() {
+    return snapshot.confirmedChunks == chunks;
+  }
+
+  /** Cancel the job; chunks already started finish, and no more are started. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Run the remaining chunks on the given pool, checkpointing at a fixed delay, and once
+   * more when the chunks have all completed, or the job was cancelled.
+   *
+   * @param pool The pool on which to compute the chunks.
+   * @param checkpointInterval The delay between the end of one checkpoint and the next.
+   * @param unit The unit of the interval.
+   * @return {@code true} if every chunk has completed.
+   * @throws IOException if a checkpoint couldn't be written.
+   */
+  public boolean run(ForkJoinPool pool, long checkpointInterval, TimeUnit unit) throws IOException {
+    AtomicReference<IOException> failure = new AtomicReference<IOException>();
+    ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sweep-job-checkpoint");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      snapshotter.scheduleWithFixedDelay(() -> {
+        try {
+          checkpoint();
+        } catch (IOException e) {
+          failure.compareAndSet(null, e);
+        }
+      }, checkpointInterval, checkpointInterval, unit);
+      BitSet skip = (BitSet) snapshot.completed.clone();
+      pool.invoke(new ChunkTask(0, chunks, skip));
+    } finally {
+      // Let a checkpoint that is being written finish, rather than interrupting it.
+      snapshotter.shutdown();
+      try {
+        snapshotter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    checkpoint();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return isComplete();
+  }
+
+  /**
+   * Run the remaining chunks on the common pool, checkpointing every minute.
+   *
+   * @return {@code true} if every chunk has completed.
+   * @throws IOException if a checkpoint couldn't be written.
+   */
+  public boolean run() throws IOException {
+    return run(ForkJoinPool.commonPool(), 1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Take the results of every chunk that has completed since the last checkpoint into a
+   * new snapshot, and write it over the checkpoint file.
+   *
+   * @throws IOException if the checkpoint couldn't be written.
+   */
+  public synchronized void checkpoint() throws IOException {
+    Snapshot previous = snapshot;
+    BitSet completed = (BitSet) previous.completed.clone();
+    long[] counts = {previous.completedSeeds, previous.stoppedSeeds, previous.stoppingTimeSum, previous.exceededSeeds, previous.cycledSeeds, previous.zeroSeeds};
+    TreeMap<Integer, ChunkResult> candidates = new TreeMap<Integer, ChunkResult>(previous.candidates);
+    for (ChunkResult result = completedChunks.poll(); result != null; result = completedChunks.poll()) {
+      if (!completed.get(result.chunk)) {
+        completed.set(result.chunk);
+        for (int k = 0; k < counts.length; k++) {
+          counts[k] += result.counts[k];
+        }
+        candidates.put(result.chunk, result);
+      }
+    }
+    // Confirm the candidates of every chunk that now extends the confirmed chunks.
+    int confirmedChunks = previous.confirmedChunks;
+    int maximum = previous.confirmedMaximum;
+    long[] recordSeeds = previous.recordSeeds;
+    int[] recordStoppingTimes = previous.recordStoppingTimes;
+    int records = recordSeeds.length;
+    for (ChunkResult result = candidates.remove(confirmedChunks); result != null; result = candidates.remove(++confirmedChunks)) {
+      for (int k = 0; k < result.candidateSeeds.length; k++) {
+        if (result.candidateStoppingTimes[k] > maximum) {
+          if (records == recordSeeds.length) {
+            recordSeeds = Arrays.copyOf(recordSeeds, records * 2 + 1);
+            recordStoppingTimes = Arrays.copyOf(recordStoppingTimes, records * 2 + 1);
+          }
+          maximum = result.candidateStoppingTimes[k];
+          recordSeeds[records] = result.candidateSeeds[k];
+          recordStoppingTimes[records++] = maximum;
+        }
+      }
+    }
+    Snapshot next = new Snapshot(completed, counts, confirmedChunks, maximum, Arrays.copyOf(recordSeeds, records), Arrays.copyOf(recordStoppingTimes, records), candidates);
+    write(next);
+    snapshot = next;
+  }
+
+  /**
+   * Write a snapshot to a temporary file, then move it over the checkpoint file.
+   *
+   * @param next The snapshot to write.
+   * @throws IOException if the snapshot couldn't be written, or moved.
+   */
+  private void write(Snapshot next) throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeInt(MAGIC);
+      writeDescription(out);
+      for (long count : new long[]{next.completedSeeds, next.stoppedSeeds, next.stoppingTimeSum, next.exceededSeeds, next.cycledSeeds, next.zeroSeeds}) {
+        out.writeLong(count);
+      }
+      long[] completed = next.completed.toLongArray();
+      out.writeInt(completed.length);
+      for (long word : completed) {
+        out.writeLong(word);
+      }
+      out.writeInt(next.confirmedChunks);
+      out.writeInt(next.confirmedMaximum);
+      writeRecords(out, next.recordSeeds, next.recordStoppingTimes);
+      out.writeInt(next.candidates.size());
+      for (Map.Entry<Integer, ChunkResult> candidate : next.candidates.entrySet()) {
+        out.writeInt(candidate.getKey());
+        writeRecords(out, candidate.getValue().candidateSeeds, candidate.getValue().candidateStoppingTimes);
+      }
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Write the description of the sweep, which a checkpoint must match to be continued.
+   *
+   * @param out The stream of the checkpoint.
+   * @throws IOException if the description couldn't be written.
+   */
+  private void writeDescription(DataOutputStream out) throws IOException {
+    out.writeLong(lo);
+    out.writeLong(hi);
+    out.writeUTF(params.modulus.toString());
+    out.writeUTF(params.multiplicand.toString());
+    out.writeUTF(params.increment.toString());
+    out.writeInt(maxStoppingTime);
+    out.writeBoolean(totalStoppingTime);
+    out.writeInt(chunkSize);
+  }
+
+  /**
+   * Write a list of records.
+   *
+   * @param out The stream of the checkpoint.
+   * @param seeds The seeds of the records.
+   * @param stoppingTimes The stopping times of the records.
+   * @throws IOException if the records couldn't be written.
+   */
+  private static void writeRecords(DataOutputStream out, long[] seeds, int[] stoppingTimes) throws IOException {
+    out.writeInt(seeds.length);
+    for (int k = 0; k < seeds.length; k++) {
+      out.writeLong(seeds[k]);
+      out.writeInt(stoppingTimes[k]);
+    }
+  }
+
+  /**
+   * Read the snapshot of the checkpoint file.
+   *
+   * @return The snapshot.
+   * @throws IllegalArgumentException if the checkpoint is of a different sweep.
+   * @throws IOException if the checkpoint couldn't be read.
+   */
+  private Snapshot read() throws IllegalArgumentException, IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("The file " + file + " is not the checkpoint of a sweep job.");
+      }
+      if (in.readLong() != lo || in.readLong() != hi || !new BigInteger(in.readUTF()).equals(params.modulus)
+          || !new BigInteger(in.readUTF()).equals(params.multiplicand) || !new BigInteger(in.readUTF()).equals(params.increment)
+          || in.readInt() != maxStoppingTime || in.readBoolean() != totalStoppingTime || in.readInt() != chunkSize) {
+        throw new IllegalArgumentException("The checkpoint " + file + " is of a different sweep.");
+      }
+      long[] counts = new long[6];
+      for (int k = 0; k < counts.length; k++) {
+        counts[k] = in.readLong();
+      }
+      long[] completed = new long[in.readInt()];
+      for (int k = 0; k < completed.length; k++) {
+        completed[k] = in.readLong();
+      }
+      int confirmedChunks = in.readInt();
+      int confirmedMaximum = in.readInt();
+      ChunkResult records = readRecords(in, -1);
+      TreeMap<Integer, ChunkResult> candidates = new TreeMap<Integer, ChunkResult>();
+      for (int k = in.readInt(); k > 0; k--) {
+        int chunk = in.readInt();
+        candidates.put(chunk, readRecords(in, chunk));
+      }
+      return new Snapshot(BitSet.valueOf(completed), counts, confirmedChunks, confirmedMaximum, records.candidateSeeds, records.candidateStoppingTimes, candidates);
+    }
+  }
+
+  /**
+   * Read a list of records, as the candidates of a chunk.
+   *
+   * @param in The stream of the checkpoint.
+   * @param chunk The index of the chunk.
+   * @return The chunk's records, without its counts.
+   * @throws IOException if the records couldn't be read.
+   */
+  private static ChunkResult readRecords(DataInputStream in, int chunk) throws IOException {
+    long[] seeds = new long[in.readInt()];
+    int[] stoppingTimes = new int[seeds.length];
+    for (int k = 0; k < seeds.length; k++) {
+      seeds[k] = in.readLong();
+      stoppingTimes[k] = in.readInt();
+    }
+    return new ChunkResult(chunk, null, seeds, stoppingTimes);
+  }
+
+  /**
+   * Compute a chunk, and hand its results to the next checkpoint.
+   *
+   * @param chunk The index of the chunk.
+   */
+  private void computeChunk(int chunk) {
+    long from = lo + (long) chunk * chunkSize;
+    long to = Math.min(hi, from + chunkSize);
+    long[] counts = new long[6];
+    long[] candidateSeeds = new long[8];
+    int[] candidateStoppingTimes = new int[8];
+    int candidates = 0;
+    int maximum = -1;
+    for (long seed = from; seed < to; seed++) {
+      double stoppingTime = Collatz.primitiveStoppingTime(BigInteger.valueOf(seed), params, maxStoppingTime, totalStoppingTime, CycleDetection.BRENT);
+      if (Double.isNaN(stoppingTime)) {
+        counts[3]++;
+      } else if (stoppingTime == Double.POSITIVE_INFINITY) {
+        counts[4]++;
+      } else if (stoppingTime < 0 || seed == 0) {
+        // A zero stop is the negated amount of steps to 0, which is 0 for the seed 0 itself.
+        counts[5]++;
+      } else {
+        counts[1]++;
+        counts[2] += (long) stoppingTime;
+        if ((int) stoppingTime > maximum) {
+          if (candidates == candidateSeeds.length) {
+            candidateSeeds = Arrays.copyOf(candidateSeeds, candidates * 2);
+            candidateStoppingTimes = Arrays.copyOf(candidateStoppingTimes, candidates * 2);
+          }
+          maximum = (int) stoppingTime;
+          candidateSeeds[candidates] = seed;
+          candidateStoppingTimes[candidates++] = maximum;
+        }
+      }
+    }
+    counts[0] = to - from;
+    completedChunks.add(new ChunkResult(chunk, counts, Arrays.copyOf(candidateSeeds, candidates), Arrays.copyOf(candidateStoppingTimes, candidates)));
+  }
+
+  /** Recursively splits a range of chunks in half, until it is a single chunk. */
+  private final class ChunkTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The inclusive lower bound of the chunks of this task. */
+    private final int from;
+
+    /** The exclusive upper bound of the chunks of this task. */
+    private final int to;
+
+    /** The chunks that had completed before the job was run. */
+    private final transient BitSet skip;
+
+    /**
+     * Create a task for the chunks in {@code [from, to)}.
+     *
+     * @param from The inclusive lower bound of the chunks.
+     * @param to The exclusive upper bound of the chunks.
+     * @param skip The chunks that had completed before the job was run.
+     */
+    ChunkTask(int from, int to, BitSet skip) {
+      this.from = from;
+      this.to = to;
+      this.skip = skip;
+    }
+
+    @Override
+    protected void compute() {
+      if (cancelled) {
+        return;
+      }
+      if (to - from > 1) {
+        int middle = from + (to - from) / 2;
+        invokeAll(new ChunkTask(from, middle, skip), new ChunkTask(middle, to, skip));
+      } else if (to > from && !skip.get(from)) {
+        computeChunk(from);
+      }
+    }
+  }
+}
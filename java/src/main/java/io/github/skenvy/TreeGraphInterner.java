@@ -0,0 +1,157 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.TreeGraph;
+import io.github.skenvy.Collatz.TreeGraphNode;
+
+/**
+ * Hash-conses the nodes of tree graphs, such that every subtree that it has interned is
+ * held once, however many trees it appears in. Subtrees are interned from the leaves up,
+ * so two nodes are the same subtree exactly when they have the same value and sequence
+ * state and their children are the same instances, which is a constant time check. The
+ * trees of an interner can then be compared, or deduplicated, largely by reference;
+ * {@code subTreeEquals}, and so the equality of {@code TreeGraph}'s, doesn't walk any pair
+ * of subtrees that are the same instance. The interner is safe to share between threads,
+ * and holds every subtree it has interned until it is cleared.
+ */
+public final class TreeGraphInterner {
+
+  /** The interned nodes, keyed by themselves. */
+  private final Map<NodeKey, TreeGraphNode> nodes = new ConcurrentHashMap<NodeKey, TreeGraphNode>();
+
+  /**
+   * Returns the interned directed tree graph of the reverse function values up to a
+   * maximum nesting of maxOrbitDistance, with the initialValue as the root.
+   *
+   * @param initialValue The root value of the directed tree graph.
+   * @param maxOrbitDistance Maximum amount of times to iterate the reverse function.
+   * @param params The parameterisation (P,a,b) of the function to reverse.
+   * @return the entire tree graph up to some orbit distance, for the given parameters.
+   */
+  public TreeGraph treeGraph(BigInteger initialValue, int maxOrbitDistance, Parameterisation params) {
+    CompactTreeGraph tree = new CompactTreeGraph(initialValue, maxOrbitDistance, params);
+    // Every child is indexed after its parent, so is interned before it.
+    TreeGraphNode[] interned = new TreeGraphNode[tree.size()];
+    for (int k = tree.size() - 1; k >= CompactTreeGraph.ROOT; k--) {
+      TreeGraphNode preNDivP = (tree.preNDivP(k) == CompactTreeGraph.NO_NODE) ? null : interned[tree.preNDivP(k)];
+      TreeGraphNode preANplusB = (tree.preANplusB(k) == CompactTreeGraph.NO_NODE) ? null : interned[tree.preANplusB(k)];
+      interned[k] = intern(tree.value(k), tree.terminalSequenceState(k), preNDivP, preANplusB, null);
+    }
+    return new TreeGraph(interned[CompactTreeGraph.ROOT]);
+  }
+
+  /**
+   * Intern every subtree of a tree graph.
+   *
+   * @param tree The tree graph to intern.
+   * @return The interned tree graph, which is equal to the tree graph.
+   */
+  public TreeGraph intern(TreeGraph tree) {
+    return new TreeGraph(intern(tree.root));
+  }
+
+  /**
+   * Intern every subtree of a node.
+   *
+   * @param node The root of the subtree to intern.
+   * @return The interned node, whose subtree is equal to that of the node.
+   */
+  public TreeGraphNode intern(TreeGraphNode node) {
+    // The subtree is interned from the last node, in pre-order, to the first.
+    List<TreeGraphNode> preOrder = new ArrayList<TreeGraphNode>();
+    Deque<TreeGraphNode> stack = new ArrayDeque<TreeGraphNode>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      TreeGraphNode next = stack.pop();
+      preOrder.add(next);
+      if (next.preANplusBNode != null) {
+        stack.push(next.preANplusBNode);
+      }
+      if (next.preNDivPNode != null) {
+        stack.push(next.preNDivPNode);
+      }
+    }
+    Map<TreeGraphNode, TreeGraphNode> interned = new IdentityHashMap<TreeGraphNode, TreeGraphNode>();
+    for (int k = preOrder.size() - 1; k >= 0; k--) {
+      TreeGraphNode next = preOrder.get(k);
+      TreeGraphNode preNDivP = (next.preNDivPNode == null) ? null : interned.get(next.preNDivPNode);
+      TreeGraphNode preANplusB = (next.preANplusBNode == null) ? null : interned.get(next.preANplusBNode);
+      interned.put(next, intern(next.nodeValue, next.terminalSequenceState, preNDivP, preANplusB, next));
+    }
+    return interned.get(node);
+  }
+
+  /**
+   * Intern a single node, whose children are already interned.
+   *
+   * @param nodeValue The value of the node.
+   * @param terminalSequenceState The sequence state of the node.
+   * @param preNDivP The interned "Pre N/P" child, or null.
+   * @param preANplusB The interned "Pre aN+b" child, or null.
+   * @param candidate An existing node with the same value and state, to intern if its
+   *     children are the interned children, or null.
+   * @return The interned node.
+   */
+  private TreeGraphNode intern(BigInteger nodeValue, SequenceState terminalSequenceState, TreeGraphNode preNDivP, TreeGraphNode preANplusB, TreeGraphNode candidate) {
+    if (candidate == null || candidate.preNDivPNode != preNDivP || candidate.preANplusBNode != preANplusB) {
+      candidate = new TreeGraphNode(nodeValue, terminalSequenceState, preNDivP, preANplusB);
+    }
+    TreeGraphNode existing = nodes.putIfAbsent(new NodeKey(candidate), candidate);
+    return (existing == null) ? candidate : existing;
+  }
+
+  /**
+   * The amount of distinct subtrees interned.
+   *
+   * @return The amount of interned nodes.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /** Forget every interned subtree. */
+  public void clear() {
+    nodes.clear();
+  }
+
+  /** Keys an interned node by its value, sequence state, and the instances of its children. */
+  private static final class NodeKey {
+
+    /** The node. */
+    private final TreeGraphNode node;
+
+    /**
+     * Key a node whose children are interned.
+     *
+     * @param node The node.
+     */
+    NodeKey(TreeGraphNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public int hashCode() {
+      return node.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof NodeKey)) {
+        return false;
+      }
+      TreeGraphNode other = ((NodeKey) obj).node;
+      return node.nodeValue.equals(other.nodeValue) && node.terminalSequenceState == other.terminalSequenceState
+          && node.preNDivPNode == other.preNDivPNode && node.preANplusBNode == other.preANplusBNode;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -92,6 +93,165 @@ public class CollatzTest {
     assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_A.getErrorMessage()));
   }
 
+  @Test
+  public void testFunction_PrimitiveLongs() {
+    // The primitive fast path should agree with the BigInteger function.
+    for (long n = -100; n <= 100; n++) {
+      assertEquals(wrapFunction(n), Collatz.function(n));
+      assertEquals(wrapFunction(n, 5, 2, 3), Collatz.function(n, 5, 2, 3));
+      assertEquals(wrapFunction(n, -3, -2, -5), Collatz.function(n, -3, -2, -5));
+    }
+    assertEquals(Long.MIN_VALUE / 2, Collatz.function(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void testFunction_PrimitiveLongsOverflow() {
+    // The primitive function throws on overflow, while the BigInteger function falls back.
+    assertThrows(ArithmeticException.class, () -> {
+      Collatz.function(Long.MAX_VALUE);
+    });
+    assertThrows(ArithmeticException.class, () -> {
+      Collatz.function(Long.MIN_VALUE, -1, 3, 1);
+    });
+    BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+    assertEquals(max.multiply(BigInteger.valueOf(3)).add(BigInteger.ONE), Collatz.function(max));
+    BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+    assertEquals(min.negate(), Collatz.function(min, BigInteger.valueOf(-1), Collatz.DEFAULT_A, Collatz.DEFAULT_B));
+  }
+
+  @Test
+  public void testFunction_PrimitiveLongsAssertSaneParameterisation() {
+    Exception exception;
+    exception = assertThrows(Collatz.FailedSaneParameterCheck.class, () -> {
+      Collatz.function(1, 0, 2, 3);
+    });
+    assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_P.getErrorMessage()));
+    exception = assertThrows(Collatz.FailedSaneParameterCheck.class, () -> {
+      Collatz.function(1, 1, 0, 3);
+    });
+    assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_A.getErrorMessage()));
+  }
+
+  private static Collatz.Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Collatz.Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  @Test
+  public void testParameterisation_SpecialisedFunctionsMatchGenericFunction() {
+    // Powers of two, their negatives, unitary P, a of 3, and otherwise generic parameters.
+    long[][] parameterisations = new long[][]{{2, 3, 1}, {4, 3, -1}, {-2, 5, 1}, {-8, -3, 7}, {1, 3, 1}, {-1, 3, 1}, {5, 2, 3}, {-3, -2, -5}, {17, 2, -6}};
+    long[] extremes = new long[]{Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE / 3, Long.MIN_VALUE / 3, Long.MAX_VALUE / 5 + 1, Long.MIN_VALUE / 5 - 1};
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      BigInteger p = BigInteger.valueOf(pab[0]);
+      BigInteger a = BigInteger.valueOf(pab[1]);
+      BigInteger b = BigInteger.valueOf(pab[2]);
+      for (long n = -300; n <= 300; n++) {
+        BigInteger bn = BigInteger.valueOf(n);
+        BigInteger expected = bn.remainder(p).signum() == 0 ? bn.divide(p) : bn.multiply(a).add(b);
+        assertEquals(expected, params.function(bn));
+        assertEquals(expected.longValue(), params.function(n));
+        assertArrayEquals(Collatz.reverseFunction(bn, p, a, b), params.reverseFunction(bn));
+      }
+      for (long n : extremes) {
+        BigInteger bn = BigInteger.valueOf(n);
+        BigInteger expected = bn.remainder(p).signum() == 0 ? bn.divide(p) : bn.multiply(a).add(b);
+        assertEquals(expected, params.function(bn));
+        BigInteger big = bn.shiftLeft(70).add(bn);
+        assertEquals(big.remainder(p).signum() == 0 ? big.divide(p) : big.multiply(a).add(b), params.function(big));
+        if (expected.bitLength() < 64) {
+          assertEquals(expected.longValue(), params.function(n));
+        } else {
+          assertThrows(ArithmeticException.class, () -> {
+            params.function(n);
+          });
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParameterisation_BatchesMatchSingleApplications() {
+    long[][] parameterisations = new long[][]{{2, 3, 1}, {4, 3, -1}, {-2, 5, 1}, {1, 3, 1}, {-1, 3, 1}, {5, 2, 3}, {-3, -2, -5}, {-1, -1, Long.MIN_VALUE + 1}};
+    long[] in = new long[700];
+    for (int k = 0; k < 601; k++) {
+      in[k] = k - 300;
+    }
+    long[] extremes = new long[]{Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE / 3, Long.MIN_VALUE / 3, 1L << 62, -(1L << 62)};
+    System.arraycopy(extremes, 0, in, 601, extremes.length);
+    List<Collatz.Parameterisation> all = new ArrayList<Collatz.Parameterisation>();
+    for (long[] pab : parameterisations) {
+      all.add(wrapParameterisation(pab[0], pab[1], pab[2]));
+    }
+    all.add(new Collatz.Parameterisation(BigInteger.valueOf(2), BigInteger.ONE.shiftLeft(70), BigInteger.ONE));
+    for (Collatz.Parameterisation params : all) {
+      long[] out = new long[in.length];
+      long[] overflowed = Collatz.function(in, out, params);
+      long[] out0 = new long[in.length];
+      long[] out1 = new long[in.length];
+      byte[] count = new byte[in.length];
+      long[] reverseOverflowed = Collatz.reverseFunction(in, out0, out1, count, params);
+      assertEquals((in.length + 63) / 64, overflowed.length);
+      for (int k = 0; k < in.length; k++) {
+        BigInteger expected = params.function(BigInteger.valueOf(in[k]));
+        boolean overflows = expected.bitLength() >= 64;
+        assertEquals(overflows, (overflowed[k >>> 6] & (1L << k)) != 0);
+        assertEquals(overflows ? 0 : expected.longValue(), out[k]);
+        BigInteger[] reverses = params.reverseFunction(BigInteger.valueOf(in[k]));
+        boolean reversesOverflow = false;
+        for (BigInteger reverse : reverses) {
+          reversesOverflow |= reverse.bitLength() >= 64;
+        }
+        assertEquals(reversesOverflow, (reverseOverflowed[k >>> 6] & (1L << k)) != 0);
+        if (reversesOverflow) {
+          assertEquals(0, count[k]);
+        } else {
+          assertEquals(reverses.length, count[k]);
+          assertEquals(reverses[0].longValue(), out0[k]);
+          assertEquals((reverses.length == 2) ? reverses[1].longValue() : 0, out1[k]);
+        }
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.function(in, new long[1], Collatz.DEFAULT_PARAMETERISATION);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.reverseFunction(in, new long[in.length], new long[in.length], new byte[1], Collatz.DEFAULT_PARAMETERISATION);
+    });
+  }
+
+  @Test
+  public void testParameterisation_AssertSaneParameterisation() {
+    // The sanity check happens once, when the parameterisation is created.
+    Exception exception;
+    exception = assertThrows(Collatz.FailedSaneParameterCheck.class, () -> {
+      wrapParameterisation(0, 2, 3);
+    });
+    assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_P.getErrorMessage()));
+    exception = assertThrows(Collatz.FailedSaneParameterCheck.class, () -> {
+      wrapParameterisation(1, 0, 3);
+    });
+    assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_A.getErrorMessage()));
+  }
+
+  @Test
+  public void testParameterisation_AcceptedByHailstoneStoppingTimeAndTreeGraph() {
+    Collatz.Parameterisation params = wrapParameterisation(5, 2, 3);
+    BigInteger p = BigInteger.valueOf(5);
+    BigInteger a = BigInteger.valueOf(2);
+    BigInteger b = BigInteger.valueOf(3);
+    for (long n = -50; n <= 50; n++) {
+      BigInteger bn = BigInteger.valueOf(n);
+      HailstoneSequence expected = Collatz.hailstoneSequence(bn, p, a, b, 100, true);
+      HailstoneSequence actual = Collatz.hailstoneSequence(bn, params, 100, true);
+      assertArrayEquals(expected.values, actual.values);
+      assertEquals(expected.terminalCondition, actual.terminalCondition);
+      assertEquals(expected.terminalStatus, actual.terminalStatus);
+      assertEquals(Collatz.stoppingTime(bn, p, a, b, 100, false), Collatz.stoppingTime(bn, params, 100, false));
+    }
+    assertEquals(Collatz.treeGraph(BigInteger.ONE, 5, p, a, b), Collatz.treeGraph(BigInteger.ONE, 5, params));
+  }
+
   private static long[] wrapBigIntArr(BigInteger[] revs) {
     long[] wraps = new long[revs.length];
     for (int k = 0; k < wraps.length; k++) {
@@ -302,6 +462,24 @@ public class CollatzTest {
     assertHailstoneSequence(hail, new long[]{3, -3, 3}, Collatz.SequenceState.CYCLE_LENGTH, 2);
   }
 
+  @Test
+  public void testHailstoneSequence_OverflowsLong() {
+    // Values that overflow a long fall back to BigInteger's, and return to longs after.
+    BigInteger three = BigInteger.valueOf(3);
+    BigInteger two = BigInteger.valueOf(2);
+    ArrayList<BigInteger> expected = new ArrayList<BigInteger>();
+    BigInteger n = BigInteger.valueOf(Long.MAX_VALUE);
+    expected.add(n);
+    while (!n.equals(BigInteger.ONE)) {
+      n = n.testBit(0) ? n.multiply(three).add(BigInteger.ONE) : n.divide(two);
+      expected.add(n);
+    }
+    HailstoneSequence hail = Collatz.hailstoneSequence(BigInteger.valueOf(Long.MAX_VALUE), 10000);
+    assertArrayEquals(expected.toArray(BigInteger[]::new), hail.values);
+    assertEquals(Collatz.SequenceState.TOTAL_STOPPING_TIME, hail.terminalCondition);
+    assertEquals(expected.size() - 1, hail.terminalStatus);
+  }
+
   @Test
   public void testHailstoneSequence_AssertSaneParameterisation() {
     // Set P and a to 0 to assert on __assert_sane_parameterisation
@@ -320,6 +498,58 @@ public class CollatzTest {
     assertTrue(exception.getMessage().contains(Collatz.SaneParameterErrMsg.SANE_PARAMS_A.getErrorMessage()));
   }
 
+  @Test
+  public void testHailstoneIterator_MatchesHailstoneSequence() {
+    // With hashed detection the iterator yields exactly the hailstone sequence's values,
+    // and with either detection, the same terminal condition and status once exhausted.
+    long[][] parameterisations = new long[][]{{2, 3, 1}, {5, 2, 3}, {-3, -2, -5}, {1, 3, 1}, {-1, 3, 1}, {2, 3, -9}};
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (long n = -60; n <= 60; n++) {
+        for (int max : new int[]{1, 3, 10, 1000}) {
+          BigInteger bn = BigInteger.valueOf(n);
+          HailstoneSequence hail = Collatz.hailstoneSequence(bn, params, max, true);
+          Collatz.HailstoneIterator hashed = Collatz.hailstoneIterator(bn, params, max, true, Collatz.CycleDetection.HASHED);
+          if (n != 0 && n != 1) {
+            assertEquals(null, hashed.terminalCondition());
+          }
+          assertArrayEquals(hail.values, hashed.stream().toArray(BigInteger[]::new));
+          assertEquals(hail.terminalCondition, hashed.terminalCondition());
+          assertEquals(hail.terminalStatus, hashed.terminalStatus());
+          Collatz.HailstoneIterator brent = Collatz.hailstoneIterator(bn, params, max, true, Collatz.CycleDetection.BRENT);
+          assertEquals(hail.terminalCondition, brent.exhaust());
+          assertEquals(hail.terminalStatus, brent.terminalStatus());
+          assertTrue(!brent.hasNext());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testHailstoneIterator_LongStream() {
+    // 27 peaks at 9232 after 77 steps, and totally stops after 111.
+    Collatz.HailstoneIterator hail = Collatz.hailstoneIterator(BigInteger.valueOf(27), 1000);
+    assertEquals(9232, hail.longStream().max().getAsLong());
+    assertEquals(Collatz.SequenceState.TOTAL_STOPPING_TIME, hail.terminalCondition());
+    assertEquals(111, hail.terminalStatus());
+    // Values that overflow a long can't be yielded as longs.
+    Collatz.HailstoneIterator overflow = Collatz.hailstoneIterator(BigInteger.valueOf(Long.MAX_VALUE), 1000);
+    assertEquals(Long.MAX_VALUE, overflow.nextLong());
+    assertThrows(ArithmeticException.class, () -> {
+      overflow.nextLong();
+    });
+  }
+
+  @Test
+  public void testHailstoneIterator_Exhausted() {
+    Collatz.HailstoneIterator hail = Collatz.hailstoneIterator(BigInteger.ONE, 1000);
+    assertEquals(BigInteger.ONE, hail.next());
+    assertTrue(!hail.hasNext());
+    assertThrows(java.util.NoSuchElementException.class, () -> {
+      hail.next();
+    });
+  }
+
   private static Double wrapStoppingTime(long n) {
     return Collatz.stoppingTime(BigInteger.valueOf(n));
   }
@@ -408,6 +638,260 @@ public class CollatzTest {
     }
   }
 
+  /**
+   * A reference stopping time, computed the way the original hailstone sequence did,
+   * by checking each new value against a list of every previous value.
+   */
+  private static Double referenceStoppingTime(long n, long p, long a, long b, int maxStoppingTime, boolean totalStoppingTime) {
+    BigInteger initial = BigInteger.valueOf(n);
+    if (n == 0) {
+      return 0.0;
+    } else if (n == 1) {
+      return 0.0;
+    }
+    List<BigInteger> previous = new ArrayList<BigInteger>();
+    previous.add(initial);
+    BigInteger next = initial;
+    for (int k = 1; k <= Math.max(maxStoppingTime, 1); k++) {
+      next = Collatz.function(next, BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+      boolean terminus = totalStoppingTime ? next.equals(BigInteger.ONE)
+          : (n > 0 ? next.compareTo(initial) < 0 && next.signum() > 0 : next.compareTo(initial) > 0 && next.signum() < 0);
+      if (terminus) {
+        return (double) k;
+      } else if (previous.contains(next)) {
+        return Double.POSITIVE_INFINITY;
+      } else if (next.signum() == 0) {
+        return (double) -k;
+      }
+      previous.add(next);
+    }
+    return null;
+  }
+
+  @Test
+  public void testStoppingTime_CycleDetectionModesAgree() {
+    // Brent's cycle detection should yield exactly the same as hashing, and as the
+    // original list search, including where the maximum stopping time cuts a cycle short.
+    long[][] parameterisations = new long[][]{{2, 3, 1}, {2, 3, -1}, {2, 5, 1}, {5, 2, 3}, {-3, -2, -5}, {1, 3, 1}, {-1, 3, 1}, {2, 3, -9}};
+    int[] maxStoppingTimes = new int[]{-1, 1, 2, 3, 4, 5, 7, 8, 13, 21, 100};
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (long n = -60; n <= 60; n++) {
+        for (int max : maxStoppingTimes) {
+          for (boolean total : new boolean[]{true, false}) {
+            Double expected = referenceStoppingTime(n, pab[0], pab[1], pab[2], max, total);
+            BigInteger bn = BigInteger.valueOf(n);
+            assertEquals(expected, Collatz.stoppingTime(bn, params, max, total, Collatz.CycleDetection.HASHED));
+            assertEquals(expected, Collatz.stoppingTime(bn, params, max, total, Collatz.CycleDetection.BRENT));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStoppingTime_LongTrajectoryCycleDetection() {
+    // A seed with a long trajectory, large enough that quadratic detection would be slow.
+    BigInteger seed = BigInteger.ONE.shiftLeft(4000).subtract(BigInteger.ONE);
+    Double hashed = Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 100000, true, Collatz.CycleDetection.HASHED);
+    Double brent = Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 100000, true, Collatz.CycleDetection.BRENT);
+    assertEquals(hashed, brent);
+    assertEquals(Double.valueOf(Collatz.hailstoneSequence(seed, 100000).terminalStatus), hashed);
+  }
+
+  @Test
+  public void testTrajectoryStatistics_MatchesHailstoneSequences() {
+    // The single pass statistics should match those scanned from the materialised values,
+    // including for values beyond a long, and trajectories that cycle, or exceed the maximum.
+    final long[][] parameterisations = new long[][]{{2, 3, 1}, {2, 3, -1}, {5, 2, 3}, {-3, -2, -5}, {-1, 3, 1}, {2, 3, -9}};
+    List<BigInteger> seeds = new ArrayList<BigInteger>();
+    for (long n = -60; n <= 60; n++) {
+      seeds.add(BigInteger.valueOf(n));
+    }
+    seeds.add(BigInteger.ONE.shiftLeft(70).subtract(BigInteger.ONE));
+    seeds.add(BigInteger.ONE.shiftLeft(70).negate().add(BigInteger.ONE));
+    seeds.add(BigInteger.valueOf(Long.MAX_VALUE));
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (BigInteger seed : seeds) {
+        for (int max : new int[]{5, 1000}) {
+          HailstoneSequence hail = Collatz.hailstoneSequence(seed, params, max, true);
+          Collatz.TrajectoryStatistics statistics = Collatz.trajectoryStatistics(seed, params, max);
+          assertEquals(hail.terminalCondition, statistics.terminalCondition);
+          assertEquals(hail.terminalStatus, statistics.terminalStatus);
+          BigInteger peak = seed;
+          int glide = seed.equals(BigInteger.ONE) ? 0 : -1;
+          int oddSteps = 0;
+          for (int k = 1; k < hail.values.length; k++) {
+            BigInteger value = hail.values[k];
+            peak = peak.max(value);
+            if (glide == -1 && (seed.signum() >= 0 ? value.compareTo(seed) < 0 && value.signum() > 0 : value.compareTo(seed) > 0 && value.signum() < 0)) {
+              glide = k;
+            }
+            if (hail.values[k - 1].remainder(params.modulus).signum() != 0) {
+              oddSteps++;
+            }
+          }
+          assertEquals(peak, statistics.peak);
+          assertEquals(glide, statistics.glide);
+          // Brent's detection may have taken a few more laps of a cycle.
+          if (hail.terminalCondition != SequenceState.CYCLE_LENGTH) {
+            assertEquals(hail.values.length - 1, statistics.steps);
+            assertEquals(oddSteps, statistics.oddSteps);
+          }
+        }
+      }
+    }
+    Collatz.TrajectoryStatistics statistics = Collatz.trajectoryStatistics(BigInteger.valueOf(27), 1000);
+    assertEquals(111, statistics.steps);
+    assertEquals(41, statistics.oddSteps);
+    assertEquals(BigInteger.valueOf(9232), statistics.peak);
+    assertEquals(96, statistics.glide);
+  }
+
+  private static Collatz.Budget wrapStepBudget(int maxSteps) {
+    return new Collatz.Budget(Long.MAX_VALUE, TimeUnit.NANOSECONDS, maxSteps, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testHailstoneSequence_ResumesAfterExhaustingItsBudget() {
+    final HailstoneSequence expected = Collatz.hailstoneSequence(BigInteger.valueOf(27), 1000);
+    HailstoneSequence hail = Collatz.hailstoneSequence(BigInteger.valueOf(27), Collatz.DEFAULT_PARAMETERISATION, 1000, true, wrapStepBudget(50));
+    assertEquals(SequenceState.BUDGET_EXHAUSTED, hail.terminalCondition);
+    assertEquals(50, hail.terminalStatus);
+    assertEquals(51, hail.values.length);
+    assertEquals(hail.values[50], hail.continuation().value());
+    assertEquals(50, hail.continuation().steps());
+    // Resuming, each from the last value of the one before, reproduces the whole sequence.
+    List<BigInteger> values = new ArrayList<BigInteger>(Arrays.asList(hail.values));
+    while (hail.terminalCondition == SequenceState.BUDGET_EXHAUSTED) {
+      hail = Collatz.hailstoneSequence(hail.continuation(), 1000, wrapStepBudget(25));
+      values.addAll(Arrays.asList(hail.values).subList(1, hail.values.length));
+    }
+    assertEquals(Arrays.asList(expected.values), values);
+    assertEquals(expected.terminalCondition, hail.terminalCondition);
+    assertEquals(expected.terminalStatus, hail.terminalStatus);
+    // The maximum total stopping time counts the steps taken before the continuation.
+    hail = Collatz.hailstoneSequence(BigInteger.valueOf(27), Collatz.DEFAULT_PARAMETERISATION, 1000, true, wrapStepBudget(50));
+    assertEquals(SequenceState.MAX_STOP_OUT_OF_BOUNDS, Collatz.hailstoneSequence(hail.continuation(), 60, Collatz.Budget.UNLIMITED).terminalCondition);
+    assertEquals(SequenceState.MAX_STOP_OUT_OF_BOUNDS, Collatz.hailstoneSequence(hail.continuation(), 50, Collatz.Budget.UNLIMITED).terminalCondition);
+    // A budget of no time is exhausted before the first step.
+    hail = Collatz.hailstoneSequence(BigInteger.valueOf(27), Collatz.DEFAULT_PARAMETERISATION, 1000, true, new Collatz.Budget(0, TimeUnit.SECONDS, 1000, 1000));
+    assertEquals(SequenceState.BUDGET_EXHAUSTED, hail.terminalCondition);
+    assertEquals(0, hail.terminalStatus);
+    assertThrows(IllegalArgumentException.class, () -> {
+      new Collatz.Budget(-1, TimeUnit.SECONDS, 1000, 1000);
+    });
+  }
+
+  @Test
+  public void testBoundedStoppingTime_MatchesStoppingTime() {
+    // Computed in small increments, the stopping times are those computed at once, including
+    // for values beyond a long, and trajectories that cycle, or exceed the maximum.
+    final long[][] parameterisations = new long[][]{{2, 3, 1}, {2, 3, -1}, {5, 2, 3}, {-3, -2, -5}};
+    List<BigInteger> seeds = new ArrayList<BigInteger>();
+    for (long n = -60; n <= 60; n++) {
+      seeds.add(BigInteger.valueOf(n));
+    }
+    seeds.add(BigInteger.ONE.shiftLeft(70).subtract(BigInteger.ONE));
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (BigInteger seed : seeds) {
+        for (boolean total : new boolean[]{false, true}) {
+          Collatz.StoppingTimeResult result = Collatz.boundedStoppingTime(seed, params, 1000, total, wrapStepBudget(7));
+          while (result.terminalCondition == SequenceState.BUDGET_EXHAUSTED) {
+            result = Collatz.boundedStoppingTime(result.continuation(), 1000, wrapStepBudget(7));
+          }
+          assertEquals(Collatz.stoppingTime(seed, params, 1000, total), result.stoppingTime());
+        }
+      }
+    }
+    // A budget of bits pauses once a value outgrows it.
+    BigInteger seed = BigInteger.ONE.shiftLeft(100).subtract(BigInteger.ONE);
+    Collatz.Budget bits = new Collatz.Budget(Long.MAX_VALUE, TimeUnit.NANOSECONDS, Integer.MAX_VALUE, 120);
+    Collatz.StoppingTimeResult result = Collatz.boundedStoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 10000, true, bits);
+    assertEquals(SequenceState.BUDGET_EXHAUSTED, result.terminalCondition);
+    assertEquals(null, result.stoppingTime());
+    assertEquals(121, result.continuation().value().bitLength());
+    result = Collatz.boundedStoppingTime(result.continuation(), 10000, Collatz.Budget.UNLIMITED);
+    assertEquals(Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 10000, true), result.stoppingTime());
+  }
+
+  @Test
+  public void testHailstoneSequence_ResumesAfterExceedingItsMaximum() {
+    // Extending the maximum, doubling it each time, reproduces the sequence computed at once,
+    // including the first repetition of a cycle that was entered before any continuation.
+    final long[][] parameterisations = new long[][]{{2, 3, 1}, {2, 3, -1}, {5, 2, 3}, {-3, -2, -5}};
+    List<BigInteger> seeds = new ArrayList<BigInteger>();
+    for (long n = -60; n <= 60; n++) {
+      seeds.add(BigInteger.valueOf(n));
+    }
+    seeds.add(BigInteger.ONE.shiftLeft(70).subtract(BigInteger.ONE));
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (BigInteger seed : seeds) {
+        for (boolean total : new boolean[]{false, true}) {
+          HailstoneSequence expected = Collatz.hailstoneSequence(seed, params, 1000, total);
+          HailstoneSequence hail = Collatz.hailstoneSequence(seed, params, 5, total);
+          List<BigInteger> values = new ArrayList<BigInteger>(Arrays.asList(hail.values));
+          for (int max = 5; hail.continuation() != null && max < 1000; ) {
+            assertEquals(SequenceState.MAX_STOP_OUT_OF_BOUNDS, hail.terminalCondition);
+            max = Math.min(max * 2, 1000);
+            hail = Collatz.hailstoneSequence(hail.continuation(), max, Collatz.Budget.UNLIMITED);
+            values.addAll(Arrays.asList(hail.values).subList(1, hail.values.length));
+          }
+          assertEquals(Arrays.asList(expected.values), values);
+          assertEquals(expected.terminalCondition, hail.terminalCondition);
+          assertEquals(expected.terminalStatus, hail.terminalStatus);
+          Collatz.StoppingTimeResult result = Collatz.boundedStoppingTime(seed, params, 5, total, Collatz.Budget.UNLIMITED);
+          for (int max = 5; result.continuation() != null && max < 1000; ) {
+            max = Math.min(max * 2, 1000);
+            result = Collatz.boundedStoppingTime(result.continuation(), max, Collatz.Budget.UNLIMITED);
+          }
+          assertEquals(Collatz.stoppingTime(seed, params, 1000, total), result.stoppingTime());
+        }
+      }
+    }
+    // Only a paused sequence has a continuation.
+    assertEquals(null, Collatz.hailstoneSequence(BigInteger.valueOf(27), 1000).continuation());
+    assertEquals(5, Collatz.hailstoneSequence(BigInteger.valueOf(27), 5).continuation().steps());
+  }
+
+  @Test
+  public void testHailstoneSequence_ResumesInSmallIncrements() {
+    // Extending the maximum a few steps at a time, such that the look ahead beyond each
+    // maximum continues from the last, or already knows the first repetition, reproduces
+    // the sequences and stopping times computed at once.
+    final long[][] parameterisations = new long[][]{{2, 3, 1}, {2, 3, -1}, {-3, -2, -5}, {2, 5, 1}};
+    for (long[] pab : parameterisations) {
+      Collatz.Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (long n = -40; n <= 40; n++) {
+        BigInteger seed = BigInteger.valueOf(n);
+        for (boolean total : new boolean[]{false, true}) {
+          HailstoneSequence expected = Collatz.hailstoneSequence(seed, params, 300, total);
+          HailstoneSequence hail = Collatz.hailstoneSequence(seed, params, 1, total);
+          List<BigInteger> values = new ArrayList<BigInteger>(Arrays.asList(hail.values));
+          for (int max = 1; hail.continuation() != null && max < 300; ) {
+            max = Math.min(max + 7, 300);
+            hail = Collatz.hailstoneSequence(hail.continuation(), max, Collatz.Budget.UNLIMITED);
+            values.addAll(Arrays.asList(hail.values).subList(1, hail.values.length));
+          }
+          assertEquals(Arrays.asList(expected.values), values);
+          assertEquals(expected.terminalCondition, hail.terminalCondition);
+          assertEquals(expected.terminalStatus, hail.terminalStatus);
+          Collatz.StoppingTimeResult result = Collatz.boundedStoppingTime(seed, params, 1, total, Collatz.Budget.UNLIMITED);
+          for (int max = 1; result.continuation() != null && max < 300; ) {
+            // Having looked ahead, no value repeated within the maximum.
+            assertTrue(result.continuation().repeatFree >= max);
+            max = Math.min(max + 7, 300);
+            result = Collatz.boundedStoppingTime(result.continuation(), max, Collatz.Budget.UNLIMITED);
+          }
+          assertEquals(Collatz.stoppingTime(seed, params, 300, total), result.stoppingTime());
+        }
+      }
+    }
+  }
+
   @Test
   public void testStoppingTime_AssertSaneParameterisation() {
     // Set P and a to 0 to assert on __assert_sane_parameterisation
@@ -587,6 +1071,21 @@ public class CollatzTest {
     assertEquals(new TreeGraph(expectedRoot), wrapTreeGraph(0, 1, 17, 2, 102));
   }
 
+  @Test
+  public void testTreeGraph_DeepOrbitsDoNotOverflowTheStack() {
+    // With a = 1000003, the only reverses of 2^k within the depth are 2^(k+1), so the tree
+    // is a single branch, far deeper than the stack would allow one frame per level.
+    int depth = 10000;
+    TreeGraphNode expectedRoot = new TreeGraphNode(BigInteger.ONE.shiftLeft(depth + 1), SequenceState.MAX_STOP_OUT_OF_BOUNDS, null, null);
+    for (int k = depth; k >= 1; k--) {
+      expectedRoot = new TreeGraphNode(BigInteger.ONE.shiftLeft(k), null, expectedRoot, null);
+    }
+    TreeGraph expected = new TreeGraph(expectedRoot);
+    TreeGraph actual = wrapTreeGraph(2, depth, 2, 1000003, 1);
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), actual.hashCode());
+  }
+
   @Test
   public void testTreeGraph_AssertSaneParameterisation() {
     // Set P and a to 0 to assert on __assert_sane_parameterisation
@@ -0,0 +1,197 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.TreeGraph;
+import io.github.skenvy.Collatz.TreeGraphNode;
+
+/**
+ * Test the struct-of-arrays tree graphs of the reverse function.
+ */
+public class CompactTreeGraphTest {
+
+  /** A node of the reference tree, which is built recursively, and marked retroactively. */
+  private static final class ReferenceNode {
+    private final BigInteger value;
+    private SequenceState state;
+    private ReferenceNode preNDivP;
+    private ReferenceNode preANplusB;
+
+    private ReferenceNode(BigInteger value) {
+      this.value = value;
+    }
+  }
+
+  /** Build the reference tree, one stack frame per level, with a shared cycle check. */
+  private static ReferenceNode reference(BigInteger n, int maxOrbitDistance, Parameterisation params, Map<BigInteger, ReferenceNode> cycleCheck) {
+    ReferenceNode node = new ReferenceNode(n);
+    if (cycleCheck.containsKey(n)) {
+      cycleCheck.get(n).state = SequenceState.CYCLE_INIT;
+      node.state = SequenceState.CYCLE_LENGTH;
+    } else if (maxOrbitDistance <= 0) {
+      node.state = SequenceState.MAX_STOP_OUT_OF_BOUNDS;
+    } else {
+      cycleCheck.put(n, node);
+      BigInteger[] reverses = params.reverseFunction(n);
+      node.preNDivP = reference(reverses[0], maxOrbitDistance - 1, params, cycleCheck);
+      if (reverses.length == 2) {
+        node.preANplusB = reference(reverses[1], maxOrbitDistance - 1, params, cycleCheck);
+      }
+    }
+    return node;
+  }
+
+  private static TreeGraphNode toTreeGraphNode(ReferenceNode node) {
+    if (node == null) {
+      return null;
+    }
+    return new TreeGraphNode(node.value, node.state, toTreeGraphNode(node.preNDivP), toTreeGraphNode(node.preANplusB));
+  }
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  @Test
+  public void testCompactTreeGraph_MatchesTheRecursiveTree() {
+    Parameterisation[] parameterisations = {Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(5, 2, 3), wrapParameterisation(-3, -2, -5),
+        wrapParameterisation(17, 2, -6), wrapParameterisation(3, 5, 1)};
+    for (Parameterisation params : parameterisations) {
+      for (long root : new long[]{-7, -1, 0, 1, 2, 4, 27, 1L << 60}) {
+        for (int depth : new int[]{0, 1, 3, 10, 14}) {
+          BigInteger n = BigInteger.valueOf(root);
+          TreeGraph expected = new TreeGraph(toTreeGraphNode(reference(n, depth, params, new HashMap<BigInteger, ReferenceNode>())));
+          CompactTreeGraph compact = Collatz.compactTreeGraph(n, depth, params);
+          assertEquals(expected, compact.toTreeGraph());
+          assertEquals(expected, Collatz.treeGraph(n, depth, params));
+          assertEquals(expected.hashCode(), compact.hashCode());
+          assertEquals(compact, new CompactTreeGraph(n, depth, params));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCompactTreeGraph_ParallelExpansionMatchesTheSerialExpansion() {
+    Parameterisation[] parameterisations = {Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(5, 2, 3), wrapParameterisation(-3, -2, -5)};
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (Parameterisation params : parameterisations) {
+        // 1, -1, -5 and -17 are each in a cycle of the default parameterisation.
+        for (long root : new long[]{-17, -5, -1, 1, 27, 1L << 62}) {
+          for (int depth : new int[]{3, 17, 22}) {
+            BigInteger n = BigInteger.valueOf(root);
+            CompactTreeGraph serial = Collatz.compactTreeGraph(n, depth, params);
+            CompactTreeGraph parallel = Collatz.compactTreeGraph(n, depth, params, pool);
+            assertEquals(serial, parallel);
+            assertEquals(serial.size(), parallel.size());
+            for (int node = CompactTreeGraph.ROOT; node < serial.size(); node++) {
+              assertEquals(serial.value(node), parallel.value(node));
+              assertEquals(serial.terminalSequenceState(node), parallel.terminalSequenceState(node));
+              assertEquals(serial.preNDivP(node), parallel.preNDivP(node));
+              assertEquals(serial.preANplusB(node), parallel.preANplusB(node));
+            }
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(Collatz.treeGraph(BigInteger.ONE, 20), Collatz.parallelTreeGraph(BigInteger.ONE, 20, Collatz.DEFAULT_PARAMETERISATION));
+  }
+
+  @Test
+  public void testCompactTreeGraph_NavigatesTheOneCycle() {
+    // 1 -> 2 -> 4 -> (8, 1); the 1 is the cycle's repeat of the root.
+    CompactTreeGraph compact = Collatz.compactTreeGraph(BigInteger.ONE, 3);
+    assertEquals(5, compact.size());
+    int node = CompactTreeGraph.ROOT;
+    assertEquals(SequenceState.CYCLE_INIT, compact.terminalSequenceState(node));
+    assertEquals(CompactTreeGraph.NO_NODE, compact.preANplusB(node));
+    node = compact.preNDivP(node);
+    assertEquals(2, compact.longValue(node));
+    assertNull(compact.terminalSequenceState(node));
+    node = compact.preNDivP(node);
+    assertEquals(BigInteger.valueOf(4), compact.value(node));
+    int eight = compact.preNDivP(node);
+    assertEquals(8, compact.longValue(eight));
+    assertEquals(SequenceState.MAX_STOP_OUT_OF_BOUNDS, compact.terminalSequenceState(eight));
+    assertEquals(CompactTreeGraph.NO_NODE, compact.preNDivP(eight));
+    int one = compact.preANplusB(node);
+    assertEquals(1, compact.longValue(one));
+    assertEquals(SequenceState.CYCLE_LENGTH, compact.terminalSequenceState(one));
+    assertNotEquals(compact, Collatz.compactTreeGraph(BigInteger.ONE, 4));
+    assertNotEquals(compact, Collatz.compactTreeGraph(BigInteger.ONE, 3, BigInteger.valueOf(5), BigInteger.valueOf(2), BigInteger.valueOf(3)));
+  }
+
+  @Test
+  public void testCompactTreeGraph_HoldsValuesBeyondALongInTheSideTable() {
+    BigInteger root = BigInteger.ONE.shiftLeft(61);
+    CompactTreeGraph compact = Collatz.compactTreeGraph(root, 4);
+    int node = CompactTreeGraph.ROOT;
+    for (int k = 0; k <= 4; k++, node = compact.preNDivP(node)) {
+      BigInteger expected = root.shiftLeft(k);
+      assertEquals(expected, compact.value(node));
+      assertEquals(expected.bitLength() < 64, compact.isLongValue(node));
+      if (compact.isLongValue(node)) {
+        assertEquals(expected.longValue(), compact.longValue(node));
+      } else {
+        final int overflowed = node;
+        assertThrows(ArithmeticException.class, () -> {
+          compact.longValue(overflowed);
+        });
+      }
+    }
+    // Long.MIN_VALUE fits in a long, but is also held in the side table.
+    CompactTreeGraph negative = Collatz.compactTreeGraph(BigInteger.ONE.shiftLeft(62).negate(), 1);
+    int minimum = negative.preNDivP(CompactTreeGraph.ROOT);
+    assertFalse(negative.isLongValue(minimum));
+    assertEquals(Long.MIN_VALUE, negative.longValue(minimum));
+    assertEquals(BigInteger.valueOf(Long.MIN_VALUE), negative.value(minimum));
+  }
+
+  @Test
+  public void testCompactTreeGraph_LongReversesMatchTheBigIntegerReverses() {
+    Parameterisation[] parameterisations = {Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(5, 2, 3), wrapParameterisation(-3, -2, -5),
+        wrapParameterisation(-1, -1, Long.MIN_VALUE + 1), wrapParameterisation(3, Long.MAX_VALUE, 1)};
+    long[] reverses = new long[2];
+    for (Parameterisation params : parameterisations) {
+      for (long n : new long[]{Long.MIN_VALUE, Long.MIN_VALUE + 1, -1000, -3, -1, 0, 1, 2, 3, 1000, 1L << 61, Long.MAX_VALUE}) {
+        BigInteger[] expected = params.reverseFunction(BigInteger.valueOf(n));
+        int count = params.longReverseFunction(n, reverses);
+        boolean fits = true;
+        for (BigInteger reverse : expected) {
+          fits &= reverse.bitLength() < 64;
+        }
+        if (count == -1) {
+          // Only declined when a reverse, or the intermediate n-b, doesn't fit in a long.
+          BigInteger offset = BigInteger.valueOf(n).subtract(params.increment);
+          assertTrue(!fits || offset.bitLength() >= 64 || offset.equals(BigInteger.valueOf(Long.MIN_VALUE)));
+          continue;
+        }
+        long[] actual = new long[count];
+        System.arraycopy(reverses, 0, actual, 0, count);
+        long[] expectedLongs = new long[expected.length];
+        for (int k = 0; k < expected.length; k++) {
+          expectedLongs[k] = expected[k].longValueExact();
+        }
+        assertArrayEquals(expectedLongs, actual);
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the parallel discovery of the cycles of parameterisations.
+ */
+public class CycleSearchTest {
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  private static BigInteger[] wrapCycle(long... values) {
+    BigInteger[] cycle = new BigInteger[values.length];
+    for (int k = 0; k < values.length; k++) {
+      cycle[k] = BigInteger.valueOf(values[k]);
+    }
+    return cycle;
+  }
+
+  @Test
+  public void testCycleSearch_FindsTheKnownCycles() {
+    CycleSearch search = new CycleSearch(-300, 300, Collatz.DEFAULT_PARAMETERISATION, 1000, 16);
+    assertTrue(search.run(new ForkJoinPool(4)));
+    List<CycleSearch.Cycle> cycles = search.cycles();
+    // Zero is a fixed point, entered only by itself, and the rest are the known cycles, in order.
+    assertEquals(1 + Collatz.KNOWN_CYCLES.length, cycles.size());
+    assertArrayEquals(wrapCycle(0), cycles.get(0).values());
+    assertEquals(1, cycles.get(0).basinSize());
+    for (int k = 0; k < Collatz.KNOWN_CYCLES.length; k++) {
+      assertArrayEquals(Collatz.KNOWN_CYCLES[k], cycles.get(k + 1).values());
+    }
+    // Every positive seed enters the cycle through 1.
+    assertEquals(299, cycles.get(1).basinSize());
+    long total = 0;
+    for (CycleSearch.Cycle cycle : cycles) {
+      total += cycle.basinSize();
+    }
+    assertEquals(600, total);
+    assertEquals(0, search.unresolvedSeeds());
+  }
+
+  @Test
+  public void testCycleSearch_OtherParameterisations() {
+    // 3n-1, whose positive cycles mirror the negative cycles of 3n+1.
+    List<CycleSearch.Cycle> cycles = Collatz.cycles(1, 1000, wrapParameterisation(2, 3, -1), 1000);
+    assertEquals(3, cycles.size());
+    assertArrayEquals(wrapCycle(1, 2), cycles.get(0).values());
+    assertArrayEquals(wrapCycle(5, 14, 7, 20, 10), cycles.get(1).values());
+    assertEquals(18, cycles.get(2).length());
+    assertEquals(17, cycles.get(2).values()[0].longValue());
+    // 5n+1, of which most seeds appear to diverge, beyond a long.
+    CycleSearch search = new CycleSearch(1, 200, wrapParameterisation(2, 5, 1), 500);
+    assertTrue(search.run());
+    cycles = search.cycles();
+    assertEquals(3, cycles.size());
+    assertArrayEquals(wrapCycle(1, 6, 3, 16, 8, 4, 2), cycles.get(0).values());
+    assertArrayEquals(wrapCycle(13, 66, 33, 166, 83, 416, 208, 104, 52, 26), cycles.get(1).values());
+    assertArrayEquals(wrapCycle(17, 86, 43, 216, 108, 54, 27, 136, 68, 34), cycles.get(2).values());
+    long resolved = 0;
+    for (CycleSearch.Cycle cycle : cycles) {
+      resolved += cycle.basinSize();
+    }
+    assertTrue(search.unresolvedSeeds() > 0);
+    assertEquals(199, resolved + search.unresolvedSeeds());
+    // Seeds whose trajectories overflow a long, then fall back within one, to the cycle through 1.
+    search = new CycleSearch(Long.MAX_VALUE - 100, Long.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 5000);
+    assertTrue(search.run());
+    assertEquals(0, search.unresolvedSeeds());
+    assertEquals(1, search.cycles().size());
+    assertArrayEquals(Collatz.KNOWN_CYCLES[0], search.cycles().get(0).values());
+    assertEquals(100, search.cycles().get(0).basinSize());
+    // A parameterisation beyond a long, whose only cycle is the fixed point 0, and those through 1.
+    Parameterisation wide = new Parameterisation(BigInteger.ONE.shiftLeft(70), BigInteger.valueOf(3), BigInteger.ONE);
+    for (CycleSearch.Cycle cycle : Collatz.cycles(-10, 10, wide, 100)) {
+      assertTrue(cycle.length() >= 1);
+    }
+  }
+
+  @Test
+  public void testCycleSearch_SinglePoolAgreesWithManyWorkers() {
+    Parameterisation params = wrapParameterisation(-3, -2, -5);
+    CycleSearch single = new CycleSearch(-2000, 2000, params, 1000, 1 << 20);
+    single.run(new ForkJoinPool(1));
+    CycleSearch many = new CycleSearch(-2000, 2000, params, 1000, 8);
+    many.run(new ForkJoinPool(4));
+    List<CycleSearch.Cycle> expected = single.cycles();
+    List<CycleSearch.Cycle> actual = many.cycles();
+    assertEquals(expected.size(), actual.size());
+    for (int k = 0; k < expected.size(); k++) {
+      assertArrayEquals(expected.get(k).values(), actual.get(k).values());
+      assertEquals(expected.get(k).basinSize(), actual.get(k).basinSize());
+    }
+    assertEquals(single.unresolvedSeeds(), many.unresolvedSeeds());
+  }
+
+  @Test
+  public void testCycleSearch_CancelAndInvalidRanges() {
+    CycleSearch search = new CycleSearch(1, 1000000, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    search.cancel();
+    assertFalse(search.run());
+    assertEquals(0, search.cycles().size());
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CycleSearch(10, 9, Collatz.DEFAULT_PARAMETERISATION, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CycleSearch(Long.MIN_VALUE, Long.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CycleSearch(0, 10, Collatz.DEFAULT_PARAMETERISATION, 100, 0);
+    });
+  }
+}
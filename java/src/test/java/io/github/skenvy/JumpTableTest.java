@@ -0,0 +1,83 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+/**
+ * Test the k step jump tables of the default parameterisation.
+ */
+public class JumpTableTest {
+
+  /** Apply Collatz.function until k halvings have been applied, counting the steps. */
+  private static BigInteger[] shortcut(BigInteger n, int k) {
+    BigInteger steps = BigInteger.ZERO;
+    for (int halvings = 0; halvings < k; steps = steps.add(BigInteger.ONE)) {
+      if (!n.testBit(0)) {
+        halvings++;
+      }
+      n = Collatz.function(n);
+    }
+    return new BigInteger[]{n, steps};
+  }
+
+  @Test
+  public void testJumpTable_MatchesRepeatedFunction() {
+    BigInteger big = BigInteger.ONE.shiftLeft(90).add(BigInteger.valueOf(12345));
+    for (int k : new int[]{1, 3, 8, 12}) {
+      JumpTable jumps = new JumpTable(k);
+      assertEquals(k, jumps.bits());
+      for (long n = -300; n <= 3000; n++) {
+        BigInteger[] expected = shortcut(BigInteger.valueOf(n), k);
+        assertEquals(expected[0].longValue(), jumps.function(n));
+        assertEquals(expected[0], jumps.function(BigInteger.valueOf(n)));
+        assertEquals(expected[1].intValue(), jumps.steps(n));
+      }
+      assertEquals(shortcut(big, k)[0], jumps.function(big));
+      assertEquals(shortcut(big.negate(), k)[0], jumps.function(big.negate()));
+    }
+    assertThrows(ArithmeticException.class, () -> {
+      new JumpTable(1).function(Long.MAX_VALUE);
+    });
+  }
+
+  @Test
+  public void testJumpTable_StoppingTimesAreExact() {
+    for (int k : new int[]{1, 4, 10}) {
+      JumpTable jumps = new JumpTable(k);
+      for (int max : new int[]{5, 50, 1000}) {
+        for (boolean total : new boolean[]{false, true}) {
+          for (long n = -300; n <= 3000; n++) {
+            BigInteger bn = BigInteger.valueOf(n);
+            assertEquals(Collatz.stoppingTime(bn, Collatz.DEFAULT_PARAMETERISATION, max, total), Collatz.stoppingTime(bn, jumps, max, total));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testJumpTable_StoppingTimesBeyondLongs() {
+    JumpTable jumps = new JumpTable(16);
+    BigInteger[] seeds = {Collatz.VERIFIED_MAXIMUM.add(BigInteger.ONE), Collatz.VERIFIED_MAXIMUM.add(BigInteger.valueOf(27)),
+      BigInteger.valueOf(Long.MAX_VALUE), BigInteger.valueOf(Long.MAX_VALUE).subtract(BigInteger.TWO), BigInteger.ONE.shiftLeft(100).subtract(BigInteger.ONE)};
+    for (BigInteger seed : seeds) {
+      for (boolean total : new boolean[]{false, true}) {
+        assertEquals(Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 5000, total), Collatz.stoppingTime(seed, jumps, 5000, total));
+      }
+    }
+  }
+
+  @Test
+  public void testJumpTable_InvalidBits() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JumpTable(0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new JumpTable(JumpTable.MAX_BITS + 1);
+    });
+  }
+}
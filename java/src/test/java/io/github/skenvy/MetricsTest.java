@@ -0,0 +1,147 @@
+package io.github.skenvy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.skenvy.Collatz.Budget;
+import io.github.skenvy.Collatz.HailstoneSequence;
+import io.github.skenvy.Collatz.SequenceState;
+
+/**
+ * Test the opt-in instrumentation, which the tests are run with enabled, in a surefire
+ * execution of their own.
+ */
+public class MetricsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void resetMetrics() {
+    assumeTrue(Metrics.ENABLED);
+    Metrics.reset();
+  }
+
+  @Test
+  public void testMetrics_CountTheWorkDone() {
+    Collatz.HailstoneSequence hail = Collatz.hailstoneSequence(BigInteger.valueOf(27), 1000);
+    Metrics.Snapshot snapshot = Metrics.snapshot();
+    assertEquals(1, snapshot.hailstoneSequences());
+    assertEquals(1, snapshot.trajectories());
+    assertEquals(hail.terminalStatus, snapshot.steps());
+    // Every step but the last, which reached 1, checked for a cycle.
+    assertEquals(hail.terminalStatus - 1, snapshot.cycleChecks());
+    assertEquals(0, snapshot.overflows());
+    // A seed beyond a long overflows for each step until it is back within a long.
+    BigInteger seed = BigInteger.ONE.shiftLeft(100).subtract(BigInteger.ONE);
+    final Double stoppingTime = Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 10000, true);
+    snapshot = Metrics.snapshot();
+    assertEquals(1, snapshot.stoppingTimes());
+    assertEquals(2, snapshot.trajectories());
+    assertEquals(hail.terminalStatus + stoppingTime.longValue(), snapshot.steps());
+    assertTrue(snapshot.overflows() > 100);
+    // The function counts its BigInteger fallbacks.
+    Collatz.function(BigInteger.valueOf(27));
+    Collatz.function(seed);
+    Collatz.DEFAULT_PARAMETERISATION.function(Long.MAX_VALUE - 1);
+    assertThrows(ArithmeticException.class, () -> {
+      Collatz.DEFAULT_PARAMETERISATION.function(Long.MAX_VALUE);
+    });
+    snapshot = Metrics.snapshot();
+    assertEquals(4, snapshot.functionCalls());
+    assertEquals(2, snapshot.functionFallbacks());
+    // Tree graphs count their nodes.
+    Collatz.treeGraph(BigInteger.ONE, 5);
+    snapshot = Metrics.snapshot();
+    assertEquals(1, snapshot.treeGraphs());
+    assertEquals(8, snapshot.treeGraphNodes());
+    // Caches count their hits and misses.
+    StoppingTimeCache cache = new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, 1 << 10, 1 << 10);
+    Collatz.stoppingTime(BigInteger.valueOf(27), cache, 1000);
+    Collatz.stoppingTime(BigInteger.valueOf(54), cache, 1000);
+    snapshot = Metrics.snapshot();
+    assertEquals(cache.hits(), snapshot.cacheHits());
+    assertEquals(cache.misses(), snapshot.cacheMisses());
+    assertEquals(1, snapshot.cacheHits());
+    Metrics.reset();
+    assertEquals(0, Metrics.snapshot().steps());
+  }
+
+  @Test
+  public void testMetrics_CountResumedTrajectoriesOnce() {
+    Budget budget = new Budget(Long.MAX_VALUE, TimeUnit.NANOSECONDS, 10, Integer.MAX_VALUE);
+    HailstoneSequence hail = Collatz.hailstoneSequence(BigInteger.valueOf(27), Collatz.DEFAULT_PARAMETERISATION, 1000, true, budget);
+    int resumptions = 0;
+    while (hail.terminalCondition == SequenceState.BUDGET_EXHAUSTED) {
+      hail = Collatz.hailstoneSequence(hail.continuation(), 1000, budget);
+      resumptions++;
+    }
+    assertEquals(11, resumptions);
+    Metrics.Snapshot snapshot = Metrics.snapshot();
+    // Each step is counted once, by the run that took it, and the trajectory once it reached 1.
+    assertEquals(1, snapshot.trajectories());
+    assertEquals(111, snapshot.steps());
+    assertEquals(12, snapshot.hailstoneSequences());
+  }
+
+  @Test
+  public void testMetrics_RecordsFlightRecorderEvents() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("collatz.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("io.github.skenvy.HailstoneSequence");
+      recording.enable("io.github.skenvy.StoppingTime");
+      recording.enable("io.github.skenvy.TreeGraph");
+      recording.start();
+      Collatz.hailstoneSequence(BigInteger.valueOf(27), 1000);
+      // The budgeted, and resumed, sequences are recorded alike.
+      Budget budget = new Budget(Long.MAX_VALUE, TimeUnit.NANOSECONDS, 100, Integer.MAX_VALUE);
+      HailstoneSequence paused = Collatz.hailstoneSequence(BigInteger.valueOf(27), Collatz.DEFAULT_PARAMETERISATION, 1000, true, budget);
+      Collatz.hailstoneSequence(paused.continuation(), 1000, budget);
+      Collatz.stoppingTime(BigInteger.valueOf(27));
+      Collatz.treeGraph(BigInteger.ONE, 5);
+      recording.stop();
+      recording.dump(file);
+    }
+    Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+    List<RecordedEvent> hails = new ArrayList<RecordedEvent>();
+    List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+    recorded.sort(Comparator.comparing(RecordedEvent::getStartTime));
+    for (RecordedEvent event : recorded) {
+      events.put(event.getEventType().getName(), event);
+      if (event.getEventType().getName().equals("io.github.skenvy.HailstoneSequence")) {
+        hails.add(event);
+      }
+    }
+    assertEquals(3, hails.size());
+    assertEquals(111, hails.get(0).getInt("steps"));
+    assertEquals("TOTAL_STOPPING_TIME", hails.get(0).getString("terminalCondition"));
+    assertEquals(100, hails.get(1).getInt("steps"));
+    assertEquals("BUDGET_EXHAUSTED", hails.get(1).getString("terminalCondition"));
+    assertEquals(11, hails.get(2).getInt("steps"));
+    assertEquals(111, hails.get(2).getInt("terminalStatus"));
+    RecordedEvent stoppingTime = events.get("io.github.skenvy.StoppingTime");
+    assertEquals(96, stoppingTime.getInt("terminalStatus"));
+    assertEquals("STOPPING_TIME", stoppingTime.getString("terminalCondition"));
+    assertEquals(8, events.get("io.github.skenvy.TreeGraph").getInt("nodes"));
+  }
+}
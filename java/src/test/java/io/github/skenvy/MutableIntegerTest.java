@@ -0,0 +1,105 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the mutable integers on which trajectories beyond a long are stepped in place.
+ */
+public class MutableIntegerTest {
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  /** Values around the boundaries of the limbs, and some random values, of both signs. */
+  private static List<BigInteger> values() {
+    List<BigInteger> values = new ArrayList<BigInteger>();
+    Random random = new Random(27);
+    for (int bits : new int[]{0, 1, 31, 32, 33, 62, 63, 64, 65, 127, 128, 129, 300}) {
+      BigInteger power = BigInteger.ONE.shiftLeft(bits);
+      for (BigInteger value : new BigInteger[]{power, power.subtract(BigInteger.ONE), power.add(BigInteger.ONE), new BigInteger(bits + 1, random)}) {
+        values.add(value);
+        values.add(value.negate());
+      }
+    }
+    return values;
+  }
+
+  @Test
+  public void testMutableInteger_MatchesBigIntegerArithmetic() {
+    long[] factors = {0, 1, -1, 3, -3, 5, 1L << 32, Long.MAX_VALUE, Long.MIN_VALUE};
+    long[] divisors = {1, 2, 3, 5, 7, 0xFFFFFFFFL, 1L << 32};
+    for (BigInteger value : values()) {
+      MutableInteger wide = new MutableInteger(value);
+      assertEquals(value, wide.toBigInteger());
+      assertEquals(value.signum(), wide.signum());
+      assertEquals(value.bitLength() < 64, wide.fitsInLong());
+      if (wide.fitsInLong()) {
+        assertEquals(value.longValue(), wide.longValue());
+      }
+      assertEquals(value.signum() == 0 ? -1 : value.getLowestSetBit(), wide.lowestSetBit());
+      for (long a : factors) {
+        for (long b : factors) {
+          MutableInteger product = wide.copy();
+          product.multiplyAdd(a, b);
+          assertEquals(value.multiply(BigInteger.valueOf(a)).add(BigInteger.valueOf(b)), product.toBigInteger());
+        }
+      }
+      for (long d : divisors) {
+        BigInteger[] quotientAndRemainder = value.abs().divideAndRemainder(BigInteger.valueOf(d));
+        assertEquals(quotientAndRemainder[1].longValue(), wide.remainder(d));
+        MutableInteger quotient = wide.copy();
+        assertEquals(quotientAndRemainder[1].longValue(), quotient.divide(d));
+        assertEquals(quotientAndRemainder[0].multiply(BigInteger.valueOf(value.signum() < 0 ? -1 : 1)), quotient.toBigInteger());
+      }
+      for (int shift : new int[]{0, 1, 31, 63}) {
+        MutableInteger shifted = wide.copy();
+        shifted.shiftRight(shift);
+        BigInteger expected = value.abs().shiftRight(shift);
+        assertEquals(value.signum() < 0 ? expected.negate() : expected, shifted.toBigInteger());
+      }
+      for (BigInteger other : values()) {
+        MutableInteger otherWide = new MutableInteger(other);
+        assertEquals(Integer.signum(value.compareTo(other)), Integer.signum(wide.compareTo(otherWide)));
+        assertEquals(value.equals(other), wide.equals(otherWide));
+        if (value.equals(other)) {
+          assertEquals(wide.hashCode(), otherWide.hashCode());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMutableInteger_WideFunctionMatchesBigFunction() {
+    long[][] pabs = {{2, 3, 1}, {2, 3, -1}, {5, 2, 3}, {-3, -2, -5}, {-2, 3, 1}, {1, 3, 1}, {-1, 3, 1}, {4, 7, -9}, {6, 5, Long.MIN_VALUE}, {1L << 40, 3, 1}, {(1L << 40) + 1, 3, 1}};
+    for (long[] pab : pabs) {
+      Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (BigInteger value : values()) {
+        MutableInteger wide = new MutableInteger(value);
+        assertEquals(params.divides(value), params.divides(wide));
+        params.wideFunction(wide);
+        assertEquals(params.bigFunction(value), wide.toBigInteger());
+      }
+    }
+    // A trajectory through values beyond a long, stepped in place, reaches 1 as the BigInteger steps do.
+    BigInteger seed = BigInteger.ONE.shiftLeft(200).subtract(BigInteger.ONE);
+    MutableInteger wide = new MutableInteger(seed);
+    int steps = 0;
+    while (!wide.fitsInLong() || wide.longValue() != 1) {
+      Collatz.DEFAULT_PARAMETERISATION.wideFunction(wide);
+      steps++;
+    }
+    assertTrue(steps > 200);
+    assertEquals(Double.valueOf(steps), Collatz.stoppingTime(seed, Collatz.DEFAULT_PARAMETERISATION, 100000, true));
+  }
+}
@@ -0,0 +1,128 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.HailstoneSequence;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the serving of concurrent stopping time and hailstone sequence queries.
+ */
+public class QueryExecutorTest {
+
+  private static void awaitQueuedComputation(QueryExecutor executor) throws InterruptedException {
+    while (!executor.permits.hasQueuedThreads()) {
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  public void testQueryExecutor_MatchesTheDirectComputations() throws InterruptedException, ExecutionException {
+    try (QueryExecutor executor = new QueryExecutor(Collatz.DEFAULT_PARAMETERISATION, 4)) {
+      List<CompletableFuture<Double>> stoppingTimes = new ArrayList<CompletableFuture<Double>>();
+      for (int seed = -100; seed < 1000; seed++) {
+        stoppingTimes.add(executor.stoppingTime(BigInteger.valueOf(seed), 100, seed % 2 == 0, 1, TimeUnit.MINUTES));
+      }
+      for (int seed = -100; seed < 1000; seed++) {
+        assertEquals(Collatz.stoppingTime(BigInteger.valueOf(seed), Collatz.DEFAULT_PARAMETERISATION, 100, seed % 2 == 0), stoppingTimes.get(seed + 100).get());
+      }
+      HailstoneSequence hail = executor.hailstoneSequence(BigInteger.valueOf(27), 1000, true, 1, TimeUnit.MINUTES).get();
+      HailstoneSequence expected = Collatz.hailstoneSequence(BigInteger.valueOf(27), 1000);
+      assertArrayEquals(expected.values, hail.values);
+      assertEquals(expected.terminalCondition, hail.terminalCondition);
+      assertEquals(1101, executor.queries());
+    }
+  }
+
+  @Test
+  public void testQueryExecutor_SharesConcurrentComputationsOfTheSameSeed() throws InterruptedException, ExecutionException {
+    try (QueryExecutor executor = new QueryExecutor(Collatz.DEFAULT_PARAMETERISATION, 1)) {
+      // Hold the only permit, so that each of these queries joins the same computation.
+      executor.permits.acquire();
+      List<CompletableFuture<Double>> shared = new ArrayList<CompletableFuture<Double>>();
+      for (int k = 0; k < 100; k++) {
+        shared.add(executor.stoppingTime(BigInteger.valueOf(27), 1000, true, 1, TimeUnit.MINUTES));
+      }
+      executor.permits.release();
+      for (CompletableFuture<Double> stoppingTime : shared) {
+        assertEquals(Double.valueOf(111), stoppingTime.get());
+      }
+      assertEquals(100, executor.queries());
+      assertEquals(1, executor.computations());
+      // Once complete, the same query computes again.
+      assertEquals(Double.valueOf(111), executor.stoppingTime(BigInteger.valueOf(27), 1000, true, 1, TimeUnit.MINUTES).get());
+      assertEquals(2, executor.computations());
+    }
+  }
+
+  @Test
+  public void testQueryExecutor_DeadlinesTimeOutTheirQueries() throws InterruptedException, ExecutionException {
+    try (QueryExecutor executor = new QueryExecutor(Collatz.DEFAULT_PARAMETERISATION, 1)) {
+      executor.permits.acquire();
+      CompletableFuture<Double> late = executor.stoppingTime(BigInteger.valueOf(27), 1000, true, 1, TimeUnit.MILLISECONDS);
+      ExecutionException timedOut = assertThrows(ExecutionException.class, () -> late.get());
+      assertTrue(timedOut.getCause() instanceof TimeoutException);
+      // Once the late query's computation is waiting for the permit, the timely query, of
+      // another seed, as it would otherwise join the late one, is computed after it.
+      awaitQueuedComputation(executor);
+      CompletableFuture<Double> timely = executor.stoppingTime(BigInteger.valueOf(54), 1000, true, 1, TimeUnit.MINUTES);
+      executor.permits.release();
+      assertEquals(Double.valueOf(112), timely.get());
+      // The late query's deadline had passed before a permit was available, so it was never computed.
+      executor.close();
+      assertEquals(1, executor.computations());
+      assertThrows(RejectedExecutionException.class, () -> {
+        executor.stoppingTime(BigInteger.valueOf(27), 1000, true, 1, TimeUnit.MINUTES);
+      });
+    }
+  }
+
+  @Test
+  public void testQueryExecutor_DeadlinesStopTheirComputations() throws InterruptedException, ExecutionException {
+    // 5n+1, from which 7 appears to diverge, so its computation is only ever stopped by its deadline.
+    Parameterisation params = new Parameterisation(BigInteger.valueOf(2), BigInteger.valueOf(5), BigInteger.ONE);
+    try (QueryExecutor executor = new QueryExecutor(params, 1)) {
+      CompletableFuture<Double> diverging = executor.stoppingTime(BigInteger.valueOf(7), Integer.MAX_VALUE, true, 50, TimeUnit.MILLISECONDS);
+      ExecutionException timedOut = assertThrows(ExecutionException.class, () -> diverging.get());
+      assertTrue(timedOut.getCause() instanceof TimeoutException);
+      CompletableFuture<HailstoneSequence> sequence = executor.hailstoneSequence(BigInteger.valueOf(7), Integer.MAX_VALUE, true, 50, TimeUnit.MILLISECONDS);
+      timedOut = assertThrows(ExecutionException.class, () -> sequence.get());
+      assertTrue(timedOut.getCause() instanceof TimeoutException);
+      // The stopped computations released the only permit, so a later query is computed.
+      assertEquals(Double.valueOf(3), executor.stoppingTime(BigInteger.valueOf(8), 1000, true, 1, TimeUnit.MINUTES).get());
+      assertEquals(3, executor.computations());
+    }
+  }
+
+  @Test
+  public void testQueryExecutor_AbandonedFlightsStayExpired() {
+    // A flight whose only deadline has passed, as its budget is polled while it runs.
+    QueryExecutor.Flight<Double> flight = new QueryExecutor.Flight<Double>(System.nanoTime() - 1);
+    Collatz.Budget budget = new Collatz.Budget(flight::abandon);
+    assertTrue(budget.expired.getAsBoolean());
+    assertTrue(budget.expired.getAsBoolean());
+    assertFalse(flight.join(System.nanoTime() + TimeUnit.MINUTES.toNanos(1)));
+  }
+
+  @Test
+  public void testQueryExecutor_RejectsInvalidConcurrency() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new QueryExecutor(Collatz.DEFAULT_PARAMETERISATION, 0);
+    });
+  }
+}
@@ -0,0 +1,75 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test the sieved verification of ranges of seeds.
+ */
+public class RangeVerificationTest {
+
+  @Test
+  public void testVerifyRange_AroundZero() {
+    // Across zero, the negative cycles' least values are the only seeds without a
+    // stopping time, and every seed close to 0 is checked against its class' bounds.
+    for (int bits : new int[]{1, 5, 10, 16, RangeVerification.MAX_SIEVE_BITS}) {
+      RangeVerification verification = Collatz.verifyRange(BigInteger.valueOf(-5000), BigInteger.valueOf(200000), bits, 1000);
+      assertTrue(verification.isVerified());
+      assertEquals(205000, verification.testedSeeds() + verification.sievedSeeds());
+    }
+    RangeVerification verification = Collatz.verifyRange(-5000, 200000);
+    assertTrue(verification.isVerified());
+    assertTrue(verification.sievedSeeds() > 10 * verification.testedSeeds());
+  }
+
+  @Test
+  public void testVerifyRange_BeyondVerifiedMaximum() {
+    BigInteger lo = Collatz.VERIFIED_MAXIMUM.add(BigInteger.valueOf(7));
+    RangeVerification verification = Collatz.verifyRange(lo, lo.add(BigInteger.valueOf(1 << 20)));
+    assertTrue(verification.isVerified());
+    assertEquals(1 << 20, verification.testedSeeds() + verification.sievedSeeds());
+    assertTrue(verification.testedSeeds() < (1 << 20) / 10);
+  }
+
+  @Test
+  public void testVerifyRange_ReportsSeedsBeyondTheMaximum() {
+    // 27 takes 96 steps to get below itself, so it survives a 4 bit sieve, and a max of 50.
+    RangeVerification verification = Collatz.verifyRange(BigInteger.ONE, BigInteger.valueOf(1000), 4, 50);
+    BigInteger[] unverified = verification.unverifiedSeeds();
+    assertTrue(unverified.length > 0);
+    assertTrue(Arrays.asList(unverified).contains(BigInteger.valueOf(27)));
+    for (int k = 0; k < unverified.length; k++) {
+      assertNull(Collatz.stoppingTime(unverified[k], Collatz.DEFAULT_PARAMETERISATION, 50, false));
+      assertTrue(k == 0 || unverified[k - 1].compareTo(unverified[k]) < 0);
+    }
+    // An empty range verifies nothing.
+    verification = Collatz.verifyRange(5, 5);
+    assertTrue(verification.isVerified());
+    assertArrayEquals(new BigInteger[0], verification.unverifiedSeeds());
+    assertEquals(0, verification.testedSeeds());
+  }
+
+  @Test
+  public void testVerifyRange_InvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.verifyRange(10, 9);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.verifyRange(BigInteger.ZERO, BigInteger.ONE.shiftLeft(63));
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.verifyRange(BigInteger.ZERO, BigInteger.TEN, 0, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.verifyRange(BigInteger.ZERO, BigInteger.TEN, RangeVerification.MAX_SIEVE_BITS + 1, 100);
+    });
+  }
+}
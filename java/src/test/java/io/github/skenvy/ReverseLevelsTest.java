@@ -0,0 +1,118 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+import io.github.skenvy.ReverseLevels.Level;
+
+/**
+ * Test the breadth first levels of the reverse tree graphs.
+ */
+public class ReverseLevelsTest {
+
+  /** The values of the nodes at each depth of the compact tree graph, left to right. */
+  private static List<List<BigInteger>> treeLevels(CompactTreeGraph tree) {
+    List<List<BigInteger>> levels = new ArrayList<>();
+    List<Integer> frontier = new ArrayList<>();
+    frontier.add(CompactTreeGraph.ROOT);
+    while (!frontier.isEmpty()) {
+      List<BigInteger> level = new ArrayList<>();
+      List<Integer> next = new ArrayList<>();
+      for (int node : frontier) {
+        level.add(tree.value(node));
+        if (tree.preNDivP(node) != CompactTreeGraph.NO_NODE) {
+          next.add(tree.preNDivP(node));
+        }
+        if (tree.preANplusB(node) != CompactTreeGraph.NO_NODE) {
+          next.add(tree.preANplusB(node));
+        }
+      }
+      levels.add(level);
+      frontier = next;
+    }
+    return levels;
+  }
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  @Test
+  public void testReverseLevels_MatchTheDepthsOfTheTreeGraph() {
+    Parameterisation[] parameterisations = {Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(5, 2, 3), wrapParameterisation(-3, -2, -5), wrapParameterisation(17, 2, -6)};
+    for (Parameterisation params : parameterisations) {
+      for (long root : new long[]{-17, -5, -1, 0, 1, 2, 27, 1L << 61, -(1L << 62)}) {
+        for (int depth : new int[]{0, 1, 4, 15}) {
+          BigInteger n = BigInteger.valueOf(root);
+          List<List<BigInteger>> expected = treeLevels(Collatz.compactTreeGraph(n, depth, params));
+          List<List<BigInteger>> actual = Collatz.reverseLevels(n, depth, params).stream().map(level -> List.of(level.values())).collect(Collectors.toList());
+          assertEquals(expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReverseLevels_YieldPrimitiveBatches() {
+    // The levels of 1, whose cycle repeats it at depth 3, without reversing it further.
+    ReverseLevels levels = Collatz.reverseLevels(BigInteger.ONE, 5);
+    assertArrayEquals(new long[]{1}, levels.next().longValues());
+    assertArrayEquals(new long[]{2}, levels.next().longValues());
+    assertArrayEquals(new long[]{4}, levels.next().longValues());
+    assertArrayEquals(new long[]{8, 1}, levels.next().longValues());
+    Level four = levels.next();
+    assertEquals(4, four.depth());
+    assertArrayEquals(new long[]{16}, four.longValues());
+    assertArrayEquals(new long[]{32, 5}, levels.next().longValues());
+    assertFalse(levels.hasNext());
+    assertThrows(java.util.NoSuchElementException.class, () -> {
+      levels.next();
+    });
+    // Beyond a long, the values are held as BigInteger's.
+    Level beyond = Collatz.reverseLevels(BigInteger.ONE.shiftLeft(62), 1).stream().skip(1).findFirst().get();
+    assertFalse(beyond.isLongValue(0));
+    assertEquals(BigInteger.ONE.shiftLeft(63), beyond.value(0));
+    assertThrows(ArithmeticException.class, () -> {
+      beyond.longValues();
+    });
+  }
+
+  @Test
+  public void testReverseLevels_FilterPrunesAndStreamsStopEarly() {
+    long bound = 1000;
+    ReverseLevels.Filter belowBound = value -> value < bound;
+    // Every value whose trajectory reaches 1 within 60 steps, while below the bound, is found.
+    boolean[] found = new boolean[(int) bound];
+    Collatz.reverseLevels(BigInteger.ONE, 60, Collatz.DEFAULT_PARAMETERISATION, belowBound).forEachRemaining(level -> {
+      for (long value : level.longValues()) {
+        assertTrue(value < bound);
+        found[(int) value] = true;
+      }
+    });
+    for (int n = 1; n < bound; n++) {
+      long value = n;
+      int steps = 0;
+      while (value != 1 && value < bound && steps <= 60) {
+        value = Collatz.DEFAULT_PARAMETERISATION.function(value);
+        steps++;
+      }
+      assertEquals(value == 1 && steps <= 60, found[n]);
+    }
+    // Values beyond a long are tested as Long.MAX_VALUE, so a bound prunes them too.
+    assertFalse(Collatz.reverseLevels(BigInteger.ONE.shiftLeft(100), 3, Collatz.DEFAULT_PARAMETERISATION, belowBound).hasNext());
+    // The first level with more than 100 values, without computing any further levels.
+    Level wide = Collatz.reverseLevels(BigInteger.ONE, 1000).stream().filter(level -> level.size() > 100).findFirst().get();
+    assertEquals(22, wide.depth());
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the memoised total stopping times.
+ */
+public class StoppingTimeCacheTest {
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  @Test
+  public void testStoppingTimeCache_MatchesUncachedStoppingTimes() {
+    // Small tables, such that the sparse table has to evict, across zero, for the default
+    // and some parameterisations with cycles, zero stops, and max stops.
+    long[][] pabs = {{2, 3, 1}, {5, 2, 3}, {2, 3, -1}, {-2, -3, -1}, {3, 2, 1}};
+    for (long[] pab : pabs) {
+      Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      StoppingTimeCache cache = new StoppingTimeCache(params, 64, 32);
+      for (int max : new int[]{50, 1000}) {
+        for (long n = -500; n <= 500; n++) {
+          BigInteger bn = BigInteger.valueOf(n);
+          assertEquals(Collatz.stoppingTime(bn, params, max, true), Collatz.stoppingTime(bn, cache, max));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStoppingTimeCache_HitsAndMisses() {
+    StoppingTimeCache cache = new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION);
+    // 27 is computed in full, after which 54, and every value in 27's trajectory, are hits.
+    assertEquals(111, Collatz.stoppingTime(BigInteger.valueOf(27), cache, 1000), 0);
+    assertEquals(0, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(112, Collatz.stoppingTime(BigInteger.valueOf(54), cache, 1000), 0);
+    assertEquals(110, Collatz.stoppingTime(BigInteger.valueOf(82), cache, 1000), 0);
+    assertEquals(2, cache.hits());
+    // A hit that would exceed the maximum still exceeds it.
+    assertEquals(null, Collatz.stoppingTime(BigInteger.valueOf(27), cache, 110));
+    cache.clear();
+    assertEquals(0, cache.hits());
+    assertEquals(0, cache.misses());
+    // Values beyond a long are computed in full.
+    BigInteger big = BigInteger.ONE.shiftLeft(80);
+    assertEquals(80, Collatz.stoppingTime(big, cache, 1000), 0);
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  public void testStoppingTimeCache_SweepAgrees() {
+    StoppingTimeCache cache = new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, 1 << 12, 1 << 8);
+    double[] cached = Collatz.sweep(-2000, 20000, cache, 500);
+    double[] uncached = Collatz.sweep(-2000, 20000, Collatz.DEFAULT_PARAMETERISATION, 500, true);
+    for (int k = 0; k < cached.length; k++) {
+      assertEquals(uncached[k], cached[k], 0);
+    }
+    assertTrue(cache.hits() > cache.misses());
+  }
+
+  @Test
+  public void testParameterisation_EqualsAndHashCode() {
+    assertEquals(Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(2, 3, 1));
+    assertEquals(Collatz.DEFAULT_PARAMETERISATION.hashCode(), wrapParameterisation(2, 3, 1).hashCode());
+    assertNotEquals(Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(2, 3, -1));
+    assertNotEquals(Collatz.DEFAULT_PARAMETERISATION, wrapParameterisation(3, 3, 1));
+  }
+
+  @Test
+  public void testStoppingTimeCache_InvalidSizes() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, -1, 8);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, 8, -1);
+    });
+  }
+}
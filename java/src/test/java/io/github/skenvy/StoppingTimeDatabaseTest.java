@@ -0,0 +1,108 @@
+package io.github.skenvy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.skenvy.Collatz.HailstoneSequence;
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the persistent database of total stopping times and peaks.
+ */
+public class StoppingTimeDatabaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  @Test
+  public void testStoppingTimeDatabase_MatchesUncachedStoppingTimesAndPeaks() throws IOException {
+    long[][] pabs = {{2, 3, 1}, {5, 2, 3}, {2, 3, -1}, {-2, -3, -1}, {3, 2, 1}};
+    for (long[] pab : pabs) {
+      Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      Path directory = folder.newFolder().toPath();
+      try (StoppingTimeDatabase database = StoppingTimeDatabase.open(directory, params, StoppingTimeDatabase.MIN_SEGMENT_BITS)) {
+        for (int max : new int[]{50, 1000}) {
+          for (long n = -500; n <= 500; n++) {
+            BigInteger bn = BigInteger.valueOf(n);
+            Double expected = Collatz.stoppingTime(bn, params, max, true);
+            assertEquals(expected, Collatz.stoppingTime(bn, database, max));
+            if (database.totalStoppingTime(n) >= 0) {
+              HailstoneSequence hail = Collatz.hailstoneSequence(bn, params, 1000, true);
+              BigInteger peak = BigInteger.ONE;
+              for (BigInteger value : hail.values) {
+                peak = peak.max(value);
+              }
+              assertEquals(peak.longValueExact(), database.peak(n));
+              assertEquals(hail.values.length - 1, database.totalStoppingTime(n));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStoppingTimeDatabase_ResumesFromTheRecordsOfAnotherProcess() throws IOException {
+    Path directory = folder.getRoot().toPath().resolve("database");
+    double[] swept;
+    try (StoppingTimeDatabase database = StoppingTimeDatabase.open(directory, Collatz.DEFAULT_PARAMETERISATION, 12)) {
+      swept = Collatz.sweep(1, 10000, database, 1000);
+      assertEquals(111, database.totalStoppingTime(27));
+      assertEquals(9232, database.peak(27));
+    }
+    try (StoppingTimeDatabase database = StoppingTimeDatabase.open(directory, Collatz.DEFAULT_PARAMETERISATION, 12)) {
+      // Every seed was recorded, and is read back, rather than computed.
+      for (long seed = 1; seed < 10000; seed++) {
+        assertEquals(swept[(int) (seed - 1)], database.totalStoppingTime(seed), 0);
+      }
+      assertEquals(9232, database.peak(27));
+      assertEquals(0, database.peak(10000L << 12));
+      assertEquals(-1, database.totalStoppingTime(-27));
+      double[] again = Collatz.sweep(1, 10000, database, 1000);
+      for (int k = 0; k < again.length; k++) {
+        assertEquals(swept[k], again[k], 0);
+      }
+      // A record that would exceed the maximum still exceeds it.
+      assertEquals(null, Collatz.stoppingTime(BigInteger.valueOf(27), database, 110));
+      assertFalse(database.record(27, 5, 5));
+      assertTrue(database.record(1L << 40, 40, 1L << 40));
+      assertEquals(40, database.totalStoppingTime(1L << 40));
+    }
+  }
+
+  @Test
+  public void testStoppingTimeDatabase_RejectsMismatchedOrClosedDatabases() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    final StoppingTimeDatabase database = StoppingTimeDatabase.open(directory, Collatz.DEFAULT_PARAMETERISATION, 12);
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeDatabase.open(directory, wrapParameterisation(5, 2, 3), 12);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeDatabase.open(directory, Collatz.DEFAULT_PARAMETERISATION, 13);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeDatabase.open(directory, Collatz.DEFAULT_PARAMETERISATION, StoppingTimeDatabase.MAX_SEGMENT_BITS + 1);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      database.record(3, -1, 16);
+    });
+    database.close();
+    assertThrows(IllegalStateException.class, () -> {
+      database.totalStoppingTime(27);
+    });
+  }
+}
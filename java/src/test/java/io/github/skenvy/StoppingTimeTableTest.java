@@ -0,0 +1,134 @@
+package io.github.skenvy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the lock-free tables of total stopping times.
+ */
+public class StoppingTimeTableTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testStoppingTimeTable_PublishesOnce() {
+    StoppingTimeTable table = new StoppingTimeTable(100);
+    assertEquals(-1, table.get(27));
+    assertTrue(table.publish(27, 111));
+    assertEquals(111, table.get(27));
+    // Only the first publish of a value wins.
+    assertFalse(table.publish(27, 111));
+    assertFalse(table.publish(27, 5));
+    assertEquals(111, table.get(27));
+    // Values beyond the bound are never held.
+    for (long value : new long[]{Long.MIN_VALUE, -1, 0, 100, Long.MAX_VALUE}) {
+      assertFalse(table.publish(value, 1));
+      assertEquals(-1, table.get(value));
+    }
+    assertTrue(table.publish(99, 0));
+    assertEquals(0, table.get(99));
+    table.clear();
+    assertEquals(-1, table.get(27));
+    assertFalse(table.isMapped());
+    assertThrows(IllegalArgumentException.class, () -> {
+      new StoppingTimeTable(-1);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new StoppingTimeTable(StoppingTimeTable.MAX_BOUND + 1);
+    });
+  }
+
+  @Test
+  public void testStoppingTimeTable_RacingWritersPublishEachValueOnce() throws InterruptedException {
+    final StoppingTimeTable table = new StoppingTimeTable(1 << 16);
+    final AtomicInteger published = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> writers = new ArrayList<Thread>();
+    for (int w = 0; w < 4; w++) {
+      Thread writer = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (long value = 1; value < table.bound(); value++) {
+          if (table.publish(value, (int) (value % 1000))) {
+            published.incrementAndGet();
+          }
+        }
+      });
+      writer.start();
+      writers.add(writer);
+    }
+    start.countDown();
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    assertEquals(table.bound() - 1, published.get());
+    for (long value = 1; value < table.bound(); value++) {
+      assertEquals(value % 1000, table.get(value));
+    }
+  }
+
+  @Test
+  public void testStoppingTimeTable_MappedTablesOutliveTheirCaches() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stopping-times");
+    StoppingTimeTable table = StoppingTimeTable.map(file, Collatz.DEFAULT_PARAMETERISATION, 1 << 12);
+    assertTrue(table.isMapped());
+    // The header of (2,3,1), padded to a long, precedes the table.
+    assertEquals(32 + (1 << 12) * 4, Files.size(file));
+    StoppingTimeCache cache = new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, table, 1 << 8);
+    double[] cached = Collatz.sweep(1, 4000, cache, 500);
+    table.force();
+    // A new mapping of the file, by another cache, starts with every stopping time known.
+    StoppingTimeCache reopened = new StoppingTimeCache(Collatz.DEFAULT_PARAMETERISATION, StoppingTimeTable.map(file, Collatz.DEFAULT_PARAMETERISATION, 1 << 12), 1 << 8);
+    double[] again = Collatz.sweep(1, 4000, reopened, 500);
+    for (int k = 0; k < cached.length; k++) {
+      assertEquals(cached[k], again[k], 0);
+    }
+    assertEquals(111, reopened.table().get(27));
+    // Only the seed 1, which reaches 1 without the help of a memoised value, is a miss.
+    assertEquals(1, reopened.misses());
+  }
+
+  @Test
+  public void testStoppingTimeTable_MappedTablesRejectAnotherParameterisation() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stopping-times");
+    StoppingTimeTable table = StoppingTimeTable.map(file, Collatz.DEFAULT_PARAMETERISATION, 1 << 8);
+    assertTrue(table.publish(27, 111));
+    table.force();
+    Parameterisation other = new Parameterisation(BigInteger.valueOf(2), BigInteger.valueOf(5), BigInteger.ONE);
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeTable.map(file, other, 1 << 8);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeTable.map(file, Collatz.DEFAULT_PARAMETERISATION, 1 << 9);
+    });
+    // Nor will a file that isn't a table be mapped as one.
+    Path garbage = folder.getRoot().toPath().resolve("garbage");
+    Files.write(garbage, new byte[]{1, 2, 3});
+    assertThrows(IllegalArgumentException.class, () -> {
+      StoppingTimeTable.map(garbage, Collatz.DEFAULT_PARAMETERISATION, 1 << 8);
+    });
+    // The rejections leave the table as it was.
+    assertEquals(111, StoppingTimeTable.map(file, Collatz.DEFAULT_PARAMETERISATION, 1 << 8).get(27));
+  }
+}
@@ -0,0 +1,194 @@
+package io.github.skenvy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the checkpointed, resumable, sweep jobs.
+ */
+public class SweepJobTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  private static void assertMatchesSequentialSweep(SweepJob.Snapshot snapshot, long lo, long hi, Parameterisation params, int max) {
+    long stopped = 0;
+    long sum = 0;
+    long exceeded = 0;
+    long cycled = 0;
+    long zero = 0;
+    List<Long> recordSeeds = new ArrayList<Long>();
+    double maximum = -1;
+    for (long seed = lo; seed < hi; seed++) {
+      Double stoppingTime = Collatz.stoppingTime(BigInteger.valueOf(seed), params, max, true);
+      if (stoppingTime == null) {
+        exceeded++;
+      } else if (stoppingTime.isInfinite()) {
+        cycled++;
+      } else if (stoppingTime < 0 || seed == 0) {
+        zero++;
+      } else {
+        stopped++;
+        sum += stoppingTime.longValue();
+        if (stoppingTime > maximum) {
+          maximum = stoppingTime;
+          recordSeeds.add(seed);
+        }
+      }
+    }
+    assertEquals(hi - lo, snapshot.completedSeeds());
+    assertEquals(stopped, snapshot.stoppedSeeds());
+    assertEquals(sum, snapshot.stoppingTimeSum());
+    assertEquals(exceeded, snapshot.exceededSeeds());
+    assertEquals(cycled, snapshot.cycledSeeds());
+    assertEquals(zero, snapshot.zeroSeeds());
+    long[] expected = new long[recordSeeds.size()];
+    for (int k = 0; k < expected.length; k++) {
+      expected[k] = recordSeeds.get(k);
+    }
+    assertArrayEquals(expected, snapshot.recordSeeds());
+    assertEquals((int) maximum, snapshot.recordStoppingTimes()[expected.length - 1]);
+  }
+
+  @Test
+  public void testSweepJob_MatchesSequentialSweep() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("default.checkpoint");
+    SweepJob job = SweepJob.open(file, 1, 20000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 1000);
+    assertEquals(20, job.chunks());
+    assertTrue(job.run(new ForkJoinPool(4), 1, TimeUnit.MILLISECONDS));
+    assertTrue(job.isComplete());
+    assertMatchesSequentialSweep(job.snapshot(), 1, 20000, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    // The well known records, below 20000.
+    assertArrayEquals(new long[]{1, 2, 3, 6, 7, 9, 18, 25, 27, 54, 73, 97, 129, 171, 231, 313, 327, 649, 703, 871, 1161, 2223, 2463, 2919, 3711, 6171, 10971, 13255, 17647},
+        job.snapshot().recordSeeds());
+    // Another parameterisation, with seeds that exceed the maximum, cycle, or stop on zero.
+    Parameterisation params = wrapParameterisation(5, 2, 3);
+    file = folder.getRoot().toPath().resolve("other.checkpoint");
+    job = SweepJob.open(file, -300, 700, params, 100, true, 64);
+    assertTrue(job.run(new ForkJoinPool(2), 1, TimeUnit.MILLISECONDS));
+    assertMatchesSequentialSweep(job.snapshot(), -300, 700, params, 100);
+    assertTrue(job.snapshot().cycledSeeds() > 0);
+  }
+
+  @Test
+  public void testSweepJob_CountsZeroAsAZeroStop() throws IOException {
+    // 0 stops on zero in zero steps, so is neither a stopped seed nor a record, and the
+    // negative seeds all fall into the negative cycles.
+    Path file = folder.getRoot().toPath().resolve("zero.checkpoint");
+    SweepJob job = SweepJob.open(file, -5, 10, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 4);
+    assertTrue(job.run(new ForkJoinPool(2), 1, TimeUnit.MILLISECONDS));
+    assertMatchesSequentialSweep(job.snapshot(), -5, 10, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    assertEquals(1, job.snapshot().zeroSeeds());
+    assertEquals(5, job.snapshot().cycledSeeds());
+    assertEquals(9, job.snapshot().stoppedSeeds());
+    assertArrayEquals(new long[]{1, 2, 3, 6, 7, 9}, job.snapshot().recordSeeds());
+  }
+
+  @Test
+  public void testSweepJob_ResumesFromItsCheckpoint() throws IOException, InterruptedException {
+    Path file = folder.getRoot().toPath().resolve("resumed.checkpoint");
+    final SweepJob first = SweepJob.open(file, 1, 100000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 500);
+    final AtomicReference<Boolean> completed = new AtomicReference<Boolean>();
+    Thread runner = new Thread(() -> {
+      try {
+        completed.set(first.run(new ForkJoinPool(2), 1, TimeUnit.MILLISECONDS));
+      } catch (IOException e) {
+        completed.set(null);
+      }
+    });
+    runner.start();
+    while (first.snapshot().completedChunks() == 0 && runner.isAlive()) {
+      Thread.sleep(1);
+    }
+    first.cancel();
+    runner.join();
+    assertTrue(Files.exists(file));
+    SweepJob.Snapshot interrupted = first.snapshot();
+    assertEquals(completed.get(), first.isComplete());
+    // Reopening the checkpoint continues with exactly the chunks that had completed.
+    SweepJob second = SweepJob.open(file, 1, 100000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 500);
+    assertEquals(interrupted.completedChunks(), second.snapshot().completedChunks());
+    assertEquals(interrupted.completedSeeds(), second.snapshot().completedSeeds());
+    assertEquals(interrupted.stoppingTimeSum(), second.snapshot().stoppingTimeSum());
+    assertArrayEquals(interrupted.recordSeeds(), second.snapshot().recordSeeds());
+    for (int chunk = 0; chunk < second.chunks(); chunk++) {
+      assertEquals(interrupted.isChunkCompleted(chunk), second.snapshot().isChunkCompleted(chunk));
+    }
+    assertTrue(second.run(new ForkJoinPool(2), 1, TimeUnit.MILLISECONDS));
+    assertMatchesSequentialSweep(second.snapshot(), 1, 100000, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    assertEquals(77031, second.snapshot().recordSeeds()[second.snapshot().recordSeeds().length - 1]);
+    // A completed job has nothing left to run.
+    SweepJob third = SweepJob.open(file, 1, 100000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 500);
+    assertTrue(third.isComplete());
+    assertTrue(third.run());
+  }
+
+  @Test
+  public void testSweepJob_CancelledBeforeRunningCompletesNothing() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("cancelled.checkpoint");
+    SweepJob job = SweepJob.open(file, 1, 10000, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    job.cancel();
+    assertFalse(job.run());
+    assertEquals(0, job.snapshot().completedSeeds());
+    assertEquals(0, job.snapshot().recordSeeds().length);
+    assertTrue(Files.exists(file));
+  }
+
+  @Test
+  public void testSweepJob_RejectsMismatchedCheckpointsAndInvalidRanges() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("mismatched.checkpoint");
+    SweepJob.open(file, 1, 10000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 100).checkpoint();
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(file, 1, 10001, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(file, 1, 10000, wrapParameterisation(5, 2, 3), 1000, true, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(file, 1, 10000, Collatz.DEFAULT_PARAMETERISATION, 1000, false, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(file, 1, 10000, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 200);
+    });
+    Path other = folder.getRoot().toPath().resolve("other.checkpoint");
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(other, 10, 1, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(other, Long.MIN_VALUE, Long.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(other, 1, 10, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      SweepJob.open(other, 0, Long.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 1);
+    });
+    Files.write(other, new byte[]{1, 2, 3, 4});
+    assertThrows(IOException.class, () -> {
+      SweepJob.open(other, 1, 10, Collatz.DEFAULT_PARAMETERISATION, 1000);
+    });
+  }
+}
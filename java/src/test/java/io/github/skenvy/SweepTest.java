@@ -0,0 +1,166 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.Parameterisation;
+
+/**
+ * Test the parallel sweeps of stopping times over ranges of seeds.
+ */
+public class SweepTest {
+
+  private static Parameterisation wrapParameterisation(long p, long a, long b) {
+    return new Parameterisation(BigInteger.valueOf(p), BigInteger.valueOf(a), BigInteger.valueOf(b));
+  }
+
+  private static double wrapStoppingTime(long n, Parameterisation params, int max, boolean total) {
+    Double stoppingTime = Collatz.stoppingTime(BigInteger.valueOf(n), params, max, total);
+    return (stoppingTime == null) ? Double.NaN : stoppingTime;
+  }
+
+  @Test
+  public void testSweep_MatchesSequentialStoppingTimes() {
+    // Sweep ranges, across zero, of the default and some wider parameterisations,
+    // with chunks small enough to split, and compare to the sequential stopping times.
+    long[][] pabs = {{2, 3, 1}, {5, 2, 3}, {2, 3, -1}, {-2, -3, -1}};
+    for (long[] pab : pabs) {
+      Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      for (boolean total : new boolean[]{false, true}) {
+        double[] stoppingTimes = Collatz.sweep(-300, 300, params, 100, total);
+        assertEquals(600, stoppingTimes.length);
+        for (int k = 0; k < stoppingTimes.length; k++) {
+          assertEquals(wrapStoppingTime(k - 300, params, 100, total), stoppingTimes[k], 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSweep_ExceedingTheMaximumIsNaN() {
+    // 27 takes 96 steps to get below 27, and 111 steps to reach 1.
+    double[] stoppingTimes = Collatz.sweep(27, 28, Collatz.DEFAULT_PARAMETERISATION, 50);
+    assertTrue(Double.isNaN(stoppingTimes[0]));
+    stoppingTimes = Collatz.sweep(27, 28, Collatz.DEFAULT_PARAMETERISATION, 111, true);
+    assertEquals(111, stoppingTimes[0], 0);
+  }
+
+  @Test
+  public void testSweep_SinkAndProgress() {
+    // A small chunk size so that the sweep splits into many tasks.
+    AtomicLong seedSum = new AtomicLong();
+    AtomicLong stoppingTimeSum = new AtomicLong();
+    AtomicLong lastProgress = new AtomicLong();
+    Sweep sweep = new Sweep(1, 1001, Collatz.DEFAULT_PARAMETERISATION, 1000, true, 16, (seed, stoppingTime) -> {
+      seedSum.addAndGet(seed);
+      stoppingTimeSum.addAndGet((long) stoppingTime);
+    }, (completed, totalSeeds) -> {
+      assertEquals(1000, totalSeeds);
+      lastProgress.accumulateAndGet(completed, Math::max);
+    });
+    assertTrue(sweep.run(new ForkJoinPool(4)));
+    assertFalse(sweep.isCancelled());
+    assertEquals(500500, seedSum.get());
+    long expectedStoppingTimeSum = 0;
+    for (long n = 1; n <= 1000; n++) {
+      expectedStoppingTimeSum += (long) wrapStoppingTime(n, Collatz.DEFAULT_PARAMETERISATION, 1000, true);
+    }
+    assertEquals(expectedStoppingTimeSum, stoppingTimeSum.get());
+    assertEquals(1000, sweep.completedSeeds());
+    assertEquals(1000, sweep.totalSeeds());
+    assertEquals(1000, lastProgress.get());
+  }
+
+  @Test
+  public void testSweep_Cancel() {
+    // Cancel from within the sink, after which no further chunks should start.
+    AtomicLong accepted = new AtomicLong();
+    Sweep[] sweep = new Sweep[1];
+    sweep[0] = new Sweep(1, 1000001, Collatz.DEFAULT_PARAMETERISATION, 1000, false, 64, (seed, stoppingTime) -> {
+      if (accepted.incrementAndGet() == 100) {
+        sweep[0].cancel();
+      }
+    }, null);
+    assertFalse(sweep[0].run());
+    assertTrue(sweep[0].isCancelled());
+    assertTrue(sweep[0].completedSeeds() < sweep[0].totalSeeds());
+  }
+
+  @Test
+  public void testSweep_RecordsMatchSequentialScan() {
+    // Small chunks, such that the records of many chunks are merged out of order.
+    long[][] pabs = {{2, 3, 1}, {5, 2, 3}, {2, 3, -1}};
+    for (long[] pab : pabs) {
+      Parameterisation params = wrapParameterisation(pab[0], pab[1], pab[2]);
+      List<Collatz.TrajectoryStatistics> records = new ArrayList<Collatz.TrajectoryStatistics>();
+      List<boolean[]> kinds = new ArrayList<boolean[]>();
+      new Sweep(-200, 2000, params, 300, 16, (statistics, delayRecord, pathRecord) -> {
+        records.add(statistics);
+        kinds.add(new boolean[]{delayRecord, pathRecord});
+      }, null).run(new ForkJoinPool(4));
+      int record = 0;
+      int delay = -1;
+      BigInteger path = null;
+      for (long seed = -200; seed < 2000; seed++) {
+        Collatz.TrajectoryStatistics statistics = Collatz.trajectoryStatistics(BigInteger.valueOf(seed), params, 300);
+        if (statistics.terminalCondition != Collatz.SequenceState.TOTAL_STOPPING_TIME) {
+          continue;
+        }
+        boolean delayRecord = statistics.steps > delay;
+        boolean pathRecord = path == null || statistics.peak.compareTo(path) > 0;
+        if (delayRecord || pathRecord) {
+          assertEquals(BigInteger.valueOf(seed), records.get(record).initialValue);
+          assertEquals(delayRecord, kinds.get(record)[0]);
+          assertEquals(pathRecord, kinds.get(record)[1]);
+          record++;
+          delay = Math.max(delay, statistics.steps);
+          path = (path == null) ? statistics.peak : path.max(statistics.peak);
+        }
+      }
+      assertEquals(record, records.size());
+    }
+    // The well known delay and path records of the default parameterisation, below 1000.
+    List<Long> delays = new ArrayList<Long>();
+    List<Long> paths = new ArrayList<Long>();
+    new Sweep(1, 1000, Collatz.DEFAULT_PARAMETERISATION, 1000, 7, (statistics, delayRecord, pathRecord) -> {
+      if (delayRecord) {
+        delays.add(statistics.initialValue.longValueExact());
+      }
+      if (pathRecord) {
+        paths.add(statistics.initialValue.longValueExact());
+      }
+    }, null).run();
+    assertEquals(Arrays.asList(1L, 2L, 3L, 6L, 7L, 9L, 18L, 25L, 27L, 54L, 73L, 97L, 129L, 171L, 231L, 313L, 327L, 649L, 703L, 871L), delays);
+    assertEquals(Arrays.asList(1L, 2L, 3L, 7L, 15L, 27L, 255L, 447L, 639L, 703L), paths);
+    assertEquals(24, Collatz.records(1, 1000, Collatz.DEFAULT_PARAMETERISATION, 1000).size());
+  }
+
+  @Test
+  public void testSweep_InvalidRanges() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.sweep(10, 9, Collatz.DEFAULT_PARAMETERISATION, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      Collatz.sweep(0, Integer.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 100);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new Sweep(Long.MIN_VALUE, Long.MAX_VALUE, Collatz.DEFAULT_PARAMETERISATION, 100, false, (seed, stoppingTime) -> { });
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new Sweep(0, 10, Collatz.DEFAULT_PARAMETERISATION, 100, false, 0, (seed, stoppingTime) -> { }, null);
+    });
+    // An empty range is valid, and empty.
+    assertEquals(0, Collatz.sweep(5, 5, Collatz.DEFAULT_PARAMETERISATION, 100).length);
+  }
+}
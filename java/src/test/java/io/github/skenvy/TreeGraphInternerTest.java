@@ -0,0 +1,73 @@
+package io.github.skenvy;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import io.github.skenvy.Collatz.SequenceState;
+import io.github.skenvy.Collatz.TreeGraph;
+import io.github.skenvy.Collatz.TreeGraphNode;
+
+/**
+ * Test the hash-consing of the subtrees of tree graphs.
+ */
+public class TreeGraphInternerTest {
+
+  @Test
+  public void testTreeGraphInterner_SharesSubtreesBetweenTrees() {
+    TreeGraphInterner interner = new TreeGraphInterner();
+    TreeGraph ofEight = Collatz.treeGraph(BigInteger.valueOf(8), 17, Collatz.DEFAULT_PARAMETERISATION, interner);
+    int interned = interner.size();
+    TreeGraph ofOne = Collatz.treeGraph(BigInteger.ONE, 20, Collatz.DEFAULT_PARAMETERISATION, interner);
+    // 1 -> 2 -> 4 -> 8, so the tree of 8 is the subtree of the tree of 1 at 8.
+    TreeGraphNode eight = ofOne.root.preNDivPNode.preNDivPNode.preNDivPNode;
+    assertSame(ofEight.root, eight);
+    // Only 1, 2, 4, and the repeat of 1, are new.
+    assertEquals(interned + 4, interner.size());
+    assertEquals(Collatz.treeGraph(BigInteger.valueOf(8), 17), ofEight);
+    assertEquals(Collatz.treeGraph(BigInteger.ONE, 20), ofOne);
+    assertEquals(Collatz.treeGraph(BigInteger.ONE, 20).hashCode(), ofOne.hashCode());
+    interner.clear();
+    assertEquals(0, interner.size());
+    assertNotSame(ofOne.root, Collatz.treeGraph(BigInteger.ONE, 20, Collatz.DEFAULT_PARAMETERISATION, interner).root);
+  }
+
+  @Test
+  public void testTreeGraphInterner_InternsExistingTrees() {
+    TreeGraphInterner interner = new TreeGraphInterner();
+    TreeGraph canonical = Collatz.treeGraph(BigInteger.valueOf(27), 12, Collatz.DEFAULT_PARAMETERISATION, interner);
+    TreeGraph built = Collatz.treeGraph(BigInteger.valueOf(27), 12);
+    assertSame(canonical.root, interner.intern(built).root);
+    // A tree that is already interned is its own canonical tree.
+    assertSame(canonical.root, interner.intern(canonical.root));
+    TreeGraphNode handBuilt = new TreeGraphNode(BigInteger.ONE, SequenceState.CYCLE_INIT,
+        new TreeGraphNode(BigInteger.valueOf(2), null,
+            new TreeGraphNode(BigInteger.valueOf(4), null,
+                new TreeGraphNode(BigInteger.valueOf(8), SequenceState.MAX_STOP_OUT_OF_BOUNDS, null, null),
+                new TreeGraphNode(BigInteger.ONE, SequenceState.CYCLE_LENGTH, null, null)),
+            null),
+        null);
+    TreeGraphNode interned = interner.intern(handBuilt);
+    assertSame(interned, Collatz.treeGraph(BigInteger.ONE, 3, Collatz.DEFAULT_PARAMETERISATION, interner).root);
+    assertEquals(Collatz.treeGraph(BigInteger.ONE, 3).root, interned);
+  }
+
+  @Test
+  public void testTreeGraphInterner_DeduplicatesTrees() {
+    TreeGraphInterner interner = new TreeGraphInterner();
+    Set<TreeGraph> trees = new HashSet<TreeGraph>();
+    for (int k = 0; k < 3; k++) {
+      for (long root = -10; root <= 10; root++) {
+        trees.add(Collatz.treeGraph(BigInteger.valueOf(root), 10, Collatz.DEFAULT_PARAMETERISATION, interner));
+        trees.add(Collatz.treeGraph(BigInteger.valueOf(root), 10));
+      }
+    }
+    assertEquals(21, trees.size());
+  }
+}